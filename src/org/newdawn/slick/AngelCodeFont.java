@@ -1,16 +1,13 @@
 package org.newdawn.slick;
 
-import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.StringTokenizer;
 import java.util.Map.Entry;
 
 import org.newdawn.slick.opengl.renderer.Renderer;
@@ -26,8 +23,8 @@ import org.newdawn.slick.util.ResourceLoader;
  * href="http://www.angelcode.com/products/bmfont/">http://www.angelcode.com/products/bmfont/</a>
  * 
  * This implementation copes with both the font display and kerning information
- * allowing nicer looking paragraphs of text. Note that this utility only
- * supports the text BMFont format definition file.
+ * allowing nicer looking paragraphs of text. Both the text and binary BMFont
+ * format definition files are supported, the format is detected when the file is read.
  * 
  * @author kevin
  * @author Nathan Sweet <misc@n4te.com>
@@ -42,16 +39,28 @@ public class AngelCodeFont implements Font {
 	 */
 	private static final int DISPLAY_LIST_CACHE_SIZE = 200;
 	
-	/** The highest character that AngelCodeFont will support. */
-	private static final int MAX_CHAR = 255;
+	/** The type of the block of character definitions in a binary font definition */
+	private static final int BLOCK_CHARS = 4;
+	/** The type of the block of kerning pairs in a binary font definition */
+	private static final int BLOCK_KERNING = 5;
+	/** The alpha at the edge of the glyphs in a distance field font */
+	private static final float DISTANCE_FIELD_THRESHOLD = 0.5f;
 
 	/** True if this font should use display list caching */
 	private boolean displayListCaching = true;
+	/** True if the font image is a distance field, drawn with an alpha test */
+	private boolean distanceField;
 
 	/** The image containing the bitmap font */
 	private Image fontImage;
-	/** The characters building up the font */
+	/** The characters building up the font, indexed by code point up to the highest in the BMP */
 	private CharDef[] chars;
+	/** The characters in the font above the basic multilingual plane */
+	private CharDef[] supplementaryChars;
+	/** The index into supplementaryChars of each character above the basic multilingual plane */
+	private IntTable supplementaryIndex;
+	/** The kerning offsets keyed by the first code point of each pair in the high word and the second in the low word */
+	private IntTable kerning;
 	/** The height of a line */
 	private int lineHeight;
 	/** The first display list ID */
@@ -190,7 +199,8 @@ public class AngelCodeFont implements Font {
 	}
 
 	/**
-	 * Parse the font definition file
+	 * Parse the font definition file, either the text or binary format written by
+	 * AngelCode's BMFont
 	 * 
 	 * @param fntFile
 	 *            The stream from which the font file can be read
@@ -203,69 +213,40 @@ public class AngelCodeFont implements Font {
 		}
 
 		try {
-			// now parse the font file
-			BufferedReader in = new BufferedReader(new InputStreamReader(
-					fntFile));
-			String info = in.readLine();
-			String common = in.readLine();
-			String page = in.readLine();
-
-			Map kerning = new HashMap(64);
-			List charDefs = new ArrayList(MAX_CHAR);
+			FntReader in = new FntReader(fntFile);
+			List charDefs = new ArrayList(256);
+			if (in.startsWith("BMF")) {
+				parseBinary(in, charDefs);
+			} else {
+				parseText(in, charDefs);
+			}
+
+			// Characters in the basic multilingual plane are looked up directly, any
+			// above it through a table.
 			int maxChar = 0;
-			boolean done = false;
-			while (!done) {
-				String line = in.readLine();
-				if (line == null) {
-					done = true;
+			int supplementaryCount = 0;
+			for (Iterator iter = charDefs.iterator(); iter.hasNext();) {
+				CharDef def = (CharDef)iter.next();
+				if (def.id > Character.MAX_VALUE) {
+					supplementaryCount++;
 				} else {
-					if (line.startsWith("chars c")) {
-						// ignore
-					} else if (line.startsWith("char")) {
-						CharDef def = parseChar(line);
-						if (def != null) {
-							maxChar = Math.max(maxChar, def.id);
-							charDefs.add(def);
-						}
-					}
-					if (line.startsWith("kernings c")) {
-						// ignore
-					} else if (line.startsWith("kerning")) {
-						StringTokenizer tokens = new StringTokenizer(line, " =");
-						tokens.nextToken(); // kerning
-						tokens.nextToken(); // first
-						short first = Short.parseShort(tokens.nextToken()); // first value
-						tokens.nextToken(); // second
-						int second = Integer.parseInt(tokens.nextToken()); // second value
-						tokens.nextToken(); // offset
-						int offset = Integer.parseInt(tokens.nextToken()); // offset value
-						List values = (List)kerning.get(new Short(first));
-						if (values == null) {
-							values = new ArrayList();
-							kerning.put(new Short(first), values);
-						}
-						// Pack the character and kerning offset into a short.
-						values.add(new Short((short)((offset << 8) | second)));
-					}
+					maxChar = Math.max(maxChar, def.id);
 				}
 			}
-
 			chars = new CharDef[maxChar + 1];
+			if (supplementaryCount > 0) {
+				supplementaryChars = new CharDef[supplementaryCount];
+				supplementaryIndex = new IntTable(supplementaryCount);
+			}
+			int supplementary = 0;
 			for (Iterator iter = charDefs.iterator(); iter.hasNext();) {
 				CharDef def = (CharDef)iter.next();
-				chars[def.id] = def;
-			}
-
-			// Turn each list of kerning values into a short[] and set on the chardef. 
-			for (Iterator iter = kerning.entrySet().iterator(); iter.hasNext(); ) {
-				Entry entry = (Entry)iter.next();
-				short first = ((Short)entry.getKey()).shortValue();
-				List valueList = (List)entry.getValue();
-				short[] valueArray = new short[valueList.size()];
-				int i = 0;
-				for (Iterator valueIter = valueList.iterator(); valueIter.hasNext(); i++)
-					valueArray[i] = ((Short)valueIter.next()).shortValue();
-				chars[first].kerning = valueArray;
+				if (def.id > Character.MAX_VALUE) {
+					supplementaryChars[supplementary] = def;
+					supplementaryIndex.put(def.id, supplementary++);
+				} else {
+					chars[def.id] = def;
+				}
 			}
 		} catch (IOException e) {
 			Log.error(e);
@@ -274,42 +255,154 @@ public class AngelCodeFont implements Font {
 	}
 
 	/**
-	 * Parse a single character line from the definition
+	 * Parse the text format of the font definition. Each line is tokenized in place, only
+	 * the tags and attributes used are read.
 	 * 
-	 * @param line
-	 *            The line to be parsed
-	 * @return The character definition from the line
+	 * @param in The reader for the font definition
+	 * @param charDefs The list to add the characters defined to
+	 * @throws IOException Indicates a failure to read the definition
 	 * @throws SlickException Indicates a given character is not valid in an angel code font
 	 */
-	private CharDef parseChar(String line) throws SlickException {
-		CharDef def = new CharDef();
-		StringTokenizer tokens = new StringTokenizer(line, " =");
+	private void parseText(FntReader in, List charDefs) throws IOException, SlickException {
+		int[] values = new int[8];
+		while (in.nextTag()) {
+			if (in.isWord("char")) {
+				// id, x, y, width, height, xoffset, yoffset, xadvance
+				for (int i=0;i<values.length;i++) {
+					values[i] = 0;
+				}
+				while (in.nextAttribute()) {
+					int index = -1;
+					if (in.isWord("id")) index = 0;
+					else if (in.isWord("x")) index = 1;
+					else if (in.isWord("y")) index = 2;
+					else if (in.isWord("width")) index = 3;
+					else if (in.isWord("height")) index = 4;
+					else if (in.isWord("xoffset")) index = 5;
+					else if (in.isWord("yoffset")) index = 6;
+					else if (in.isWord("xadvance")) index = 7;
+
+					if (index == -1) {
+						in.skipValue();
+					} else {
+						values[index] = in.readValue();
+					}
+				}
+				CharDef def = createChar(values[0], values[1], values[2], values[3], values[4],
+						values[5], values[6], values[7]);
+				if (def != null) {
+					charDefs.add(def);
+				}
+			} else if (in.isWord("kerning")) {
+				int first = 0, second = 0, amount = 0;
+				while (in.nextAttribute()) {
+					if (in.isWord("first")) first = in.readValue();
+					else if (in.isWord("second")) second = in.readValue();
+					else if (in.isWord("amount")) amount = in.readValue();
+					else in.skipValue();
+				}
+				addKerning(first, second, amount);
+			} else if (in.isWord("kernings")) {
+				while (in.nextAttribute()) {
+					if (in.isWord("count")) {
+						int count = in.readValue();
+						if (kerning == null) kerning = new IntTable(count);
+					} else {
+						in.skipValue();
+					}
+				}
+			} else {
+				in.skipLine();
+			}
+		}
+	}
+
+	/**
+	 * Parse the binary format of the font definition, version 3 as written by BMFont 1.10
+	 * onwards. Only the character and kerning blocks are read, the others are skipped.
+	 * 
+	 * @param in The reader for the font definition
+	 * @param charDefs The list to add the characters defined to
+	 * @throws IOException Indicates a failure to read the definition
+	 * @throws SlickException Indicates the definition isn't valid for an angel code font
+	 */
+	private void parseBinary(FntReader in, List charDefs) throws IOException, SlickException {
+		in.skip(3);
+		int version = in.readByte();
+		if (version != 3) {
+			throw new SlickException("Unsupported binary font version: " + version);
+		}
+
+		int type;
+		while ((type = in.read()) != -1) {
+			int size = in.readInt();
+			if (type == BLOCK_CHARS) {
+				int count = size / 20;
+				for (int i=0;i<count;i++) {
+					int id = in.readInt();
+					int x = in.readUnsignedShort();
+					int y = in.readUnsignedShort();
+					int width = in.readUnsignedShort();
+					int height = in.readUnsignedShort();
+					int xoffset = in.readShort();
+					int yoffset = in.readShort();
+					int xadvance = in.readShort();
+					in.skip(2); // page, channel
 
-		tokens.nextToken(); // char
-		tokens.nextToken(); // id
-		def.id = Short.parseShort(tokens.nextToken()); // id value
-		if (def.id < 0) {
+					CharDef def = createChar(id, x, y, width, height, xoffset, yoffset, xadvance);
+					if (def != null) {
+						charDefs.add(def);
+					}
+				}
+				in.skip(size - (count * 20));
+			} else if (type == BLOCK_KERNING) {
+				int count = size / 10;
+				if (kerning == null) kerning = new IntTable(count);
+				for (int i=0;i<count;i++) {
+					int first = in.readInt();
+					int second = in.readInt();
+					addKerning(first, second, in.readShort());
+				}
+				in.skip(size - (count * 10));
+			} else {
+				in.skip(size);
+			}
+		}
+	}
+
+	/**
+	 * Create the definition of a single character
+	 * 
+	 * @param id The code point of the character
+	 * @param x The x location on the sprite sheet
+	 * @param y The y location on the sprite sheet
+	 * @param width The width of the character image
+	 * @param height The height of the character image
+	 * @param xoffset The amount the x position should be offset when drawing the image
+	 * @param yoffset The amount the y position should be offset when drawing the image
+	 * @param xadvance The amount to move the current position after drawing the character
+	 * @return The character definition or null if the character should be ignored
+	 * @throws SlickException Indicates a given character is not valid in an angel code font
+	 */
+	private CharDef createChar(int id, int x, int y, int width, int height, int xoffset,
+			int yoffset, int xadvance) throws SlickException {
+		if (id < 0) {
 			return null;
 		}
-		if (def.id > MAX_CHAR) {
-			throw new SlickException("Invalid character '" + def.id
-				+ "': AngelCodeFont does not support characters above " + MAX_CHAR);
-		}
-
-		tokens.nextToken(); // x
-		def.x = Short.parseShort(tokens.nextToken()); // x value
-		tokens.nextToken(); // y
-		def.y = Short.parseShort(tokens.nextToken()); // y value
-		tokens.nextToken(); // width
-		def.width = Short.parseShort(tokens.nextToken()); // width value
-		tokens.nextToken(); // height
-		def.height = Short.parseShort(tokens.nextToken()); // height value
-		tokens.nextToken(); // x offset
-		def.xoffset = Short.parseShort(tokens.nextToken()); // xoffset value
-		tokens.nextToken(); // y offset
-		def.yoffset = Short.parseShort(tokens.nextToken()); // yoffset value
-		tokens.nextToken(); // xadvance
-		def.xadvance = Short.parseShort(tokens.nextToken()); // xadvance
+		if (id > Character.MAX_CODE_POINT) {
+			throw new SlickException("Invalid character '" + id
+				+ "': AngelCodeFont does not support characters above " + Character.MAX_CODE_POINT);
+		}
+
+		CharDef def = new CharDef();
+		def.id = id;
+		def.x = (short)x;
+		def.y = (short)y;
+		def.width = (short)width;
+		def.height = (short)height;
+		def.xoffset = (short)xoffset;
+		def.yoffset = (short)yoffset;
+		def.xadvance = (short)xadvance;
 
 		def.init();
 
@@ -320,6 +413,40 @@ public class AngelCodeFont implements Font {
 		return def;
 	}
 
+	/**
+	 * Add the kerning between a pair of characters
+	 * 
+	 * @param first The code point of the first character
+	 * @param second The code point of the character following it
+	 * @param amount The offset to apply to the second character's position
+	 */
+	private void addKerning(int first, int second, int amount) {
+		if ((first < 0) || (second < 0)) {
+			return;
+		}
+		if (kerning == null) {
+			kerning = new IntTable(64);
+		}
+		kerning.put(((long)first << 32) | second, amount);
+	}
+
+	/**
+	 * Get the definition of a character
+	 * 
+	 * @param codePoint The code point of the character
+	 * @return The definition of the character or null if the font doesn't include it
+	 */
+	private CharDef getCharDef(int codePoint) {
+		if (codePoint < chars.length) {
+			return chars[codePoint];
+		}
+		if (supplementaryIndex == null) {
+			return null;
+		}
+		int index = supplementaryIndex.get(codePoint, -1);
+		return index == -1 ? null : supplementaryChars[index];
+	}
+
 	/**
 	 * @see org.newdawn.slick.Font#drawString(float, float, java.lang.String)
 	 */
@@ -343,6 +470,11 @@ public class AngelCodeFont implements Font {
 		fontImage.bind();
 		col.bind();
 
+		if (distanceField) {
+			GL.glDisable(SGL.GL_BLEND);
+			GL.glEnable(SGL.GL_ALPHA_TEST);
+			GL.glAlphaFunc(SGL.GL_GEQUAL, DISTANCE_FIELD_THRESHOLD);
+		}
 		GL.glTranslatef(x, y, 0);
 		if (displayListCaching && startIndex == 0 && endIndex == text.length() - 1) {
 			DisplayList displayList = (DisplayList)displayLists.get(text);
@@ -370,6 +502,34 @@ public class AngelCodeFont implements Font {
 			render(text, startIndex, endIndex);
 		}
 		GL.glTranslatef(-x, -y, 0);
+		if (distanceField) {
+			GL.glDisable(SGL.GL_ALPHA_TEST);
+			GL.glEnable(SGL.GL_BLEND);
+		}
+	}
+
+	/**
+	 * Indicate whether the font image is a signed distance field, as generated by
+	 * {@link org.newdawn.slick.font.effects.DistanceFieldEffect}. A distance field font is
+	 * drawn with linear filtering and an alpha test at the edge of the glyphs rather than
+	 * blending, so it stays sharp when drawn scaled up.
+	 * 
+	 * @param distanceField True if the font image is a distance field
+	 */
+	public void setDistanceField(boolean distanceField) {
+		this.distanceField = distanceField;
+		if (distanceField) {
+			fontImage.setFilter(Image.FILTER_LINEAR);
+		}
+	}
+
+	/**
+	 * Check if the font image is drawn as a signed distance field
+	 * 
+	 * @return True if the font image is drawn as a distance field
+	 */
+	public boolean isDistanceField() {
+		return distanceField;
 	}
 
 	/**
@@ -384,18 +544,14 @@ public class AngelCodeFont implements Font {
 
 		int x = 0, y = 0;
 		CharDef lastCharDef = null;
-		char[] data = text.toCharArray();
-		for (int i = 0; i < data.length; i++) {
-			int id = data[i];
+		for (int i = 0, id; i < text.length(); i += Character.charCount(id)) {
+			id = text.codePointAt(i);
 			if (id == '\n') {
 				x = 0;
 				y += getLineHeight();
 				continue;
 			}
-			if (id >= chars.length) {
-				continue;
-			}
-			CharDef charDef = chars[id];
+			CharDef charDef = getCharDef(id);
 			if (charDef == null) {
 				continue;
 			}
@@ -430,9 +586,9 @@ public class AngelCodeFont implements Font {
 		if (stopIndex == -1) stopIndex = text.length();
 
 		int minYOffset = 10000;
-		for (int i = 0; i < stopIndex; i++) {
-			int id = text.charAt(i);
-			CharDef charDef = chars[id];
+		for (int i = 0, id; i < stopIndex; i += Character.charCount(id)) {
+			id = text.codePointAt(i);
+			CharDef charDef = getCharDef(id);
 			if (charDef == null) {
 				continue;
 			}
@@ -456,8 +612,8 @@ public class AngelCodeFont implements Font {
 
 		int lines = 0;
 		int maxHeight = 0;
-		for (int i = 0; i < text.length(); i++) {
-			int id = text.charAt(i);
+		for (int i = 0, id; i < text.length(); i += Character.charCount(id)) {
+			id = text.codePointAt(i);
 			if (id == '\n') {
 				lines++;
 				maxHeight = 0;
@@ -467,7 +623,7 @@ public class AngelCodeFont implements Font {
 			if (id == ' ') {
 				continue;
 			}
-			CharDef charDef = chars[id];
+			CharDef charDef = getCharDef(id);
 			if (charDef == null) {
 				continue;
 			}
@@ -496,16 +652,13 @@ public class AngelCodeFont implements Font {
 		int maxWidth = 0;
 		int width = 0;
 		CharDef lastCharDef = null;
-		for (int i = 0, n = text.length(); i < n; i++) {
-			int id = text.charAt(i);
+		for (int i = 0, n = text.length(), id; i < n; i += Character.charCount(id)) {
+			id = text.codePointAt(i);
 			if (id == '\n') {
 				width = 0;
 				continue;
 			}
-			if (id >= chars.length) {
-				continue;
-			}
-			CharDef charDef = chars[id];
+			CharDef charDef = getCharDef(id);
 			if (charDef == null) {
 				continue;
 			}
@@ -513,7 +666,7 @@ public class AngelCodeFont implements Font {
 			if (lastCharDef != null) width += lastCharDef.getKerning(id);
 			lastCharDef = charDef;
 
-			if (i < n - 1) {
+			if (i + Character.charCount(id) < n) {
 				width += charDef.xadvance;
 			} else {
 				width += charDef.width;
@@ -534,7 +687,7 @@ public class AngelCodeFont implements Font {
 	 */
 	private class CharDef {
 		/** The id of the character */
-		public short id;
+		public int id;
 		/** The x location on the sprite sheet */
 		public short x;
 		/** The y location on the sprite sheet */
@@ -554,8 +707,6 @@ public class AngelCodeFont implements Font {
 		public Image image;
 		/** The display list index for this character */
 		public short dlIndex;
-		/** The kerning info for this character */
-		public short[] kerning;
 
 		/**
 		 * Initialise the image by cutting the right section from the map
@@ -591,20 +742,7 @@ public class AngelCodeFont implements Font {
 		 */
 		public int getKerning (int otherCodePoint) {
 			if (kerning == null) return 0;
-			int low = 0;
-			int high = kerning.length - 1;
-			while (low <= high) {
-				int midIndex = (low + high) >>> 1;
-				int value = kerning[midIndex];
-				int foundCodePoint = value & 0xff;
-				if (foundCodePoint < otherCodePoint)
-					low = midIndex + 1;
-				else if (foundCodePoint > otherCodePoint)
-					high = midIndex - 1;
-				else 
-					return value >> 8;
-			}
-			return 0;
+			return kerning.get(((long)id << 32) | otherCodePoint, 0);
 		}
 	}
 
@@ -632,4 +770,434 @@ public class AngelCodeFont implements Font {
 		/** The text that the display list holds */
 		String text;
 	}
+
+	/**
+	 * An open addressing hash table from non-negative long keys to int values. Lookups
+	 * probe linearly from the slot the key hashes to, the table is kept at most half full
+	 * so runs stay short.
+	 * 
+	 * @author kevin
+	 */
+	static private class IntTable {
+		/** The value marking an empty slot */
+		private static final long EMPTY = -1;
+
+		/** The key in each slot */
+		private long[] keys;
+		/** The value in each slot */
+		private int[] values;
+		/** The number of keys in the table */
+		private int size;
+		/** The number of bits to shift a hashed key to get a slot */
+		private int shift;
+
+		/**
+		 * Create a new table
+		 * 
+		 * @param expected The number of keys expected to be added
+		 */
+		IntTable(int expected) {
+			int capacity = 16;
+			while (capacity < expected * 2) {
+				capacity <<= 1;
+			}
+			allocate(capacity);
+		}
+
+		/**
+		 * Allocate empty slots
+		 * 
+		 * @param capacity The number of slots, a power of two
+		 */
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, EMPTY);
+			shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		}
+
+		/**
+		 * Get the slot a key hashes to
+		 * 
+		 * @param key The key to hash
+		 * @return The first slot to probe for the key
+		 */
+		private int slot(long key) {
+			return (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+		}
+
+		/**
+		 * Set the value for a key, replacing any already set
+		 * 
+		 * @param key The key to set, not negative
+		 * @param value The value for the key
+		 */
+		void put(long key, int value) {
+			if ((size + 1) * 2 > keys.length) {
+				long[] oldKeys = keys;
+				int[] oldValues = values;
+				allocate(keys.length * 2);
+				size = 0;
+				for (int i=0;i<oldKeys.length;i++) {
+					if (oldKeys[i] != EMPTY) {
+						put(oldKeys[i], oldValues[i]);
+					}
+				}
+			}
+
+			int mask = keys.length - 1;
+			int i = slot(key);
+			while (keys[i] != EMPTY) {
+				if (keys[i] == key) {
+					values[i] = value;
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			values[i] = value;
+			size++;
+		}
+
+		/**
+		 * Get the value for a key
+		 * 
+		 * @param key The key to look up
+		 * @param missing The value to return if the key isn't in the table
+		 * @return The value for the key
+		 */
+		int get(long key, int missing) {
+			int mask = keys.length - 1;
+			int i = slot(key);
+			long found;
+			while ((found = keys[i]) != EMPTY) {
+				if (found == key) {
+					return values[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return missing;
+		}
+	}
+
+	/**
+	 * Reads a font definition through a buffer. The text format is tokenized in place, the
+	 * last tag or attribute name read is held as bytes rather than a new string, and numbers
+	 * are parsed as they're read. The binary format is read little endian.
+	 * 
+	 * @author kevin
+	 */
+	static private class FntReader {
+		/** The stream being read */
+		private InputStream in;
+		/** The bytes read from the stream */
+		private byte[] buffer = new byte[8192];
+		/** The index of the next byte in the buffer */
+		private int position;
+		/** The number of bytes in the buffer */
+		private int limit;
+		/** The last tag or attribute name read, truncated to fit */
+		private byte[] word = new byte[32];
+		/** The length of the last tag or attribute name read */
+		private int wordLength;
+
+		/**
+		 * Create a new reader
+		 * 
+		 * @param in The stream to read
+		 */
+		FntReader(InputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * Make sure a number of bytes are held in the buffer, unless the stream ends first
+		 * 
+		 * @param count The number of bytes needed
+		 * @return True if the bytes are in the buffer
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		private boolean fill(int count) throws IOException {
+			if (limit - position >= count) {
+				return true;
+			}
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+			while (limit < count) {
+				int read = in.read(buffer, limit, buffer.length - limit);
+				if (read < 0) {
+					return false;
+				}
+				limit += read;
+			}
+			return true;
+		}
+
+		/**
+		 * Check if the stream starts with the given characters, without consuming them
+		 * 
+		 * @param prefix The characters to check for
+		 * @return True if the stream starts with the prefix
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		boolean startsWith(String prefix) throws IOException {
+			if (!fill(prefix.length())) {
+				return false;
+			}
+			for (int i=0;i<prefix.length();i++) {
+				if (buffer[position + i] != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Read a byte
+		 * 
+		 * @return The byte read or -1 at the end of the stream
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		int read() throws IOException {
+			if ((position == limit) && (!fill(1))) {
+				return -1;
+			}
+			return buffer[position++] & 0xff;
+		}
+
+		/**
+		 * Get the next byte without consuming it
+		 * 
+		 * @return The next byte or -1 at the end of the stream
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		private int peek() throws IOException {
+			if ((position == limit) && (!fill(1))) {
+				return -1;
+			}
+			return buffer[position] & 0xff;
+		}
+
+		/**
+		 * Read a byte, failing at the end of the stream
+		 * 
+		 * @return The byte read
+		 * @throws IOException Indicates a failure to read the stream or that it ended
+		 */
+		int readByte() throws IOException {
+			int b = read();
+			if (b == -1) {
+				throw new EOFException();
+			}
+			return b;
+		}
+
+		/**
+		 * Read a little endian signed 16 bit value
+		 * 
+		 * @return The value read
+		 * @throws IOException Indicates a failure to read the stream or that it ended
+		 */
+		int readShort() throws IOException {
+			return (short)readUnsignedShort();
+		}
+
+		/**
+		 * Read a little endian unsigned 16 bit value
+		 * 
+		 * @return The value read
+		 * @throws IOException Indicates a failure to read the stream or that it ended
+		 */
+		int readUnsignedShort() throws IOException {
+			if (!fill(2)) {
+				throw new EOFException();
+			}
+			int value = (buffer[position] & 0xff) | ((buffer[position + 1] & 0xff) << 8);
+			position += 2;
+			return value;
+		}
+
+		/**
+		 * Read a little endian 32 bit value
+		 * 
+		 * @return The value read
+		 * @throws IOException Indicates a failure to read the stream or that it ended
+		 */
+		int readInt() throws IOException {
+			if (!fill(4)) {
+				throw new EOFException();
+			}
+			int value = (buffer[position] & 0xff) | ((buffer[position + 1] & 0xff) << 8)
+				| ((buffer[position + 2] & 0xff) << 16) | ((buffer[position + 3] & 0xff) << 24);
+			position += 4;
+			return value;
+		}
+
+		/**
+		 * Skip a number of bytes
+		 * 
+		 * @param count The number of bytes to skip
+		 * @throws IOException Indicates a failure to read the stream or that it ended
+		 */
+		void skip(int count) throws IOException {
+			while (count > 0) {
+				if ((position == limit) && (!fill(1))) {
+					throw new EOFException();
+				}
+				int skipped = Math.min(count, limit - position);
+				position += skipped;
+				count -= skipped;
+			}
+		}
+
+		/**
+		 * Check if a byte separates the words on a line
+		 * 
+		 * @param b The byte to check
+		 * @return True if the byte is a space or tab
+		 */
+		private static boolean isSpace(int b) {
+			return (b == ' ') || (b == '\t');
+		}
+
+		/**
+		 * Check if a byte ends a line
+		 * 
+		 * @param b The byte to check
+		 * @return True if the byte is a line break or the end of the stream
+		 */
+		private static boolean isLineEnd(int b) {
+			return (b == '\n') || (b == '\r') || (b == -1);
+		}
+
+		/**
+		 * Read a word, up to a separator or '='
+		 * 
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		private void readWord() throws IOException {
+			wordLength = 0;
+			int b;
+			while ((!isSpace(b = peek())) && (!isLineEnd(b)) && (b != '=')) {
+				if (wordLength < word.length) {
+					word[wordLength++] = (byte)b;
+				}
+				position++;
+			}
+		}
+
+		/**
+		 * Check if the last tag or attribute name read is the given one
+		 * 
+		 * @param name The name to compare against
+		 * @return True if the last word read matches the name
+		 */
+		boolean isWord(String name) {
+			if (name.length() != wordLength) {
+				return false;
+			}
+			for (int i=0;i<wordLength;i++) {
+				if (word[i] != name.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Move to the tag of the next line that isn't blank
+		 * 
+		 * @return True if a tag was read, false at the end of the stream
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		boolean nextTag() throws IOException {
+			int b;
+			while ((isSpace(b = peek())) || (b == '\n') || (b == '\r')) {
+				position++;
+			}
+			if (b == -1) {
+				return false;
+			}
+			readWord();
+			return true;
+		}
+
+		/**
+		 * Move to the name of the next attribute on the current line
+		 * 
+		 * @return True if an attribute was read, false at the end of the line
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		boolean nextAttribute() throws IOException {
+			while (true) {
+				int b;
+				while (isSpace(b = peek())) {
+					position++;
+				}
+				if (isLineEnd(b)) {
+					return false;
+				}
+
+				readWord();
+				if (peek() == '=') {
+					position++;
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Read the value of the current attribute as a number. A list of numbers gives
+		 * the first, anything that isn't a number gives 0.
+		 * 
+		 * @return The value of the attribute
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		int readValue() throws IOException {
+			boolean negative = peek() == '-';
+			if (negative) {
+				position++;
+			}
+			int value = 0;
+			int b;
+			while (((b = peek()) >= '0') && (b <= '9')) {
+				value = (value * 10) + (b - '0');
+				position++;
+			}
+			skipValue();
+
+			return negative ? -value : value;
+		}
+
+		/**
+		 * Skip the rest of the value of the current attribute, quoted values may contain
+		 * spaces
+		 * 
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		void skipValue() throws IOException {
+			boolean quoted = false;
+			int b;
+			while (!isLineEnd(b = peek())) {
+				if (b == '"') {
+					quoted = !quoted;
+				} else if ((!quoted) && (isSpace(b))) {
+					return;
+				}
+				position++;
+			}
+		}
+
+		/**
+		 * Skip the rest of the current line
+		 * 
+		 * @throws IOException Indicates a failure to read the stream
+		 */
+		void skipLine() throws IOException {
+			while (!isLineEnd(peek())) {
+				position++;
+			}
+		}
+	}
 }
@@ -69,6 +69,9 @@ public class Graphics {
 	 */
 	public static void setCurrent(Graphics current) {
 		if (currentGraphics != current) {
+			// anything pending belongs to the old context, and anything known
+			// about the GL state may not hold for the new one
+			GL.flush();
 			if (currentGraphics != null) {
 				currentGraphics.disable();
 			}
@@ -172,4 +172,25 @@ public class Sound {
 	public void stop() {
 		sound.stop();
 	}
+	
+	/**
+	 * Set the priority of this sound effect. When there are no free sources left
+	 * the lowest priority sounds playing are cut off first, and sounds are never cut 
+	 * off for a lower priority sound.
+	 * 
+	 * @param priority The priority of this sound effect, 0 by default
+	 */
+	public void setPriority(int priority) {
+		SoundStore.get().setPriority(sound, priority);
+	}
+	
+	/**
+	 * Set the maximum number of times this sound effect can be playing at once.
+	 * Playing it again once the limit is reached cuts off the oldest.
+	 * 
+	 * @param max The maximum number playing at once, 0 for no limit
+	 */
+	public void setMaxInstances(int max) {
+		SoundStore.get().setMaxInstances(sound, max);
+	}
 }
@@ -7,7 +7,14 @@ import java.awt.FontMetrics;
 import java.awt.Rectangle;
 import java.awt.font.GlyphVector;
 import java.awt.font.TextAttribute;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -19,10 +26,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.newdawn.slick.font.Glyph;
+import org.newdawn.slick.font.GlyphCache;
 import org.newdawn.slick.font.GlyphPage;
+import org.newdawn.slick.font.GlyphRasterizer;
 import org.newdawn.slick.font.HieroSettings;
 import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureImpl;
 import org.newdawn.slick.opengl.renderer.Renderer;
 import org.newdawn.slick.opengl.renderer.SGL;
 import org.newdawn.slick.util.ResourceLoader;
@@ -35,8 +43,10 @@ import org.newdawn.slick.util.ResourceLoader;
  * @author Nathan Sweet <misc@n4te.com>
  */
 public class UnicodeFont implements org.newdawn.slick.Font {
-	/** The number of display lists that will be cached for strings from this font */
-	private static final int DISPLAY_LIST_CACHE_SIZE = 200;
+	/** The number of laid out strings that will be cached for this font */
+	private static final int LAYOUT_CACHE_SIZE = 1024;
+	/** The number of ints stored for each glyph in a laid out string */
+	private static final int RUN_STRIDE = 7;
 	/** The highest glyph code allowed */
 	static private final int MAX_GLYPH_CODE = 0x10FFFF;
 	/** The number of glyphs on a page */
@@ -71,7 +81,7 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	private static final Comparator heightComparator = new Comparator() {
 		public int compare (Object o1, Object o2) {
-			return ((Glyph)o1).getHeight() - ((Glyph)o2).getHeight();
+			return ((Glyph)o2).getHeight() - ((Glyph)o1).getHeight();
 		}
 	};
 	
@@ -115,22 +125,16 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	private int glyphPageWidth = 512;
 	/** The height of the glyph page generated */
 	private int glyphPageHeight = 512;
+	/** The number of threads glyphs are rendered on */
+	private int glyphThreads = Runtime.getRuntime().availableProcessors();
 	
-	/** True if display list caching is turned on */
+	/** True if caching of laid out strings is turned on */
 	private boolean displayListCaching = true;
-	/** The based display list ID */
-	private int baseDisplayListID = -1;
-	/** The ID of the display list that has been around the longest time */
-	private int eldestDisplayListID;
-	/** The eldest display list  */
-	private DisplayList eldestDisplayList;
-	
-	/** The map fo the display list generated and cached - modified to allow removal of the oldest entry */
-	private final LinkedHashMap displayLists = new LinkedHashMap(DISPLAY_LIST_CACHE_SIZE, 1, true) {
+
+	/** The map of strings to their cached layout - modified to allow removal of the least recently used entry */
+	private final LinkedHashMap displayLists = new LinkedHashMap(LAYOUT_CACHE_SIZE, 1, true) {
 		protected boolean removeEldestEntry (Entry eldest) {
-			DisplayList displayList = (DisplayList)eldest.getValue();
-			if (displayList != null) eldestDisplayListID = displayList.id;
-			return size() > DISPLAY_LIST_CACHE_SIZE;
+			return size() > LAYOUT_CACHE_SIZE;
 		}
 	};
 
@@ -361,6 +365,11 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 
 		Collections.sort(queuedGlyphs, heightComparator);
 
+		// Render the glyphs to be loaded on the worker threads, only storing them on the pages needs GL.
+		int renderCount = queuedGlyphs.size();
+		if (maxGlyphsToLoad != -1) renderCount = Math.min(renderCount, maxGlyphsToLoad);
+		new GlyphRasterizer(this, queuedGlyphs.subList(0, renderCount)).render(glyphThreads);
+
 		// Add to existing pages.
 		for (Iterator iter = glyphPages.iterator(); iter.hasNext();) {
 			GlyphPage glyphPage = (GlyphPage)iter.next();
@@ -380,6 +389,67 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		return true;
 	}
 
+	/**
+	 * Saves the loaded glyph pages and the metrics of the glyphs on them, so they can be loaded 
+	 * back with {@link #loadGlyphCache(File)} instead of being rendered again.
+	 * 
+	 * @param file The file to write the glyph cache to
+	 * @throws SlickException if the glyph cache could not be written.
+	 */
+	public void saveGlyphCache (File file) throws SlickException {
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				GlyphCache.save(this, out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException ex) {
+			throw new SlickException("Error writing glyph cache: " + file, ex);
+		}
+	}
+
+	/**
+	 * Loads glyph pages saved with {@link #saveGlyphCache(File)}, replacing any glyphs that are 
+	 * loaded or queued. Nothing is loaded if the file doesn't exist or was saved for a different 
+	 * font file, size, style, padding, page size or effect configuration.
+	 * 
+	 * @param file The file to read the glyph cache from
+	 * @return True if the glyph cache was loaded
+	 * @throws SlickException if the glyph cache could not be read.
+	 */
+	public boolean loadGlyphCache (File file) throws SlickException {
+		if (!file.exists()) return false;
+
+		List pages;
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				pages = GlyphCache.load(this, in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			throw new SlickException("Error reading glyph cache: " + file, ex);
+		}
+		if (pages == null) return false;
+
+		clearGlyphs();
+		glyphPages.addAll(pages);
+		for (Iterator iter = pages.iterator(); iter.hasNext();) {
+			for (Iterator glyphIter = ((GlyphPage)iter.next()).getGlyphs().iterator(); glyphIter.hasNext();) {
+				Glyph glyph = (Glyph)glyphIter.next();
+				int glyphCode = glyph.getGlyphCode();
+				if (glyphCode < 0 || glyphCode >= MAX_GLYPH_CODE) continue;
+				int pageIndex = glyphCode / PAGE_SIZE;
+				if (glyphs[pageIndex] == null) glyphs[pageIndex] = new Glyph[PAGE_SIZE];
+				glyphs[pageIndex][glyphCode & (PAGE_SIZE - 1)] = glyph;
+				if (glyph.isMissing() && missingGlyph == null) missingGlyph = glyph;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Clears all loaded and queued glyphs.
 	 */
@@ -396,10 +466,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		}
 		glyphPages.clear();
 
-		if (baseDisplayListID != -1) {
-			GL.glDeleteLists(baseDisplayListID, displayLists.size());
-			baseDisplayListID = -1;
-		}
+		// The cached layouts refer to the glyphs by code so they can't outlive them
+		displayLists.clear();
 
 		queuedGlyphs.clear();
 		missingGlyph = null;
@@ -424,101 +492,131 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 * @param color The colour to apply as a filter on the text
 	 * @param startIndex The start index into the string to start rendering at
 	 * @param endIndex The end index into the string to render to
-	 * @return The reference to the display list that was drawn and potentiall ygenerated
+	 * @return The descriptor of the text that was drawn
 	 */
 	public DisplayList drawDisplayList (float x, float y, String text, Color color, int startIndex, int endIndex) {
 		if (text == null) throw new IllegalArgumentException("text cannot be null.");
 		if (text.length() == 0) return EMPTY_DISPLAY_LIST;
 		if (color == null) throw new IllegalArgumentException("color cannot be null.");
 
-		x -= paddingLeft;
-		y -= paddingTop;
-
-		String displayListKey = text.substring(startIndex, endIndex);
+		DisplayList displayList = getDisplayList(text);
 
 		color.bind();
-		TextureImpl.bindNone();
-
-		DisplayList displayList = null;
-		if (displayListCaching && queuedGlyphs.isEmpty()) {
-			if (baseDisplayListID == -1) {
-				baseDisplayListID = GL.glGenLists(DISPLAY_LIST_CACHE_SIZE);
-				if (baseDisplayListID == 0) {
-					baseDisplayListID = -1;
-					displayListCaching = false;
-					return new DisplayList();
-				}
-			}
-			// Try to use a display list compiled for this text.
-			displayList = (DisplayList)displayLists.get(displayListKey);
-			if (displayList != null) {
-				if (displayList.invalid)
-					displayList.invalid = false;
-				else {
-					GL.glTranslatef(x, y, 0);
-					GL.glCallList(displayList.id);
-					GL.glTranslatef(-x, -y, 0);
-					return displayList;
-				}
-			} else if (displayList == null) {
-				// Compile a new display list.
-				displayList = new DisplayList();
-				int displayListCount = displayLists.size();
-				displayLists.put(displayListKey, displayList);
-				if (displayListCount < DISPLAY_LIST_CACHE_SIZE)
-					displayList.id = baseDisplayListID + displayListCount;
-				else
-					displayList.id = eldestDisplayListID;
-			}
-			displayLists.put(displayListKey, displayList);
+		if (startIndex == 0 && endIndex == text.length()) {
+			drawRun(displayList.run, x - paddingLeft, y - paddingTop, startIndex, endIndex, true, null);
+			return displayList;
 		}
 
-		GL.glTranslatef(x, y, 0);
+		DisplayList drawn = new DisplayList();
+		drawRun(displayList.run, x - paddingLeft, y - paddingTop, startIndex, endIndex, true, drawn);
+		return drawn;
+	}
 
-		if (displayList != null) GL.glNewList(displayList.id, SGL.GL_COMPILE_AND_EXECUTE);
+	/**
+	 * Get the layout of the specified text, from the cache if possible
+	 * 
+	 * @param text The text to be laid out
+	 * @return The descriptor holding the layout of the text
+	 */
+	private DisplayList getDisplayList (String text) {
+		if (displayListCaching) {
+			DisplayList displayList = (DisplayList)displayLists.get(text);
+			if (displayList != null) return displayList;
+		}
 
-		char[] chars = text.substring(0, endIndex).toCharArray();
+		char[] chars = text.toCharArray();
 		GlyphVector vector = font.layoutGlyphVector(GlyphPage.renderContext, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
 
+		int n = vector.getNumGlyphs();
+		int[] run = new int[n * RUN_STRIDE];
+		for (int glyphIndex = 0, i = 0; glyphIndex < n; glyphIndex++, i += RUN_STRIDE) {
+			int charIndex = vector.getGlyphCharIndex(glyphIndex);
+			int codePoint = text.codePointAt(charIndex);
+			int glyphCode = vector.getGlyphCode(glyphIndex);
+			Rectangle bounds = getGlyphBounds(vector, glyphIndex, codePoint);
+
+			// Make sure the glyph exists (and is queued for loading) so it can be found by its code when drawn
+			if (glyphCode < 0 || glyphCode >= MAX_GLYPH_CODE)
+				glyphCode = -1;
+			else
+				getGlyph(glyphCode, codePoint, bounds, vector, glyphIndex);
+
+			run[i] = glyphCode;
+			run[i + 1] = charIndex;
+			run[i + 2] = codePoint;
+			run[i + 3] = bounds.x;
+			run[i + 4] = bounds.y;
+			run[i + 5] = bounds.width;
+			run[i + 6] = bounds.height;
+		}
+
+		DisplayList displayList = new DisplayList();
+		displayList.run = run;
+		drawRun(run, 0, 0, 0, chars.length, false, displayList);
+
+		if (displayListCaching) displayLists.put(text, displayList);
+		return displayList;
+	}
+
+	/**
+	 * Draw and/or measure a range of a laid out string. The glyph quads are issued as plain 
+	 * textured quads, only starting a new set of quads when the glyph page changes, so that 
+	 * a batching renderer can combine them with any other geometry using the same texture.
+	 * 
+	 * @param run The glyph data of the laid out string
+	 * @param x The horizontal location to render at
+	 * @param y The vertical location to render at
+	 * @param startIndex The start index into the string to start rendering at
+	 * @param endIndex The end index into the string to render to
+	 * @param draw True if the glyphs should be drawn, false if they should only be measured
+	 * @param size The descriptor to fill with the size of the text or null if not required
+	 */
+	private void drawRun (int[] run, float x, float y, int startIndex, int endIndex, boolean draw, DisplayList size) {
 		int maxWidth = 0, totalHeight = 0, lines = 0;
 		int extraX = 0, extraY = ascent;
 		boolean startNewLine = false;
 		Texture lastBind = null;
-		for (int glyphIndex = 0, n = vector.getNumGlyphs(); glyphIndex < n; glyphIndex++) {
-			int charIndex = vector.getGlyphCharIndex(glyphIndex);
+		for (int i = 0; i < run.length; i += RUN_STRIDE) {
+			int charIndex = run[i + 1];
 			if (charIndex < startIndex) continue;
-			if (charIndex > endIndex) break;
-
-			int codePoint = text.codePointAt(charIndex);
+			if (charIndex >= endIndex) break;
 
-			Rectangle bounds = getGlyphBounds(vector, glyphIndex, codePoint);
-			Glyph glyph = getGlyph(vector.getGlyphCode(glyphIndex), codePoint, bounds, vector, glyphIndex);
+			int codePoint = run[i + 2];
+			int boundsX = run[i + 3];
+			int boundsY = run[i + 4];
 
 			if (startNewLine && codePoint != '\n') {
-				extraX = -bounds.x;
+				extraX = -boundsX;
 				startNewLine = false;
 			}
 
-			Image image = glyph.getImage();
-			if (image == null && missingGlyph != null && glyph.isMissing()) image = missingGlyph.getImage();
-			if (image != null) {
-				// Draw glyph, only binding a new glyph page texture when necessary.
-				Texture texture = image.getTexture();
-				if (lastBind != null && lastBind != texture) {
-					GL.glEnd();
-					lastBind = null;
+			if (draw) {
+				Image image = null;
+				int glyphCode = run[i];
+				if (glyphCode == -1) {
+					// GlyphVector#getGlyphCode sometimes returns negative numbers on OS X.
+					if (missingGlyph != null) image = missingGlyph.getImage();
+				} else {
+					Glyph glyph = glyphs[glyphCode / PAGE_SIZE][glyphCode & (PAGE_SIZE - 1)];
+					image = glyph.getImage();
+					if (image == null && missingGlyph != null && glyph.isMissing()) image = missingGlyph.getImage();
 				}
-				if (lastBind == null) {
-					texture.bind();
-					GL.glBegin(SGL.GL_QUADS);
-					lastBind = texture;
+				if (image != null) {
+					// Draw glyph, only binding a new glyph page texture when necessary.
+					Texture texture = image.getTexture();
+					if (lastBind != texture) {
+						if (lastBind != null) GL.glEnd();
+						texture.bind();
+						GL.glBegin(SGL.GL_QUADS);
+						lastBind = texture;
+					}
+					image.drawEmbedded(x + boundsX + extraX, y + boundsY + extraY, image.getWidth(), image.getHeight());
 				}
-				image.drawEmbedded(bounds.x + extraX, bounds.y + extraY, image.getWidth(), image.getHeight());
 			}
 
-			if (glyphIndex >= 0) extraX += paddingRight + paddingLeft + paddingAdvanceX;
-			maxWidth = Math.max(maxWidth, bounds.x + extraX + bounds.width);
-			totalHeight = Math.max(totalHeight, ascent + bounds.y + bounds.height);
+			extraX += paddingRight + paddingLeft + paddingAdvanceX;
+			maxWidth = Math.max(maxWidth, boundsX + extraX + run[i + 5]);
+			totalHeight = Math.max(totalHeight, ascent + boundsY + run[i + 6]);
 
 			if (codePoint == '\n') {
 				startNewLine = true; // Mac gives -1 for bounds.x of '\n', so use the bounds.x of the next glyph.
@@ -529,18 +627,10 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		}
 		if (lastBind != null) GL.glEnd();
 
-		if (displayList != null) {
-			GL.glEndList();
-			// Invalidate the display list if it had glyphs that need to be loaded.
-			if (!queuedGlyphs.isEmpty()) displayList.invalid = true;
+		if (size != null) {
+			size.width = (short)maxWidth;
+			size.height = (short)(lines * getLineHeight() + totalHeight);
 		}
-
-		GL.glTranslatef(-x, -y, 0);
-
-		if (displayList == null) displayList = new DisplayList();
-		displayList.width = (short)maxWidth;
-		displayList.height = (short)(lines * getLineHeight() + totalHeight);
-		return displayList;
 	}
 
 	public void drawString (float x, float y, String text, Color color, int startIndex, int endIndex) {
@@ -617,31 +707,7 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		if (text == null) throw new IllegalArgumentException("text cannot be null.");
 		if (text.length() == 0) return 0;
 
-		if (displayListCaching) {
-			DisplayList displayList = (DisplayList)displayLists.get(text);
-			if (displayList != null) return displayList.width;
-		}
-
-		char[] chars = text.toCharArray();
-		GlyphVector vector = font.layoutGlyphVector(GlyphPage.renderContext, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
-
-		int width = 0;
-		int extraX = 0;
-		boolean startNewLine = false;
-		for (int glyphIndex = 0, n = vector.getNumGlyphs(); glyphIndex < n; glyphIndex++) {
-			int charIndex = vector.getGlyphCharIndex(glyphIndex);
-			int codePoint = text.codePointAt(charIndex);
-			Rectangle bounds = getGlyphBounds(vector, glyphIndex, codePoint);
-
-			if (startNewLine && codePoint != '\n') extraX = -bounds.x;
-
-			if (glyphIndex > 0) extraX += paddingLeft + paddingRight + paddingAdvanceX;
-			width = Math.max(width, bounds.x + extraX + bounds.width);
-
-			if (codePoint == '\n') startNewLine = true;
-		}
-
-		return width;
+		return getDisplayList(text).width;
 	}
 
 	/**
@@ -651,29 +717,7 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		if (text == null) throw new IllegalArgumentException("text cannot be null.");
 		if (text.length() == 0) return 0;
 
-		if (displayListCaching) {
-			DisplayList displayList = (DisplayList)displayLists.get(text);
-			if (displayList != null) return displayList.height;
-		}
-
-		char[] chars = text.toCharArray();
-		GlyphVector vector = font.layoutGlyphVector(GlyphPage.renderContext, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
-
-		int lines = 0, height = 0;
-		for (int i = 0, n = vector.getNumGlyphs(); i < n; i++) {
-			int charIndex = vector.getGlyphCharIndex(i);
-			int codePoint = text.codePointAt(charIndex);
-			if (codePoint == ' ') continue;
-			Rectangle bounds = getGlyphBounds(vector, i, codePoint);
-
-			height = Math.max(height, ascent + bounds.y + bounds.height);
-
-			if (codePoint == '\n') {
-				lines++;
-				height = 0;
-			}
-		}
-		return lines * getLineHeight() + height;
+		return getDisplayList(text).height;
 	}
 
 	/**
@@ -686,20 +730,25 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	public int getYOffset (String text) {
 		if (text == null) throw new IllegalArgumentException("text cannot be null.");
 
-		DisplayList displayList = null;
-		if (displayListCaching) {
-			displayList = (DisplayList)displayLists.get(text);
-			if (displayList != null && displayList.yOffset != null) return displayList.yOffset.intValue();
-		}
-
 		int index = text.indexOf('\n');
 		if (index != -1) text = text.substring(0, index);
-		char[] chars = text.toCharArray();
-		GlyphVector vector = font.layoutGlyphVector(GlyphPage.renderContext, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
-		int yOffset = ascent + vector.getPixelBounds(null, 0, 0).y;
-
-		if (displayList != null) displayList.yOffset = new Short((short)yOffset);
+		if (text.length() == 0) return ascent;
+
+		DisplayList displayList = getDisplayList(text);
+		if (displayList.yOffset != null) return displayList.yOffset.intValue();
+
+		// The top of the pixel bounds of the line is the top of the highest visible glyph
+		int[] run = displayList.run;
+		int top = 0;
+		boolean visible = false;
+		for (int i = 0; i < run.length; i += RUN_STRIDE) {
+			if (run[i + 5] <= 0 || run[i + 6] <= 0) continue;
+			if (!visible || run[i + 4] < top) top = run[i + 4];
+			visible = true;
+		}
+		int yOffset = ascent + top;
 
+		displayList.yOffset = new Short((short)yOffset);
 		return yOffset;
 	}
 
@@ -728,6 +777,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingTop(int paddingTop) {
 		this.paddingTop = paddingTop;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -746,6 +797,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingLeft(int paddingLeft) {
 		this.paddingLeft = paddingLeft;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -764,6 +817,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingBottom(int paddingBottom) {
 		this.paddingBottom = paddingBottom;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -782,6 +837,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingRight (int paddingRight) {
 		this.paddingRight = paddingRight;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -801,6 +858,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingAdvanceX (int paddingAdvanceX) {
 		this.paddingAdvanceX = paddingAdvanceX;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -820,6 +879,8 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	 */
 	public void setPaddingAdvanceY (int paddingAdvanceY) {
 		this.paddingAdvanceY = paddingAdvanceY;
+		// the cached layouts were measured with the old padding
+		displayLists.clear();
 	}
 
 	/**
@@ -894,6 +955,26 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 		this.glyphPageHeight = glyphPageHeight;
 	}
 
+	/**
+	 * Returns the number of threads glyphs are rendered on when they're loaded.
+	 * 
+	 * @return The number of threads used including the one calling loadGlyphs()
+	 */
+	public int getGlyphThreads () {
+		return glyphThreads;
+	}
+
+	/**
+	 * Sets the number of threads glyphs are rendered on when they're loaded. Default is the 
+	 * number of processors available. The effects applied to the font must be safe to use 
+	 * from several threads at once, set this to 1 if they aren't.
+	 * 
+	 * @param glyphThreads The number of threads to use including the one calling loadGlyphs()
+	 */
+	public void setGlyphThreads (int glyphThreads) {
+		this.glyphThreads = Math.max(1, glyphThreads);
+	}
+
 	/**
 	 * Returns the GlyphPages for this UnicodeFont.
 	 * 
@@ -914,7 +995,7 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	}
 
 	/**
-	 * Returns true if this UnicodeFont caches the glyph drawing instructions to 
+	 * Returns true if this UnicodeFont caches the layout of the strings it draws to 
 	 * improve performance.
 	 * 
 	 * @return True if caching is turned on
@@ -924,13 +1005,15 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	}
 
 	/**
-	 * Sets if this UnicodeFont caches the glyph drawing instructions to improve performance. 
-	 * Default is true. Text rendering is very slow without display list caching.
+	 * Sets if this UnicodeFont caches the layout of the strings it draws to improve performance. 
+	 * Default is true. Without caching every string is laid out by Java2D each time it is drawn 
+	 * or measured.
 	 * 
 	 * @param displayListCaching True if caching should be turned on
 	 */
 	public void setDisplayListCaching (boolean displayListCaching) {
 		this.displayListCaching = displayListCaching;
+		if (!displayListCaching) displayLists.clear();
 	}
 
 	/**
@@ -957,13 +1040,12 @@ public class UnicodeFont implements org.newdawn.slick.Font {
 	}
 
 	/**
-	 * A simple descriptor for display lists cached within this font
+	 * A simple descriptor for the laid out strings cached within this font. The name 
+	 * remains from when strings were cached as OpenGL display lists.
 	 */
 	public static class DisplayList {
-		/** True if this display list has been invalidated */
-		boolean invalid;
-		/** The ID of the display list this descriptor represents */
-		int id;
+		/** The glyph code, char index, code point and bounds (x, y, width, height) of each glyph */
+		int[] run;
 		/** The vertical offset to the top of this display list */
 		Short yOffset;
 
@@ -17,6 +17,8 @@ import org.newdawn.slick.UnicodeFont;
 public class Glyph {
 	/** The code point in which this glyph is found */
 	private int codePoint;
+	/** The code of this glyph in the font */
+	private int glyphCode;
 	/** The width of this glyph in pixels */
 	private short width;
 	/** The height of this glyph in pixels */
@@ -29,6 +31,8 @@ public class Glyph {
 	private Shape shape;
 	/** The image generated for this glyph */
 	private Image image;
+	/** The pixels rendered for this glyph waiting to be stored in a GlyphPage */
+	private int[] pixels;
 
 	/**
 	 * Create a new glyph
@@ -41,6 +45,7 @@ public class Glyph {
 	 */
 	public Glyph(int codePoint, Rectangle bounds, GlyphVector vector, int index, UnicodeFont unicodeFont) {
 		this.codePoint = codePoint;
+		glyphCode = vector.getGlyphCode(index);
 
 		GlyphMetrics metrics = vector.getGlyphMetrics(index);
 		int lsb = (int)metrics.getLSB();
@@ -66,6 +71,25 @@ public class Glyph {
 		isMissing = !unicodeFont.getFont().canDisplay((char)codePoint);
 	}
 
+	/**
+	 * Create a glyph from metrics stored in a glyph cache
+	 * 
+	 * @param codePoint The code point in which this glyph can be found
+	 * @param glyphCode The code of the glyph in the font
+	 * @param width The width of the glyph's image
+	 * @param height The height of the glyph's image
+	 * @param yOffset The offset on the y axis to draw the glyph at
+	 * @param isMissing True if the glyph isn't defined in the font
+	 */
+	Glyph(int codePoint, int glyphCode, int width, int height, int yOffset, boolean isMissing) {
+		this.codePoint = codePoint;
+		this.glyphCode = glyphCode;
+		this.width = (short)width;
+		this.height = (short)height;
+		this.yOffset = (short)yOffset;
+		this.isMissing = isMissing;
+	}
+
 	/**
 	 * The unicode codepoint the glyph represents.
 	 * 
@@ -75,6 +99,15 @@ public class Glyph {
 		return codePoint;
 	}
 
+	/**
+	 * The code of the glyph in the font, as given by the GlyphVector it was laid out in.
+	 * 
+	 * @return The code of the glyph in the font
+	 */
+	public int getGlyphCode () {
+		return glyphCode;
+	}
+
 	/**
 	 * Returns true if the font does not have a glyph for this codepoint.
 	 * 
@@ -140,6 +173,24 @@ public class Glyph {
 		this.image = image;
 	}
 
+	/**
+	 * The pixels rendered for this glyph ahead of it being stored in a GlyphPage
+	 * 
+	 * @return The ARGB pixels of the glyph image or null if they haven't been rendered
+	 */
+	int[] getPixels () {
+		return pixels;
+	}
+
+	/**
+	 * Set the pixels rendered for this glyph ahead of it being stored in a GlyphPage
+	 * 
+	 * @param pixels The ARGB pixels of the glyph image or null once they've been stored
+	 */
+	void setPixels (int[] pixels) {
+		this.pixels = pixels;
+	}
+
 	/**
 	 * The distance from drawing y location to top of this glyph, causing the glyph to sit 
 	 * on the baseline.
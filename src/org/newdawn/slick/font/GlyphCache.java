@@ -0,0 +1,253 @@
+package org.newdawn.slick.font;
+
+import java.awt.Font;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.lwjgl.BufferUtils;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.UnicodeFont;
+import org.newdawn.slick.font.effects.ConfigurableEffect;
+import org.newdawn.slick.font.effects.Effect;
+import org.newdawn.slick.font.effects.ConfigurableEffect.Value;
+import org.newdawn.slick.util.ResourceLoader;
+
+/**
+ * Saves the glyph pages of a UnicodeFont and the metrics of the glyphs on them, so they
+ * can be loaded back rather than rendered again. The cache is keyed by a hash of the font
+ * file, the size and style of the font, its padding, page size and effect configuration.
+ * Effects that aren't configurable are keyed by their toString() which, unless overridden,
+ * differs every run - so fonts using them are never read back from a cache.
+ *
+ * @author kevin
+ */
+public class GlyphCache {
+	/** The value identifying a glyph cache */
+	private static final int MAGIC = 0x474c5943;
+	/** The version of the format written */
+	private static final int VERSION = 1;
+	/** The characters used to write the hash */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Get the key identifying the glyphs a font would render
+	 *
+	 * @param unicodeFont The font to get the key for
+	 * @return The key for the font's glyphs
+	 */
+	public static String getKey(UnicodeFont unicodeFont) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+			String fontFile = unicodeFont.getFontFile();
+			if (fontFile != null) {
+				try {
+					InputStream in = ResourceLoader.getResourceAsStream(fontFile);
+					try {
+						byte[] buffer = new byte[8192];
+						int count;
+						while ((count = in.read(buffer)) >= 0) {
+							digest.update(buffer, 0, count);
+						}
+					} finally {
+						in.close();
+					}
+				} catch (IOException e) {
+					// fall back on the name of the font
+				} catch (RuntimeException e) {
+					// fall back on the name of the font
+				}
+			}
+
+			Font font = unicodeFont.getFont();
+			StringBuffer config = new StringBuffer();
+			config.append(font.getFontName()).append(';');
+			config.append(font.getSize2D()).append(';');
+			config.append(font.isBold()).append(';');
+			config.append(font.isItalic()).append(';');
+			config.append(unicodeFont.getPaddingTop()).append(';');
+			config.append(unicodeFont.getPaddingLeft()).append(';');
+			config.append(unicodeFont.getPaddingBottom()).append(';');
+			config.append(unicodeFont.getPaddingRight()).append(';');
+			config.append(unicodeFont.getGlyphPageWidth()).append(';');
+			config.append(unicodeFont.getGlyphPageHeight()).append(';');
+			for (Iterator iter = unicodeFont.getEffects().iterator(); iter.hasNext();) {
+				Effect effect = (Effect)iter.next();
+				config.append(effect.getClass().getName()).append('(');
+				if (effect instanceof ConfigurableEffect) {
+					for (Iterator values = ((ConfigurableEffect)effect).getValues().iterator(); values.hasNext();) {
+						Value value = (Value)values.next();
+						config.append(value.getName()).append('=').append(value.getString()).append(';');
+					}
+				} else {
+					config.append(effect.toString());
+				}
+				config.append(')');
+			}
+			digest.update(config.toString().getBytes("UTF-8"));
+
+			byte[] hash = digest.digest();
+			char[] key = new char[hash.length * 2];
+			for (int i=0;i<hash.length;i++) {
+				key[i*2] = HEX[(hash[i] >> 4) & 0xf];
+				key[(i*2)+1] = HEX[hash[i] & 0xf];
+			}
+
+			return new String(key);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 is not available", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException("UTF-8 is not available", e);
+		}
+	}
+
+	/**
+	 * Save the glyph pages of a font
+	 *
+	 * @param unicodeFont The font whose glyph pages should be saved
+	 * @param out The stream to write the cache to
+	 * @throws IOException Indicates a failure to write the cache
+	 */
+	public static void save(UnicodeFont unicodeFont, OutputStream out) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeUTF(getKey(unicodeFont));
+		header.flush();
+
+		DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+		DataOutputStream data = new DataOutputStream(deflater);
+
+		List pages = unicodeFont.getGlyphPages();
+		data.writeInt(pages.size());
+		for (Iterator iter = pages.iterator(); iter.hasNext();) {
+			GlyphPage page = (GlyphPage)iter.next();
+			Image pageImage = page.getImage();
+			page.getPacker().write(data);
+
+			List glyphs = page.getGlyphs();
+			data.writeInt(glyphs.size());
+			for (Iterator glyphIter = glyphs.iterator(); glyphIter.hasNext();) {
+				Glyph glyph = (Glyph)glyphIter.next();
+				Image image = glyph.getImage();
+				data.writeInt(glyph.getCodePoint());
+				data.writeInt(glyph.getGlyphCode());
+				data.writeShort(glyph.getWidth());
+				data.writeShort(glyph.getHeight());
+				data.writeShort(glyph.getYOffset());
+				data.writeBoolean(glyph.isMissing());
+				data.writeShort(Math.round(image.getTextureOffsetX() / pageImage.getTextureWidth() * pageImage.getWidth()));
+				data.writeShort(Math.round(image.getTextureOffsetY() / pageImage.getTextureHeight() * pageImage.getHeight()));
+				data.writeShort(image.getWidth());
+				data.writeShort(image.getHeight());
+			}
+
+			data.write(page.getPixels());
+		}
+
+		data.flush();
+		deflater.finish();
+	}
+
+	/**
+	 * Load the glyph pages for a font, if the cache was saved from a font with the same key.
+	 * This must be called on the thread that owns the GL context.
+	 *
+	 * @param unicodeFont The font the pages are for
+	 * @param in The stream to read the cache from
+	 * @return The list of {@link GlyphPage} elements read or null if the cache doesn't match the font
+	 * @throws IOException Indicates a failure to read the cache
+	 */
+	public static List load(UnicodeFont unicodeFont, InputStream in) throws IOException {
+		DataInputStream header = new DataInputStream(in);
+		if (header.readInt() != MAGIC) {
+			throw new IOException("Not a glyph cache");
+		}
+		if (header.readInt() != VERSION) {
+			return null;
+		}
+		if (!header.readUTF().equals(getKey(unicodeFont))) {
+			return null;
+		}
+
+		DataInputStream data = new DataInputStream(new InflaterInputStream(in));
+		int pageCount = data.readInt();
+		List pages = new ArrayList(pageCount);
+		try {
+			readPages(unicodeFont, data, pageCount, pages);
+		} catch (IOException e) {
+			for (Iterator iter = pages.iterator(); iter.hasNext();) {
+				try {
+					((GlyphPage)iter.next()).getImage().destroy();
+				} catch (SlickException ignored) {
+				}
+			}
+			throw e;
+		}
+
+		return pages;
+	}
+
+	/**
+	 * Read the glyph pages from a cache
+	 *
+	 * @param unicodeFont The font the pages are for
+	 * @param data The stream to read the pages from
+	 * @param pageCount The number of pages to read
+	 * @param pages The list to add the pages to as they're created
+	 * @throws IOException Indicates a failure to read the cache
+	 */
+	private static void readPages(UnicodeFont unicodeFont, DataInputStream data, int pageCount, List pages) throws IOException {
+		int pageWidth = unicodeFont.getGlyphPageWidth();
+		int pageHeight = unicodeFont.getGlyphPageHeight();
+		byte[] pixels = new byte[pageWidth * pageHeight * 4];
+		ByteBuffer buffer = BufferUtils.createByteBuffer(pixels.length);
+
+		for (int i=0;i<pageCount;i++) {
+			SkylinePacker packer = SkylinePacker.read(data, pageWidth, pageHeight);
+
+			GlyphPage page;
+			try {
+				page = new GlyphPage(unicodeFont, pageWidth, pageHeight);
+			} catch (SlickException e) {
+				IOException failure = new IOException("Failed to create glyph page");
+				failure.initCause(e);
+				throw failure;
+			}
+			pages.add(page);
+
+			int glyphCount = data.readInt();
+			for (int j=0;j<glyphCount;j++) {
+				int codePoint = data.readInt();
+				int glyphCode = data.readInt();
+				int width = data.readShort();
+				int height = data.readShort();
+				int yOffset = data.readShort();
+				boolean missing = data.readBoolean();
+				Glyph glyph = new Glyph(codePoint, glyphCode, width, height, yOffset, missing);
+				int x = data.readShort();
+				int y = data.readShort();
+				page.addGlyph(glyph, x, y, data.readShort(), data.readShort());
+			}
+
+			data.readFully(pixels);
+			buffer.clear();
+			buffer.put(pixels);
+			buffer.flip();
+			page.restore(packer, buffer);
+		}
+	}
+}
@@ -6,26 +6,27 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.UnicodeFont;
 import org.newdawn.slick.font.effects.Effect;
+import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureImpl;
 import org.newdawn.slick.opengl.renderer.Renderer;
 import org.newdawn.slick.opengl.renderer.SGL;
 
 /**
- * Stores a number of glyphs on a single texture.
+ * Stores a number of glyphs on a single texture. Glyphs are packed on to the texture along 
+ * a skyline. Rendering a glyph's image with the font's effects doesn't need GL so it can be 
+ * done up front on other threads, see {@link GlyphRasterizer}.
  * 
  * @author Nathan Sweet <misc@n4te.com>
  */
@@ -36,7 +37,7 @@ public class GlyphPage {
 	/** The maxium size of an individual glyph */
 	public static final int MAX_GLYPH_SIZE = 256;
 
-	/** A temporary working buffer */
+	/** A temporary working buffer used to upload glyphs */
     private static ByteBuffer scratchByteBuffer = ByteBuffer.allocateDirect(MAX_GLYPH_SIZE * MAX_GLYPH_SIZE * 4);
 
     static {
@@ -47,7 +48,7 @@ public class GlyphPage {
     private static IntBuffer scratchIntBuffer = scratchByteBuffer.asIntBuffer();
     
     
-	/** A temporary image used to generate the glyph page */
+	/** A temporary image used to lay out glyphs */
 	private static BufferedImage scratchImage = new BufferedImage(MAX_GLYPH_SIZE, MAX_GLYPH_SIZE, BufferedImage.TYPE_INT_ARGB);
 	/** The graphics context form the temporary image */
 	private static Graphics2D scratchGraphics = (Graphics2D)scratchImage.getGraphics();
@@ -61,6 +62,13 @@ public class GlyphPage {
 	/** The render context in which the glyphs will be generated */
     public static FontRenderContext renderContext = scratchGraphics.getFontRenderContext();
 	
+	/** The temporary image each thread renders glyphs to */
+	private static ThreadLocal renderScratch = new ThreadLocal() {
+		protected Object initialValue () {
+			return new Scratch();
+		}
+	};
+
 	/**
 	 * Get the scratch graphics used to generate the page of glyphs
 	 * 
@@ -69,6 +77,32 @@ public class GlyphPage {
 	public static Graphics2D getScratchGraphics() {
 		return scratchGraphics;
 	}
+
+	/**
+	 * Render the image of a glyph with the effects of its font. This doesn't need GL so may 
+	 * be called from any thread, the effects of the font must be safe to use from several
+	 * threads at once.
+	 * 
+	 * @param unicodeFont The font the glyph is part of
+	 * @param glyph The glyph to render
+	 * @return The ARGB pixels of the glyph image, MAX_GLYPH_SIZE pixels wide at most
+	 */
+	static int[] renderPixels (UnicodeFont unicodeFont, Glyph glyph) {
+		int width = Math.min(MAX_GLYPH_SIZE, glyph.getWidth());
+		int height = Math.min(MAX_GLYPH_SIZE, glyph.getHeight());
+		Scratch scratch = (Scratch)renderScratch.get();
+
+		// Draw the glyph to the scratch image using Java2D.
+		scratch.graphics.setComposite(AlphaComposite.Clear);
+		scratch.graphics.fillRect(0, 0, MAX_GLYPH_SIZE, MAX_GLYPH_SIZE);
+		scratch.graphics.setComposite(AlphaComposite.SrcOver);
+		scratch.graphics.setColor(java.awt.Color.white);
+		for (Iterator iter = unicodeFont.getEffects().iterator(); iter.hasNext();)
+			((Effect)iter.next()).draw(scratch.image, scratch.graphics, unicodeFont, glyph);
+		glyph.setShape(null); // The shape will never be needed again.
+
+		return (int[])scratch.image.getRaster().getDataElements(0, 0, width, height, new int[width * height]);
+	}
 	
 	/** The font this page is part of */
 	private final UnicodeFont unicodeFont;
@@ -78,14 +112,8 @@ public class GlyphPage {
 	private final int pageHeight;
 	/** The image containing the glyphs */
 	private final Image pageImage;
-	/** The x position of the page */
-	private int pageX;
-	/** The y position of the page */
-	private int pageY;
-	/** The height of the last row on the page */
-	private int rowHeight;
-	/** True if the glyphs are ordered */
-	private boolean orderAscending;
+	/** The packer placing glyphs on the page */
+	private SkylinePacker packer;
 	/** The list of glyphs on this page */
 	private final List pageGlyphs = new ArrayList(32);
 
@@ -103,10 +131,12 @@ public class GlyphPage {
 		this.pageHeight = pageHeight;
 
 		pageImage = new Image(pageWidth, pageHeight);
+		packer = new SkylinePacker(pageWidth, pageHeight);
 	}
 
 	/**
 	 * Loads glyphs to the backing texture and sets the image on each loaded glyph. Loaded glyphs are removed from the list.
+	 * Glyphs that don't fit are skipped so that smaller glyphs later in the list can fill the remaining space.
 	 * 
 	 * If this page already has glyphs and maxGlyphsToLoad is -1, then this method will return 0 if all the new glyphs don't fit.
 	 * This reduces texture binds when drawing since glyphs loaded at once are typically displayed together.
@@ -117,24 +147,12 @@ public class GlyphPage {
 	 * @throws SlickException if the glyph could not be rendered.
 	 */
 	public int loadGlyphs (List glyphs, int maxGlyphsToLoad) throws SlickException {
-		if (rowHeight != 0 && maxGlyphsToLoad == -1) {
+		if (!pageGlyphs.isEmpty() && maxGlyphsToLoad == -1) {
 			// If this page has glyphs and we are not loading incrementally, return zero if any of the glyphs don't fit.
-			int testX = pageX;
-			int testY = pageY;
-			int testRowHeight = rowHeight;
-			for (Iterator iter = getIterator(glyphs); iter.hasNext();) {
+			SkylinePacker testPacker = new SkylinePacker(packer);
+			for (Iterator iter = glyphs.iterator(); iter.hasNext();) {
 				Glyph glyph = (Glyph)iter.next();
-				int width = glyph.getWidth();
-				int height = glyph.getHeight();
-				if (testX + width >= pageWidth) {
-					testX = 0;
-					testY += testRowHeight;
-					testRowHeight = height;
-				} else if (height > testRowHeight) {
-					testRowHeight = height;
-				}
-				if (testY + testRowHeight >= pageWidth) return 0;
-				testX += width;
+				if (!testPacker.pack(getPackedWidth(glyph), getPackedHeight(glyph))) return 0;
 			}
 		}
 
@@ -142,102 +160,123 @@ public class GlyphPage {
 		pageImage.bind();
 
 		int i = 0;
-		for (Iterator iter = getIterator(glyphs); iter.hasNext();) {
+		for (Iterator iter = glyphs.iterator(); iter.hasNext();) {
 			Glyph glyph = (Glyph)iter.next();
-			int width = Math.min(MAX_GLYPH_SIZE, glyph.getWidth());
-			int height = Math.min(MAX_GLYPH_SIZE, glyph.getHeight());
-
-			if (rowHeight == 0) {
-				// The first glyph always fits.
-				rowHeight = height;
-			} else {
-				// Wrap to the next line if needed, or break if no more fit.
-				if (pageX + width >= pageWidth) {
-					if (pageY + rowHeight + height >= pageHeight) break;
-					pageX = 0;
-					pageY += rowHeight;
-					rowHeight = height;
-				} else if (height > rowHeight) {
-					if (pageY + height >= pageHeight) break;
-					rowHeight = height;
-				}
-			}
+			int width = getPackedWidth(glyph);
+			int height = getPackedHeight(glyph);
+			if (!packer.pack(width, height)) continue;
 
-			renderGlyph(glyph, width, height);
+			renderGlyph(glyph, width, height, packer.getX(), packer.getY());
 			pageGlyphs.add(glyph);
 
-			pageX += width;
-
 			iter.remove();
 			i++;
-			if (i == maxGlyphsToLoad) {
-				// If loading incrementally, flip orderAscending so it won't change, since we'll probably load the rest next time.
-				orderAscending = !orderAscending;
-				break;
-			}
+			if (i == maxGlyphsToLoad) break;
 		}
 
 		TextureImpl.bindNone();
 
-		// Every other batch of glyphs added to a page are sorted the opposite way to attempt to keep same size glyps together.
-		orderAscending = !orderAscending;
-
 		return i;
 	}
 
 	/**
-	 * Loads a single glyph to the backing texture, if it fits.
+	 * Get the width a glyph takes up on the page, glyphs too big for the page are clipped
+	 * 
+	 * @param glyph The glyph to be packed
+	 * @return The width of the area the glyph is given on the page
+	 */
+	private int getPackedWidth (Glyph glyph) {
+		return Math.min(Math.min(MAX_GLYPH_SIZE, pageWidth), glyph.getWidth());
+	}
+
+	/**
+	 * Get the height a glyph takes up on the page, glyphs too big for the page are clipped
+	 * 
+	 * @param glyph The glyph to be packed
+	 * @return The height of the area the glyph is given on the page
+	 */
+	private int getPackedHeight (Glyph glyph) {
+		return Math.min(Math.min(MAX_GLYPH_SIZE, pageHeight), glyph.getHeight());
+	}
+
+	/**
+	 * Uploads a single glyph to the backing texture, rendering it first if that hasn't 
+	 * already been done.
 	 * 
-	 * @param glyph The glyph to be rendered
-	 * @param width The expected width of the glyph
-	 * @param height The expected height of the glyph
+	 * @param glyph The glyph to be uploaded
+	 * @param width The width of the area on the page for the glyph
+	 * @param height The height of the area on the page for the glyph
+	 * @param x The x position of the glyph on the page
+	 * @param y The y position of the glyph on the page
 	 * @throws SlickException if the glyph could not be rendered.
 	 */
-	private void renderGlyph(Glyph glyph, int width, int height) throws SlickException {
-		// Draw the glyph to the scratch image using Java2D.
-		scratchGraphics.setComposite(AlphaComposite.Clear);
-		scratchGraphics.fillRect(0, 0, MAX_GLYPH_SIZE, MAX_GLYPH_SIZE);
-		scratchGraphics.setComposite(AlphaComposite.SrcOver);
-		scratchGraphics.setColor(java.awt.Color.white);
-		for (Iterator iter = unicodeFont.getEffects().iterator(); iter.hasNext();)
-			((Effect)iter.next()).draw(scratchImage, scratchGraphics, unicodeFont, glyph);
-		glyph.setShape(null); // The shape will never be needed again.
+	private void renderGlyph(Glyph glyph, int width, int height, int x, int y) throws SlickException {
+		int[] pixels = glyph.getPixels();
+		if (pixels == null) pixels = renderPixels(unicodeFont, glyph);
+		glyph.setPixels(null);
 
-		WritableRaster raster = scratchImage.getRaster();
-		int[] row = new int[width];
-		for (int y = 0; y < height; y++) {
-			raster.getDataElements(0, y, width, 1, row);
-			scratchIntBuffer.put(row);
-		}
-		GL.glTexSubImage2D(SGL.GL_TEXTURE_2D, 0, pageX, pageY, width, height, SGL.GL_BGRA, SGL.GL_UNSIGNED_BYTE,
+		int stride = Math.min(MAX_GLYPH_SIZE, glyph.getWidth());
+		for (int row = 0; row < height; row++)
+			scratchIntBuffer.put(pixels, row * stride, width);
+		GL.glTexSubImage2D(SGL.GL_TEXTURE_2D, 0, x, y, width, height, SGL.GL_BGRA, SGL.GL_UNSIGNED_BYTE,
 			scratchByteBuffer);
 		scratchIntBuffer.clear();
 
-		glyph.setImage(pageImage.getSubImage(pageX, pageY, width, height));
+		glyph.setImage(pageImage.getSubImage(x, y, width, height));
 	}
 
 	/**
-	 * Returns an iterator for the specified glyphs, sorted either ascending or descending.
+	 * Get the packer placing glyphs on this page
 	 * 
-	 * @param glyphs The glyphs to return if present
-	 * @return An iterator of the sorted list of glyphs
+	 * @return The packer placing glyphs on this page
 	 */
-	private Iterator getIterator(List glyphs) {
-		if (orderAscending) return glyphs.iterator();
-		final ListIterator iter = glyphs.listIterator(glyphs.size());
-		return new Iterator() {
-			public boolean hasNext () {
-				return iter.hasPrevious();
-			}
+	SkylinePacker getPacker () {
+		return packer;
+	}
 
-			public Object next () {
-				return iter.previous();
-			}
+	/**
+	 * Restore the contents of this page from a glyph cache
+	 * 
+	 * @param packer The packer holding the space used on the page
+	 * @param pixels The RGBA pixels of the page
+	 */
+	void restore (SkylinePacker packer, ByteBuffer pixels) {
+		this.packer = packer;
 
-			public void remove () {
-				iter.remove();
-			}
-		};
+		pageImage.bind();
+		GL.glTexSubImage2D(SGL.GL_TEXTURE_2D, 0, 0, 0, pageWidth, pageHeight, SGL.GL_RGBA, SGL.GL_UNSIGNED_BYTE, pixels);
+		TextureImpl.bindNone();
+	}
+
+	/**
+	 * Add a glyph whose image is already on this page
+	 * 
+	 * @param glyph The glyph to add
+	 * @param x The x position of the glyph on the page
+	 * @param y The y position of the glyph on the page
+	 * @param width The width of the glyph's image on the page
+	 * @param height The height of the glyph's image on the page
+	 */
+	void addGlyph (Glyph glyph, int x, int y, int width, int height) {
+		glyph.setImage(pageImage.getSubImage(x, y, width, height));
+		pageGlyphs.add(glyph);
+	}
+
+	/**
+	 * Read back the pixels of this page
+	 * 
+	 * @return The RGBA pixels of the page, pageWidth by pageHeight
+	 */
+	byte[] getPixels () {
+		Texture texture = pageImage.getTexture();
+		byte[] data = texture.getTextureData();
+		TextureImpl.bindNone();
+
+		int stride = texture.getTextureWidth() * 4;
+		byte[] pixels = new byte[pageWidth * pageHeight * 4];
+		for (int y = 0; y < pageHeight; y++)
+			System.arraycopy(data, y * stride, pixels, y * pageWidth * 4, pageWidth * 4);
+		return pixels;
 	}
 
 	/**
@@ -257,4 +296,23 @@ public class GlyphPage {
 	public Image getImage () {
 		return pageImage;
 	}
+
+	/**
+	 * The scratch image a thread renders glyphs to
+	 */
+	private static class Scratch {
+		/** The image glyphs are rendered to */
+		BufferedImage image = new BufferedImage(MAX_GLYPH_SIZE, MAX_GLYPH_SIZE, BufferedImage.TYPE_INT_ARGB);
+		/** The graphics context for the image */
+		Graphics2D graphics = (Graphics2D)image.getGraphics();
+
+		/**
+		 * Create a new scratch image with the hints used for glyphs
+		 */
+		Scratch () {
+			graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+		}
+	}
 }
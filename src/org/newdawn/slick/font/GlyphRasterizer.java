@@ -0,0 +1,89 @@
+package org.newdawn.slick.font;
+
+import java.util.List;
+
+import org.newdawn.slick.UnicodeFont;
+
+/**
+ * Renders the images of a set of glyphs with their font's effects on a set of worker
+ * threads. Only the Java2D rendering happens on the workers, the pixels are kept with
+ * each glyph until a GlyphPage uploads them to its texture on the thread that owns the
+ * GL context.
+ *
+ * @author kevin
+ */
+public class GlyphRasterizer implements Runnable {
+	/** The font the glyphs are part of */
+	private UnicodeFont unicodeFont;
+	/** The glyphs to render */
+	private Glyph[] glyphs;
+	/** The next glyph to render */
+	private int next;
+	/** The first failure rendering a glyph */
+	private RuntimeException failure;
+
+	/**
+	 * Create a new rasterizer
+	 *
+	 * @param unicodeFont The font the glyphs are part of
+	 * @param glyphs The list of {@link Glyph} elements to render
+	 */
+	public GlyphRasterizer(UnicodeFont unicodeFont, List glyphs) {
+		this.unicodeFont = unicodeFont;
+		this.glyphs = (Glyph[])glyphs.toArray(new Glyph[glyphs.size()]);
+	}
+
+	/**
+	 * Render the glyphs, returning once they're all done
+	 *
+	 * @param threads The number of threads to render on including the calling one
+	 */
+	public void render(int threads) {
+		Thread[] workers = new Thread[Math.max(0, Math.min(threads, glyphs.length) - 1)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(this, "Glyph Rasterizer " + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		run();
+		for (int i = 0; i < workers.length; i++) {
+			while (workers[i].isAlive()) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+					// keep waiting, the worker is using the glyphs
+				}
+			}
+		}
+
+		if (failure != null) throw failure;
+	}
+
+	/**
+	 * Take glyphs and render them until there are none left
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		while (true) {
+			Glyph glyph;
+			synchronized (this) {
+				if (next >= glyphs.length || failure != null) return;
+				glyph = glyphs[next++];
+			}
+			if (glyph.getPixels() != null || glyph.getShape() == null) continue;
+
+			try {
+				int[] pixels = GlyphPage.renderPixels(unicodeFont, glyph);
+				synchronized (this) {
+					glyph.setPixels(pixels);
+				}
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (failure == null) failure = e;
+				}
+			}
+		}
+	}
+}
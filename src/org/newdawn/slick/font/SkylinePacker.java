@@ -0,0 +1,210 @@
+package org.newdawn.slick.font;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Packs rectangles on to a page by tracking the skyline - the height of the packed area
+ * across the page. Each rectangle is placed at the position that leaves its top lowest,
+ * on the left most position where there's a choice. Unlike packing in rows this fills the
+ * space above short glyphs that sit next to tall ones.
+ *
+ * @author kevin
+ */
+class SkylinePacker {
+	/** The width of the page */
+	private int width;
+	/** The height of the page */
+	private int height;
+	/** The x coordinate of the start of each segment of the skyline */
+	private int[] xs;
+	/** The height of the skyline across each segment */
+	private int[] ys;
+	/** The number of segments in the skyline */
+	private int count;
+	/** The x coordinate of the last rectangle packed */
+	private int packedX;
+	/** The y coordinate of the last rectangle packed */
+	private int packedY;
+
+	/**
+	 * Create a new packer for an empty page
+	 *
+	 * @param width The width of the page
+	 * @param height The height of the page
+	 */
+	SkylinePacker(int width, int height) {
+		this.width = width;
+		this.height = height;
+
+		xs = new int[16];
+		ys = new int[16];
+		count = 1;
+	}
+
+	/**
+	 * Create a new packer that starts with the same skyline as another
+	 *
+	 * @param packer The packer to copy
+	 */
+	SkylinePacker(SkylinePacker packer) {
+		width = packer.width;
+		height = packer.height;
+		xs = (int[]) packer.xs.clone();
+		ys = (int[]) packer.ys.clone();
+		count = packer.count;
+	}
+
+	/**
+	 * Read a packer back from a stream
+	 *
+	 * @param in The stream to read the skyline from
+	 * @param width The width of the page
+	 * @param height The height of the page
+	 * @return The packer read
+	 * @throws IOException Indicates a failure to read the skyline
+	 */
+	static SkylinePacker read(DataInputStream in, int width, int height) throws IOException {
+		SkylinePacker packer = new SkylinePacker(width, height);
+		packer.count = in.readInt();
+		if ((packer.count < 1) || (packer.count > width)) {
+			throw new IOException("Invalid skyline");
+		}
+		packer.xs = new int[packer.count];
+		packer.ys = new int[packer.count];
+		for (int i=0;i<packer.count;i++) {
+			packer.xs[i] = in.readInt();
+			packer.ys[i] = in.readInt();
+		}
+
+		return packer;
+	}
+
+	/**
+	 * Write the skyline to a stream
+	 *
+	 * @param out The stream to write the skyline to
+	 * @throws IOException Indicates a failure to write the skyline
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(count);
+		for (int i=0;i<count;i++) {
+			out.writeInt(xs[i]);
+			out.writeInt(ys[i]);
+		}
+	}
+
+	/**
+	 * Pack a rectangle on to the page
+	 *
+	 * @param w The width of the rectangle
+	 * @param h The height of the rectangle
+	 * @return True if the rectangle fitted, its position is then given by getX() and getY()
+	 */
+	boolean pack(int w, int h) {
+		int best = -1;
+		int bestTop = Integer.MAX_VALUE;
+		int bestY = 0;
+
+		for (int i=0;i<count;i++) {
+			int x = xs[i];
+			if (x + w > width) {
+				break;
+			}
+
+			// the rectangle sits on the highest segment it spans
+			int y = 0;
+			for (int j=i;(j<count) && (xs[j] < x + w);j++) {
+				y = Math.max(y, ys[j]);
+			}
+			if ((y + h <= height) && (y + h < bestTop)) {
+				best = i;
+				bestTop = y + h;
+				bestY = y;
+			}
+		}
+		if (best == -1) {
+			return false;
+		}
+
+		packedX = xs[best];
+		packedY = bestY;
+		raise(packedX, packedX + w, bestTop);
+		return true;
+	}
+
+	/**
+	 * Raise the skyline across a range to a new height
+	 *
+	 * @param start The x coordinate of the start of the range
+	 * @param end The x coordinate of the end of the range
+	 * @param top The new height of the skyline across the range
+	 */
+	private void raise(int start, int end, int top) {
+		// find the segments the range covers, the last may continue past the end
+		int first = 0;
+		while (xs[first] != start) {
+			first++;
+		}
+		int last = first;
+		while ((last + 1 < count) && (xs[last + 1] < end)) {
+			last++;
+		}
+		boolean remainder = (last + 1 < count ? xs[last + 1] : width) > end;
+		int remainderY = ys[last];
+
+		// replace the covered segments with one for the range and one for what's left over
+		int added = remainder ? 2 : 1;
+		int removed = last - first + 1;
+		if (count + added - removed > xs.length) {
+			int[] newXs = new int[xs.length * 2];
+			int[] newYs = new int[ys.length * 2];
+			System.arraycopy(xs, 0, newXs, 0, count);
+			System.arraycopy(ys, 0, newYs, 0, count);
+			xs = newXs;
+			ys = newYs;
+		}
+		System.arraycopy(xs, last + 1, xs, first + added, count - last - 1);
+		System.arraycopy(ys, last + 1, ys, first + added, count - last - 1);
+		count += added - removed;
+
+		xs[first] = start;
+		ys[first] = top;
+		if (remainder) {
+			xs[first + 1] = end;
+			ys[first + 1] = remainderY;
+		}
+
+		// merge with neighbours at the same height
+		if ((first > 0) && (ys[first - 1] == top)) {
+			System.arraycopy(xs, first + 1, xs, first, count - first - 1);
+			System.arraycopy(ys, first + 1, ys, first, count - first - 1);
+			count--;
+			first--;
+		}
+		if ((first + 1 < count) && (ys[first + 1] == top)) {
+			System.arraycopy(xs, first + 2, xs, first + 1, count - first - 2);
+			System.arraycopy(ys, first + 2, ys, first + 1, count - first - 2);
+			count--;
+		}
+	}
+
+	/**
+	 * Get the x coordinate of the last rectangle packed
+	 *
+	 * @return The x coordinate of the last rectangle packed
+	 */
+	int getX() {
+		return packedX;
+	}
+
+	/**
+	 * Get the y coordinate of the last rectangle packed
+	 *
+	 * @return The y coordinate of the last rectangle packed
+	 */
+	int getY() {
+		return packedY;
+	}
+}
@@ -0,0 +1,265 @@
+package org.newdawn.slick.font.effects;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.newdawn.slick.UnicodeFont;
+import org.newdawn.slick.font.Glyph;
+
+/**
+ * An effect that replaces the glyph image with a signed distance field of the glyph's
+ * outline. Each pixel's alpha is 0.5 on the edge of the glyph, rising inside it and falling
+ * outside it over the spread. Drawn with linear filtering and an alpha test at 0.5 (see
+ * AngelCodeFont#setDistanceField(boolean)) the text keeps sharp edges when scaled up.
+ *
+ * The outline is rendered at a multiple of the glyph size so the edges are found more
+ * precisely than the pixels of the glyph image. The glyphs need padding of at least the
+ * spread on each side so the field isn't clipped.
+ *
+ * @author kevin
+ */
+public class DistanceFieldEffect implements ConfigurableEffect {
+	/** The distance used for pixels that have no nearest pixel yet */
+	private static final float INFINITY = 1e20f;
+
+	/** The colour of the glyphs */
+	private Color color = Color.white;
+	/** The multiple of the glyph size the outline is rendered at to find the edges */
+	private int scale = 4;
+	/** The distance in pixels from the edge at which the field reaches 0 or 1 */
+	private float spread = 4;
+
+	/**
+	 * Default constructor for injection
+	 */
+	public DistanceFieldEffect() {
+	}
+
+	/**
+	 * Create a new effect to render glyphs as distance fields
+	 *
+	 * @param color The colour of the glyphs
+	 * @param scale The multiple of the glyph size the outline is rendered at
+	 * @param spread The distance in pixels from the edge at which the field reaches 0 or 1
+	 */
+	public DistanceFieldEffect(Color color, int scale, float spread) {
+		this.color = color;
+		this.scale = scale;
+		this.spread = spread;
+	}
+
+	/**
+	 * @see org.newdawn.slick.font.effects.Effect#draw(java.awt.image.BufferedImage, java.awt.Graphics2D, org.newdawn.slick.UnicodeFont, org.newdawn.slick.font.Glyph)
+	 */
+	public void draw(BufferedImage image, Graphics2D g, UnicodeFont unicodeFont, Glyph glyph) {
+		int width = Math.min(image.getWidth(), glyph.getWidth());
+		int height = Math.min(image.getHeight(), glyph.getHeight());
+		if (width <= 0 || height <= 0 || glyph.getShape() == null) return;
+
+		// Render the outline at the higher resolution. This is done per glyph rather than in a
+		// shared image since glyphs may be rendered on several threads at once.
+		int hiWidth = width * scale;
+		int hiHeight = height * scale;
+		BufferedImage outline = new BufferedImage(hiWidth, hiHeight, BufferedImage.TYPE_BYTE_BINARY);
+		Graphics2D outlineGraphics = outline.createGraphics();
+		outlineGraphics.scale(scale, scale);
+		outlineGraphics.setColor(Color.white);
+		outlineGraphics.fill(glyph.getShape());
+		outlineGraphics.dispose();
+		int[] inside = outline.getRaster().getPixels(0, 0, hiWidth, hiHeight, (int[])null);
+
+		// The squared distance from each pixel to the nearest pixel inside and outside the glyph
+		float[] toInside = new float[hiWidth * hiHeight];
+		float[] toOutside = new float[hiWidth * hiHeight];
+		for (int i = 0; i < inside.length; i++) {
+			toInside[i] = inside[i] != 0 ? 0 : INFINITY;
+			toOutside[i] = inside[i] != 0 ? INFINITY : 0;
+		}
+		transform(toInside, hiWidth, hiHeight);
+		transform(toOutside, hiWidth, hiHeight);
+
+		// Each pixel of the glyph image is given the average distance across the pixels it
+		// covers in the outline, the edge lies half way between an inside and outside pixel.
+		int rgb = color.getRGB() & 0xffffff;
+		float alphaScale = color.getAlpha() / 255f;
+		float distanceScale = 1f / (scale * scale * scale * spread * 2);
+		int[] row = new int[width];
+		WritableRaster raster = image.getRaster();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float distance = 0;
+				for (int hiY = y * scale, endY = hiY + scale; hiY < endY; hiY++) {
+					for (int i = hiY * hiWidth + x * scale, end = i + scale; i < end; i++) {
+						if (inside[i] != 0)
+							distance += (float)Math.sqrt(toOutside[i]) - 0.5f;
+						else
+							distance -= (float)Math.sqrt(toInside[i]) - 0.5f;
+					}
+				}
+				float alpha = Math.max(0, Math.min(1, 0.5f + distance * distanceScale));
+				row[x] = (Math.round(alpha * alphaScale * 255) << 24) | rgb;
+			}
+			raster.setDataElements(0, y, width, 1, row);
+		}
+	}
+
+	/**
+	 * Replace each value in a grid with the smallest of the squared distance to each other
+	 * cell plus that cell's value, one axis at a time (Felzenszwalb and Huttenlocher)
+	 *
+	 * @param grid The grid of values, 0 for cells being measured to and INFINITY elsewhere
+	 * @param width The width of the grid
+	 * @param height The height of the grid
+	 */
+	private static void transform(float[] grid, int width, int height) {
+		int size = Math.max(width, height);
+		float[] f = new float[size];
+		float[] d = new float[size];
+		float[] z = new float[size + 1];
+		int[] v = new int[size];
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++)
+				f[y] = grid[y * width + x];
+			transform(f, height, d, v, z);
+			for (int y = 0; y < height; y++)
+				grid[y * width + x] = d[y];
+		}
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(grid, y * width, f, 0, width);
+			transform(f, width, d, v, z);
+			System.arraycopy(d, 0, grid, y * width, width);
+		}
+	}
+
+	/**
+	 * Find the lower envelope of the parabolas rooted at each value of a line
+	 *
+	 * @param f The values along the line
+	 * @param n The number of values
+	 * @param d The array to write the distances to
+	 * @param v The scratch array for the roots of the parabolas in the envelope
+	 * @param z The scratch array for the boundaries between the parabolas in the envelope
+	 */
+	private static void transform(float[] f, int n, float[] d, int[] v, float[] z) {
+		int k = 0;
+		v[0] = 0;
+		z[0] = -INFINITY;
+		z[1] = INFINITY;
+		for (int q = 1; q < n; q++) {
+			float s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2 * q - 2 * v[k]);
+			while (s <= z[k]) {
+				k--;
+				s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2 * q - 2 * v[k]);
+			}
+			k++;
+			v[k] = q;
+			z[k] = s;
+			z[k + 1] = INFINITY;
+		}
+
+		k = 0;
+		for (int q = 0; q < n; q++) {
+			while (z[k + 1] < q)
+				k++;
+			d[q] = (q - v[k]) * (q - v[k]) + f[v[k]];
+		}
+	}
+
+	/**
+	 * Get the colour of the glyphs
+	 *
+	 * @return The colour of the glyphs
+	 */
+	public Color getColor() {
+		return color;
+	}
+
+	/**
+	 * Set the colour of the glyphs
+	 *
+	 * @param color The colour of the glyphs
+	 */
+	public void setColor(Color color) {
+		this.color = color;
+	}
+
+	/**
+	 * Get the multiple of the glyph size the outline is rendered at
+	 *
+	 * @return The multiple of the glyph size the outline is rendered at
+	 */
+	public int getScale() {
+		return scale;
+	}
+
+	/**
+	 * Set the multiple of the glyph size the outline is rendered at. Higher values find the
+	 * edges more precisely but take longer to generate.
+	 *
+	 * @param scale The multiple of the glyph size the outline is rendered at
+	 */
+	public void setScale(int scale) {
+		this.scale = scale;
+	}
+
+	/**
+	 * Get the distance from the edge at which the field reaches 0 or 1
+	 *
+	 * @return The distance in pixels
+	 */
+	public float getSpread() {
+		return spread;
+	}
+
+	/**
+	 * Set the distance from the edge at which the field reaches 0 or 1. The glyphs will need
+	 * at least this much padding so the field doesn't get clipped.
+	 *
+	 * @param spread The distance in pixels
+	 */
+	public void setSpread(float spread) {
+		this.spread = spread;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "Distance field";
+	}
+
+	/**
+	 * @see org.newdawn.slick.font.effects.ConfigurableEffect#getValues()
+	 */
+	public List getValues() {
+		List values = new ArrayList();
+		values.add(EffectUtil.colorValue("Color", color));
+		values.add(EffectUtil.intValue("Scale", scale, "This setting is the multiple of the glyph size the outline is rendered at to find"
+			+ " the edges. Higher values are more precise but take longer to generate."));
+		values.add(EffectUtil.floatValue("Spread", spread, 1, Float.MAX_VALUE, "This setting is the distance in pixels from the edge of the"
+			+ " glyph over which the field fades out. The glyphs will need at least this much padding so the field doesn't get clipped."));
+		return values;
+	}
+
+	/**
+	 * @see org.newdawn.slick.font.effects.ConfigurableEffect#setValues(java.util.List)
+	 */
+	public void setValues(List values) {
+		for (Iterator iter = values.iterator(); iter.hasNext();) {
+			Value value = (Value)iter.next();
+			if (value.getName().equals("Color")) {
+				color = (Color)value.getObject();
+			} else if (value.getName().equals("Scale")) {
+				scale = Math.max(1, ((Integer)value.getObject()).intValue());
+			} else if (value.getName().equals("Spread")) {
+				spread = ((Float)value.getObject()).floatValue();
+			}
+		}
+	}
+}
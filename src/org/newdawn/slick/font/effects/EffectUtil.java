@@ -36,16 +36,21 @@ import org.newdawn.slick.font.effects.ConfigurableEffect.Value;
  * @author Nathan Sweet <misc@n4te.com>
  */
 public class EffectUtil {
-	/** A graphics 2D temporary surface to be used when generating effects */
-	static private BufferedImage scratchImage = new BufferedImage(GlyphPage.MAX_GLYPH_SIZE, GlyphPage.MAX_GLYPH_SIZE,
-		BufferedImage.TYPE_INT_ARGB);
+	/** A graphics 2D temporary surface for each thread generating effects */
+	static private ThreadLocal scratchImages = new ThreadLocal() {
+		protected Object initialValue () {
+			return new BufferedImage(GlyphPage.MAX_GLYPH_SIZE, GlyphPage.MAX_GLYPH_SIZE, BufferedImage.TYPE_INT_ARGB);
+		}
+	};
 
 	/**
-	 * Returns an image that can be used by effects as a temp image.
+	 * Returns an image that can be used by effects as a temp image. Each thread is given 
+	 * its own image so glyphs can be rendered on several threads at once.
 	 * 
 	 * @return The scratch image used for temporary operations
 	 */
 	static public BufferedImage getScratchImage() {
+		BufferedImage scratchImage = (BufferedImage)scratchImages.get();
 		Graphics2D g = (Graphics2D)scratchImage.getGraphics();
 		g.setComposite(AlphaComposite.Clear);
 		g.fillRect(0, 0, GlyphPage.MAX_GLYPH_SIZE, GlyphPage.MAX_GLYPH_SIZE);
@@ -16,6 +16,8 @@ public class AudioImpl implements Audio {
 	private int buffer;
 	/** The index of the source being used to play this sound */
 	private int index = -1;
+	/** The number of the play that started this sound on its source */
+	private long start;
 	
 	/** The length of the audio */
 	private float length;
@@ -61,7 +63,10 @@ public class AudioImpl implements Audio {
 	 */
 	public void stop() {
 		if (index != -1) {
-			store.stopSource(index);
+			// the source may have been given to another sound since
+			if (store.isVoice(index, start)) {
+				store.stopSource(index);
+			}
 			index = -1;
 		}
 	}
@@ -70,7 +75,7 @@ public class AudioImpl implements Audio {
 	 * @see org.newdawn.slick.openal.Audio#isPlaying()
 	 */
 	public boolean isPlaying() {
-		if (index != -1) {
+		if ((index != -1) && store.isVoice(index, start)) {
 			return store.isPlaying(index);
 		}
 		
@@ -82,6 +87,7 @@ public class AudioImpl implements Audio {
 	 */
 	public int playAsSoundEffect(float pitch, float gain, boolean loop) {
 		index = store.playAsSound(buffer, pitch, gain, loop);
+		start = store.getVoiceStart(index);
 		return store.getSource(index);
 	}
 
@@ -91,6 +97,7 @@ public class AudioImpl implements Audio {
 	 */
 	public int playAsSoundEffect(float pitch, float gain, boolean loop, float x, float y, float z) {
 		index = store.playAsSoundAt(buffer, pitch, gain, loop, x, y, z);
+		start = store.getVoiceStart(index);
 		return store.getSource(index);
 	}
 	
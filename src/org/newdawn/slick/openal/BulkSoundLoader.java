@@ -0,0 +1,159 @@
+package org.newdawn.slick.openal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.newdawn.slick.util.ResourceLoader;
+
+/**
+ * Decodes a set of sounds on a set of worker threads. Only the decoding happens on
+ * the workers, the decoded data is handed back to be put into OpenAL buffers on the
+ * thread that owns the OpenAL context. Decoded data can be cached on disk so later 
+ * runs only need to read it back.
+ *
+ * @author kevin
+ */
+class BulkSoundLoader implements Runnable {
+	/** The references to the sounds to decode */
+	private String[] refs;
+	/** The cache of decoded data, null if not caching */
+	private PCMCache cache;
+	/** The decoded data for each sound */
+	private PCMData[] results;
+	/** The failure decoding each sound */
+	private IOException[] failures;
+	/** The next sound to decode */
+	private int next;
+
+	/**
+	 * Create a new loader
+	 *
+	 * @param refs The references to the sounds to decode, null entries are skipped
+	 * @param cache The cache of decoded data, null if not caching
+	 */
+	BulkSoundLoader(String[] refs, PCMCache cache) {
+		this.refs = refs;
+		this.cache = cache;
+
+		results = new PCMData[refs.length];
+		failures = new IOException[refs.length];
+	}
+
+	/**
+	 * Decode the sounds, returning once they're all done
+	 *
+	 * @param threads The number of threads to decode on including the calling one
+	 */
+	void decode(int threads) {
+		Thread[] workers = new Thread[Math.max(0, Math.min(threads, refs.length) - 1)];
+		for (int i=0;i<workers.length;i++) {
+			workers[i] = new Thread(this, "Sound Decoder "+i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		run();
+		for (int i=0;i<workers.length;i++) {
+			while (workers[i].isAlive()) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+					// keep waiting, the worker is filling in the results
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the decoded data for a sound
+	 *
+	 * @param index The index of the sound in the list given
+	 * @return The decoded data or null if the sound failed to decode or was skipped
+	 */
+	PCMData getData(int index) {
+		return results[index];
+	}
+
+	/**
+	 * Get the failure decoding a sound
+	 *
+	 * @param index The index of the sound in the list given
+	 * @return The failure or null if the sound decoded
+	 */
+	IOException getFailure(int index) {
+		return failures[index];
+	}
+
+	/**
+	 * Take sounds and decode them until there are none left
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		while (true) {
+			int index;
+			synchronized (this) {
+				if (next >= refs.length) {
+					return;
+				}
+				index = next++;
+			}
+			if (refs[index] == null) {
+				continue;
+			}
+
+			PCMData data = null;
+			IOException failure = null;
+			try {
+				data = decode(refs[index]);
+			} catch (IOException e) {
+				failure = e;
+			} catch (RuntimeException e) {
+				failure = new IOException("Failed to load: "+refs[index]);
+				failure.initCause(e);
+			}
+
+			synchronized (this) {
+				results[index] = data;
+				failures[index] = failure;
+			}
+		}
+	}
+
+	/**
+	 * Decode a single sound, using the cache if there is one
+	 *
+	 * @param ref The reference to the sound
+	 * @return The decoded data
+	 * @throws IOException Indicates a failure to read or decode the sound
+	 */
+	private PCMData decode(String ref) throws IOException {
+		InputStream in = ResourceLoader.getResourceAsStream(ref);
+		byte[] source;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, count);
+			}
+			source = bytes.toByteArray();
+		} finally {
+			in.close();
+		}
+
+		if (cache == null) {
+			return PCMData.decode(ref, source);
+		}
+
+		String key = cache.getKey(source);
+		PCMData data = cache.get(key);
+		if (data == null) {
+			data = PCMData.decode(ref, source);
+			cache.put(key, data);
+		}
+
+		return data;
+	}
+}
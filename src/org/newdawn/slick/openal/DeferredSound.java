@@ -31,6 +31,10 @@ public class DeferredSound extends AudioImpl implements DeferredResource {
 	private Audio target;
 	/** The input stream to load the sound this proxy wraps from (can be null) */
 	private InputStream in;
+	/** The priority of the sound's effects, or null if it hasn't been set */
+	private Integer priority;
+	/** The maximum number of the sound's effects playing at once, or null if it hasn't been set */
+	private Integer maxInstances;
 	
 	/**
 	 * Create a new sound on request to load
@@ -104,6 +108,78 @@ public class DeferredSound extends AudioImpl implements DeferredResource {
 			}
 		}
 		SoundStore.get().setDeferredLoading(before);
+		
+		// settings made before loading are held here until there's a buffer to apply them to
+		if (target != null) {
+			if (priority != null) {
+				SoundStore.get().setPriority(target, priority.intValue());
+			}
+			if (maxInstances != null) {
+				SoundStore.get().setMaxInstances(target, maxInstances.intValue());
+			}
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.openal.AudioImpl#getBufferID()
+	 */
+	public int getBufferID() {
+		if (target == null) {
+			return 0;
+		}
+		
+		return target.getBufferID();
+	}
+	
+	/**
+	 * Set the priority of this sound's effects, applied to the loaded sound once there is one
+	 * 
+	 * @param priority The priority of the sound's effects
+	 */
+	void setPriority(int priority) {
+		this.priority = new Integer(priority);
+		if (target != null) {
+			SoundStore.get().setPriority(target, priority);
+		}
+	}
+	
+	/**
+	 * Get the priority of this sound's effects
+	 * 
+	 * @return The priority of the sound's effects
+	 */
+	int getPriority() {
+		if (target != null) {
+			return SoundStore.get().getPriority(target);
+		}
+		
+		return priority == null ? 0 : priority.intValue();
+	}
+	
+	/**
+	 * Set the maximum number of this sound's effects playing at once, applied to the loaded 
+	 * sound once there is one
+	 * 
+	 * @param max The maximum number playing at once, 0 for no limit
+	 */
+	void setMaxInstances(int max) {
+		this.maxInstances = new Integer(max);
+		if (target != null) {
+			SoundStore.get().setMaxInstances(target, max);
+		}
+	}
+	
+	/**
+	 * Get the maximum number of this sound's effects playing at once
+	 * 
+	 * @return The maximum number playing at once, 0 for no limit
+	 */
+	int getMaxInstances() {
+		if (target != null) {
+			return SoundStore.get().getMaxInstances(target);
+		}
+		
+		return maxInstances == null ? 0 : maxInstances.intValue();
 	}
 
 	/**
@@ -69,6 +69,16 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 	private ByteBuffer pcmBuffer = BufferUtils.createByteBuffer(4096 * 500);
 	/** The total number of bytes */
 	private int total;
+	/** The number of bytes read from the underlying stream */
+	private long consumed;
+	/** The granule position at the end of the last page decoded */
+	private long granule;
+	
+	/** 
+	 * The number of samples before a position to start decoding from when seeking, enough 
+	 * to cover the largest Vorbis block which decodes to nothing  
+	 */
+	private static final int SEEK_PREROLL = 8192;
 	
 	/**
 	 * Create a new stream to decode OGG data
@@ -152,6 +162,9 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 		
 		try {
 			bytes = input.read(buffer, index, 4096);
+			if (bytes > 0) {
+				consumed += bytes;
+			}
 		} catch (Exception e) {
 			Log.error("Failure reading in vorbis");
 			Log.error(e);
@@ -253,6 +266,9 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 			buffer = syncState.data;
 			try {
 				bytes = input.read(buffer, index, 4096);
+				if (bytes > 0) {
+					consumed += bytes;
+				}
 			} catch (Exception e) {
 				Log.error("Failed to read Vorbis: ");
 				Log.error(e);
@@ -387,6 +403,9 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 								}
 							}
 						}
+						if (page.granulepos() >= 0) {
+							granule = page.granulepos();
+						}
 						if (page.eos() != 0) {
 							endOfBitStream = true;
 						} 
@@ -404,6 +423,9 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 						buffer = syncState.data;
 						try {
 							bytes = input.read(buffer, index, 4096);
+							if (bytes > 0) {
+								consumed += bytes;
+							}
 						} catch (Exception e) {
 							Log.error("Failure during vorbis decoding");
 							Log.error(e);
@@ -437,6 +459,77 @@ public class OggInputStream extends InputStream implements AudioInputStream {
 		endOfStream = true;
 	}
 	
+	/**
+	 * Move the stream to a given sample using an index of the pages in the file. Decoding 
+	 * starts from the page a little before the sample and the samples before it are 
+	 * dropped, rather than decoding everything up to the sample. Only moving forward 
+	 * through the underlying stream is possible, to move back open a new stream and seek that.
+	 * 
+	 * @param sample The index of the sample (per channel) to move to
+	 * @param index The index of the pages in the OGG file being read
+	 * @return True if the stream was moved, false if the page needed has already been
+	 * read past or the sample is beyond the end of the stream
+	 * @throws IOException Indicates a failure to read from the supplied stream
+	 */
+	public boolean seek(long sample, OggPageIndex index) throws IOException {
+		if (!inited || endOfStream || (oggInfo.channels == 0)) {
+			return false;
+		}
+		// the last page may be trimmed to end part way through a block, which only
+		// comes out right if the decoder has seen an earlier page
+		int page = Math.min(index.findPage(sample - SEEK_PREROLL), index.getPageCount() - 3);
+		if (page < 0) {
+			return false;
+		}
+		long offset = index.getNextOffset(page);
+		if (offset < consumed) {
+			return false;
+		}
+		
+		if (!OggPageIndex.skipFully(input, offset - consumed)) {
+			endOfStream = true;
+			return false;
+		}
+		consumed = offset;
+		
+		// start decoding afresh from the page
+		syncState.reset();
+		streamState.reset();
+		dspState.synthesis_init(oggInfo);
+		vorbisBlock.init(dspState);
+		endOfBitStream = false;
+		granule = -1;
+		pcmBuffer.clear();
+		readIndex = 0;
+		
+		readPCM();
+		if (granule < 0) {
+			return false;
+		}
+		
+		// the decoded samples end at the granule position of the last page, drop those
+		// before the sample we're after
+		int sampleSize = 2 * oggInfo.channels;
+		long drop = sample - (granule - (pcmBuffer.position() / sampleSize));
+		while (drop > 0) {
+			long available = pcmBuffer.position() / sampleSize;
+			if (drop < available) {
+				readIndex = (int) (drop * sampleSize);
+				break;
+			}
+			
+			drop -= available;
+			pcmBuffer.clear();
+			readIndex = 0;
+			readPCM();
+			if (pcmBuffer.position() == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
 	/**
 	 * @see java.io.InputStream#read()
 	 */
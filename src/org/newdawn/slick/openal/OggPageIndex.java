@@ -0,0 +1,287 @@
+package org.newdawn.slick.openal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An index of the pages in an OGG file, recording the granule position (the
+ * number of samples decoded) at the end of each page against the byte offset at
+ * which the next page starts. This lets a stream jump to the page before a 
+ * position and decode only from there. 
+ * 
+ * The index is built by reading the page headers only, without decoding any audio.
+ * It can be saved and loaded back so it doesn't need building every time.
+ *
+ * @author kevin
+ */
+public class OggPageIndex {
+	/** The value identifying a saved index */
+	private static final int MAGIC = 0x4f504958;
+	
+	/** The granule position at the end of each page indexed */
+	private long[] granules = new long[64];
+	/** The byte offset of the start of the page following each page indexed */
+	private long[] offsets = new long[64];
+	/** The number of pages indexed */
+	private int count;
+	
+	/**
+	 * Create an empty index
+	 */
+	private OggPageIndex() {
+	}
+	
+	/**
+	 * Build an index by reading the pages of an OGG file. Only the first logical 
+	 * bitstream in the file is indexed. The stream is closed once it's been read.
+	 * 
+	 * @param in The stream to read the OGG file from
+	 * @return The newly built index
+	 * @throws IOException Indicates a failure to read the file
+	 */
+	public static OggPageIndex build(InputStream in) throws IOException {
+		OggPageIndex index = new OggPageIndex();
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		
+		try {
+			byte[] header = new byte[27];
+			byte[] segments = new byte[255];
+			long offset = 0;
+			int serial = 0;
+			boolean first = true;
+			
+			while (readFully(data, header, 27)) {
+				if ((header[0] != 'O') || (header[1] != 'g') || (header[2] != 'g') || (header[3] != 'S')) {
+					throw new IOException("Lost sync reading OGG page at "+offset);
+				}
+				
+				int type = header[5] & 0xff;
+				long granule = readLong(header, 6);
+				int pageSerial = (int) readLong(header, 14);
+				int segmentCount = header[26] & 0xff;
+				if (!readFully(data, segments, segmentCount)) {
+					break;
+				}
+				int bodySize = 0;
+				for (int i=0;i<segmentCount;i++) {
+					bodySize += segments[i] & 0xff;
+				}
+				if (!skipFully(data, bodySize)) {
+					break;
+				}
+				offset += 27 + segmentCount + bodySize;
+				
+				if (first) {
+					serial = pageSerial;
+					first = false;
+				}
+				if (pageSerial != serial) {
+					continue;
+				}
+				if (granule >= 0) {
+					index.add(granule, offset);
+				}
+				if ((type & 4) != 0) {
+					break;
+				}
+			}
+		} finally {
+			data.close();
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Load an index saved with save()
+	 * 
+	 * @param in The stream to read the index from
+	 * @return The index loaded
+	 * @throws IOException Indicates a failure to read the index
+	 */
+	public static OggPageIndex load(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		
+		try {
+			if (data.readInt() != MAGIC) {
+				throw new IOException("Not an OGG page index");
+			}
+			
+			OggPageIndex index = new OggPageIndex();
+			int count = data.readInt();
+			for (int i=0;i<count;i++) {
+				index.add(data.readLong(), data.readLong());
+			}
+			
+			return index;
+		} finally {
+			data.close();
+		}
+	}
+	
+	/**
+	 * Save this index so it can be loaded back rather than built
+	 * 
+	 * @param out The stream to write the index to
+	 * @throws IOException Indicates a failure to write the index
+	 */
+	public void save(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		
+		try {
+			data.writeInt(MAGIC);
+			data.writeInt(count);
+			for (int i=0;i<count;i++) {
+				data.writeLong(granules[i]);
+				data.writeLong(offsets[i]);
+			}
+		} finally {
+			data.close();
+		}
+	}
+	
+	/**
+	 * Get the number of pages indexed
+	 * 
+	 * @return The number of pages indexed
+	 */
+	public int getPageCount() {
+		return count;
+	}
+	
+	/**
+	 * Get the number of samples in the stream indexed
+	 * 
+	 * @return The granule position at the end of the last page
+	 */
+	public long getSampleCount() {
+		return count == 0 ? 0 : granules[count-1];
+	}
+	
+	/**
+	 * Find the last page that ends at or before a given sample
+	 * 
+	 * @param sample The sample to look for
+	 * @return The index of the page or -1 if no page ends that early
+	 */
+	int findPage(long sample) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (granules[mid] <= sample) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		
+		return low - 1;
+	}
+	
+	/**
+	 * Get the granule position at the end of a page
+	 * 
+	 * @param page The index of the page
+	 * @return The number of samples decoded at the end of the page
+	 */
+	long getGranule(int page) {
+		return granules[page];
+	}
+	
+	/**
+	 * Get the byte offset of the page after a given page
+	 * 
+	 * @param page The index of the page
+	 * @return The byte offset of the start of the following page
+	 */
+	long getNextOffset(int page) {
+		return offsets[page];
+	}
+	
+	/**
+	 * Add a page to the index
+	 * 
+	 * @param granule The granule position at the end of the page
+	 * @param offset The byte offset of the start of the following page
+	 */
+	private void add(long granule, long offset) {
+		if (count == granules.length) {
+			long[] grown = new long[count * 2];
+			System.arraycopy(granules, 0, grown, 0, count);
+			granules = grown;
+			grown = new long[count * 2];
+			System.arraycopy(offsets, 0, grown, 0, count);
+			offsets = grown;
+		}
+		granules[count] = granule;
+		offsets[count] = offset;
+		count++;
+	}
+	
+	/**
+	 * Read a little endian 64 bit value from a page header
+	 * 
+	 * @param data The header data
+	 * @param ofs The offset of the value in the header
+	 * @return The value read
+	 */
+	private static long readLong(byte[] data, int ofs) {
+		long value = 0;
+		for (int i=7;i>=0;i--) {
+			value = (value << 8) | (data[ofs+i] & 0xff);
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Read a number of bytes, stopping at the end of the stream
+	 * 
+	 * @param in The stream to read from
+	 * @param data The array to read into
+	 * @param len The number of bytes to read
+	 * @return True if all the bytes were read
+	 * @throws IOException Indicates a failure to read the stream
+	 */
+	private static boolean readFully(InputStream in, byte[] data, int len) throws IOException {
+		int read = 0;
+		while (read < len) {
+			int count = in.read(data, read, len - read);
+			if (count < 0) {
+				return false;
+			}
+			read += count;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Skip a number of bytes, stopping at the end of the stream
+	 * 
+	 * @param in The stream to skip through
+	 * @param len The number of bytes to skip
+	 * @return True if all the bytes were skipped
+	 * @throws IOException Indicates a failure to read the stream
+	 */
+	static boolean skipFully(InputStream in, long len) throws IOException {
+		while (len > 0) {
+			long skipped = in.skip(len);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					return false;
+				}
+				skipped = 1;
+			}
+			len -= skipped;
+		}
+		
+		return true;
+	}
+}
@@ -52,6 +52,18 @@ public class OpenALStreamPlayer {
 	private float pitch;
 	/** Position in seconds of the previously played buffers */
 	private float positionOffset;
+	/** The number of OpenAL buffers queued on the source */
+	private int bufferCount;
+	/** The decoder filling blocks on another thread, null if decoding on the calling thread */
+	private StreamDecoder decoder;
+	/** The OpenAL buffers not currently queued on the source when decoding ahead */
+	private int[] freeBuffers;
+	/** The number of OpenAL buffers not currently queued on the source */
+	private int freeCount;
+	/** True if the decoder has reached the end of the stream */
+	private boolean decoderDone;
+	/** The index of the pages in the stream used to seek, built the first time it's needed */
+	private OggPageIndex seekIndex;
 	
 	/**
 	 * Create a new player to work on an audio stream
@@ -60,11 +72,22 @@ public class OpenALStreamPlayer {
 	 * @param ref A reference to the audio file to stream
 	 */
 	public OpenALStreamPlayer(int source, String ref) {
+		this(source, ref, BUFFER_COUNT, false);
+	}
+	
+	/**
+	 * Create a new player to work on an audio stream
+	 * 
+	 * @param source The source on which we'll play the audio
+	 * @param ref A reference to the audio file to stream
+	 * @param bufferCount The number of buffers to maintain
+	 * @param decodeAhead True if the stream should be decoded on a separate thread
+	 */
+	public OpenALStreamPlayer(int source, String ref, int bufferCount, boolean decodeAhead) {
 		this.source = source;
 		this.ref = ref;
 		
-		bufferNames = BufferUtils.createIntBuffer(BUFFER_COUNT);
-		AL10.alGenBuffers(bufferNames);
+		init(bufferCount, decodeAhead);
 	}
 
 	/**
@@ -74,11 +97,40 @@ public class OpenALStreamPlayer {
 	 * @param url A reference to the audio file to stream
 	 */
 	public OpenALStreamPlayer(int source, URL url) {
+		this(source, url, BUFFER_COUNT, false);
+	}
+	
+	/**
+	 * Create a new player to work on an audio stream
+	 * 
+	 * @param source The source on which we'll play the audio
+	 * @param url A reference to the audio file to stream
+	 * @param bufferCount The number of buffers to maintain
+	 * @param decodeAhead True if the stream should be decoded on a separate thread
+	 */
+	public OpenALStreamPlayer(int source, URL url, int bufferCount, boolean decodeAhead) {
 		this.source = source;
 		this.url = url;
 
-		bufferNames = BufferUtils.createIntBuffer(BUFFER_COUNT);
+		init(bufferCount, decodeAhead);
+	}
+	
+	/**
+	 * Create the buffers used to stream
+	 * 
+	 * @param bufferCount The number of buffers to maintain
+	 * @param decodeAhead True if the stream should be decoded on a separate thread
+	 */
+	private void init(int bufferCount, boolean decodeAhead) {
+		this.bufferCount = Math.max(2, bufferCount);
+		
+		bufferNames = BufferUtils.createIntBuffer(this.bufferCount);
 		AL10.alGenBuffers(bufferNames);
+		
+		if (decodeAhead) {
+			decoder = new StreamDecoder(this, this.bufferCount, sectionSize);
+			freeBuffers = new int[this.bufferCount];
+		}
 	}
 	
 	/**
@@ -91,16 +143,85 @@ public class OpenALStreamPlayer {
 			audio.close();
 		}
 		
-		OggInputStream audio;
-		
+		this.audio = openStream();
+		positionOffset = 0;
+	}
+	
+	/**
+	 * Open a new stream to the underlying resource
+	 * 
+	 * @return The newly opened stream
+	 * @throws IOException Indicates a failure to open the underling resource
+	 */
+	AudioInputStream openStream() throws IOException {
 		if (url != null) {
-			audio = new OggInputStream(url.openStream());
+			return new OggInputStream(url.openStream());
 		} else {
-			audio = new OggInputStream(ResourceLoader.getResourceAsStream(ref));
+			return new OggInputStream(ResourceLoader.getResourceAsStream(ref));
+		}
+	}
+	
+	/**
+	 * Get the index of the pages in the stream used to seek, building it by reading
+	 * through the stream if it hasn't been built or set already
+	 * 
+	 * @return The index of the pages in the stream
+	 * @throws IOException Indicates a failure to read the stream
+	 */
+	public OggPageIndex getSeekIndex() throws IOException {
+		if (seekIndex == null) {
+			if (url != null) {
+				seekIndex = OggPageIndex.build(url.openStream());
+			} else {
+				seekIndex = OggPageIndex.build(ResourceLoader.getResourceAsStream(ref));
+			}
 		}
 		
-		this.audio = audio;
-		positionOffset = 0;
+		return seekIndex;
+	}
+	
+	/**
+	 * Set the index of the pages in the stream used to seek, for instance one saved
+	 * from a previous run
+	 * 
+	 * @param seekIndex The index of the pages in the stream
+	 */
+	public void setSeekIndex(OggPageIndex seekIndex) {
+		this.seekIndex = seekIndex;
+	}
+	
+	/**
+	 * Check if this player decodes the stream on a separate thread
+	 * 
+	 * @return True if the stream is decoded on a separate thread
+	 */
+	public boolean isDecodingAhead() {
+		return decoder != null;
+	}
+	
+	/**
+	 * Get the number of buffers maintained
+	 * 
+	 * @return The number of buffers maintained
+	 */
+	public int getBufferCount() {
+		return bufferCount;
+	}
+	
+	/**
+	 * Stop decoding ahead, taking back the stream from the decoder. The stream
+	 * position is where the decoder got to. The stream can be played again 
+	 * afterwards.
+	 */
+	void stopDecoder() {
+		if (decoder == null) {
+			return;
+		}
+		
+		if (decoder.stop()) {
+			audio = decoder.getStream();
+			positionOffset = decoder.getDecodedPosition();
+		}
 	}
 	
 	/**
@@ -134,6 +255,7 @@ public class OpenALStreamPlayer {
 	 */
 	public void play(boolean loop) throws IOException {
 		this.loop = loop;
+		stopDecoder();
 		initStreams();
 		
 		done = false;
@@ -173,6 +295,10 @@ public class OpenALStreamPlayer {
 		if (done) {
 			return;
 		}
+		if (decoder != null) {
+			updateDecodedAhead();
+			return;
+		}
 
 		float sampleRate = audio.getRate();
 		float sampleSize;
@@ -210,6 +336,70 @@ public class OpenALStreamPlayer {
 	    }
 	}
 	
+	/**
+	 * Poll the buffers when decoding ahead, putting the blocks the decoder has 
+	 * filled into the buffers that have been played
+	 */
+	private void updateDecodedAhead() {
+		int processed = AL10.alGetSourcei(source, AL10.AL_BUFFERS_PROCESSED);
+		while (processed > 0) {
+			unqueued.clear();
+			AL10.alSourceUnqueueBuffers(source, unqueued);
+			
+			int bufferIndex = unqueued.get(0);
+			int sampleSize = AL10.alGetBufferi(bufferIndex, AL10.AL_CHANNELS) > 1 ? 4 : 2;
+			float bufferLength = ((float) AL10.alGetBufferi(bufferIndex, AL10.AL_SIZE) / sampleSize) / AL10.alGetBufferi(bufferIndex, AL10.AL_FREQUENCY);
+			positionOffset += bufferLength;
+			
+			freeBuffers[freeCount++] = bufferIndex;
+			processed--;
+		}
+		
+		while ((freeCount > 0) && (!decoderDone)) {
+			StreamDecoder.Block block = decoder.peek();
+			if (block == null) {
+				break;
+			}
+			
+			if (block.end) {
+				decoderDone = true;
+			} else {
+				if (block.restart) {
+					positionOffset = 0;
+				}
+				
+				int bufferIndex = freeBuffers[--freeCount];
+				bufferData.clear();
+				bufferData.put(block.data, 0, block.length);
+				bufferData.flip();
+				
+				int format = block.channels > 1 ? AL10.AL_FORMAT_STEREO16 : AL10.AL_FORMAT_MONO16;
+				try {
+					AL10.alBufferData(bufferIndex, format, bufferData, block.rate);
+					unqueued.clear();
+					unqueued.put(0, bufferIndex);
+					AL10.alSourceQueueBuffers(source, unqueued);
+				} catch (OpenALException e) {
+					Log.error("Failed to loop buffer: "+bufferIndex+" "+format+" "+block.length+" "+block.rate, e);
+					freeCount++;
+				}
+			}
+			decoder.release();
+		}
+		
+		if (decoderDone && (freeCount == bufferCount)) {
+			done = true;
+			return;
+		}
+		
+		if (freeCount < bufferCount) {
+			int state = AL10.alGetSourcei(source, AL10.AL_SOURCE_STATE);
+			if (state != AL10.AL_PLAYING) {
+				AL10.alSourcePlay(source);
+			}
+		}
+	}
+	
 	/**
 	 * Stream some data from the audio stream to the buffer indicates by the ID
 	 * 
@@ -257,9 +447,26 @@ public class OpenALStreamPlayer {
 	 */
 	public boolean setPosition(float position) {
 		try {
-			if (getPosition() > position) {
+			float current = getPosition();
+			if (decoder != null) {
+				// the decoder is ahead of play back, carry on from where it got to
+				stopDecoder();
+				if (audio == null) {
+					initStreams();
+				}
+				current = positionOffset;
+			}
+			if (current > position) {
 				initStreams();
 			}
+			
+			// jump to the page before the position if we can, otherwise decode up to it
+			if ((position > positionOffset) && (audio instanceof OggInputStream)) {
+				long sample = (long) (position * audio.getRate());
+				if (((OggInputStream) audio).seek(sample, getSeekIndex())) {
+					positionOffset = position;
+				}
+			}
 
 			float sampleRate = audio.getRate();
 			float sampleSize;
@@ -300,9 +507,24 @@ public class OpenALStreamPlayer {
 		AL10.alSourcei(source, AL10.AL_LOOPING, AL10.AL_FALSE);
 		AL10.alSourcef(source, AL10.AL_PITCH, pitch);
 
-		remainingBufferCount = BUFFER_COUNT;
+		if (decoder != null) {
+			// nothing is decoded here, buffers are queued by update() as the 
+			// decoder fills them
+			AL10.alSourceStop(source);
+			removeBuffers();
+			
+			freeCount = 0;
+			for (int i = 0; i < bufferCount; i++) {
+				freeBuffers[freeCount++] = bufferNames.get(i);
+			}
+			decoderDone = false;
+			decoder.start(audio, positionOffset, loop);
+			return;
+		}
+		
+		remainingBufferCount = bufferCount;
 
-		for (int i = 0; i < BUFFER_COUNT; i++) {
+		for (int i = 0; i < bufferCount; i++) {
 			stream(bufferNames.get(i));
 		}
 
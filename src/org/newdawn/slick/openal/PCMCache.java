@@ -0,0 +1,166 @@
+package org.newdawn.slick.openal;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * A cache of decoded PCM data on disk, keyed by a hash of the source file. Cached
+ * data is memory mapped when read back so it doesn't need copying before it's given to
+ * OpenAL. Files in the cache are written whole and then renamed into place, so
+ * any number of threads can use the cache at once.
+ *
+ * @author kevin
+ */
+class PCMCache {
+	/** The value identifying a cache file */
+	private static final int MAGIC = 0x50434d31;
+	/** The size of the header at the start of each cache file */
+	private static final int HEADER_SIZE = 20;
+	/** The characters used to write the hash */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** The directory holding the cache files */
+	private File dir;
+
+	/**
+	 * Create a new cache
+	 *
+	 * @param dir The directory holding the cache files, created if it doesn't exist
+	 */
+	PCMCache(File dir) {
+		this.dir = dir;
+		dir.mkdirs();
+	}
+
+	/**
+	 * Get the directory holding the cache files
+	 *
+	 * @return The directory holding the cache files
+	 */
+	File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Get the key a source file is cached against
+	 *
+	 * @param source The contents of the source file
+	 * @return The key for the source file
+	 */
+	String getKey(byte[] source) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(source);
+			char[] key = new char[hash.length * 2];
+			for (int i=0;i<hash.length;i++) {
+				key[i*2] = HEX[(hash[i] >> 4) & 0xf];
+				key[(i*2)+1] = HEX[hash[i] & 0xf];
+			}
+
+			return new String(key);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 is not available", e);
+		}
+	}
+
+	/**
+	 * Get decoded data from the cache
+	 *
+	 * @param key The key of the source file
+	 * @return The decoded data or null if it isn't in the cache
+	 */
+	PCMData get(String key) {
+		File file = new File(dir, key+".pcm");
+		if (!file.exists()) {
+			return null;
+		}
+
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				map.order(ByteOrder.BIG_ENDIAN);
+
+				if ((map.getInt(0) != MAGIC) || (map.getInt(4) != nativeOrder())) {
+					return null;
+				}
+				int format = map.getInt(8);
+				int rate = map.getInt(12);
+				int length = map.getInt(16);
+				if (length != channel.size() - HEADER_SIZE) {
+					return null;
+				}
+
+				map.position(HEADER_SIZE);
+				ByteBuffer data = map.slice();
+				data.order(ByteOrder.nativeOrder());
+
+				return new PCMData(data, format, rate);
+			} finally {
+				// the mapping stays valid once the file is closed
+				in.close();
+			}
+		} catch (IOException e) {
+			Log.warn("Failed to read cached sound: "+file);
+			return null;
+		}
+	}
+
+	/**
+	 * Put decoded data into the cache
+	 *
+	 * @param key The key of the source file
+	 * @param pcm The data decoded from the source file
+	 */
+	void put(String key, PCMData pcm) {
+		File file = new File(dir, key+".pcm");
+		File temp = new File(dir, key+"."+Thread.currentThread().hashCode()+".tmp");
+
+		try {
+			ByteBuffer data = pcm.data.duplicate();
+			data.rewind();
+			byte[] bytes = new byte[data.remaining()];
+			data.get(bytes);
+
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(nativeOrder());
+				out.writeInt(pcm.format);
+				out.writeInt(pcm.rate);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			} finally {
+				out.close();
+			}
+
+			if (!temp.renameTo(file)) {
+				// another thread or process may have cached the same source
+				temp.delete();
+			}
+		} catch (IOException e) {
+			Log.warn("Failed to cache sound: "+file);
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Get a value identifying the byte order the PCM data is held in
+	 *
+	 * @return 1 if the data is big endian, 0 if little endian
+	 */
+	private int nativeOrder() {
+		return ByteOrder.nativeOrder().equals(ByteOrder.BIG_ENDIAN) ? 1 : 0;
+	}
+}
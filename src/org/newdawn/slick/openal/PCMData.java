@@ -0,0 +1,80 @@
+package org.newdawn.slick.openal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.lwjgl.openal.AL10;
+
+/**
+ * Decoded PCM data ready to be given to an OpenAL buffer. Decoding doesn't touch
+ * OpenAL so can happen on any thread.
+ *
+ * @author kevin
+ */
+class PCMData {
+	/** The decoded data */
+	ByteBuffer data;
+	/** The OpenAL format of the data */
+	int format;
+	/** The sample rate of the data */
+	int rate;
+
+	/**
+	 * Create new decoded data
+	 *
+	 * @param data The decoded data
+	 * @param format The OpenAL format of the data
+	 * @param rate The sample rate of the data
+	 */
+	PCMData(ByteBuffer data, int format, int rate) {
+		this.data = data;
+		this.format = format;
+		this.rate = rate;
+	}
+
+	/**
+	 * Check if a reference is to a sound that can be decoded to PCM data, rather 
+	 * than streamed or played as a MOD
+	 *
+	 * @param ref The reference to the sound
+	 * @return True if the sound can be decoded
+	 */
+	static boolean canDecode(String ref) {
+		String name = ref.toLowerCase();
+		return name.endsWith(".ogg") || name.endsWith(".wav") || name.endsWith(".aif");
+	}
+
+	/**
+	 * Decode a sound file, picking the format from the reference
+	 *
+	 * @param ref The reference to the sound, used to pick the format
+	 * @param source The contents of the sound file
+	 * @return The decoded data
+	 * @throws IOException Indicates a failure to decode the sound
+	 */
+	static PCMData decode(String ref, byte[] source) throws IOException {
+		String name = ref.toLowerCase();
+
+		if (name.endsWith(".ogg")) {
+			OggData ogg = new OggDecoder().getData(new ByteArrayInputStream(source));
+			return new PCMData(ogg.data, ogg.channels > 1 ? AL10.AL_FORMAT_STEREO16 : AL10.AL_FORMAT_MONO16, ogg.rate);
+		}
+		if (name.endsWith(".wav")) {
+			WaveData wav = WaveData.create(source);
+			if (wav == null) {
+				throw new IOException("Unable to decode WAV: "+ref);
+			}
+			return new PCMData(wav.data, wav.format, wav.samplerate);
+		}
+		if (name.endsWith(".aif")) {
+			AiffData aif = AiffData.create(source);
+			if (aif == null) {
+				throw new IOException("Unable to decode AIF: "+ref);
+			}
+			return new PCMData(aif.data, aif.format, aif.samplerate);
+		}
+
+		throw new IOException("Unsupported sound format: "+ref);
+	}
+}
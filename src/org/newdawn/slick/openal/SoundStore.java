@@ -1,6 +1,7 @@
 package org.newdawn.slick.openal;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -63,6 +64,29 @@ public class SoundStore {
 	private boolean paused;
 	/** True if we're returning deferred versions of resources */
 	private boolean deferred;
+	/** The number of buffers maintained by music streams */
+	private int streamBufferCount = OpenALStreamPlayer.BUFFER_COUNT;
+	/** True if music streams should be decoded on a separate thread */
+	private boolean streamDecodeAhead;
+	/** The cache of decoded sounds on disk used when loading sounds in bulk, null if not caching */
+	private PCMCache pcmCache;
+	
+	/** The buffer last played on each source */
+	private int[] voiceBuffers;
+	/** The priority of the sound last played on each source */
+	private int[] voicePriorities;
+	/** The gain of the sound last played on each source */
+	private float[] voiceGains;
+	/** The number of the play that last started each source, used to tell which is oldest */
+	private long[] voiceStarts;
+	/** True if each source is believed to be playing, checked with OpenAL once each poll */
+	private boolean[] voiceActive;
+	/** The number of sounds played so far */
+	private long playCount;
+	/** The priority of each buffer's sounds, keyed by buffer ID */
+	private HashMap priorities = new HashMap();
+	/** The maximum number of instances of each buffer playing at once, keyed by buffer ID */
+	private HashMap instanceLimits = new HashMap();
 	
 	/** The buffer used to set the velocity of a source */
     private FloatBuffer sourceVel = BufferUtils.createFloatBuffer(3).put(new float[] { 0.0f, 0.0f, 0.0f });
@@ -111,6 +135,63 @@ public class SoundStore {
     	return deferred;
     }
     
+    /**
+     * Indicate whether music streams loaded from now on should be decoded ahead 
+     * on a separate thread, leaving poll() only to hand the decoded data to OpenAL
+     * 
+     * @param decodeAhead True if music streams should be decoded on a separate thread
+     */
+    public void setStreamDecodeAhead(boolean decodeAhead) {
+    	this.streamDecodeAhead = decodeAhead;
+    }
+    
+    /**
+     * Check if music streams are decoded on a separate thread
+     * 
+     * @return True if music streams are decoded on a separate thread
+     */
+    public boolean isStreamDecodeAhead() {
+    	return streamDecodeAhead;
+    }
+    
+    /**
+     * Set the number of buffers maintained by music streams loaded from now on. 
+     * More buffers let streams ride out longer gaps between polls.
+     * 
+     * @param count The number of buffers to maintain, at least 2
+     */
+    public void setStreamBufferCount(int count) {
+    	this.streamBufferCount = Math.max(2, count);
+    }
+    
+    /**
+     * Get the number of buffers maintained by music streams
+     * 
+     * @return The number of buffers maintained by music streams
+     */
+    public int getStreamBufferCount() {
+    	return streamBufferCount;
+    }
+    
+    /**
+     * Set the directory in which sounds loaded in bulk are cached once decoded. Sounds 
+     * are cached against a hash of their source file, so a changed file is decoded again.
+     * 
+     * @param dir The directory to cache decoded sounds in or null to stop caching
+     */
+    public void setDecodedSoundCache(File dir) {
+    	pcmCache = dir == null ? null : new PCMCache(dir);
+    }
+    
+    /**
+     * Get the directory in which sounds loaded in bulk are cached once decoded
+     * 
+     * @return The directory decoded sounds are cached in or null if they're not cached
+     */
+    public File getDecodedSoundCache() {
+    	return pcmCache == null ? null : pcmCache.getDirectory();
+    }
+    
 	/**
 	 * Inidicate whether music should be playing
 	 * 
@@ -330,6 +411,12 @@ public class SoundStore {
 				}
 			}
 			Log.info("- "+sourceCount+" OpenAL source available");
+			
+			voiceBuffers = new int[sourceCount];
+			voicePriorities = new int[sourceCount];
+			voiceGains = new float[sourceCount];
+			voiceStarts = new long[sourceCount];
+			voiceActive = new boolean[sourceCount];
 		
 			if (AL10.alGetError() != AL10.AL_NO_ERROR) {
 				sounds = false;
@@ -362,6 +449,111 @@ public class SoundStore {
 	 */
 	void stopSource(int index) {
 		AL10.alSourceStop(sources.get(index));
+		if ((voiceActive != null) && (index >= 0) && (index < voiceActive.length)) {
+			voiceActive[index] = false;
+		}
+	}
+	
+	/**
+	 * Set the priority of an audio's sound effects. When all the sources are in use a 
+	 * new sound effect takes the source of a playing one of equal or lower priority,
+	 * picking the lowest priority, then the quietest and then the oldest. A deferred sound 
+	 * keeps the setting until it's loaded.
+	 * 
+	 * @param audio The audio whose priority should be set
+	 * @param priority The priority of the audio's sound effects, 0 by default
+	 */
+	public void setPriority(Audio audio, int priority) {
+		if (audio instanceof DeferredSound) {
+			((DeferredSound) audio).setPriority(priority);
+			return;
+		}
+		priorities.put(new Integer(audio.getBufferID()), new Integer(priority));
+	}
+	
+	/**
+	 * Get the priority of an audio's sound effects
+	 * 
+	 * @param audio The audio whose priority should be retrieved
+	 * @return The priority of the audio's sound effects
+	 */
+	public int getPriority(Audio audio) {
+		if (audio instanceof DeferredSound) {
+			return ((DeferredSound) audio).getPriority();
+		}
+		return getPriority(audio.getBufferID());
+	}
+	
+	/**
+	 * Get the priority of the sound effects played from a buffer
+	 * 
+	 * @param buffer The ID of the buffer
+	 * @return The priority of the buffer's sound effects
+	 */
+	private int getPriority(int buffer) {
+		Integer priority = (Integer) priorities.get(new Integer(buffer));
+		
+		return priority == null ? 0 : priority.intValue();
+	}
+	
+	/**
+	 * Set the maximum number of an audio's sound effects that can play at once. Playing 
+	 * another once the limit is reached takes the source of the oldest. A deferred sound 
+	 * keeps the setting until it's loaded.
+	 * 
+	 * @param audio The audio whose limit should be set
+	 * @param max The maximum number of instances playing at once, 0 for no limit
+	 */
+	public void setMaxInstances(Audio audio, int max) {
+		if (audio instanceof DeferredSound) {
+			((DeferredSound) audio).setMaxInstances(max);
+			return;
+		}
+		instanceLimits.put(new Integer(audio.getBufferID()), new Integer(max));
+	}
+	
+	/**
+	 * Get the maximum number of an audio's sound effects that can play at once
+	 * 
+	 * @param audio The audio whose limit should be retrieved
+	 * @return The maximum number of instances playing at once, 0 for no limit
+	 */
+	public int getMaxInstances(Audio audio) {
+		if (audio instanceof DeferredSound) {
+			return ((DeferredSound) audio).getMaxInstances();
+		}
+		Integer max = (Integer) instanceLimits.get(new Integer(audio.getBufferID()));
+		
+		return max == null ? 0 : max.intValue();
+	}
+	
+	/**
+	 * Check if the sound started on a source is still the one using it
+	 * 
+	 * @param index The index of the source
+	 * @param start The number of the play that started the sound, from getVoiceStart()
+	 * @return True if the source hasn't been given to another sound since
+	 */
+	boolean isVoice(int index, long start) {
+		if ((voiceStarts == null) || (index < 1) || (index >= voiceStarts.length)) {
+			return true;
+		}
+		
+		return voiceStarts[index] == start;
+	}
+	
+	/**
+	 * Get the number of the play that last started a source
+	 * 
+	 * @param index The index of the source
+	 * @return The number of the play that last started the source
+	 */
+	long getVoiceStart(int index) {
+		if ((voiceStarts == null) || (index < 0) || (index >= voiceStarts.length)) {
+			return 0;
+		}
+		
+		return voiceStarts[index];
 	}
 	
 	/**
@@ -398,11 +590,18 @@ public class SoundStore {
 		}
 		if (soundWorks) {
 			if (sounds) {
-				int nextSource = findFreeSource();
+				int priority = getPriority(buffer);
+				int nextSource = findFreeSource(buffer, priority);
 				if (nextSource == -1) {
 					return -1;
 				}
 				
+				voiceBuffers[nextSource] = buffer;
+				voicePriorities[nextSource] = priority;
+				voiceGains[nextSource] = gain;
+				voiceStarts[nextSource] = ++playCount;
+				voiceActive[nextSource] = true;
+				
 				AL10.alSourceStop(sources.get(nextSource));
 				
 				AL10.alSourcei(sources.get(nextSource), AL10.AL_BUFFER, buffer);
@@ -440,15 +639,47 @@ public class SoundStore {
 	}
 	
 	/**
-	 * Find a free sound source
+	 * Find a source to play a sound effect on. The state of the sources is tracked 
+	 * here and only checked with OpenAL each poll, or when there seem to be no free
+	 * sources. If the sound has reached its instance limit its oldest instance is 
+	 * replaced, otherwise if there are no free sources the lowest priority, quietest
+	 * and then oldest sound of no higher priority is replaced.
 	 * 
-	 * @return The index of the free sound source
+	 * @param buffer The ID of the buffer to be played
+	 * @param priority The priority of the sound to be played
+	 * @return The index of the source to use or -1 if there isn't one
 	 */
-	private int findFreeSource() {
+	private int findFreeSource(int buffer, int priority) {
+		Integer limit = (Integer) instanceLimits.get(new Integer(buffer));
+		if ((limit != null) && (limit.intValue() > 0)) {
+			if (countInstances(buffer) >= limit.intValue()) {
+				updateVoices();
+				if (countInstances(buffer) >= limit.intValue()) {
+					return findOldestInstance(buffer);
+				}
+			}
+		}
+		
+		int free = findInactiveVoice();
+		if (free == -1) {
+			updateVoices();
+			free = findInactiveVoice();
+		}
+		if (free == -1) {
+			free = findVoiceToSteal(priority);
+		}
+		
+		return free;
+	}
+	
+	/**
+	 * Find a source that isn't playing anything
+	 * 
+	 * @return The index of the source or -1 if they're all in use
+	 */
+	private int findInactiveVoice() {
 		for (int i=1;i<sourceCount-1;i++) {
-			int state = AL10.alGetSourcei(sources.get(i), AL10.AL_SOURCE_STATE);
-			
-			if ((state != AL10.AL_PLAYING) && (state != AL10.AL_PAUSED)) {
+			if (!voiceActive[i]) {
 				return i;
 			}
 		}
@@ -456,6 +687,84 @@ public class SoundStore {
 		return -1;
 	}
 	
+	/**
+	 * Count the sound effects playing from a given buffer
+	 * 
+	 * @param buffer The ID of the buffer
+	 * @return The number of sources playing the buffer
+	 */
+	private int countInstances(int buffer) {
+		int count = 0;
+		for (int i=1;i<sourceCount-1;i++) {
+			if (voiceActive[i] && (voiceBuffers[i] == buffer)) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Find the source that has been playing a given buffer the longest
+	 * 
+	 * @param buffer The ID of the buffer
+	 * @return The index of the source or -1 if the buffer isn't playing
+	 */
+	private int findOldestInstance(int buffer) {
+		int oldest = -1;
+		for (int i=1;i<sourceCount-1;i++) {
+			if (voiceActive[i] && (voiceBuffers[i] == buffer)) {
+				if ((oldest == -1) || (voiceStarts[i] < voiceStarts[oldest])) {
+					oldest = i;
+				}
+			}
+		}
+		
+		return oldest;
+	}
+	
+	/**
+	 * Find the playing source to give to a new sound
+	 * 
+	 * @param priority The priority of the new sound, sources playing higher priority 
+	 * sounds are left alone
+	 * @return The index of the source or -1 if there's nothing of low enough priority
+	 */
+	private int findVoiceToSteal(int priority) {
+		int best = -1;
+		for (int i=1;i<sourceCount-1;i++) {
+			if (!voiceActive[i] || (voicePriorities[i] > priority)) {
+				continue;
+			}
+			
+			if ((best == -1) || (voicePriorities[i] < voicePriorities[best])) {
+				best = i;
+			} else if (voicePriorities[i] == voicePriorities[best]) {
+				if ((voiceGains[i] < voiceGains[best]) || 
+				   ((voiceGains[i] == voiceGains[best]) && (voiceStarts[i] < voiceStarts[best]))) {
+					best = i;
+				}
+			}
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Check with OpenAL which of the sources believed to be playing have finished
+	 */
+	private void updateVoices() {
+		for (int i=1;i<sourceCount-1;i++) {
+			if (voiceActive[i]) {
+				int state = AL10.alGetSourcei(sources.get(i), AL10.AL_SOURCE_STATE);
+				
+				if ((state != AL10.AL_PLAYING) && (state != AL10.AL_PAUSED)) {
+					voiceActive[i] = false;
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Play the specified buffer as music (i.e. use the music channel)
 	 * 
@@ -754,7 +1063,7 @@ public class SoundStore {
 		getMusicSource();
 		currentMusic = sources.get(0);
 		
-		return new StreamSound(new OpenALStreamPlayer(currentMusic, ref));
+		return new StreamSound(new OpenALStreamPlayer(currentMusic, ref, streamBufferCount, streamDecodeAhead));
 	}
 
 	/**
@@ -779,7 +1088,7 @@ public class SoundStore {
 		getMusicSource();
 		currentMusic = sources.get(0);
 		
-		return new StreamSound(new OpenALStreamPlayer(currentMusic, ref));
+		return new StreamSound(new OpenALStreamPlayer(currentMusic, ref, streamBufferCount, streamDecodeAhead));
 	}
 	
 	/**
@@ -854,6 +1163,111 @@ public class SoundStore {
 		return new AudioImpl(this, buffer);
 	}
 	
+	/**
+	 * Get a set of sounds, decoding the OGG, WAV and AIF files on a set of worker threads.
+	 * The decoded sounds are put into OpenAL buffers on the calling thread. Sounds that
+	 * are already loaded are reused, and if a decoded sound cache is set sounds are read 
+	 * back from it rather than decoded.
+	 * 
+	 * @param refs The references to the sound files in the classpath
+	 * @param threads The number of threads to decode on including the calling one
+	 * @return The sounds read, in the same order as the references
+	 * @throws IOException Indicates a failure to load one of the sounds, the others are 
+	 * still loaded
+	 */
+	public Audio[] getSounds(String[] refs, int threads) throws IOException {
+		Audio[] sounds = new Audio[refs.length];
+		if (!soundWorks) {
+			for (int i=0;i<refs.length;i++) {
+				sounds[i] = new NullAudio();
+			}
+			return sounds;
+		}
+		if (!inited) {
+			throw new RuntimeException("Can't load sounds until SoundStore is init(). Use the container init() method.");
+		}
+		
+		// only decode each sound once, and not at all if it's already loaded
+		String[] decode = new String[refs.length];
+		HashMap first = new HashMap();
+		for (int i=0;i<refs.length;i++) {
+			String ref = refs[i];
+			if (deferred || !PCMData.canDecode(ref)) {
+				sounds[i] = getSound(ref);
+			} else if ((loaded.get(ref) == null) && (first.get(ref) == null)) {
+				first.put(ref, new Integer(i));
+				decode[i] = ref;
+			}
+		}
+		
+		BulkSoundLoader loader = new BulkSoundLoader(decode, pcmCache);
+		loader.decode(threads);
+		
+		IOException failure = null;
+		for (int i=0;i<refs.length;i++) {
+			if (decode[i] == null) {
+				continue;
+			}
+			
+			PCMData data = loader.getData(i);
+			if (data == null) {
+				Log.error(loader.getFailure(i));
+				if (failure == null) {
+					failure = loader.getFailure(i);
+				}
+				continue;
+			}
+			
+			try {
+				IntBuffer buf = BufferUtils.createIntBuffer(1);
+				AL10.alGenBuffers(buf);
+				AL10.alBufferData(buf.get(0), data.format, data.data, data.rate);
+				
+				loaded.put(refs[i], new Integer(buf.get(0)));
+			} catch (OpenALException e) {
+				Log.error(e);
+				if (failure == null) {
+					failure = new IOException("Failed to load: "+refs[i]);
+					failure.initCause(e);
+				}
+			}
+		}
+		
+		for (int i=0;i<refs.length;i++) {
+			if ((sounds[i] == null) && (loaded.get(refs[i]) != null)) {
+				sounds[i] = new AudioImpl(this, ((Integer) loaded.get(refs[i])).intValue());
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		
+		return sounds;
+	}
+	
+	/**
+	 * Get a single sound, picking how to load it from the reference
+	 * 
+	 * @param ref The reference to the sound file in the classpath
+	 * @return The sound read
+	 * @throws IOException Indicates a failure to load the sound
+	 */
+	private Audio getSound(String ref) throws IOException {
+		String name = ref.toLowerCase();
+		
+		if (name.endsWith(".ogg")) {
+			return getOgg(ref);
+		} else if (name.endsWith(".wav")) {
+			return getWAV(ref);
+		} else if (name.endsWith(".aif")) {
+			return getAIF(ref);
+		} else if (name.endsWith(".xm") || name.endsWith(".mod")) {
+			return getMOD(ref);
+		}
+		
+		throw new IOException("Unsupported sound format: "+ref);
+	}
+	
 	/**
 	 * Set the mod thats being streamed if any
 	 * 
@@ -868,7 +1282,8 @@ public class SoundStore {
 		stopSource(0);
 		
 		this.mod = sound;
-		if (sound != null) {
+		if ((sound != null) && (this.stream != null)) {
+			this.stream.stopDecoder();
 			this.stream = null;
 		}
 		paused = false;
@@ -885,6 +1300,9 @@ public class SoundStore {
 		}
 
 		currentMusic = sources.get(0);
+		if ((this.stream != null) && (this.stream != stream)) {
+			this.stream.stopDecoder();
+		}
 		this.stream = stream;
 		if (stream != null) {
 			this.mod = null;
@@ -901,6 +1319,9 @@ public class SoundStore {
 		if (!soundWorks) {
 			return;
 		}
+		if (voiceActive != null) {
+			updateVoices();
+		}
 		if (paused) {
 			return;
 		}
@@ -0,0 +1,233 @@
+package org.newdawn.slick.openal;
+
+import java.io.IOException;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * A thread that decodes a stream ahead of playback into a ring of PCM blocks. The
+ * thread playing the stream takes filled blocks, copies them into OpenAL buffers and
+ * hands them back to be filled again, so it never waits on the decoding itself.
+ *
+ * While the decoder is running it owns the stream it was given. Once stopped the
+ * stream can be taken back with getStream().
+ *
+ * @author kevin
+ */
+class StreamDecoder implements Runnable {
+	/** The player whose stream is being decoded */
+	private OpenALStreamPlayer player;
+	/** The stream being decoded */
+	private AudioInputStream audio;
+	/** True if the stream should start again when it ends */
+	private boolean loop;
+	/** The blocks decoded into */
+	private Block[] blocks;
+	/** The index of the next block to be taken by the player */
+	private int readIndex;
+	/** The index of the next block to be filled */
+	private int writeIndex;
+	/** The number of filled blocks waiting to be taken */
+	private int filled;
+	/** True if the decoder should stop */
+	private boolean stopped;
+	/** The number of seconds decoded from the stream since it was opened */
+	private float decoded;
+	/** The thread doing the decoding */
+	private Thread thread;
+
+	/**
+	 * Create a new decoder
+	 *
+	 * @param player The player whose stream is being decoded
+	 * @param blockCount The number of blocks to decode ahead
+	 * @param blockSize The size in bytes of each block
+	 */
+	StreamDecoder(OpenALStreamPlayer player, int blockCount, int blockSize) {
+		this.player = player;
+
+		blocks = new Block[blockCount];
+		for (int i=0;i<blocks.length;i++) {
+			blocks[i] = new Block(blockSize);
+		}
+	}
+
+	/**
+	 * Start decoding a stream
+	 *
+	 * @param audio The stream to decode
+	 * @param position The position in seconds the stream is currently at
+	 * @param loop True if the stream should start again when it ends
+	 */
+	void start(AudioInputStream audio, float position, boolean loop) {
+		stop();
+
+		this.audio = audio;
+		this.loop = loop;
+		decoded = position;
+		readIndex = 0;
+		writeIndex = 0;
+		filled = 0;
+		stopped = false;
+
+		thread = new Thread(this, "Stream Decoder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop decoding and discard any blocks that haven't been taken
+	 *
+	 * @return True if the decoder had been started since it was last stopped
+	 */
+	boolean stop() {
+		if (thread == null) {
+			return false;
+		}
+
+		synchronized (this) {
+			stopped = true;
+			notifyAll();
+		}
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				// keep waiting, the thread is using the stream
+			}
+		}
+		thread = null;
+		filled = 0;
+		
+		return true;
+	}
+
+	/**
+	 * Get the stream being decoded, only valid once the decoder is stopped
+	 *
+	 * @return The stream being decoded
+	 */
+	AudioInputStream getStream() {
+		return audio;
+	}
+
+	/**
+	 * Get the position in the stream the decoder has reached, only valid once the
+	 * decoder is stopped
+	 *
+	 * @return The number of seconds decoded from the stream since it was opened
+	 */
+	float getDecodedPosition() {
+		return decoded;
+	}
+
+	/**
+	 * Get the next filled block without waiting
+	 *
+	 * @return The next filled block or null if there isn't one yet
+	 */
+	synchronized Block peek() {
+		if (filled == 0) {
+			return null;
+		}
+
+		return blocks[readIndex];
+	}
+
+	/**
+	 * Hand back the block returned by peek() once its data has been used
+	 */
+	synchronized void release() {
+		readIndex = (readIndex + 1) % blocks.length;
+		filled--;
+		notifyAll();
+	}
+
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		boolean restart = false;
+
+		while (true) {
+			Block block;
+			synchronized (this) {
+				while ((!stopped) && (filled == blocks.length)) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// carry on waiting for a free block
+					}
+				}
+				if (stopped) {
+					return;
+				}
+				block = blocks[writeIndex];
+			}
+
+			block.restart = restart;
+			block.end = false;
+			restart = false;
+			try {
+				int count = audio.read(block.data);
+				if (count == -1) {
+					// a stream that ends without any data can't be looped
+					if ((!loop) || (block.restart)) {
+						block.end = true;
+					} else {
+						audio.close();
+						audio = player.openStream();
+						decoded = 0;
+						restart = true;
+						continue;
+					}
+				} else {
+					block.length = count;
+					block.channels = audio.getChannels();
+					block.rate = audio.getRate();
+					decoded += (count / (block.channels > 1 ? 4f : 2f)) / block.rate;
+				}
+			} catch (IOException e) {
+				Log.error(e);
+				block.end = true;
+			}
+
+			synchronized (this) {
+				writeIndex = (writeIndex + 1) % blocks.length;
+				filled++;
+				if (block.end) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A block of decoded PCM data
+	 *
+	 * @author kevin
+	 */
+	static class Block {
+		/** The decoded data */
+		byte[] data;
+		/** The number of bytes of data decoded */
+		int length;
+		/** The number of channels in the data */
+		int channels;
+		/** The sample rate of the data */
+		int rate;
+		/** True if this is the first block after the stream started again */
+		boolean restart;
+		/** True if the stream ended, there's no data in this block */
+		boolean end;
+
+		/**
+		 * Create a new block
+		 *
+		 * @param size The size of the block in bytes
+		 */
+		Block(int size) {
+			data = new byte[size];
+		}
+	}
+}
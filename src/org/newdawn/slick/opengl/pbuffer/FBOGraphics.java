@@ -142,7 +142,7 @@ public class FBOGraphics extends Graphics {
 		GL11.glPopClientAttrib();
 		GL11.glPopAttrib();
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
-		GL11.glPopMatrix();
+		GL.glPopMatrix();
 		GL11.glMatrixMode(GL11.GL_PROJECTION);
 		GL11.glPopMatrix();
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
@@ -164,7 +164,7 @@ public class FBOGraphics extends Graphics {
 		GL11.glMatrixMode(GL11.GL_PROJECTION);
 		GL11.glPushMatrix();
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
-		GL11.glPushMatrix();
+		GL.glPushMatrix();
 		
 		bind();
 		initGL();
@@ -187,7 +187,7 @@ public class FBOGraphics extends Graphics {
         
         GL11.glViewport(0,0,screenWidth,screenHeight);
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);               
-		GL11.glLoadIdentity();
+		GL.glLoadIdentity();
 		
 		enterOrtho();
 	}
@@ -81,6 +81,7 @@ public class PBufferGraphics extends Graphics {
 	 */
 	protected void disable() {
 		GL.flush();
+		GL.glPopMatrix();
 		
 		// Bind the texture after rendering.
 		GL.glBindTexture(GL11.GL_TEXTURE_2D, image.getTexture().getTextureID());
@@ -117,6 +118,7 @@ public class PBufferGraphics extends Graphics {
 		GL.glBindTexture(GL11.GL_TEXTURE_2D, image.getTexture().getTextureID());
 		pbuffer.releaseTexImage(Pbuffer.FRONT_LEFT_BUFFER);
 		TextureImpl.unbind();
+		GL.glPushMatrix();
 		initGL();
 	}
 	
@@ -137,7 +139,7 @@ public class PBufferGraphics extends Graphics {
         
         GL11.glViewport(0,0,screenWidth,screenHeight);
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
-		GL11.glLoadIdentity();
+		GL.glLoadIdentity();
 		
 		enterOrtho();
 	}
@@ -76,6 +76,9 @@ public class PBufferUniqueGraphics extends Graphics {
 	 * @see org.newdawn.slick.Graphics#disable()
 	 */
 	protected void disable() {
+		GL.flush();
+		GL.glPopMatrix();
+		
 		// Bind the texture after rendering.
 		GL11.glBindTexture(GL11.GL_TEXTURE_2D, image.getTexture().getTextureID());
 		GL11.glCopyTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, 0, 0, 
@@ -112,6 +115,7 @@ public class PBufferUniqueGraphics extends Graphics {
 		
 		// Put the renderer contents to the texture
 		TextureImpl.unbind();
+		GL.glPushMatrix();
 		initGL();
 	}
 	
@@ -132,7 +136,7 @@ public class PBufferUniqueGraphics extends Graphics {
         
         GL11.glViewport(0,0,screenWidth,screenHeight);
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
-		GL11.glLoadIdentity();
+		GL.glLoadIdentity();
 		
 		enterOrtho();
 	}
@@ -0,0 +1,412 @@
+package org.newdawn.slick.opengl.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A renderer that passes every operation on to another renderer. Renderers that only
+ * want to intercept a few operations (batching, state tracking, recording) can extend
+ * this and override only what they need.
+ *
+ * @author kevin
+ */
+public class DelegatingSGL implements SGL {
+	/** The renderer that the operations are passed on to */
+	protected SGL target;
+
+	/**
+	 * Create a new renderer passing operations on to another
+	 *
+	 * @param target The renderer that the operations should be passed on to
+	 */
+	public DelegatingSGL(SGL target) {
+		if (target == null) {
+			throw new IllegalArgumentException("Target renderer must not be null");
+		}
+		this.target = target;
+	}
+
+	/**
+	 * Get the renderer that operations are being passed on to
+	 *
+	 * @return The renderer that operations are being passed on to
+	 */
+	public SGL getTarget() {
+		return target;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#flush()
+	 */
+	public void flush() {
+		target.flush();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#initDisplay(int, int)
+	 */
+	public void initDisplay(int width, int height) {
+		target.initDisplay(width, height);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#enterOrtho(int, int)
+	 */
+	public void enterOrtho(int xsize, int ysize) {
+		target.enterOrtho(xsize, ysize);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearColor(float, float, float, float)
+	 */
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		target.glClearColor(red, green, blue, alpha);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClipPlane(int, java.nio.DoubleBuffer)
+	 */
+	public void glClipPlane(int plane, DoubleBuffer buffer) {
+		target.glClipPlane(plane, buffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScissor(int, int, int, int)
+	 */
+	public void glScissor(int x, int y, int width, int height) {
+		target.glScissor(x, y, width, height);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLineWidth(float)
+	 */
+	public void glLineWidth(float width) {
+		target.glLineWidth(width);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClear(int)
+	 */
+	public void glClear(int value) {
+		target.glClear(value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColorMask(boolean, boolean, boolean, boolean)
+	 */
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		target.glColorMask(red, green, blue, alpha);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadIdentity()
+	 */
+	public void glLoadIdentity() {
+		target.glLoadIdentity();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetInteger(int, java.nio.IntBuffer)
+	 */
+	public void glGetInteger(int id, IntBuffer ret) {
+		target.glGetInteger(id, ret);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetFloat(int, java.nio.FloatBuffer)
+	 */
+	public void glGetFloat(int id, FloatBuffer ret) {
+		target.glGetFloat(id, ret);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnable(int)
+	 */
+	public void glEnable(int item) {
+		target.glEnable(item);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDisable(int)
+	 */
+	public void glDisable(int item) {
+		target.glDisable(item);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBindTexture(int, int)
+	 */
+	public void glBindTexture(int target, int id) {
+		this.target.glBindTexture(target, id);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetTexImage(int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glGetTexImage(int target, int level, int format, int type, ByteBuffer pixels) {
+		this.target.glGetTexImage(target, level, format, type, pixels);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteTextures(java.nio.IntBuffer)
+	 */
+	public void glDeleteTextures(IntBuffer buffer) {
+		target.glDeleteTextures(buffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColor4f(float, float, float, float)
+	 */
+	public void glColor4f(float r, float g, float b, float a) {
+		target.glColor4f(r, g, b, a);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexCoord2f(float, float)
+	 */
+	public void glTexCoord2f(float u, float v) {
+		target.glTexCoord2f(u, v);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex3f(float, float, float)
+	 */
+	public void glVertex3f(float x, float y, float z) {
+		target.glVertex3f(x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex2f(float, float)
+	 */
+	public void glVertex2f(float x, float y) {
+		target.glVertex2f(x, y);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glRotatef(float, float, float, float)
+	 */
+	public void glRotatef(float angle, float x, float y, float z) {
+		target.glRotatef(angle, x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTranslatef(float, float, float)
+	 */
+	public void glTranslatef(float x, float y, float z) {
+		target.glTranslatef(x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBegin(int)
+	 */
+	public void glBegin(int geomType) {
+		target.glBegin(geomType);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnd()
+	 */
+	public void glEnd() {
+		target.glEnd();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexEnvi(int, int, int)
+	 */
+	public void glTexEnvi(int target, int mode, int value) {
+		this.target.glTexEnvi(target, mode, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPointSize(float)
+	 */
+	public void glPointSize(float size) {
+		target.glPointSize(size);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScalef(float, float, float)
+	 */
+	public void glScalef(float x, float y, float z) {
+		target.glScalef(x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPushMatrix()
+	 */
+	public void glPushMatrix() {
+		target.glPushMatrix();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPopMatrix()
+	 */
+	public void glPopMatrix() {
+		target.glPopMatrix();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBlendFunc(int, int)
+	 */
+	public void glBlendFunc(int src, int dest) {
+		target.glBlendFunc(src, dest);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGenLists(int)
+	 */
+	public int glGenLists(int count) {
+		return target.glGenLists(count);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glNewList(int, int)
+	 */
+	public void glNewList(int id, int option) {
+		target.glNewList(id, option);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEndList()
+	 */
+	public void glEndList() {
+		target.glEndList();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCallList(int)
+	 */
+	public void glCallList(int id) {
+		target.glCallList(id);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCopyTexImage2D(int, int, int, int, int, int, int, int)
+	 */
+	public void glCopyTexImage2D(int target, int level, int internalFormat, int x, int y, int width, int height, int border) {
+		this.target.glCopyTexImage2D(target, level, internalFormat, x, y, width, height, border);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glReadPixels(int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+		target.glReadPixels(x, y, width, height, format, type, pixels);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexParameteri(int, int, int)
+	 */
+	public void glTexParameteri(int target, int param, int value) {
+		this.target.glTexParameteri(target, param, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#getCurrentColor()
+	 */
+	public float[] getCurrentColor() {
+		return target.getCurrentColor();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteLists(int, int)
+	 */
+	public void glDeleteLists(int list, int count) {
+		target.glDeleteLists(list, count);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthMask(boolean)
+	 */
+	public void glDepthMask(boolean mask) {
+		target.glDepthMask(mask);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearDepth(float)
+	 */
+	public void glClearDepth(float value) {
+		target.glClearDepth(value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthFunc(int)
+	 */
+	public void glDepthFunc(int func) {
+		target.glDepthFunc(func);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+		target.glAlphaFunc(func, ref);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#setGlobalAlphaScale(float)
+	 */
+	public void setGlobalAlphaScale(float alphaScale) {
+		target.setGlobalAlphaScale(alphaScale);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadMatrix(java.nio.FloatBuffer)
+	 */
+	public void glLoadMatrix(FloatBuffer buffer) {
+		target.glLoadMatrix(buffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGenTextures(java.nio.IntBuffer)
+	 */
+	public void glGenTextures(IntBuffer ids) {
+		target.glGenTextures(ids);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetError()
+	 */
+	public void glGetError() {
+		target.glGetError();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexImage2D(int target, int i, int dstPixelFormat, int width, int height, int j,
+							 int srcPixelFormat, int glUnsignedByte, ByteBuffer textureBuffer) {
+		this.target.glTexImage2D(target, i, dstPixelFormat, width, height, j, srcPixelFormat, glUnsignedByte, textureBuffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexSubImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexSubImage2D(int glTexture2d, int i, int pageX, int pageY, int width, int height,
+								int glBgra, int glUnsignedByte, ByteBuffer scratchByteBuffer) {
+		target.glTexSubImage2D(glTexture2d, i, pageX, pageY, width, height, glBgra, glUnsignedByte, scratchByteBuffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#canTextureMirrorClamp()
+	 */
+	public boolean canTextureMirrorClamp() {
+		return target.canTextureMirrorClamp();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#canSecondaryColor()
+	 */
+	public boolean canSecondaryColor() {
+		return target.canSecondaryColor();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glSecondaryColor3ubEXT(byte, byte, byte)
+	 */
+	public void glSecondaryColor3ubEXT(byte b, byte c, byte d) {
+		target.glSecondaryColor3ubEXT(b, c, d);
+	}
+}
@@ -347,6 +347,13 @@ public class ImmediateModeOGLRenderer implements SGL {
 		GL11.glDepthFunc(func);
 	}
 
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+		GL11.glAlphaFunc(func, ref);
+	}
+
 	/**
 	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthMask(boolean)
 	 */
@@ -0,0 +1,402 @@
+package org.newdawn.slick.opengl.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A renderer that doesn't talk to OpenGL at all. Operations are accepted and ignored
+ * but queries are given sensible answers (texture and list IDs are handed out, the
+ * current colour is tracked) so that images, fonts, maps and the rest of slick can
+ * be loaded and rendered on machines without a GPU or display.
+ *
+ * @author kevin
+ */
+public class NullSGL implements SGL {
+	/** The maximum texture size reported */
+	private int maxTextureSize = 4096;
+	/** The next texture ID to hand out */
+	private int nextTexture = 1;
+	/** The next display list ID to hand out */
+	private int nextList = 1;
+	/** The current colour */
+	private float[] current = new float[] {1,1,1,1};
+	/** The current clear colour */
+	private float[] clearColor = new float[] {0,0,0,0};
+	/** The current line width */
+	private float lineWidth = 1;
+	/** The global colour scale */
+	protected float alphaScale = 1;
+
+	/**
+	 * Set the maximum texture size reported to texture loading
+	 *
+	 * @param size The maximum texture size to report
+	 */
+	public void setMaxTextureSize(int size) {
+		maxTextureSize = size;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#flush()
+	 */
+	public void flush() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#initDisplay(int, int)
+	 */
+	public void initDisplay(int width, int height) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#enterOrtho(int, int)
+	 */
+	public void enterOrtho(int xsize, int ysize) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearColor(float, float, float, float)
+	 */
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		clearColor[0] = red;
+		clearColor[1] = green;
+		clearColor[2] = blue;
+		clearColor[3] = alpha;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClipPlane(int, java.nio.DoubleBuffer)
+	 */
+	public void glClipPlane(int plane, DoubleBuffer buffer) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScissor(int, int, int, int)
+	 */
+	public void glScissor(int x, int y, int width, int height) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLineWidth(float)
+	 */
+	public void glLineWidth(float width) {
+		lineWidth = width;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClear(int)
+	 */
+	public void glClear(int value) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColorMask(boolean, boolean, boolean, boolean)
+	 */
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadIdentity()
+	 */
+	public void glLoadIdentity() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetInteger(int, java.nio.IntBuffer)
+	 */
+	public void glGetInteger(int id, IntBuffer ret) {
+		if (id == SGL.GL_MAX_TEXTURE_SIZE) {
+			ret.put(ret.position(), maxTextureSize);
+		} else {
+			ret.put(ret.position(), 0);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetFloat(int, java.nio.FloatBuffer)
+	 */
+	public void glGetFloat(int id, FloatBuffer ret) {
+		int pos = ret.position();
+		switch (id) {
+		case SGL.GL_MODELVIEW_MATRIX:
+			for (int i=0;i<16;i++) {
+				ret.put(pos+i, (i % 5) == 0 ? 1 : 0);
+			}
+			break;
+		case SGL.GL_COLOR_CLEAR_VALUE:
+			for (int i=0;i<4;i++) {
+				ret.put(pos+i, clearColor[i]);
+			}
+			break;
+		case SGL.GL_LINE_WIDTH:
+			ret.put(pos, lineWidth);
+			break;
+		default:
+			ret.put(pos, 0);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnable(int)
+	 */
+	public void glEnable(int item) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDisable(int)
+	 */
+	public void glDisable(int item) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBindTexture(int, int)
+	 */
+	public void glBindTexture(int target, int id) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetTexImage(int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glGetTexImage(int target, int level, int format, int type, ByteBuffer pixels) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteTextures(java.nio.IntBuffer)
+	 */
+	public void glDeleteTextures(IntBuffer buffer) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColor4f(float, float, float, float)
+	 */
+	public void glColor4f(float r, float g, float b, float a) {
+		current[0] = r;
+		current[1] = g;
+		current[2] = b;
+		current[3] = a * alphaScale;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexCoord2f(float, float)
+	 */
+	public void glTexCoord2f(float u, float v) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex3f(float, float, float)
+	 */
+	public void glVertex3f(float x, float y, float z) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex2f(float, float)
+	 */
+	public void glVertex2f(float x, float y) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glRotatef(float, float, float, float)
+	 */
+	public void glRotatef(float angle, float x, float y, float z) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTranslatef(float, float, float)
+	 */
+	public void glTranslatef(float x, float y, float z) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBegin(int)
+	 */
+	public void glBegin(int geomType) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnd()
+	 */
+	public void glEnd() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexEnvi(int, int, int)
+	 */
+	public void glTexEnvi(int target, int mode, int value) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPointSize(float)
+	 */
+	public void glPointSize(float size) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScalef(float, float, float)
+	 */
+	public void glScalef(float x, float y, float z) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPushMatrix()
+	 */
+	public void glPushMatrix() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPopMatrix()
+	 */
+	public void glPopMatrix() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBlendFunc(int, int)
+	 */
+	public void glBlendFunc(int src, int dest) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGenLists(int)
+	 */
+	public int glGenLists(int count) {
+		int base = nextList;
+		nextList += count;
+		return base;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glNewList(int, int)
+	 */
+	public void glNewList(int id, int option) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEndList()
+	 */
+	public void glEndList() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCallList(int)
+	 */
+	public void glCallList(int id) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCopyTexImage2D(int, int, int, int, int, int, int, int)
+	 */
+	public void glCopyTexImage2D(int target, int level, int internalFormat, int x, int y, int width, int height, int border) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glReadPixels(int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexParameteri(int, int, int)
+	 */
+	public void glTexParameteri(int target, int param, int value) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#getCurrentColor()
+	 */
+	public float[] getCurrentColor() {
+		return current;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteLists(int, int)
+	 */
+	public void glDeleteLists(int list, int count) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthMask(boolean)
+	 */
+	public void glDepthMask(boolean mask) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearDepth(float)
+	 */
+	public void glClearDepth(float value) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthFunc(int)
+	 */
+	public void glDepthFunc(int func) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#setGlobalAlphaScale(float)
+	 */
+	public void setGlobalAlphaScale(float alphaScale) {
+		this.alphaScale = alphaScale;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadMatrix(java.nio.FloatBuffer)
+	 */
+	public void glLoadMatrix(FloatBuffer buffer) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGenTextures(java.nio.IntBuffer)
+	 */
+	public void glGenTextures(IntBuffer ids) {
+		for (int i=ids.position();i<ids.limit();i++) {
+			ids.put(i, nextTexture++);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetError()
+	 */
+	public void glGetError() {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexImage2D(int target, int i, int dstPixelFormat, int width, int height, int j,
+							 int srcPixelFormat, int glUnsignedByte, ByteBuffer textureBuffer) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexSubImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexSubImage2D(int glTexture2d, int i, int pageX, int pageY, int width, int height,
+								int glBgra, int glUnsignedByte, ByteBuffer scratchByteBuffer) {
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#canTextureMirrorClamp()
+	 */
+	public boolean canTextureMirrorClamp() {
+		return false;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#canSecondaryColor()
+	 */
+	public boolean canSecondaryColor() {
+		return false;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glSecondaryColor3ubEXT(byte, byte, byte)
+	 */
+	public void glSecondaryColor3ubEXT(byte b, byte c, byte d) {
+	}
+}
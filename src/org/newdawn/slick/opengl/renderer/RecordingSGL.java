@@ -0,0 +1,1164 @@
+package org.newdawn.slick.opengl.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * A renderer that doesn't talk to OpenGL but records the stream of operations it's given
+ * and keeps statistics on them - the number of draw batches, vertices, texture binds and
+ * state changes (including those that didn't change anything). This allows rendering code
+ * to be run and measured on machines without a GPU.
+ *
+ * The operations are recorded into a single int array. Each entry is an opcode (one of the
+ * OP_ constants) followed by its arguments. Floating point arguments are stored as their
+ * raw int bits and booleans as 0 or 1. Buffers of pixel data are not recorded.
+ *
+ * Statistics are gathered per frame, a frame ending each time the renderer is flushed.
+ *
+ * @author kevin
+ */
+public class RecordingSGL extends NullSGL {
+	/** Statistic - the number of separate batches of geometry drawn */
+	public static final int DRAW_BATCHES = 0;
+	/** Statistic - the number of vertices drawn */
+	public static final int VERTICES = 1;
+	/** Statistic - the number of texture binds */
+	public static final int TEXTURE_BINDS = 2;
+	/** Statistic - the number of state changes (binds, blending, enables, colours etc) */
+	public static final int STATE_CHANGES = 3;
+	/** Statistic - the number of state changes that set the state to its current value */
+	public static final int REDUNDANT_STATE_CHANGES = 4;
+	/** Statistic - the number of matrix operations */
+	public static final int MATRIX_OPERATIONS = 5;
+	/** Statistic - the number of display lists called */
+	public static final int LIST_CALLS = 6;
+	/** The number of statistics gathered */
+	private static final int STAT_COUNT = 7;
+
+	/** Opcode - flush() */
+	public static final int OP_FLUSH = 0;
+	/** Opcode - initDisplay(width, height) */
+	public static final int OP_INIT_DISPLAY = 1;
+	/** Opcode - enterOrtho(xsize, ysize) */
+	public static final int OP_ENTER_ORTHO = 2;
+	/** Opcode - glClearColor(r, g, b, a) */
+	public static final int OP_CLEAR_COLOR = 3;
+	/** Opcode - glClipPlane(plane, a, b, c, d) - the plane equation stored as floats */
+	public static final int OP_CLIP_PLANE = 4;
+	/** Opcode - glScissor(x, y, width, height) */
+	public static final int OP_SCISSOR = 5;
+	/** Opcode - glLineWidth(width) */
+	public static final int OP_LINE_WIDTH = 6;
+	/** Opcode - glClear(value) */
+	public static final int OP_CLEAR = 7;
+	/** Opcode - glColorMask(r, g, b, a) */
+	public static final int OP_COLOR_MASK = 8;
+	/** Opcode - glLoadIdentity() */
+	public static final int OP_LOAD_IDENTITY = 9;
+	/** Opcode - glEnable(item) */
+	public static final int OP_ENABLE = 10;
+	/** Opcode - glDisable(item) */
+	public static final int OP_DISABLE = 11;
+	/** Opcode - glBindTexture(target, id) */
+	public static final int OP_BIND_TEXTURE = 12;
+	/** Opcode - glGetTexImage(target, level, format, type) */
+	public static final int OP_GET_TEX_IMAGE = 13;
+	/** Opcode - glDeleteTextures(count, ids...) */
+	public static final int OP_DELETE_TEXTURES = 14;
+	/** Opcode - glColor4f(r, g, b, a) */
+	public static final int OP_COLOR = 15;
+	/** Opcode - glTexCoord2f(u, v) */
+	public static final int OP_TEX_COORD = 16;
+	/** Opcode - glVertex3f(x, y, z) */
+	public static final int OP_VERTEX = 17;
+	/** Opcode - glRotatef(angle, x, y, z) */
+	public static final int OP_ROTATE = 18;
+	/** Opcode - glTranslatef(x, y, z) */
+	public static final int OP_TRANSLATE = 19;
+	/** Opcode - glBegin(type) */
+	public static final int OP_BEGIN = 20;
+	/** Opcode - glEnd() */
+	public static final int OP_END = 21;
+	/** Opcode - glTexEnvi(target, mode, value) */
+	public static final int OP_TEX_ENV = 22;
+	/** Opcode - glPointSize(size) */
+	public static final int OP_POINT_SIZE = 23;
+	/** Opcode - glScalef(x, y, z) */
+	public static final int OP_SCALE = 24;
+	/** Opcode - glPushMatrix() */
+	public static final int OP_PUSH_MATRIX = 25;
+	/** Opcode - glPopMatrix() */
+	public static final int OP_POP_MATRIX = 26;
+	/** Opcode - glBlendFunc(src, dest) */
+	public static final int OP_BLEND_FUNC = 27;
+	/** Opcode - glNewList(id, option) */
+	public static final int OP_NEW_LIST = 28;
+	/** Opcode - glEndList() */
+	public static final int OP_END_LIST = 29;
+	/** Opcode - glCallList(id) */
+	public static final int OP_CALL_LIST = 30;
+	/** Opcode - glCopyTexImage2D(target, level, internalFormat, x, y, width, height, border) */
+	public static final int OP_COPY_TEX_IMAGE = 31;
+	/** Opcode - glReadPixels(x, y, width, height, format, type) */
+	public static final int OP_READ_PIXELS = 32;
+	/** Opcode - glTexParameteri(target, param, value) */
+	public static final int OP_TEX_PARAMETER = 33;
+	/** Opcode - glDeleteLists(list, count) */
+	public static final int OP_DELETE_LISTS = 34;
+	/** Opcode - glDepthMask(mask) */
+	public static final int OP_DEPTH_MASK = 35;
+	/** Opcode - glClearDepth(value) */
+	public static final int OP_CLEAR_DEPTH = 36;
+	/** Opcode - glDepthFunc(func) */
+	public static final int OP_DEPTH_FUNC = 37;
+	/** Opcode - setGlobalAlphaScale(scale) */
+	public static final int OP_ALPHA_SCALE = 38;
+	/** Opcode - glLoadMatrix(m0 ... m15) */
+	public static final int OP_LOAD_MATRIX = 39;
+	/** Opcode - glTexImage2D(target, level, internalFormat, width, height, border, format, type) */
+	public static final int OP_TEX_IMAGE = 40;
+	/** Opcode - glTexSubImage2D(target, level, x, y, width, height, format, type) */
+	public static final int OP_TEX_SUB_IMAGE = 41;
+	/** Opcode - glSecondaryColor3ubEXT(r, g, b) */
+	public static final int OP_SECONDARY_COLOR = 42;
+	/** Opcode - glAlphaFunc(func, ref) */
+	public static final int OP_ALPHA_FUNC = 43;
+
+	/** The number of arguments taken by each opcode, -1 for variable */
+	private static final int[] ARGS = new int[] {
+		0, 2, 2, 4, 5, 4, 1, 1, 4, 0,
+		1, 1, 2, 4, -1, 4, 2, 3, 4, 3,
+		1, 0, 3, 1, 3, 0, 0, 2, 2, 0,
+		1, 8, 6, 3, 2, 1, 1, 1, 1, 16,
+		8, 8, 3, 2
+	};
+
+	/** Indicates a piece of state isn't known */
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/** The recorded operations */
+	private int[] commands = new int[4096];
+	/** The number of entries used in the recorded operations */
+	private int length;
+	/** The number of operations recorded */
+	private int commandCount;
+	/** True if operations should be recorded */
+	private boolean recording = true;
+
+	/** The statistics for the current frame */
+	private int[] counts = new int[STAT_COUNT];
+	/** The statistics for the last complete frame */
+	private int[] lastFrame = new int[STAT_COUNT];
+	/** The number of frames completed */
+	private int frames;
+
+	/** True if we're between glBegin() and glEnd() */
+	private boolean inBegin;
+	/** The number of display lists being compiled */
+	private int listMode;
+	/** True if the list being compiled is also being executed */
+	private boolean listExecuting;
+
+	/** The texture currently bound */
+	private int boundTexture = UNKNOWN;
+	/** The current source blend function */
+	private int blendSrc = UNKNOWN;
+	/** The current destination blend function */
+	private int blendDest = UNKNOWN;
+	/** The current texture environment mode */
+	private int texEnv = UNKNOWN;
+	/** The current line width */
+	private float currentLineWidth = Float.NaN;
+	/** The current point size */
+	private float currentPointSize = Float.NaN;
+	/** The current scissor box */
+	private int[] scissor = new int[] {UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN};
+	/** The current colour mask packed as bits */
+	private int colorMask = UNKNOWN;
+	/** The current colour set outside of geometry */
+	private float[] color = new float[] {Float.NaN, Float.NaN, Float.NaN, Float.NaN};
+	/** The capabilities we've seen enabled or disabled */
+	private int[] caps = new int[16];
+	/** The state of the capabilities we've seen */
+	private boolean[] capStates = new boolean[16];
+	/** The number of capabilities we've seen */
+	private int capCount;
+
+	/** Buffer used to replay clip planes */
+	private DoubleBuffer planeBuffer;
+	/** Buffer used to replay matrix loads */
+	private FloatBuffer matrixBuffer;
+
+	/**
+	 * Indicate whether operations should be recorded. Statistics are gathered
+	 * regardless.
+	 *
+	 * @param recording True if operations should be recorded
+	 */
+	public void setRecording(boolean recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Check if operations are being recorded
+	 *
+	 * @return True if operations are being recorded
+	 */
+	public boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Get the buffer holding the recorded operations. Only the first
+	 * getCommandsLength() entries are valid.
+	 *
+	 * @return The buffer holding the recorded operations
+	 */
+	public int[] getCommands() {
+		return commands;
+	}
+
+	/**
+	 * Get the number of entries used in the recorded operations buffer
+	 *
+	 * @return The number of entries used in the recorded operations buffer
+	 */
+	public int getCommandsLength() {
+		return length;
+	}
+
+	/**
+	 * Get the number of operations recorded
+	 *
+	 * @return The number of operations recorded
+	 */
+	public int getCommandCount() {
+		return commandCount;
+	}
+
+	/**
+	 * Discard the operations recorded so far
+	 */
+	public void clearCommands() {
+		length = 0;
+		commandCount = 0;
+	}
+
+	/**
+	 * Get a statistic for the frame currently being rendered
+	 *
+	 * @param stat The statistic to retrieve, e.g. DRAW_BATCHES
+	 * @return The value of the statistic since the last flush
+	 */
+	public int getCount(int stat) {
+		return counts[stat];
+	}
+
+	/**
+	 * Get a statistic for the last complete frame
+	 *
+	 * @param stat The statistic to retrieve, e.g. DRAW_BATCHES
+	 * @return The value of the statistic between the last two flushes
+	 */
+	public int getLastFrameCount(int stat) {
+		return lastFrame[stat];
+	}
+
+	/**
+	 * Get the number of frames completed, i.e. the number of times the renderer has been flushed
+	 *
+	 * @return The number of frames completed
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Reset all statistics and forget the state we've tracked
+	 */
+	public void resetStatistics() {
+		for (int i=0;i<STAT_COUNT;i++) {
+			counts[i] = 0;
+			lastFrame[i] = 0;
+		}
+		frames = 0;
+		forgetState();
+	}
+
+	/**
+	 * Forget the state we've tracked, it may have been changed behind our back
+	 */
+	private void forgetState() {
+		boundTexture = UNKNOWN;
+		blendSrc = UNKNOWN;
+		blendDest = UNKNOWN;
+		texEnv = UNKNOWN;
+		currentLineWidth = Float.NaN;
+		currentPointSize = Float.NaN;
+		scissor[0] = UNKNOWN;
+		colorMask = UNKNOWN;
+		color[0] = Float.NaN;
+		capCount = 0;
+	}
+
+	/**
+	 * Check if operations are currently taking effect, i.e. we're not just
+	 * compiling a display list
+	 *
+	 * @return True if operations are currently taking effect
+	 */
+	private boolean executing() {
+		return (listMode == 0) || listExecuting;
+	}
+
+	/**
+	 * Count a state change
+	 *
+	 * @param redundant True if the state change didn't change anything
+	 */
+	private void stateChange(boolean redundant) {
+		if (!executing()) {
+			return;
+		}
+		counts[STATE_CHANGES]++;
+		if (redundant) {
+			counts[REDUNDANT_STATE_CHANGES]++;
+		}
+	}
+
+	/**
+	 * Record the state of a capability
+	 *
+	 * @param item The capability changed
+	 * @param enabled True if the capability is now enabled
+	 */
+	private void capability(int item, boolean enabled) {
+		if (!executing()) {
+			return;
+		}
+
+		for (int i=0;i<capCount;i++) {
+			if (caps[i] == item) {
+				stateChange(capStates[i] == enabled);
+				capStates[i] = enabled;
+				return;
+			}
+		}
+
+		stateChange(false);
+		if (capCount == caps.length) {
+			int[] newCaps = new int[capCount*2];
+			boolean[] newStates = new boolean[capCount*2];
+			System.arraycopy(caps, 0, newCaps, 0, capCount);
+			System.arraycopy(capStates, 0, newStates, 0, capCount);
+			caps = newCaps;
+			capStates = newStates;
+		}
+		caps[capCount] = item;
+		capStates[capCount] = enabled;
+		capCount++;
+	}
+
+	/**
+	 * Start recording an operation
+	 *
+	 * @param op The opcode of the operation
+	 * @param args The number of arguments that will follow
+	 * @return True if the arguments should be recorded
+	 */
+	private boolean op(int op, int args) {
+		if (!recording) {
+			return false;
+		}
+		if (length + args + 1 > commands.length) {
+			int[] newCommands = new int[Math.max(commands.length * 2, length + args + 1)];
+			System.arraycopy(commands, 0, newCommands, 0, length);
+			commands = newCommands;
+		}
+		commands[length++] = op;
+		commandCount++;
+		return true;
+	}
+
+	/**
+	 * Record an integer argument
+	 *
+	 * @param value The value to record
+	 */
+	private void arg(int value) {
+		commands[length++] = value;
+	}
+
+	/**
+	 * Record a floating point argument
+	 *
+	 * @param value The value to record
+	 */
+	private void arg(float value) {
+		commands[length++] = Float.floatToRawIntBits(value);
+	}
+
+	/**
+	 * Record a boolean argument
+	 *
+	 * @param value The value to record
+	 */
+	private void arg(boolean value) {
+		commands[length++] = value ? 1 : 0;
+	}
+
+	/**
+	 * Record an operation with integer arguments
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 */
+	private void record(int op, int a) {
+		if (op(op, 1)) {
+			arg(a);
+		}
+	}
+
+	/**
+	 * Record an operation with integer arguments
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 * @param b The second argument
+	 */
+	private void record(int op, int a, int b) {
+		if (op(op, 2)) {
+			arg(a);
+			arg(b);
+		}
+	}
+
+	/**
+	 * Record an operation with integer arguments
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 * @param b The second argument
+	 * @param c The third argument
+	 */
+	private void record(int op, int a, int b, int c) {
+		if (op(op, 3)) {
+			arg(a);
+			arg(b);
+			arg(c);
+		}
+	}
+
+	/**
+	 * Record an operation with a floating point argument
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 */
+	private void record(int op, float a) {
+		if (op(op, 1)) {
+			arg(a);
+		}
+	}
+
+	/**
+	 * Record an operation with floating point arguments
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 * @param b The second argument
+	 * @param c The third argument
+	 */
+	private void record(int op, float a, float b, float c) {
+		if (op(op, 3)) {
+			arg(a);
+			arg(b);
+			arg(c);
+		}
+	}
+
+	/**
+	 * Record an operation with floating point arguments
+	 *
+	 * @param op The opcode
+	 * @param a The first argument
+	 * @param b The second argument
+	 * @param c The third argument
+	 * @param d The fourth argument
+	 */
+	private void record(int op, float a, float b, float c, float d) {
+		if (op(op, 4)) {
+			arg(a);
+			arg(b);
+			arg(c);
+			arg(d);
+		}
+	}
+
+	/**
+	 * Pass the recorded operations on to another renderer. Operations that carry
+	 * pixel data (texture uploads and reads) can't be replayed and are skipped.
+	 *
+	 * @param target The renderer to pass the operations on to
+	 */
+	public void replay(SGL target) {
+		int i = 0;
+		while (i < length) {
+			int op = commands[i++];
+			int[] c = commands;
+
+			switch (op) {
+			case OP_FLUSH:
+				target.flush();
+				break;
+			case OP_INIT_DISPLAY:
+				target.initDisplay(c[i], c[i+1]);
+				break;
+			case OP_ENTER_ORTHO:
+				target.enterOrtho(c[i], c[i+1]);
+				break;
+			case OP_CLEAR_COLOR:
+				target.glClearColor(f(i), f(i+1), f(i+2), f(i+3));
+				break;
+			case OP_CLIP_PLANE:
+				if (planeBuffer == null) {
+					planeBuffer = BufferUtils.createDoubleBuffer(4);
+				}
+				planeBuffer.clear();
+				planeBuffer.put(f(i+1)).put(f(i+2)).put(f(i+3)).put(f(i+4));
+				planeBuffer.flip();
+				target.glClipPlane(c[i], planeBuffer);
+				break;
+			case OP_SCISSOR:
+				target.glScissor(c[i], c[i+1], c[i+2], c[i+3]);
+				break;
+			case OP_LINE_WIDTH:
+				target.glLineWidth(f(i));
+				break;
+			case OP_CLEAR:
+				target.glClear(c[i]);
+				break;
+			case OP_COLOR_MASK:
+				target.glColorMask(c[i] != 0, c[i+1] != 0, c[i+2] != 0, c[i+3] != 0);
+				break;
+			case OP_LOAD_IDENTITY:
+				target.glLoadIdentity();
+				break;
+			case OP_ENABLE:
+				target.glEnable(c[i]);
+				break;
+			case OP_DISABLE:
+				target.glDisable(c[i]);
+				break;
+			case OP_BIND_TEXTURE:
+				target.glBindTexture(c[i], c[i+1]);
+				break;
+			case OP_DELETE_TEXTURES:
+				IntBuffer ids = BufferUtils.createIntBuffer(c[i]);
+				for (int j=0;j<c[i];j++) {
+					ids.put(c[i+1+j]);
+				}
+				ids.flip();
+				target.glDeleteTextures(ids);
+				i += c[i] + 1;
+				continue;
+			case OP_COLOR:
+				target.glColor4f(f(i), f(i+1), f(i+2), f(i+3));
+				break;
+			case OP_TEX_COORD:
+				target.glTexCoord2f(f(i), f(i+1));
+				break;
+			case OP_VERTEX:
+				target.glVertex3f(f(i), f(i+1), f(i+2));
+				break;
+			case OP_ROTATE:
+				target.glRotatef(f(i), f(i+1), f(i+2), f(i+3));
+				break;
+			case OP_TRANSLATE:
+				target.glTranslatef(f(i), f(i+1), f(i+2));
+				break;
+			case OP_BEGIN:
+				target.glBegin(c[i]);
+				break;
+			case OP_END:
+				target.glEnd();
+				break;
+			case OP_TEX_ENV:
+				target.glTexEnvi(c[i], c[i+1], c[i+2]);
+				break;
+			case OP_POINT_SIZE:
+				target.glPointSize(f(i));
+				break;
+			case OP_SCALE:
+				target.glScalef(f(i), f(i+1), f(i+2));
+				break;
+			case OP_PUSH_MATRIX:
+				target.glPushMatrix();
+				break;
+			case OP_POP_MATRIX:
+				target.glPopMatrix();
+				break;
+			case OP_BLEND_FUNC:
+				target.glBlendFunc(c[i], c[i+1]);
+				break;
+			case OP_NEW_LIST:
+				target.glNewList(c[i], c[i+1]);
+				break;
+			case OP_END_LIST:
+				target.glEndList();
+				break;
+			case OP_CALL_LIST:
+				target.glCallList(c[i]);
+				break;
+			case OP_COPY_TEX_IMAGE:
+				target.glCopyTexImage2D(c[i], c[i+1], c[i+2], c[i+3], c[i+4], c[i+5], c[i+6], c[i+7]);
+				break;
+			case OP_TEX_PARAMETER:
+				target.glTexParameteri(c[i], c[i+1], c[i+2]);
+				break;
+			case OP_DELETE_LISTS:
+				target.glDeleteLists(c[i], c[i+1]);
+				break;
+			case OP_DEPTH_MASK:
+				target.glDepthMask(c[i] != 0);
+				break;
+			case OP_CLEAR_DEPTH:
+				target.glClearDepth(f(i));
+				break;
+			case OP_DEPTH_FUNC:
+				target.glDepthFunc(c[i]);
+				break;
+			case OP_ALPHA_FUNC:
+				target.glAlphaFunc(c[i], f(i+1));
+				break;
+			case OP_ALPHA_SCALE:
+				target.setGlobalAlphaScale(f(i));
+				break;
+			case OP_LOAD_MATRIX:
+				if (matrixBuffer == null) {
+					matrixBuffer = BufferUtils.createFloatBuffer(16);
+				}
+				matrixBuffer.clear();
+				for (int j=0;j<16;j++) {
+					matrixBuffer.put(f(i+j));
+				}
+				matrixBuffer.flip();
+				target.glLoadMatrix(matrixBuffer);
+				break;
+			case OP_SECONDARY_COLOR:
+				target.glSecondaryColor3ubEXT((byte) c[i], (byte) c[i+1], (byte) c[i+2]);
+				break;
+			case OP_GET_TEX_IMAGE:
+			case OP_READ_PIXELS:
+			case OP_TEX_IMAGE:
+			case OP_TEX_SUB_IMAGE:
+				// no pixel data was recorded
+				break;
+			default:
+				throw new RuntimeException("Unknown opcode in recorded stream: "+op);
+			}
+
+			i += ARGS[op];
+		}
+	}
+
+	/**
+	 * Get a floating point argument from the recorded operations
+	 *
+	 * @param index The index of the argument
+	 * @return The floating point value
+	 */
+	private float f(int index) {
+		return Float.intBitsToFloat(commands[index]);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#flush()
+	 */
+	public void flush() {
+		op(OP_FLUSH, 0);
+
+		int[] temp = lastFrame;
+		lastFrame = counts;
+		counts = temp;
+		for (int i=0;i<STAT_COUNT;i++) {
+			counts[i] = 0;
+		}
+		frames++;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#initDisplay(int, int)
+	 */
+	public void initDisplay(int width, int height) {
+		record(OP_INIT_DISPLAY, width, height);
+		forgetState();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#enterOrtho(int, int)
+	 */
+	public void enterOrtho(int xsize, int ysize) {
+		record(OP_ENTER_ORTHO, xsize, ysize);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearColor(float, float, float, float)
+	 */
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		super.glClearColor(red, green, blue, alpha);
+		record(OP_CLEAR_COLOR, red, green, blue, alpha);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClipPlane(int, java.nio.DoubleBuffer)
+	 */
+	public void glClipPlane(int plane, DoubleBuffer buffer) {
+		stateChange(false);
+		if (op(OP_CLIP_PLANE, 5)) {
+			int pos = buffer.position();
+			arg(plane);
+			for (int i=0;i<4;i++) {
+				arg((float) buffer.get(pos+i));
+			}
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScissor(int, int, int, int)
+	 */
+	public void glScissor(int x, int y, int width, int height) {
+		stateChange((scissor[0] == x) && (scissor[1] == y) && (scissor[2] == width) && (scissor[3] == height));
+		if (executing()) {
+			scissor[0] = x;
+			scissor[1] = y;
+			scissor[2] = width;
+			scissor[3] = height;
+		}
+		if (op(OP_SCISSOR, 4)) {
+			arg(x);
+			arg(y);
+			arg(width);
+			arg(height);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLineWidth(float)
+	 */
+	public void glLineWidth(float width) {
+		super.glLineWidth(width);
+		stateChange(currentLineWidth == width);
+		if (executing()) {
+			currentLineWidth = width;
+		}
+		record(OP_LINE_WIDTH, width);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClear(int)
+	 */
+	public void glClear(int value) {
+		record(OP_CLEAR, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColorMask(boolean, boolean, boolean, boolean)
+	 */
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		int mask = (red ? 1 : 0) | (green ? 2 : 0) | (blue ? 4 : 0) | (alpha ? 8 : 0);
+		stateChange(colorMask == mask);
+		if (executing()) {
+			colorMask = mask;
+		}
+		if (op(OP_COLOR_MASK, 4)) {
+			arg(red);
+			arg(green);
+			arg(blue);
+			arg(alpha);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadIdentity()
+	 */
+	public void glLoadIdentity() {
+		counts[MATRIX_OPERATIONS]++;
+		op(OP_LOAD_IDENTITY, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnable(int)
+	 */
+	public void glEnable(int item) {
+		capability(item, true);
+		record(OP_ENABLE, item);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDisable(int)
+	 */
+	public void glDisable(int item) {
+		capability(item, false);
+		record(OP_DISABLE, item);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBindTexture(int, int)
+	 */
+	public void glBindTexture(int target, int id) {
+		if (executing()) {
+			counts[TEXTURE_BINDS]++;
+		}
+		stateChange(boundTexture == id);
+		if (executing()) {
+			boundTexture = id;
+		}
+		record(OP_BIND_TEXTURE, target, id);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetTexImage(int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glGetTexImage(int target, int level, int format, int type, ByteBuffer pixels) {
+		if (op(OP_GET_TEX_IMAGE, 4)) {
+			arg(target);
+			arg(level);
+			arg(format);
+			arg(type);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteTextures(java.nio.IntBuffer)
+	 */
+	public void glDeleteTextures(IntBuffer buffer) {
+		int count = buffer.remaining();
+		if (op(OP_DELETE_TEXTURES, count + 1)) {
+			arg(count);
+			for (int i=0;i<count;i++) {
+				int id = buffer.get(buffer.position()+i);
+				arg(id);
+			}
+		}
+		boundTexture = UNKNOWN;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColor4f(float, float, float, float)
+	 */
+	public void glColor4f(float r, float g, float b, float a) {
+		super.glColor4f(r, g, b, a);
+
+		// colours given per vertex are geometry rather than state
+		if (!inBegin) {
+			stateChange((color[0] == r) && (color[1] == g) && (color[2] == b) && (color[3] == a));
+		}
+		if (executing()) {
+			color[0] = r;
+			color[1] = g;
+			color[2] = b;
+			color[3] = a;
+		}
+		record(OP_COLOR, r, g, b, a);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexCoord2f(float, float)
+	 */
+	public void glTexCoord2f(float u, float v) {
+		if (op(OP_TEX_COORD, 2)) {
+			arg(u);
+			arg(v);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex3f(float, float, float)
+	 */
+	public void glVertex3f(float x, float y, float z) {
+		if (executing()) {
+			counts[VERTICES]++;
+		}
+		record(OP_VERTEX, x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex2f(float, float)
+	 */
+	public void glVertex2f(float x, float y) {
+		glVertex3f(x, y, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glRotatef(float, float, float, float)
+	 */
+	public void glRotatef(float angle, float x, float y, float z) {
+		counts[MATRIX_OPERATIONS]++;
+		record(OP_ROTATE, angle, x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTranslatef(float, float, float)
+	 */
+	public void glTranslatef(float x, float y, float z) {
+		counts[MATRIX_OPERATIONS]++;
+		record(OP_TRANSLATE, x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBegin(int)
+	 */
+	public void glBegin(int geomType) {
+		inBegin = true;
+		record(OP_BEGIN, geomType);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnd()
+	 */
+	public void glEnd() {
+		inBegin = false;
+		if (executing()) {
+			counts[DRAW_BATCHES]++;
+		}
+		op(OP_END, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexEnvi(int, int, int)
+	 */
+	public void glTexEnvi(int target, int mode, int value) {
+		stateChange(texEnv == value);
+		if (executing()) {
+			texEnv = value;
+		}
+		record(OP_TEX_ENV, target, mode, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPointSize(float)
+	 */
+	public void glPointSize(float size) {
+		stateChange(currentPointSize == size);
+		if (executing()) {
+			currentPointSize = size;
+		}
+		record(OP_POINT_SIZE, size);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScalef(float, float, float)
+	 */
+	public void glScalef(float x, float y, float z) {
+		counts[MATRIX_OPERATIONS]++;
+		record(OP_SCALE, x, y, z);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPushMatrix()
+	 */
+	public void glPushMatrix() {
+		counts[MATRIX_OPERATIONS]++;
+		op(OP_PUSH_MATRIX, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPopMatrix()
+	 */
+	public void glPopMatrix() {
+		counts[MATRIX_OPERATIONS]++;
+		op(OP_POP_MATRIX, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBlendFunc(int, int)
+	 */
+	public void glBlendFunc(int src, int dest) {
+		stateChange((blendSrc == src) && (blendDest == dest));
+		if (executing()) {
+			blendSrc = src;
+			blendDest = dest;
+		}
+		record(OP_BLEND_FUNC, src, dest);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glNewList(int, int)
+	 */
+	public void glNewList(int id, int option) {
+		listMode++;
+		listExecuting = option == SGL.GL_COMPILE_AND_EXECUTE;
+		record(OP_NEW_LIST, id, option);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEndList()
+	 */
+	public void glEndList() {
+		listMode--;
+		op(OP_END_LIST, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCallList(int)
+	 */
+	public void glCallList(int id) {
+		record(OP_CALL_LIST, id);
+		if (!executing()) {
+			return;
+		}
+		counts[LIST_CALLS]++;
+		counts[DRAW_BATCHES]++;
+
+		// the list may have changed anything
+		forgetState();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCopyTexImage2D(int, int, int, int, int, int, int, int)
+	 */
+	public void glCopyTexImage2D(int target, int level, int internalFormat, int x, int y, int width, int height, int border) {
+		if (op(OP_COPY_TEX_IMAGE, 8)) {
+			arg(target);
+			arg(level);
+			arg(internalFormat);
+			arg(x);
+			arg(y);
+			arg(width);
+			arg(height);
+			arg(border);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glReadPixels(int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+		if (op(OP_READ_PIXELS, 6)) {
+			arg(x);
+			arg(y);
+			arg(width);
+			arg(height);
+			arg(format);
+			arg(type);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexParameteri(int, int, int)
+	 */
+	public void glTexParameteri(int target, int param, int value) {
+		stateChange(false);
+		record(OP_TEX_PARAMETER, target, param, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteLists(int, int)
+	 */
+	public void glDeleteLists(int list, int count) {
+		record(OP_DELETE_LISTS, list, count);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthMask(boolean)
+	 */
+	public void glDepthMask(boolean mask) {
+		stateChange(false);
+		if (op(OP_DEPTH_MASK, 1)) {
+			arg(mask);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClearDepth(float)
+	 */
+	public void glClearDepth(float value) {
+		record(OP_CLEAR_DEPTH, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthFunc(int)
+	 */
+	public void glDepthFunc(int func) {
+		stateChange(false);
+		record(OP_DEPTH_FUNC, func);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+		stateChange(false);
+		if (op(OP_ALPHA_FUNC, 2)) {
+			arg(func);
+			arg(ref);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#setGlobalAlphaScale(float)
+	 */
+	public void setGlobalAlphaScale(float alphaScale) {
+		super.setGlobalAlphaScale(alphaScale);
+		record(OP_ALPHA_SCALE, alphaScale);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadMatrix(java.nio.FloatBuffer)
+	 */
+	public void glLoadMatrix(FloatBuffer buffer) {
+		counts[MATRIX_OPERATIONS]++;
+		if (op(OP_LOAD_MATRIX, 16)) {
+			int pos = buffer.position();
+			for (int i=0;i<16;i++) {
+				arg(buffer.get(pos+i));
+			}
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexImage2D(int target, int i, int dstPixelFormat, int width, int height, int j,
+							 int srcPixelFormat, int glUnsignedByte, ByteBuffer textureBuffer) {
+		if (op(OP_TEX_IMAGE, 8)) {
+			arg(target);
+			arg(i);
+			arg(dstPixelFormat);
+			arg(width);
+			arg(height);
+			arg(j);
+			arg(srcPixelFormat);
+			arg(glUnsignedByte);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexSubImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexSubImage2D(int glTexture2d, int i, int pageX, int pageY, int width, int height,
+								int glBgra, int glUnsignedByte, ByteBuffer scratchByteBuffer) {
+		if (op(OP_TEX_SUB_IMAGE, 8)) {
+			arg(glTexture2d);
+			arg(i);
+			arg(pageX);
+			arg(pageY);
+			arg(width);
+			arg(height);
+			arg(glBgra);
+			arg(glUnsignedByte);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glSecondaryColor3ubEXT(byte, byte, byte)
+	 */
+	public void glSecondaryColor3ubEXT(byte b, byte c, byte d) {
+		record(OP_SECONDARY_COLOR, b, c, d);
+	}
+}
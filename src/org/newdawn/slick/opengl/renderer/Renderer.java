@@ -18,11 +18,16 @@ public class Renderer {
 	/** The indicator for consistant quad based lines */
 	public static final int QUAD_BASED_LINE_STRIP_RENDERER = 4;
 	
+	/** The indicator for rendering that batches sprites with CPU side transforms */
+	public static final int SPRITE_BATCH_RENDERER = 5;
+	/** The indicator for immediate mode rendering that drops redundant state changes */
+	public static final int STATE_CACHING_RENDERER = 6;
+	
 	
 	/** The renderer in use */
 	private static SGL renderer = new ImmediateModeOGLRenderer();
-	/** The line strip renderer to use */
-	private static LineStripRenderer lineStripRenderer = new DefaultLineStripRenderer();
+	/** The line strip renderer to use, created on first use so it picks up the renderer set */
+	private static LineStripRenderer lineStripRenderer;
 	
 	/** 
 	 * Set the renderer to one of the known types
@@ -37,6 +42,12 @@ public class Renderer {
 			case VERTEX_ARRAY_RENDERER:
 				setRenderer(new VAOGLRenderer());
 				return;
+			case SPRITE_BATCH_RENDERER:
+				setRenderer(new SpriteBatchRenderer());
+				return;
+			case STATE_CACHING_RENDERER:
+				setRenderer(new StateCachingSGL());
+				return;
 		}
 		
 		throw new RuntimeException("Unknown renderer type: "+type);
@@ -93,6 +104,9 @@ public class Renderer {
 	 * @return The line strip renderer to use
 	 */
 	public static LineStripRenderer getLineStripRenderer() {
+		if (lineStripRenderer == null) {
+			lineStripRenderer = new DefaultLineStripRenderer();
+		}
 		return lineStripRenderer;
 	}
 	
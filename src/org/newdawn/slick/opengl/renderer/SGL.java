@@ -131,6 +131,10 @@ public interface SGL {
 	/** OpenGL Enum - @url http://www.opengl.org/documentation */
 	public static final int GL_EQUAL = GL11.GL_EQUAL;
 	/** OpenGL Enum - @url http://www.opengl.org/documentation */
+	public static final int GL_GEQUAL = GL11.GL_GEQUAL;
+	/** OpenGL Enum - @url http://www.opengl.org/documentation */
+	public static final int GL_ALPHA_TEST = GL11.GL_ALPHA_TEST;
+	/** OpenGL Enum - @url http://www.opengl.org/documentation */
 	public static final int GL_SRC_COLOR = GL11.GL_SRC_COLOR;
 	/** OpenGL Enum - @url http://www.opengl.org/documentation */
 	public static final int GL_ONE_MINUS_SRC_COLOR = GL11.GL_ONE_MINUS_SRC_COLOR;
@@ -482,6 +486,14 @@ public interface SGL {
 	 */
 	public void glDepthFunc(int func);
 	
+	/**
+	 * OpenGL Method - @url http://www.opengl.org/documentation/
+	 * 
+	 * @param func
+	 * @param ref
+	 */
+	public void glAlphaFunc(int func, float ref);
+	
 	/**
 	 * Set the scaling we'll apply to any colour binds in this renderer
 	 * 
@@ -0,0 +1,1073 @@
+package org.newdawn.slick.opengl.renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * A renderer that gathers geometry from many separate draw operations into large batches
+ * before passing it on to another renderer. The model view matrix is maintained on the CPU
+ * and vertices are transformed as they're specified, so the translations and rotations that
+ * surround every image draw never reach GL. Pending geometry is only flushed when the texture,
+ * blending, clipping or some other piece of GL state changes.
+ *
+ * Independent primitives (quads, triangles, lines and points) are concatenated across
+ * glBegin()/glEnd() pairs, other primitive types are passed on one at a time.
+ *
+ * Optionally the pending geometry can be sorted by texture before it's submitted. This
+ * reduces the number of texture binds further but means that overlapping geometry using
+ * different textures may not be drawn in the order specified - so it's only appropriate
+ * when the order doesn't matter (e.g. non-overlapping tiles).
+ *
+ * @author kevin
+ */
+public class SpriteBatchRenderer extends DelegatingSGL {
+	/** Indicates there is no current geometry type */
+	public static final int NONE = -1;
+	/** The number of vertices after which a batch will be submitted */
+	public static final int MAX_VERTS = 16384;
+	/** The texture key used for geometry drawn with texturing disabled */
+	private static final int NO_TEXTURE = -1;
+	/** Indicates the state of the target isn't known */
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/** The type of the geometry currently batched - i.e. GL_QUADS */
+	private int currentType = NONE;
+	/** The type of geometry given in the last glBegin() */
+	private int primType = NONE;
+	/** True if we're between glBegin() and glEnd() */
+	private boolean inBegin;
+	/** The index of the first vertex specified since the last glBegin() */
+	private int primStart;
+	/** The index of the next vertex to be created */
+	private int vertIndex;
+
+	/** The vertex data cached - already transformed */
+	private float[] verts = new float[MAX_VERTS*3];
+	/** The vertex colour data cached */
+	private float[] cols = new float[MAX_VERTS*4];
+	/** The vertex texture coordinate data cached */
+	private float[] texs = new float[MAX_VERTS*2];
+	/** The texture key each vertex was specified with */
+	private int[] keys = new int[MAX_VERTS];
+	/** The order in which primitives will be submitted when sorting */
+	private int[] order = new int[MAX_VERTS];
+	/** Scratch space for sorting primitives */
+	private int[] scratch = new int[MAX_VERTS];
+
+	/** The last colour applied - before any alpha scaling */
+	private float[] color = new float[] {1f,1f,1f,1f};
+	/** The colour reported as current */
+	private float[] current = new float[] {1f,1f,1f,1f};
+	/** The last texture coordinate applied */
+	private float[] tex = new float[] {0f,0f};
+	/** The global alpha scale */
+	private float alphaScale = 1;
+
+	/** The texture target last bound */
+	private int bindTarget = SGL.GL_TEXTURE_2D;
+	/** The texture that should be bound */
+	private int boundTexture = 0;
+	/** True if texturing should be enabled */
+	private boolean textureEnabled = true;
+	/** The texture known to be bound on the target */
+	private int targetTexture = UNKNOWN;
+	/** 1 if texturing is known to be enabled on the target, 0 if disabled, UNKNOWN otherwise */
+	private int targetTextureEnabled = UNKNOWN;
+	/** The source blend function last passed on */
+	private int blendSrc = UNKNOWN;
+	/** The destination blend function last passed on */
+	private int blendDest = UNKNOWN;
+	/** True if geometry should be sorted by texture before submission */
+	private boolean sortByTexture;
+
+	/** The current model view matrix, column major */
+	private float[] matrix = new float[16];
+	/** The stack of pushed matrices */
+	private float[][] stack = new float[32][16];
+	/** The number of matrices currently pushed */
+	private int stackIndex;
+	/** Scratch matrix used while multiplying */
+	private float[] temp = new float[16];
+	/** True if the target has been given a model view matrix other than identity */
+	private boolean targetMatrixLoaded;
+	/** The buffer used to pass matrices to the target */
+	private FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+	/** The stack for entering list creation mode - when we're creating a list we can't batch */
+	private int listMode = 0;
+	/** True if the list being created is also being executed */
+	private boolean listExecuting;
+
+	/** The width of the display */
+	private int width;
+	/** The height of the display */
+	private int height;
+
+	/**
+	 * Create a new batching renderer passing its batches on to a vertex array renderer
+	 */
+	public SpriteBatchRenderer() {
+		this(new VAOGLRenderer());
+	}
+
+	/**
+	 * Create a new batching renderer
+	 *
+	 * @param target The renderer the batched geometry should be passed on to
+	 */
+	public SpriteBatchRenderer(SGL target) {
+		super(target);
+
+		identity(matrix);
+	}
+
+	/**
+	 * Indicate whether geometry should be sorted by texture before it is submitted. Note that
+	 * this changes the order that overlapping geometry with different textures is drawn.
+	 *
+	 * @param sort True if geometry should be sorted by texture
+	 */
+	public void setSortByTexture(boolean sort) {
+		if (sort != sortByTexture) {
+			submitBatch();
+		}
+		sortByTexture = sort;
+	}
+
+	/**
+	 * Check if geometry is being sorted by texture before submission
+	 *
+	 * @return True if geometry is being sorted by texture before submission
+	 */
+	public boolean isSortByTexture() {
+		return sortByTexture;
+	}
+
+	/**
+	 * Get the number of vertices currently waiting to be submitted
+	 *
+	 * @return The number of vertices currently waiting to be submitted
+	 */
+	public int getPendingVertexCount() {
+		return vertIndex;
+	}
+
+	/**
+	 * Get the number of vertices that make up a single primitive of a given type
+	 *
+	 * @param type The type of geometry
+	 * @return The number of vertices in one primitive or 0 if primitives of this type
+	 * can't be concatenated
+	 */
+	private int getPrimitiveSize(int type) {
+		switch (type) {
+		case SGL.GL_QUADS:
+			return 4;
+		case SGL.GL_TRIANGLES:
+			return 3;
+		case SGL.GL_LINES:
+			return 2;
+		case SGL.GL_POINTS:
+			return 1;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Get the texture key for geometry specified now
+	 *
+	 * @return The texture key for geometry specified now
+	 */
+	private int getTextureKey() {
+		return textureEnabled ? boundTexture : NO_TEXTURE;
+	}
+
+	/**
+	 * Make sure the target has the bound texture we expect
+	 */
+	private void syncBinding() {
+		if (targetTexture != boundTexture) {
+			target.glBindTexture(bindTarget, boundTexture);
+			targetTexture = boundTexture;
+		}
+	}
+
+	/**
+	 * Make sure the target has the texture state described by a texture key
+	 *
+	 * @param key The texture key to apply
+	 */
+	private void syncTexture(int key) {
+		if (key == NO_TEXTURE) {
+			if (targetTextureEnabled != 0) {
+				target.glDisable(SGL.GL_TEXTURE_2D);
+				targetTextureEnabled = 0;
+			}
+		} else {
+			if (targetTextureEnabled != 1) {
+				target.glEnable(SGL.GL_TEXTURE_2D);
+				targetTextureEnabled = 1;
+			}
+			if (targetTexture != key) {
+				target.glBindTexture(bindTarget, key);
+				targetTexture = key;
+			}
+		}
+	}
+
+	/**
+	 * Make sure the target has all the state we expect before it's asked to draw
+	 * something directly
+	 */
+	private void syncForDraw() {
+		loadMatrixToTarget();
+		syncBinding();
+		syncTexture(getTextureKey());
+		target.glColor4f(color[0], color[1], color[2], color[3]);
+	}
+
+	/**
+	 * Forget the state we think the target has, some operation may have changed it
+	 */
+	private void invalidateTarget() {
+		targetTexture = UNKNOWN;
+		targetTextureEnabled = UNKNOWN;
+		blendSrc = UNKNOWN;
+		blendDest = UNKNOWN;
+	}
+
+	/**
+	 * Give the target the current model view matrix
+	 */
+	private void loadMatrixToTarget() {
+		matrixBuffer.clear();
+		matrixBuffer.put(matrix);
+		matrixBuffer.flip();
+		target.glLoadMatrix(matrixBuffer);
+		targetMatrixLoaded = true;
+	}
+
+	/**
+	 * Submit any pending geometry to the target renderer
+	 */
+	private void submitBatch() {
+		if (vertIndex == 0) {
+			return;
+		}
+
+		if (targetMatrixLoaded) {
+			target.glLoadIdentity();
+			targetMatrixLoaded = false;
+		}
+
+		int size = getPrimitiveSize(currentType);
+		if ((size == 0) || (!sortByTexture)) {
+			syncTexture(keys[0]);
+			submitRange(currentType, 0, vertIndex);
+		} else {
+			submitSorted(size);
+		}
+
+		vertIndex = 0;
+		primStart = 0;
+		currentType = inBegin ? primType : NONE;
+	}
+
+	/**
+	 * Submit the pending geometry grouped by texture
+	 *
+	 * @param size The number of vertices in each primitive
+	 */
+	private void submitSorted(int size) {
+		int count = vertIndex / size;
+		boolean mixed = false;
+		for (int i=1;i<count;i++) {
+			if (keys[i*size] != keys[0]) {
+				mixed = true;
+				break;
+			}
+		}
+		if (!mixed) {
+			syncTexture(keys[0]);
+			submitRange(currentType, 0, vertIndex);
+			return;
+		}
+
+		for (int i=0;i<count;i++) {
+			order[i] = i;
+		}
+		sort(0, count, size);
+
+		int start = 0;
+		while (start < count) {
+			int key = keys[order[start]*size];
+			int end = start+1;
+			while ((end < count) && (keys[order[end]*size] == key)) {
+				end++;
+			}
+
+			syncTexture(key);
+			target.glBegin(currentType);
+			float r = Float.NaN, g = 0, b = 0, a = 0;
+			for (int p=start;p<end;p++) {
+				int first = order[p]*size;
+				for (int i=first;i<first+size;i++) {
+					if ((cols[(i*4)+0] != r) || (cols[(i*4)+1] != g) || (cols[(i*4)+2] != b) || (cols[(i*4)+3] != a)) {
+						r = cols[(i*4)+0];
+						g = cols[(i*4)+1];
+						b = cols[(i*4)+2];
+						a = cols[(i*4)+3];
+						target.glColor4f(r, g, b, a);
+					}
+					target.glTexCoord2f(texs[(i*2)+0], texs[(i*2)+1]);
+					target.glVertex3f(verts[(i*3)+0], verts[(i*3)+1], verts[(i*3)+2]);
+				}
+			}
+			target.glEnd();
+
+			start = end;
+		}
+	}
+
+	/**
+	 * Stable merge sort of part of the primitive order by texture key
+	 *
+	 * @param from The first index to sort (inclusive)
+	 * @param to The last index to sort (exclusive)
+	 * @param size The number of vertices in each primitive
+	 */
+	private void sort(int from, int to, int size) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(from, mid, size);
+		sort(mid, to, size);
+		if (keys[order[mid-1]*size] <= keys[order[mid]*size]) {
+			return;
+		}
+
+		System.arraycopy(order, from, scratch, from, to - from);
+		int left = from;
+		int right = mid;
+		for (int i=from;i<to;i++) {
+			if ((right >= to) || ((left < mid) && (keys[scratch[left]*size] <= keys[scratch[right]*size]))) {
+				order[i] = scratch[left++];
+			} else {
+				order[i] = scratch[right++];
+			}
+		}
+	}
+
+	/**
+	 * Submit a range of the pending vertices to the target
+	 *
+	 * @param type The type of geometry to submit
+	 * @param start The index of the first vertex to submit
+	 * @param end The index of the vertex after the last one to submit
+	 */
+	private void submitRange(int type, int start, int end) {
+		target.glBegin(type);
+		float r = Float.NaN, g = 0, b = 0, a = 0;
+		for (int i=start;i<end;i++) {
+			if ((cols[(i*4)+0] != r) || (cols[(i*4)+1] != g) || (cols[(i*4)+2] != b) || (cols[(i*4)+3] != a)) {
+				r = cols[(i*4)+0];
+				g = cols[(i*4)+1];
+				b = cols[(i*4)+2];
+				a = cols[(i*4)+3];
+				target.glColor4f(r, g, b, a);
+			}
+			target.glTexCoord2f(texs[(i*2)+0], texs[(i*2)+1]);
+			target.glVertex3f(verts[(i*3)+0], verts[(i*3)+1], verts[(i*3)+2]);
+		}
+		target.glEnd();
+	}
+
+	/**
+	 * Make sure there's room for another vertex in the pending buffers
+	 */
+	private void ensureCapacity() {
+		if (vertIndex < keys.length) {
+			return;
+		}
+
+		int size = keys.length * 2;
+		float[] newVerts = new float[size*3];
+		float[] newCols = new float[size*4];
+		float[] newTexs = new float[size*2];
+		int[] newKeys = new int[size];
+		System.arraycopy(verts, 0, newVerts, 0, vertIndex*3);
+		System.arraycopy(cols, 0, newCols, 0, vertIndex*4);
+		System.arraycopy(texs, 0, newTexs, 0, vertIndex*2);
+		System.arraycopy(keys, 0, newKeys, 0, vertIndex);
+		verts = newVerts;
+		cols = newCols;
+		texs = newTexs;
+		keys = newKeys;
+		order = new int[size];
+		scratch = new int[size];
+	}
+
+	/**
+	 * Set a matrix to the identity
+	 *
+	 * @param m The matrix to set
+	 */
+	private void identity(float[] m) {
+		for (int i=0;i<16;i++) {
+			m[i] = 0;
+		}
+		m[0] = 1;
+		m[5] = 1;
+		m[10] = 1;
+		m[15] = 1;
+	}
+
+	/**
+	 * Check if matrix operations should be applied to our CPU side matrix
+	 *
+	 * @return True if matrix operations should be applied to our CPU side matrix
+	 */
+	private boolean applyMatrixLocally() {
+		if (listMode > 0) {
+			return listExecuting;
+		}
+		return true;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#flush()
+	 */
+	public void flush() {
+		submitBatch();
+
+		// leave GL in the state the rest of slick expects so raw GL calls
+		// work as expected, after this we can't be sure what's been changed
+		syncForDraw();
+		target.flush();
+		invalidateTarget();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#initDisplay(int, int)
+	 */
+	public void initDisplay(int width, int height) {
+		submitBatch();
+
+		this.width = width;
+		this.height = height;
+		target.initDisplay(width, height);
+
+		identity(matrix);
+		stackIndex = 0;
+		targetMatrixLoaded = false;
+		invalidateTarget();
+		textureEnabled = true;
+		blendSrc = SGL.GL_SRC_ALPHA;
+		blendDest = SGL.GL_ONE_MINUS_SRC_ALPHA;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#enterOrtho(int, int)
+	 */
+	public void enterOrtho(int xsize, int ysize) {
+		submitBatch();
+
+		target.enterOrtho(xsize, ysize);
+		target.glLoadIdentity();
+		targetMatrixLoaded = false;
+
+		identity(matrix);
+		glTranslatef((width-xsize)/2, (height-ysize)/2, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBegin(int)
+	 */
+	public void glBegin(int geomType) {
+		if (listMode > 0) {
+			target.glBegin(geomType);
+			return;
+		}
+
+		if ((currentType != geomType) || (getPrimitiveSize(geomType) == 0)) {
+			submitBatch();
+		}
+
+		currentType = geomType;
+		primType = geomType;
+		primStart = vertIndex;
+		inBegin = true;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnd()
+	 */
+	public void glEnd() {
+		if (listMode > 0) {
+			target.glEnd();
+			return;
+		}
+
+		inBegin = false;
+		int size = getPrimitiveSize(primType);
+		if (size == 0) {
+			submitBatch();
+		} else {
+			// drop any incomplete primitive so it doesn't corrupt the next one
+			vertIndex = primStart + (((vertIndex - primStart) / size) * size);
+			if (vertIndex == 0) {
+				currentType = NONE;
+			}
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColor4f(float, float, float, float)
+	 */
+	public void glColor4f(float r, float g, float b, float a) {
+		color[0] = r;
+		color[1] = g;
+		color[2] = b;
+		color[3] = a;
+
+		if (listMode > 0) {
+			target.glColor4f(r, g, b, a);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexCoord2f(float, float)
+	 */
+	public void glTexCoord2f(float u, float v) {
+		if (listMode > 0) {
+			target.glTexCoord2f(u, v);
+			return;
+		}
+
+		tex[0] = u;
+		tex[1] = v;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex2f(float, float)
+	 */
+	public void glVertex2f(float x, float y) {
+		if (listMode > 0) {
+			target.glVertex2f(x, y);
+			return;
+		}
+
+		glVertex3f(x, y, 0);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glVertex3f(float, float, float)
+	 */
+	public void glVertex3f(float x, float y, float z) {
+		if (listMode > 0) {
+			target.glVertex3f(x, y, z);
+			return;
+		}
+		if (!inBegin) {
+			return;
+		}
+
+		ensureCapacity();
+
+		float[] m = matrix;
+		verts[(vertIndex*3)+0] = (m[0]*x) + (m[4]*y) + (m[8]*z) + m[12];
+		verts[(vertIndex*3)+1] = (m[1]*x) + (m[5]*y) + (m[9]*z) + m[13];
+		verts[(vertIndex*3)+2] = (m[2]*x) + (m[6]*y) + (m[10]*z) + m[14];
+		cols[(vertIndex*4)+0] = color[0];
+		cols[(vertIndex*4)+1] = color[1];
+		cols[(vertIndex*4)+2] = color[2];
+		cols[(vertIndex*4)+3] = color[3];
+		texs[(vertIndex*2)+0] = tex[0];
+		texs[(vertIndex*2)+1] = tex[1];
+		keys[vertIndex] = getTextureKey();
+		vertIndex++;
+
+		if (vertIndex >= MAX_VERTS) {
+			int size = getPrimitiveSize(primType);
+			if ((size != 0) && ((vertIndex - primStart) % size == 0)) {
+				submitBatch();
+			}
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBindTexture(int, int)
+	 */
+	public void glBindTexture(int target, int id) {
+		if (listMode > 0) {
+			this.target.glBindTexture(target, id);
+			if (listExecuting) {
+				bindTarget = target;
+				boundTexture = id;
+			}
+			return;
+		}
+		if ((id == boundTexture) && (target == bindTarget)) {
+			return;
+		}
+
+		if ((!sortByTexture) && (textureEnabled)) {
+			submitBatch();
+		}
+		bindTarget = target;
+		boundTexture = id;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnable(int)
+	 */
+	public void glEnable(int item) {
+		if ((item == SGL.GL_TEXTURE_2D) && (listMode == 0)) {
+			if (!textureEnabled) {
+				if (!sortByTexture) {
+					submitBatch();
+				}
+				textureEnabled = true;
+			}
+			return;
+		}
+
+		submitBatch();
+		target.glEnable(item);
+		if ((item == SGL.GL_TEXTURE_2D) && (listExecuting)) {
+			textureEnabled = true;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDisable(int)
+	 */
+	public void glDisable(int item) {
+		if ((item == SGL.GL_TEXTURE_2D) && (listMode == 0)) {
+			if (textureEnabled) {
+				if (!sortByTexture) {
+					submitBatch();
+				}
+				textureEnabled = false;
+			}
+			return;
+		}
+
+		submitBatch();
+		target.glDisable(item);
+		if ((item == SGL.GL_TEXTURE_2D) && (listExecuting)) {
+			textureEnabled = false;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBlendFunc(int, int)
+	 */
+	public void glBlendFunc(int src, int dest) {
+		if ((vertIndex > 0) && (src == blendSrc) && (dest == blendDest)) {
+			return;
+		}
+
+		submitBatch();
+		target.glBlendFunc(src, dest);
+		blendSrc = src;
+		blendDest = dest;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClipPlane(int, java.nio.DoubleBuffer)
+	 */
+	public void glClipPlane(int plane, DoubleBuffer buffer) {
+		submitBatch();
+
+		// clip planes are transformed by the model view at the point they're specified
+		loadMatrixToTarget();
+		target.glClipPlane(plane, buffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScissor(int, int, int, int)
+	 */
+	public void glScissor(int x, int y, int width, int height) {
+		submitBatch();
+		target.glScissor(x, y, width, height);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLineWidth(float)
+	 */
+	public void glLineWidth(float width) {
+		submitBatch();
+		target.glLineWidth(width);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPointSize(float)
+	 */
+	public void glPointSize(float size) {
+		submitBatch();
+		target.glPointSize(size);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glClear(int)
+	 */
+	public void glClear(int value) {
+		submitBatch();
+		target.glClear(value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColorMask(boolean, boolean, boolean, boolean)
+	 */
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		submitBatch();
+		target.glColorMask(red, green, blue, alpha);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexEnvi(int, int, int)
+	 */
+	public void glTexEnvi(int target, int mode, int value) {
+		submitBatch();
+		this.target.glTexEnvi(target, mode, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthMask(boolean)
+	 */
+	public void glDepthMask(boolean mask) {
+		submitBatch();
+		target.glDepthMask(mask);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDepthFunc(int)
+	 */
+	public void glDepthFunc(int func) {
+		submitBatch();
+		target.glDepthFunc(func);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+		submitBatch();
+		target.glAlphaFunc(func, ref);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glSecondaryColor3ubEXT(byte, byte, byte)
+	 */
+	public void glSecondaryColor3ubEXT(byte b, byte c, byte d) {
+		submitBatch();
+		target.glSecondaryColor3ubEXT(b, c, d);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glReadPixels(int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+		submitBatch();
+		target.glReadPixels(x, y, width, height, format, type, pixels);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCopyTexImage2D(int, int, int, int, int, int, int, int)
+	 */
+	public void glCopyTexImage2D(int target, int level, int internalFormat, int x, int y, int width, int height, int border) {
+		submitBatch();
+		syncBinding();
+		this.target.glCopyTexImage2D(target, level, internalFormat, x, y, width, height, border);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetTexImage(int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glGetTexImage(int target, int level, int format, int type, ByteBuffer pixels) {
+		submitBatch();
+		syncBinding();
+		this.target.glGetTexImage(target, level, format, type, pixels);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexParameteri(int, int, int)
+	 */
+	public void glTexParameteri(int target, int param, int value) {
+		submitBatch();
+		syncBinding();
+		this.target.glTexParameteri(target, param, value);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexImage2D(int target, int i, int dstPixelFormat, int width, int height, int j,
+							 int srcPixelFormat, int glUnsignedByte, ByteBuffer textureBuffer) {
+		submitBatch();
+		syncBinding();
+		this.target.glTexImage2D(target, i, dstPixelFormat, width, height, j, srcPixelFormat, glUnsignedByte, textureBuffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTexSubImage2D(int, int, int, int, int, int, int, int, java.nio.ByteBuffer)
+	 */
+	public void glTexSubImage2D(int glTexture2d, int i, int pageX, int pageY, int width, int height,
+								int glBgra, int glUnsignedByte, ByteBuffer scratchByteBuffer) {
+		submitBatch();
+		syncBinding();
+		target.glTexSubImage2D(glTexture2d, i, pageX, pageY, width, height, glBgra, glUnsignedByte, scratchByteBuffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteTextures(java.nio.IntBuffer)
+	 */
+	public void glDeleteTextures(IntBuffer buffer) {
+		submitBatch();
+		target.glDeleteTextures(buffer);
+
+		// deleting the bound texture reverts the binding to the default
+		targetTexture = UNKNOWN;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glNewList(int, int)
+	 */
+	public void glNewList(int id, int option) {
+		submitBatch();
+		syncForDraw();
+
+		listMode++;
+		listExecuting = option == SGL.GL_COMPILE_AND_EXECUTE;
+		target.glNewList(id, option);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEndList()
+	 */
+	public void glEndList() {
+		target.glEndList();
+		listMode--;
+
+		invalidateTarget();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCallList(int)
+	 */
+	public void glCallList(int id) {
+		submitBatch();
+		syncForDraw();
+		target.glCallList(id);
+
+		invalidateTarget();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#setGlobalAlphaScale(float)
+	 */
+	public void setGlobalAlphaScale(float alphaScale) {
+		submitBatch();
+		this.alphaScale = alphaScale;
+		target.setGlobalAlphaScale(alphaScale);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#getCurrentColor()
+	 */
+	public float[] getCurrentColor() {
+		current[0] = color[0];
+		current[1] = color[1];
+		current[2] = color[2];
+		current[3] = color[3] * alphaScale;
+
+		return current;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glGetFloat(int, java.nio.FloatBuffer)
+	 */
+	public void glGetFloat(int id, FloatBuffer ret) {
+		if (id == SGL.GL_MODELVIEW_MATRIX) {
+			int pos = ret.position();
+			for (int i=0;i<16;i++) {
+				ret.put(pos+i, matrix[i]);
+			}
+			return;
+		}
+
+		target.glGetFloat(id, ret);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadMatrix(java.nio.FloatBuffer)
+	 */
+	public void glLoadMatrix(FloatBuffer buffer) {
+		if (applyMatrixLocally()) {
+			int pos = buffer.position();
+			for (int i=0;i<16;i++) {
+				matrix[i] = buffer.get(pos+i);
+			}
+		}
+		if (listMode > 0) {
+			target.glLoadMatrix(buffer);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLoadIdentity()
+	 */
+	public void glLoadIdentity() {
+		if (applyMatrixLocally()) {
+			identity(matrix);
+		}
+		if (listMode > 0) {
+			target.glLoadIdentity();
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPushMatrix()
+	 */
+	public void glPushMatrix() {
+		if (applyMatrixLocally()) {
+			if (stackIndex >= stack.length) {
+				float[][] newStack = new float[stack.length*2][];
+				System.arraycopy(stack, 0, newStack, 0, stack.length);
+				for (int i=stack.length;i<newStack.length;i++) {
+					newStack[i] = new float[16];
+				}
+				stack = newStack;
+			}
+			System.arraycopy(matrix, 0, stack[stackIndex], 0, 16);
+			stackIndex++;
+		}
+		if (listMode > 0) {
+			target.glPushMatrix();
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glPopMatrix()
+	 */
+	public void glPopMatrix() {
+		if (applyMatrixLocally()) {
+			if (stackIndex == 0) {
+				throw new RuntimeException("Attempt to pop the matrix stack while it's empty");
+			}
+			stackIndex--;
+			System.arraycopy(stack[stackIndex], 0, matrix, 0, 16);
+		}
+		if (listMode > 0) {
+			target.glPopMatrix();
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glTranslatef(float, float, float)
+	 */
+	public void glTranslatef(float x, float y, float z) {
+		if (applyMatrixLocally()) {
+			float[] m = matrix;
+			m[12] += (m[0]*x) + (m[4]*y) + (m[8]*z);
+			m[13] += (m[1]*x) + (m[5]*y) + (m[9]*z);
+			m[14] += (m[2]*x) + (m[6]*y) + (m[10]*z);
+			m[15] += (m[3]*x) + (m[7]*y) + (m[11]*z);
+		}
+		if (listMode > 0) {
+			target.glTranslatef(x, y, z);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScalef(float, float, float)
+	 */
+	public void glScalef(float x, float y, float z) {
+		if (applyMatrixLocally()) {
+			float[] m = matrix;
+			for (int i=0;i<4;i++) {
+				m[i] *= x;
+				m[4+i] *= y;
+				m[8+i] *= z;
+			}
+		}
+		if (listMode > 0) {
+			target.glScalef(x, y, z);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glRotatef(float, float, float, float)
+	 */
+	public void glRotatef(float angle, float x, float y, float z) {
+		if (applyMatrixLocally()) {
+			rotate(angle, x, y, z);
+		}
+		if (listMode > 0) {
+			target.glRotatef(angle, x, y, z);
+		}
+	}
+
+	/**
+	 * Apply a rotation to the current matrix
+	 *
+	 * @param angle The angle to rotate by in degrees
+	 * @param x The x component of the axis of rotation
+	 * @param y The y component of the axis of rotation
+	 * @param z The z component of the axis of rotation
+	 */
+	private void rotate(float angle, float x, float y, float z) {
+		if ((angle == 0) || ((x == 0) && (y == 0) && (z == 0))) {
+			return;
+		}
+
+		double rad = Math.toRadians(angle);
+		float c = (float) Math.cos(rad);
+		float s = (float) Math.sin(rad);
+		float[] m = matrix;
+
+		if ((x == 0) && (y == 0)) {
+			// the common case in 2D, rotating around the z axis
+			if (z < 0) {
+				s = -s;
+			}
+			for (int i=0;i<4;i++) {
+				float a = m[i];
+				float b = m[4+i];
+				m[i] = (a*c) + (b*s);
+				m[4+i] = (b*c) - (a*s);
+			}
+			return;
+		}
+
+		float len = (float) Math.sqrt((x*x) + (y*y) + (z*z));
+		x /= len;
+		y /= len;
+		z /= len;
+		float t = 1 - c;
+
+		float r0 = (x*x*t) + c;
+		float r1 = (y*x*t) + (z*s);
+		float r2 = (x*z*t) - (y*s);
+		float r4 = (x*y*t) - (z*s);
+		float r5 = (y*y*t) + c;
+		float r6 = (y*z*t) + (x*s);
+		float r8 = (x*z*t) + (y*s);
+		float r9 = (y*z*t) - (x*s);
+		float r10 = (z*z*t) + c;
+
+		for (int i=0;i<4;i++) {
+			temp[i] = (m[i]*r0) + (m[4+i]*r1) + (m[8+i]*r2);
+			temp[4+i] = (m[i]*r4) + (m[4+i]*r5) + (m[8+i]*r6);
+			temp[8+i] = (m[i]*r8) + (m[4+i]*r9) + (m[8+i]*r10);
+		}
+		System.arraycopy(temp, 0, m, 0, 12);
+	}
+}
@@ -0,0 +1,375 @@
+package org.newdawn.slick.opengl.renderer;
+
+import java.nio.IntBuffer;
+
+/**
+ * A renderer that keeps a shadow copy of the OpenGL state slick changes most often - the
+ * bound texture, current colour, blend function, enabled capabilities, scissor box and line
+ * width - and drops calls that wouldn't change anything before they reach the renderer
+ * it wraps. Counts of the calls dropped are kept so the saving can be measured.
+ *
+ * The shadow state is forgotten whenever it can't be trusted, i.e. when the display is
+ * initialised, a display list is called or the renderer is flushed (which happens at the end
+ * of each frame and when switching between graphics contexts). Code that changes this state
+ * by talking to OpenGL directly should call invalidate().
+ *
+ * @author kevin
+ */
+public class StateCachingSGL extends DelegatingSGL {
+	/** Counter - texture binds dropped */
+	public static final int BINDS = 0;
+	/** Counter - colour changes dropped */
+	public static final int COLORS = 1;
+	/** Counter - blend function changes dropped */
+	public static final int BLENDS = 2;
+	/** Counter - enables and disables dropped */
+	public static final int CAPABILITIES = 3;
+	/** Counter - scissor changes dropped */
+	public static final int SCISSORS = 4;
+	/** Counter - line width changes dropped */
+	public static final int LINE_WIDTHS = 5;
+	/** The number of counters kept */
+	private static final int COUNTER_COUNT = 6;
+
+	/** Indicates a piece of state isn't known */
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/** The number of calls dropped of each type */
+	private int[] suppressed = new int[COUNTER_COUNT];
+	/** The number of calls seen of each type */
+	private int[] calls = new int[COUNTER_COUNT];
+
+	/** The texture bound to GL_TEXTURE_2D */
+	private int boundTexture = UNKNOWN;
+	/** True if the current colour is known */
+	private boolean colorKnown;
+	/** The current colour */
+	private float[] color = new float[4];
+	/** The source blend function */
+	private int blendSrc = UNKNOWN;
+	/** The destination blend function */
+	private int blendDest = UNKNOWN;
+	/** The current scissor box */
+	private int[] scissor = new int[] {UNKNOWN, 0, 0, 0};
+	/** The current line width */
+	private float lineWidth = Float.NaN;
+	/** The capabilities whose state is known */
+	private int[] caps = new int[16];
+	/** The state of the capabilities known */
+	private boolean[] capStates = new boolean[16];
+	/** The number of capabilities whose state is known */
+	private int capCount;
+	/** True if we're compiling a display list without executing it */
+	private boolean compiling;
+
+	/**
+	 * Create a new state cache in front of the immediate mode renderer
+	 */
+	public StateCachingSGL() {
+		this(new ImmediateModeOGLRenderer());
+	}
+
+	/**
+	 * Create a new state cache in front of a given renderer
+	 *
+	 * @param target The renderer to pass operations on to
+	 */
+	public StateCachingSGL(SGL target) {
+		super(target);
+	}
+
+	/**
+	 * Forget the state tracked, it may have been changed behind our back
+	 */
+	public void invalidate() {
+		boundTexture = UNKNOWN;
+		colorKnown = false;
+		blendSrc = UNKNOWN;
+		blendDest = UNKNOWN;
+		scissor[0] = UNKNOWN;
+		lineWidth = Float.NaN;
+		capCount = 0;
+	}
+
+	/**
+	 * Get the number of calls of a given type that have been dropped
+	 *
+	 * @param type The type of call, e.g. BINDS
+	 * @return The number of calls of the given type dropped
+	 */
+	public int getSuppressedCount(int type) {
+		return suppressed[type];
+	}
+
+	/**
+	 * Get the number of calls of a given type that have been made
+	 *
+	 * @param type The type of call, e.g. BINDS
+	 * @return The number of calls of the given type made, whether dropped or not
+	 */
+	public int getCallCount(int type) {
+		return calls[type];
+	}
+
+	/**
+	 * Get the total number of calls dropped
+	 *
+	 * @return The total number of calls dropped
+	 */
+	public int getSuppressedTotal() {
+		int total = 0;
+		for (int i=0;i<COUNTER_COUNT;i++) {
+			total += suppressed[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Reset the counters of calls made and dropped
+	 */
+	public void resetCounters() {
+		for (int i=0;i<COUNTER_COUNT;i++) {
+			suppressed[i] = 0;
+			calls[i] = 0;
+		}
+	}
+
+	/**
+	 * Check whether a call can be dropped, updating the counters
+	 *
+	 * @param type The type of call being made
+	 * @param same True if the call would leave the state as it is
+	 * @return True if the call should be dropped
+	 */
+	private boolean suppress(int type, boolean same) {
+		if (compiling) {
+			// the call has to end up in the list
+			return false;
+		}
+
+		calls[type]++;
+		if (same) {
+			suppressed[type]++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Find the index of a capability whose state is known
+	 *
+	 * @param item The capability to look for
+	 * @return The index of the capability or -1 if its state isn't known
+	 */
+	private int findCapability(int item) {
+		for (int i=0;i<capCount;i++) {
+			if (caps[i] == item) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Change the state of a capability if its not already in that state
+	 *
+	 * @param item The capability to change
+	 * @param enabled True if the capability should be enabled
+	 */
+	private void capability(int item, boolean enabled) {
+		int index = findCapability(item);
+		if (suppress(CAPABILITIES, (index >= 0) && (capStates[index] == enabled))) {
+			return;
+		}
+
+		if (enabled) {
+			target.glEnable(item);
+		} else {
+			target.glDisable(item);
+		}
+		if (compiling) {
+			return;
+		}
+
+		if (index < 0) {
+			if (capCount == caps.length) {
+				int[] newCaps = new int[capCount*2];
+				boolean[] newStates = new boolean[capCount*2];
+				System.arraycopy(caps, 0, newCaps, 0, capCount);
+				System.arraycopy(capStates, 0, newStates, 0, capCount);
+				caps = newCaps;
+				capStates = newStates;
+			}
+			index = capCount++;
+			caps[index] = item;
+		}
+		capStates[index] = enabled;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#flush()
+	 */
+	public void flush() {
+		target.flush();
+		invalidate();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#initDisplay(int, int)
+	 */
+	public void initDisplay(int width, int height) {
+		target.initDisplay(width, height);
+		invalidate();
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEnable(int)
+	 */
+	public void glEnable(int item) {
+		capability(item, true);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDisable(int)
+	 */
+	public void glDisable(int item) {
+		capability(item, false);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBindTexture(int, int)
+	 */
+	public void glBindTexture(int target, int id) {
+		if (target != SGL.GL_TEXTURE_2D) {
+			this.target.glBindTexture(target, id);
+			return;
+		}
+		if (suppress(BINDS, boundTexture == id)) {
+			return;
+		}
+
+		this.target.glBindTexture(target, id);
+		if (!compiling) {
+			boundTexture = id;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glDeleteTextures(java.nio.IntBuffer)
+	 */
+	public void glDeleteTextures(IntBuffer buffer) {
+		for (int i=buffer.position();i<buffer.limit();i++) {
+			if (buffer.get(i) == boundTexture) {
+				// deleting the bound texture reverts the binding to zero
+				boundTexture = 0;
+			}
+		}
+		target.glDeleteTextures(buffer);
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glColor4f(float, float, float, float)
+	 */
+	public void glColor4f(float r, float g, float b, float a) {
+		if (suppress(COLORS, colorKnown && (color[0] == r) && (color[1] == g) && (color[2] == b) && (color[3] == a))) {
+			return;
+		}
+
+		target.glColor4f(r, g, b, a);
+		if (!compiling) {
+			color[0] = r;
+			color[1] = g;
+			color[2] = b;
+			color[3] = a;
+			colorKnown = true;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#setGlobalAlphaScale(float)
+	 */
+	public void setGlobalAlphaScale(float alphaScale) {
+		target.setGlobalAlphaScale(alphaScale);
+
+		// the scale is applied as colours are set so the next colour must get through
+		colorKnown = false;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glBlendFunc(int, int)
+	 */
+	public void glBlendFunc(int src, int dest) {
+		if (suppress(BLENDS, (blendSrc == src) && (blendDest == dest))) {
+			return;
+		}
+
+		target.glBlendFunc(src, dest);
+		if (!compiling) {
+			blendSrc = src;
+			blendDest = dest;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glScissor(int, int, int, int)
+	 */
+	public void glScissor(int x, int y, int width, int height) {
+		if (suppress(SCISSORS, (scissor[0] == x) && (scissor[1] == y) && (scissor[2] == width) && (scissor[3] == height))) {
+			return;
+		}
+
+		target.glScissor(x, y, width, height);
+		if (!compiling) {
+			scissor[0] = x;
+			scissor[1] = y;
+			scissor[2] = width;
+			scissor[3] = height;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glLineWidth(float)
+	 */
+	public void glLineWidth(float width) {
+		if (suppress(LINE_WIDTHS, lineWidth == width)) {
+			return;
+		}
+
+		target.glLineWidth(width);
+		if (!compiling) {
+			lineWidth = width;
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glNewList(int, int)
+	 */
+	public void glNewList(int id, int option) {
+		target.glNewList(id, option);
+		compiling = option == SGL.GL_COMPILE;
+		if (!compiling) {
+			// state set before the list started won't be recorded into it, so
+			// everything set while compiling must get through
+			invalidate();
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glEndList()
+	 */
+	public void glEndList() {
+		target.glEndList();
+		compiling = false;
+	}
+
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.SGL#glCallList(int)
+	 */
+	public void glCallList(int id) {
+		target.glCallList(id);
+		if (!compiling) {
+			// the list may have changed anything
+			invalidate();
+		}
+	}
+}
@@ -296,6 +296,14 @@ public class VAOGLRenderer extends ImmediateModeOGLRenderer {
 		super.glColorMask(red, green, blue, alpha);
 	}
 
+	/**
+	 * @see org.newdawn.slick.opengl.renderer.ImmediateModeOGLRenderer#glAlphaFunc(int, float)
+	 */
+	public void glAlphaFunc(int func, float ref) {
+		applyBuffer();
+		super.glAlphaFunc(func, ref);
+	}
+
 	/**
 	 * @see org.newdawn.slick.opengl.renderer.ImmediateModeOGLRenderer#glDisable(int)
 	 */
@@ -0,0 +1,26 @@
+package org.newdawn.slick.particles;
+
+/**
+ * An emitter that can update all the particles it produced in one go when the
+ * particle system is storing them in a ParticleBuffer. Emitters that don't implement
+ * this still work with buffers but have each particle copied in and out of a particle
+ * object to be updated.
+ *
+ * @author kevin
+ */
+public interface BufferedParticleEmitter extends ParticleEmitter {
+	/**
+	 * Update a range of the particles this emitter produced. This should have the same
+	 * effect as calling updateParticle() on each particle in the range in turn.
+	 *
+	 * When the particle system updates on multiple threads, different ranges of the same
+	 * buffer may be updated at the same time so only the particles in the range should
+	 * be touched.
+	 *
+	 * @param buffer The buffer holding the particles to be updated
+	 * @param start The index of the first particle to update
+	 * @param end The index after the last particle to update
+	 * @param delta The amount of time in millisecond since last particle update
+	 */
+	public void updateParticles(ParticleBuffer buffer, int start, int end, int delta);
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Image;
@@ -20,9 +21,11 @@ import org.newdawn.slick.util.Log;
  * 
  * @author kevin
  */
-public class ConfigurableEmitter implements ParticleEmitter {
+public class ConfigurableEmitter implements BufferedParticleEmitter {
 	/** The path from which the images should be loaded */
 	private static String relativePath = "";
+	/** The source of seeds for emitters that haven't been given one */
+	private static Random seeds = new Random();
 
 	/**
 	 * Set the path from which images should be loaded
@@ -135,6 +138,10 @@ public class ConfigurableEmitter implements ParticleEmitter {
 	protected float adjustx;
 	/** The amount to adjust on the y axis */
 	protected float adjusty;
+	/** The seed used for the random number generator */
+	private long seed;
+	/** The random number generator used for all the random values of this emitter */
+	private Random random;
 	
 	/**
 	 * Create a new emitter configurable externally
@@ -144,6 +151,10 @@ public class ConfigurableEmitter implements ParticleEmitter {
 	 */
 	public ConfigurableEmitter(String name) {
 		this.name = name;
+		synchronized (seeds) {
+			seed = seeds.nextLong();
+		}
+		random = new Random(seed);
 		leftToEmit = (int) emitCount.random();
 		timeout = (int) (length.random());
 
@@ -171,6 +182,30 @@ public class ConfigurableEmitter implements ParticleEmitter {
 		scaleY = new LinearInterpolator(curve, 0, 1);
 	}
 
+	/**
+	 * Set the seed for the random values used by this emitter. Emitters with the same
+	 * configuration and seed produce the same particles, whatever threads are used to 
+	 * update them. The number of particles to emit and the length of the emission are
+	 * drawn again from the new seed.
+	 * 
+	 * @param seed The seed for the random values used by this emitter
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+		random.setSeed(seed);
+		leftToEmit = (int) emitCount.random();
+		timeout = (int) (length.random());
+	}
+	
+	/**
+	 * Get the seed given for the random values used by this emitter
+	 * 
+	 * @return The seed for the random values used by this emitter
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
 	/**
 	 * Set the name of the image to use on a per particle basis. The complete
 	 * reference to the image is required (based on the relative path)
@@ -384,40 +419,17 @@ public class ConfigurableEmitter implements ParticleEmitter {
 		
 		float offset = particle.getLife() / particle.getOriginalLife();
 		float inv = 1 - offset;
-		float colOffset = 0;
-		float colInv = 1;
-
-		Color startColor = null;
-		Color endColor = null;
-		for (int i = 0; i < colors.size() - 1; i++) {
-			ColorRecord rec1 = (ColorRecord) colors.get(i);
-			ColorRecord rec2 = (ColorRecord) colors.get(i + 1);
-
-			if ((inv >= rec1.pos) && (inv <= rec2.pos)) {
-				startColor = rec1.col;
-				endColor = rec2.col;
-
-				float step = rec2.pos - rec1.pos;
-				colOffset = inv - rec1.pos;
-				colOffset /= step;
-				colOffset = 1 - colOffset;
-				colInv = 1 - colOffset;
-			}
-		}
-
-		if (startColor != null) {
-			float r = (startColor.r * colOffset) + (endColor.r * colInv);
-			float g = (startColor.g * colOffset) + (endColor.g * colInv);
-			float b = (startColor.b * colOffset) + (endColor.b * colInv);
-
-			float a;
-			if (alpha.isActive()) {
-				a = alpha.getValue(inv) / 255.0f;
-			} else {
-				a = ((startAlpha.getValue(0) / 255.0f) * offset)
-						+ ((endAlpha.getValue(0) / 255.0f) * inv);
-			}
-			particle.setColor(r, g, b, a);
+		int segment = findColorSegment(inv);
+		if (segment >= 0) {
+			ColorRecord rec1 = (ColorRecord) colors.get(segment);
+			ColorRecord rec2 = (ColorRecord) colors.get(segment + 1);
+			float colOffset = 1 - ((inv - rec1.pos) / (rec2.pos - rec1.pos));
+			float colInv = 1 - colOffset;
+			
+			particle.setColor((rec1.col.r * colOffset) + (rec2.col.r * colInv),
+							  (rec1.col.g * colOffset) + (rec2.col.g * colInv),
+							  (rec1.col.b * colOffset) + (rec2.col.b * colInv),
+							  interpolateAlpha(offset, inv));
 		}
 
 		if (size.isActive()) {
@@ -436,6 +448,118 @@ public class ConfigurableEmitter implements ParticleEmitter {
 		}
 	}
 
+	/**
+	 * @see org.newdawn.slick.particles.BufferedParticleEmitter#updateParticles(org.newdawn.slick.particles.ParticleBuffer, int, int, int)
+	 */
+	public void updateParticles(ParticleBuffer buffer, int start, int end, int delta) {
+		countParticles(end - start);
+
+		float windAdjust = windFactor.getValue(0) * 0.00005f * delta;
+		float gravityAdjust = gravityFactor.getValue(0) * 0.00005f * delta;
+		float growth = delta * growthFactor.getValue(0) * 0.001f;
+		boolean sizeActive = size.isActive();
+		boolean velocityActive = velocity.isActive();
+		boolean scaleActive = scaleY.isActive();
+
+		float[] x = buffer.x;
+		float[] y = buffer.y;
+		float[] velx = buffer.velx;
+		float[] vely = buffer.vely;
+		float[] life = buffer.life;
+		float[] originalLife = buffer.originalLife;
+		float[] sizes = buffer.size;
+		float[] r = buffer.r;
+		float[] g = buffer.g;
+		float[] b = buffer.b;
+		float[] a = buffer.a;
+		float[] scales = buffer.scaleY;
+		
+		for (int i=start;i<end;i++) {
+			x[i] += adjustx;
+			y[i] += adjusty;
+			velx[i] += windAdjust;
+			vely[i] += gravityAdjust;
+			
+			float offset = life[i] / originalLife[i];
+			float inv = 1 - offset;
+			int segment = findColorSegment(inv);
+			if (segment >= 0) {
+				ColorRecord rec1 = (ColorRecord) colors.get(segment);
+				ColorRecord rec2 = (ColorRecord) colors.get(segment + 1);
+				float colOffset = 1 - ((inv - rec1.pos) / (rec2.pos - rec1.pos));
+				float colInv = 1 - colOffset;
+				
+				r[i] = (rec1.col.r * colOffset) + (rec2.col.r * colInv);
+				g[i] = (rec1.col.g * colOffset) + (rec2.col.g * colInv);
+				b[i] = (rec1.col.b * colOffset) + (rec2.col.b * colInv);
+				a[i] = interpolateAlpha(offset, inv);
+			}
+			
+			if (sizeActive) {
+				sizes[i] = size.getValue(inv);
+			} else {
+				sizes[i] = Math.max(0, sizes[i] + growth);
+			}
+			
+			if (velocityActive) {
+				float speed = velocity.getValue(inv);
+				float currentSpeed = (float) Math.sqrt((velx[i]*velx[i]) + (vely[i]*vely[i]));
+				velx[i] = (velx[i] * speed) / currentSpeed;
+				vely[i] = (vely[i] * speed) / currentSpeed;
+			}
+			
+			if (scaleActive) {
+				scales[i] = scaleY.getValue(inv);
+			}
+		}
+	}
+	
+	/**
+	 * Add to the count of particles updated this frame. Ranges of particles
+	 * may be updated on different threads.
+	 * 
+	 * @param count The number of particles updated
+	 */
+	private synchronized void countParticles(int count) {
+		particleCount += count;
+	}
+	
+	/**
+	 * Find the section of the colour range covering a given point in a particle's life
+	 * 
+	 * @param inv The proportion of the particle's life used up
+	 * @return The index of the colour record starting the section, or -1 if the
+	 * colour range doesn't cover this point
+	 */
+	private int findColorSegment(float inv) {
+		int segment = -1;
+		for (int i = 0; i < colors.size() - 1; i++) {
+			ColorRecord rec1 = (ColorRecord) colors.get(i);
+			ColorRecord rec2 = (ColorRecord) colors.get(i + 1);
+
+			if ((inv >= rec1.pos) && (inv <= rec2.pos)) {
+				segment = i;
+			}
+		}
+		return segment;
+	}
+	
+	/**
+	 * Work out the alpha of a particle at a given point in its life
+	 * 
+	 * @param offset The proportion of the particle's life remaining
+	 * @param inv The proportion of the particle's life used up
+	 * @return The alpha value of the particle
+	 */
+	private float interpolateAlpha(float offset, float inv) {
+		if (alpha.isActive()) {
+			return alpha.getValue(inv) / 255.0f;
+		} 
+		
+		return ((startAlpha.getValue(0) / 255.0f) * offset)
+				+ ((endAlpha.getValue(0) / 255.0f) * inv);
+	}
+
 	/**
 	 * Check if this emitter has completed it's cycle
 	 * 
@@ -467,11 +591,12 @@ public class ConfigurableEmitter implements ParticleEmitter {
 	}
 
 	/**
-	 * Cause the emitter to replay it's circle
+	 * Cause the emitter to replay it's circle, starting again from its seed
 	 */
 	public void replay() {
 		reset();
 		nextSpawn = 0;
+		random.setSeed(seed);
 		leftToEmit = (int) emitCount.random();
 		timeout = (int) (length.random());
 	}
@@ -599,7 +724,7 @@ public class ConfigurableEmitter implements ParticleEmitter {
 		 * @return The currently configured value
 		 */
 		public float getValue(float time) {
-			return (float) (Math.random() * value);
+			return (float) (random.nextDouble() * value);
 		}
 
 		/**
@@ -822,7 +947,7 @@ public class ConfigurableEmitter implements ParticleEmitter {
 		 * @return The random number from the range
 		 */
 		public float random() {
-			return (float) (min + (Math.random() * (max - min)));
+			return (float) (min + (random.nextDouble() * (max - min)));
 		}
 
 		/**
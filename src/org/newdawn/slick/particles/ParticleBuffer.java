@@ -0,0 +1,285 @@
+package org.newdawn.slick.particles;
+
+import org.newdawn.slick.Image;
+
+/**
+ * The particles produced by a single emitter stored as a set of parallel arrays rather than
+ * as particle objects. The particles in use are always packed at the start of the arrays, a
+ * particle that expires has the last particle in use moved into its place. This means
+ * particles don't keep the same index across updates.
+ *
+ * The arrays are exposed so emitters implementing BufferedParticleEmitter can update them
+ * directly, only the first getCount() entries of each are valid.
+ *
+ * @author kevin
+ */
+public class ParticleBuffer {
+	/** The emitter producing the particles */
+	private ParticleEmitter emitter;
+	/** The number of particles in use */
+	private int count;
+
+	/** The x coordinates of the particles */
+	public float[] x;
+	/** The y coordinates of the particles */
+	public float[] y;
+	/** The x components of the velocity of the particles */
+	public float[] velx;
+	/** The y components of the velocity of the particles */
+	public float[] vely;
+	/** The sizes in pixels of the particles */
+	public float[] size;
+	/** The life left in the particles */
+	public float[] life;
+	/** The original life of the particles */
+	public float[] originalLife;
+	/** The scalar applied on the y axis of the particles */
+	public float[] scaleY;
+	/** The red component of the particles' colour */
+	public float[] r;
+	/** The green component of the particles' colour */
+	public float[] g;
+	/** The blue component of the particles' colour */
+	public float[] b;
+	/** The alpha component of the particles' colour */
+	public float[] a;
+	/** The types of the particles */
+	public int[] type;
+	/** How the particles should be rendered */
+	public int[] usePoints;
+	/** True if the particles should be oriented based on their direction */
+	public boolean[] oriented;
+	/** The images used to render the particles */
+	public Image[] image;
+
+	/**
+	 * Create a new buffer
+	 *
+	 * @param emitter The emitter producing the particles
+	 * @param capacity The maximum number of particles in the buffer
+	 */
+	public ParticleBuffer(ParticleEmitter emitter, int capacity) {
+		this.emitter = emitter;
+
+		x = new float[capacity];
+		y = new float[capacity];
+		velx = new float[capacity];
+		vely = new float[capacity];
+		size = new float[capacity];
+		life = new float[capacity];
+		originalLife = new float[capacity];
+		scaleY = new float[capacity];
+		r = new float[capacity];
+		g = new float[capacity];
+		b = new float[capacity];
+		a = new float[capacity];
+		type = new int[capacity];
+		usePoints = new int[capacity];
+		oriented = new boolean[capacity];
+		image = new Image[capacity];
+	}
+
+	/**
+	 * Get the emitter producing the particles
+	 *
+	 * @return The emitter producing the particles
+	 */
+	public ParticleEmitter getEmitter() {
+		return emitter;
+	}
+
+	/**
+	 * Get the number of particles in use
+	 *
+	 * @return The number of particles in use
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the maximum number of particles the buffer can hold
+	 *
+	 * @return The maximum number of particles the buffer can hold
+	 */
+	public int getCapacity() {
+		return x.length;
+	}
+
+	/**
+	 * Remove all the particles from the buffer
+	 */
+	public void clear() {
+		for (int i=0;i<count;i++) {
+			image[i] = null;
+		}
+		count = 0;
+	}
+
+	/**
+	 * Add a particle to the buffer. The particle is given the same defaults
+	 * as Particle.init()
+	 *
+	 * @param particleLife The life of the new particle (in milliseconds)
+	 * @return The index of the new particle or -1 if the buffer is full
+	 */
+	public int add(float particleLife) {
+		if (count == x.length) {
+			return -1;
+		}
+
+		int i = count++;
+		x[i] = 0;
+		y[i] = 0;
+		velx[i] = 0;
+		vely[i] = 0;
+		size[i] = 10;
+		life[i] = particleLife;
+		originalLife[i] = particleLife;
+		scaleY[i] = 1.0f;
+		r[i] = 1;
+		g[i] = 1;
+		b[i] = 1;
+		a[i] = 1;
+		type[i] = 0;
+		usePoints[i] = Particle.INHERIT_POINTS;
+		oriented[i] = false;
+		image[i] = null;
+
+		return i;
+	}
+
+	/**
+	 * Remove a particle from the buffer. The last particle in use is moved into
+	 * its place.
+	 *
+	 * @param i The index of the particle to remove
+	 */
+	public void remove(int i) {
+		int last = --count;
+		if (i != last) {
+			x[i] = x[last];
+			y[i] = y[last];
+			velx[i] = velx[last];
+			vely[i] = vely[last];
+			size[i] = size[last];
+			life[i] = life[last];
+			originalLife[i] = originalLife[last];
+			scaleY[i] = scaleY[last];
+			r[i] = r[last];
+			g[i] = g[last];
+			b[i] = b[last];
+			a[i] = a[last];
+			type[i] = type[last];
+			usePoints[i] = usePoints[last];
+			oriented[i] = oriented[last];
+			image[i] = image[last];
+		}
+		image[last] = null;
+	}
+
+	/**
+	 * Age the particles, moving those that are still alive and removing
+	 * those that have expired
+	 *
+	 * @param delta The amount of time passed since the last update (in milliseconds)
+	 */
+	public void update(int delta) {
+		age(0, count, delta);
+		compact();
+	}
+
+	/**
+	 * Age a range of the particles and move those that are still alive. Expired
+	 * particles are left in place until compact() is called so that separate ranges
+	 * can be aged at the same time.
+	 *
+	 * @param start The index of the first particle to age
+	 * @param end The index after the last particle to age
+	 * @param delta The amount of time passed since the last update (in milliseconds)
+	 */
+	public void age(int start, int end, int delta) {
+		for (int i=start;i<end;i++) {
+			life[i] -= delta;
+			if (life[i] > 0) {
+				x[i] += delta * velx[i];
+				y[i] += delta * vely[i];
+			}
+		}
+	}
+
+	/**
+	 * Remove the particles that have expired
+	 */
+	public void compact() {
+		int i = 0;
+		while (i < count) {
+			if (life[i] > 0) {
+				i++;
+			} else {
+				// check the particle moved into this slot next
+				remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Move all the particles in the buffer
+	 *
+	 * @param dx The amount to move the particles on the x axis
+	 * @param dy The amount to move the particles on the y axis
+	 */
+	public void move(float dx, float dy) {
+		for (int i=0;i<count;i++) {
+			x[i] += dx;
+			y[i] += dy;
+		}
+	}
+
+	/**
+	 * Copy the state of a particle in the buffer into a particle object
+	 *
+	 * @param i The index of the particle to copy
+	 * @param particle The particle object to copy into
+	 */
+	public void load(int i, Particle particle) {
+		particle.init(emitter, originalLife[i]);
+		particle.life = life[i];
+		particle.x = x[i];
+		particle.y = y[i];
+		particle.velx = velx[i];
+		particle.vely = vely[i];
+		particle.size = size[i];
+		particle.scaleY = scaleY[i];
+		particle.type = type[i];
+		particle.usePoints = usePoints[i];
+		particle.oriented = oriented[i];
+		particle.image = image[i];
+		particle.setColor(r[i], g[i], b[i], a[i]);
+	}
+
+	/**
+	 * Copy the state of a particle object into the buffer
+	 *
+	 * @param i The index of the particle to copy into
+	 * @param particle The particle object to copy from
+	 */
+	public void store(int i, Particle particle) {
+		life[i] = particle.life;
+		originalLife[i] = particle.originalLife;
+		x[i] = particle.x;
+		y[i] = particle.y;
+		velx[i] = particle.velx;
+		vely[i] = particle.vely;
+		size[i] = particle.size;
+		scaleY[i] = particle.scaleY;
+		type[i] = particle.type;
+		usePoints[i] = particle.usePoints;
+		oriented[i] = particle.oriented;
+		image[i] = particle.image;
+		r[i] = particle.color.r;
+		g[i] = particle.color.g;
+		b[i] = particle.color.b;
+		a[i] = particle.color.a;
+	}
+}
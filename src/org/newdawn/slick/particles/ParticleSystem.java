@@ -35,6 +35,8 @@ public class ParticleSystem {
 	
 	/** The default number of particles in the system */
 	private static final int DEFAULT_PARTICLES = 100;
+	/** The number of buffered particles updated by a single task when using update threads */
+	private static final int PARTICLES_PER_TASK = 4096;
 
 	/** List of emitters to be removed */
 	private ArrayList removeMe = new ArrayList();
@@ -58,8 +60,10 @@ public class ParticleSystem {
 	{
 		/** The particles being rendered and maintained */
 		public Particle[] particles;
-		/** The list of particles left to be used, if this size() == 0 then the particle engine was too small for the effect */
-		public ArrayList available;
+		/** The stack of particles left to be used, if this is empty then the particle engine was too small for the effect */
+		public Particle[] available;
+		/** The number of particles left to be used */
+		public int availableCount;
 		
 		/**
 		 * Create a new particle pool contiaining a set of particles
@@ -70,7 +74,7 @@ public class ParticleSystem {
 		public ParticlePool( ParticleSystem system, int maxParticles )
 		{
 			particles = new Particle[ maxParticles ];
-			available = new ArrayList();
+			available = new Particle[ maxParticles ];
 			
 			for( int i=0; i<particles.length; i++ )
 			{
@@ -86,11 +90,11 @@ public class ParticleSystem {
 		 * @param system The system in which the particle belong
 		 */
 		public void reset(ParticleSystem system) {
-			available.clear();
+			availableCount = 0;
 			
 			for( int i=0; i<particles.length; i++ )
 			{
-				available.add(particles[i]);
+				available[availableCount++] = particles[i];
 			}
 		}
 	}
@@ -104,6 +108,8 @@ public class ParticleSystem {
 	protected HashMap particlesByEmitter = new HashMap();
 	/** The maximum number of particles allows per emitter */
 	protected int maxParticlesPerEmitter;
+	/** A map from emitter to the buffer holding its particles when particle buffers are in use */
+	protected HashMap buffersByEmitter = new HashMap();
 	
 	/** The list of emittered producing and controlling particles */
 	protected ArrayList emitters = new ArrayList();
@@ -132,6 +138,38 @@ public class ParticleSystem {
 	/** The mask used to make the particle image background transparent if any */
 	private Color mask;
 	
+	/** True if particles are stored in buffers of primitive arrays rather than as objects */
+	private boolean useBuffers;
+	/** The particle handed to emitters and used to update and render buffered particles */
+	private Particle scratch;
+	/** The buffer the particle last handed out will be stored in */
+	private ParticleBuffer pendingBuffer;
+	/** True if the particles are a custom implementation that must render themselves */
+	private boolean customParticles;
+	/** The image used for the batch being rendered */
+	private Image batchImage;
+	/** True if the batch being rendered has been started */
+	private boolean batchStarted;
+	/** The point size of the batch being rendered */
+	private float batchPointSize;
+	
+	/** The threads updating particles, null if particles are updated on the calling thread */
+	private ParticleUpdateThreads workers;
+	/** The number of tasks in the current update */
+	private int taskCount;
+	/** The time passed in the current update */
+	private int taskDelta;
+	/** The emitters whose particles each task updates */
+	private ParticleEmitter[] taskEmitters = new ParticleEmitter[16];
+	/** The buffer or pool holding the particles each task updates */
+	private Object[] taskTargets = new Object[16];
+	/** The first particle each task updates in a buffer */
+	private int[] taskStarts = new int[16];
+	/** The index after the last particle each task updates in a buffer */
+	private int[] taskEnds = new int[16];
+	/** The number of particles each task found in use in a pool */
+	private int[] taskCounts = new int[16];
+	
 	/**
 	 * Create a new particle system
 	 * 
@@ -159,6 +197,12 @@ public class ParticleSystem {
 			ParticlePool pool = (ParticlePool) pools.next();
 			pool.reset(this);
 		}
+		pendingBuffer = null;
+		Iterator buffers = buffersByEmitter.values().iterator();
+		while (buffers.hasNext()) {
+			ParticleBuffer buffer = (ParticleBuffer) buffers.next();
+			buffer.clear();
+		}
 		
 		for (int i=0;i<emitters.size();i++) {
 			ParticleEmitter emitter = (ParticleEmitter) emitters.get(i);
@@ -204,6 +248,56 @@ public class ParticleSystem {
 		this.usePoints = usePoints;
 	}
 	
+	/**
+	 * Indicate if this system should store particles in buffers of primitive arrays
+	 * rather than as particle objects. This allows far more particles to be updated each
+	 * frame. Particles handed out by getNewParticle() while buffers are in use are only 
+	 * valid until the emitter's update returns or the next particle is requested. 
+	 * 
+	 * Changing this setting discards the particles currently alive.
+	 * 
+	 * @param useBuffers True if particles should be stored in buffers
+	 */
+	public void setUseParticleBuffers(boolean useBuffers) {
+		if (this.useBuffers == useBuffers) {
+			return;
+		}
+		
+		this.useBuffers = useBuffers;
+		particlesByEmitter.clear();
+		buffersByEmitter.clear();
+		pendingBuffer = null;
+		for (int i=0;i<emitters.size();i++) {
+			createStorage((ParticleEmitter) emitters.get(i));
+		}
+	}
+	
+	/**
+	 * Check if this system stores particles in buffers of primitive arrays
+	 * 
+	 * @return True if particles are stored in buffers
+	 */
+	public boolean isUsingParticleBuffers() {
+		return useBuffers;
+	}
+	
+	/**
+	 * Create the storage for the particles of an emitter
+	 * 
+	 * @param emitter The emitter that needs particles storing
+	 */
+	private void createStorage(ParticleEmitter emitter) {
+		if (useBuffers) {
+			if (scratch == null) {
+				scratch = createParticle(this);
+			}
+			buffersByEmitter.put(emitter, new ParticleBuffer(emitter, maxParticlesPerEmitter));
+		} else {
+			ParticlePool pool= new ParticlePool( this, maxParticlesPerEmitter );
+			particlesByEmitter.put( emitter, pool );
+		}
+	}
+	
 	/**
 	 * Check if this engine should use points to render the particles
 	 * 
@@ -236,6 +330,7 @@ public class ParticleSystem {
 		
 		setDefaultImageName(defaultSpriteRef);
 		dummy = createParticle(this);
+		customParticles = dummy.getClass() != Particle.class;
 	}
 
 	/**
@@ -249,6 +344,7 @@ public class ParticleSystem {
 	
 		sprite = defaultSprite;
 		dummy = createParticle(this);
+		customParticles = dummy.getClass() != Particle.class;
 	}
 	
 	/**
@@ -318,9 +414,7 @@ public class ParticleSystem {
 	 */
 	public void addEmitter(ParticleEmitter emitter) {
 		emitters.add(emitter);
-		
-		ParticlePool pool= new ParticlePool( this, maxParticlesPerEmitter );
-		particlesByEmitter.put( emitter, pool );
+		createStorage(emitter);
 	}
 	
 	/**
@@ -329,8 +423,10 @@ public class ParticleSystem {
 	 * @param emitter The emitter to be removed
 	 */
 	public void removeEmitter(ParticleEmitter emitter) {
+		commitPending();
 		emitters.remove(emitter);
 		particlesByEmitter.remove(emitter);
+		buffersByEmitter.remove(emitter);
 	}
 	
 	/**
@@ -394,6 +490,7 @@ public class ParticleSystem {
 		if (!visible) {
 			return;
 		}
+		commitPending();
 		
 		GL.glTranslatef(x,y,0);
 		
@@ -421,24 +518,16 @@ public class ParticleSystem {
 			}
 			
 			// now get the particle pool for this emitter and render all particles that are in use
-			ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
 			Image image = emitter.getImage();
 			if (image == null) {
 				image = this.sprite;
 			}
 			
-			if (!emitter.isOriented() && !emitter.usePoints(this)) {
-				image.startUse();
-			}
-			
-			for (int i = 0; i < pool.particles.length; i++)
-			{
-				if (pool.particles[i].inUse())
-					pool.particles[i].render();
-			} 
-			
-			if (!emitter.isOriented() && !emitter.usePoints(this)) {
-				image.endUse();
+			if (customParticles) {
+				renderEach(emitter, image);
+			} else {
+				renderBatch(emitter, image, false);
+				renderBatch(emitter, image, true);
 			}
 
 			// reset additive blend mode
@@ -458,6 +547,205 @@ public class ParticleSystem {
 		GL.glTranslatef(-x,-y,0);
 	}
 	
+	/**
+	 * Render the particles of an emitter one at a time by asking each to render itself. This
+	 * is used when the particles are a custom implementation that might render differently.
+	 * 
+	 * @param emitter The emitter whose particles should be rendered
+	 * @param image The image used to render the particles
+	 */
+	private void renderEach(ParticleEmitter emitter, Image image) {
+		if (!emitter.isOriented() && !emitter.usePoints(this)) {
+			image.startUse();
+		}
+		
+		if (useBuffers) {
+			ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+			for (int i = 0; i < buffer.getCount(); i++) {
+				buffer.load(i, scratch);
+				scratch.render();
+			}
+		} else {
+			ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
+			for (int i = 0; i < pool.particles.length; i++)
+			{
+				if (pool.particles[i].inUse())
+					pool.particles[i].render();
+			} 
+		}
+		
+		if (!emitter.isOriented() && !emitter.usePoints(this)) {
+			image.endUse();
+		}
+	}
+	
+	/**
+	 * Render the particles of an emitter that are drawn the same way as a single
+	 * batch of geometry. Quads are transformed on the CPU rather than using the
+	 * matrix so they can all be part of the same batch.
+	 * 
+	 * @param emitter The emitter whose particles should be rendered
+	 * @param image The image used to render the particles
+	 * @param points True if the particles rendered as points should be drawn, false for those rendered as quads
+	 */
+	private void renderBatch(ParticleEmitter emitter, Image image, boolean points) {
+		batchImage = image;
+		batchStarted = false;
+		
+		if (useBuffers) {
+			ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+			for (int i = 0; i < buffer.getCount(); i++) {
+				if (renderAsPoint(buffer.usePoints[i]) != points) {
+					continue;
+				}
+				
+				if (points) {
+					batchPoint(buffer.x[i], buffer.y[i], buffer.size[i], buffer.r[i], buffer.g[i], buffer.b[i], buffer.a[i]);
+				} else {
+					batchQuad(buffer.x[i], buffer.y[i], buffer.size[i], buffer.scaleY[i], buffer.oriented[i], 
+							  buffer.r[i], buffer.g[i], buffer.b[i], buffer.a[i]);
+				}
+			}
+		} else {
+			ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
+			for (int i = 0; i < pool.particles.length; i++) {
+				Particle p = pool.particles[i];
+				if ((!p.inUse()) || (renderAsPoint(p.usePoints) != points)) {
+					continue;
+				}
+				
+				Color col = p.color;
+				if (points) {
+					batchPoint(p.x, p.y, p.size, col.r, col.g, col.b, col.a);
+				} else {
+					batchQuad(p.x, p.y, p.size, p.scaleY, p.oriented, col.r, col.g, col.b, col.a);
+				}
+			}
+		}
+		
+		if (batchStarted) {
+			if (points) {
+				GL.glEnd();
+				if (!usePoints()) {
+					GL.glDisable(SGL.GL_POINT_SMOOTH);
+				}
+			} else {
+				image.endUse();
+			}
+		}
+		batchImage = null;
+	}
+	
+	/**
+	 * Check if a particle should be rendered as a point
+	 * 
+	 * @param particlePoints The particle's indicator for rendering, e.g. Particle.INHERIT_POINTS
+	 * @return True if the particle should be rendered as a point
+	 */
+	private boolean renderAsPoint(int particlePoints) {
+		return (usePoints() && (particlePoints == Particle.INHERIT_POINTS))
+				|| (particlePoints == Particle.USE_POINTS);
+	}
+	
+	/**
+	 * Add a particle rendered as a point to the current batch
+	 * 
+	 * @param px The x coordinate of the particle
+	 * @param py The y coordinate of the particle
+	 * @param size The size of the particle
+	 * @param r The red component of the particle's colour
+	 * @param g The green component of the particle's colour
+	 * @param b The blue component of the particle's colour
+	 * @param a The alpha component of the particle's colour
+	 */
+	private void batchPoint(float px, float py, float size, float r, float g, float b, float a) {
+		if (!batchStarted) {
+			TextureImpl.bindNone();
+			GL.glEnable(SGL.GL_POINT_SMOOTH);
+			batchPointSize = size / 2;
+			GL.glPointSize(batchPointSize);
+			GL.glBegin(SGL.GL_POINTS);
+			batchStarted = true;
+		} else if (batchPointSize != size / 2) {
+			// point size can't change in the middle of a batch
+			batchPointSize = size / 2;
+			GL.glEnd();
+			GL.glPointSize(batchPointSize);
+			GL.glBegin(SGL.GL_POINTS);
+		}
+		
+		GL.glColor4f(r, g, b, a);
+		GL.glVertex2f(px, py);
+	}
+	
+	/**
+	 * Add a particle rendered as a quad to the current batch
+	 * 
+	 * @param px The x coordinate of the particle
+	 * @param py The y coordinate of the particle
+	 * @param size The size of the particle
+	 * @param scaleY The scale applied to the particle on the y axis
+	 * @param oriented True if the particle should be rotated based on its position
+	 * @param r The red component of the particle's colour
+	 * @param g The green component of the particle's colour
+	 * @param b The blue component of the particle's colour
+	 * @param a The alpha component of the particle's colour
+	 */
+	private void batchQuad(float px, float py, float size, float scaleY, boolean oriented, 
+						   float r, float g, float b, float a) {
+		Image image = batchImage;
+		if (!batchStarted) {
+			image.startUse();
+			batchStarted = true;
+		}
+		
+		float tx = image.getTextureOffsetX();
+		float ty = image.getTextureOffsetY();
+		float tw = image.getTextureWidth();
+		float th = image.getTextureHeight();
+		
+		if (!oriented && (scaleY == 1.0f)) {
+			GL.glColor4f(r, g, b, a);
+			float x1 = (int) (px - (size / 2));
+			float y1 = (int) (py - (size / 2));
+			float x2 = x1 + (int) size;
+			float y2 = y1 + (int) size;
+			
+			GL.glTexCoord2f(tx, ty);
+			GL.glVertex3f(x1, y1, 0);
+			GL.glTexCoord2f(tx, ty + th);
+			GL.glVertex3f(x1, y2, 0);
+			GL.glTexCoord2f(tx + tw, ty + th);
+			GL.glVertex3f(x2, y2, 0);
+			GL.glTexCoord2f(tx + tw, ty);
+			GL.glVertex3f(x2, y1, 0);
+			return;
+		}
+		
+		GL.glColor4f(r, g, b, a * image.getAlpha());
+		float cos = 1;
+		float sin = 0;
+		if (oriented) {
+			double angle = Math.atan2(py, px);
+			cos = (float) Math.cos(angle);
+			sin = (float) Math.sin(angle);
+		}
+		
+		float x1 = (int) (-(size / 2));
+		float x2 = x1 + (int) size;
+		float y1 = x1 * scaleY;
+		float y2 = x2 * scaleY;
+		
+		GL.glTexCoord2f(tx, ty);
+		GL.glVertex3f(px + (x1 * cos) - (y1 * sin), py + (x1 * sin) + (y1 * cos), 0);
+		GL.glTexCoord2f(tx, ty + th);
+		GL.glVertex3f(px + (x1 * cos) - (y2 * sin), py + (x1 * sin) + (y2 * cos), 0);
+		GL.glTexCoord2f(tx + tw, ty + th);
+		GL.glVertex3f(px + (x2 * cos) - (y2 * sin), py + (x2 * sin) + (y2 * cos), 0);
+		GL.glTexCoord2f(tx + tw, ty);
+		GL.glVertex3f(px + (x2 * cos) - (y1 * sin), py + (x2 * sin) + (y1 * cos), 0);
+	}
+	
 	/**
 	 * Load the system particle image as the extension permissions
 	 */
@@ -489,41 +777,208 @@ public class ParticleSystem {
 			loadSystemParticleImage();
 		}
 		
+		commitPending();
+		
 		removeMe.clear();
-		ArrayList emitters = new ArrayList(this.emitters);
 		for (int i=0;i<emitters.size();i++) {
 			ParticleEmitter emitter = (ParticleEmitter) emitters.get(i);
 			if (emitter.isEnabled()) {
 				emitter.update(this, delta);
+				commitPending();
 				if (removeCompletedEmitters) {
 					if (emitter.completed()) {
 						removeMe.add(emitter);
 						particlesByEmitter.remove(emitter);
+						buffersByEmitter.remove(emitter);
 					}
 				}
 			}
 		}
-		this.emitters.removeAll(removeMe);
+		for (int i=0;i<removeMe.size();i++) {
+			emitters.remove(removeMe.get(i));
+		}
 		
 		pCount = 0;
+		taskCount = 0;
+		taskDelta = delta;
 		
-		if (!particlesByEmitter.isEmpty())
-		{
-			Iterator it= particlesByEmitter.keySet().iterator();
-			while (it.hasNext())
-			{
-				ParticleEmitter emitter = (ParticleEmitter) it.next();
-				if (emitter.isEnabled()) {
-					ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
-					for (int i=0;i<pool.particles.length;i++) {
-						if (pool.particles[i].life > 0) {
-							pool.particles[i].update(delta);
-							pCount++;
-						}
+		for (int e=0;e<emitters.size();e++) {
+			ParticleEmitter emitter = (ParticleEmitter) emitters.get(e);
+			if (!emitter.isEnabled()) {
+				continue;
+			}
+			
+			if (useBuffers) {
+				ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+				int count = buffer.getCount();
+				pCount += count;
+				if ((workers != null) && (emitter instanceof BufferedParticleEmitter)) {
+					// large emitters are split into ranges that can be updated at the same time
+					for (int start=0;start<count;start+=PARTICLES_PER_TASK) {
+						addTask(emitter, buffer, start, Math.min(count, start+PARTICLES_PER_TASK));
 					}
+				} else {
+					updateBuffer(emitter, buffer, delta);
+				}
+			} else {
+				ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
+				if (workers != null) {
+					addTask(emitter, pool, 0, 0);
+				} else {
+					pCount += updatePool(pool, delta);
 				}
 			}
 		}
+		
+		if (taskCount > 0) {
+			workers.run(taskCount);
+			
+			for (int i=0;i<taskCount;i++) {
+				if (taskTargets[i] instanceof ParticleBuffer) {
+					if (taskStarts[i] == 0) {
+						((ParticleBuffer) taskTargets[i]).compact();
+					}
+				} else {
+					pCount += taskCounts[i];
+				}
+				taskEmitters[i] = null;
+				taskTargets[i] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Indicate how many threads should be used to update the particles. Emitters are
+	 * still updated on the calling thread, as are the particles of emitters that don't 
+	 * implement BufferedParticleEmitter when particle buffers are in use. With particle buffers
+	 * the particles of large emitters are split across threads, otherwise each emitter's 
+	 * particles are updated on a single thread.
+	 * 
+	 * Emitters must only touch the particles given to them when updating particles. Where 
+	 * emitters use a seeded random number generator (ConfigurableEmitter.setSeed()) the 
+	 * results are the same whatever the number of threads.
+	 * 
+	 * @param threads The number of threads to use including the calling thread, 1 to update
+	 * particles on the calling thread only
+	 */
+	public void setUpdateThreads(int threads) {
+		if (workers != null) {
+			workers.stop();
+			workers = null;
+		}
+		if (threads > 1) {
+			workers = new ParticleUpdateThreads(this, threads);
+		}
+	}
+	
+	/**
+	 * Get the number of threads used to update the particles
+	 * 
+	 * @return The number of threads used to update the particles
+	 */
+	public int getUpdateThreads() {
+		if (workers == null) {
+			return 1;
+		}
+		return workers.getThreadCount();
+	}
+	
+	/**
+	 * Add a task to be run on the update threads
+	 * 
+	 * @param emitter The emitter that produced the particles
+	 * @param target The buffer or pool holding the particles
+	 * @param start The index of the first particle to update in a buffer
+	 * @param end The index after the last particle to update in a buffer
+	 */
+	private void addTask(ParticleEmitter emitter, Object target, int start, int end) {
+		if (taskCount == taskEmitters.length) {
+			int size = taskCount * 2;
+			ParticleEmitter[] newEmitters = new ParticleEmitter[size];
+			Object[] newTargets = new Object[size];
+			int[] newStarts = new int[size];
+			int[] newEnds = new int[size];
+			System.arraycopy(taskEmitters, 0, newEmitters, 0, taskCount);
+			System.arraycopy(taskTargets, 0, newTargets, 0, taskCount);
+			System.arraycopy(taskStarts, 0, newStarts, 0, taskCount);
+			System.arraycopy(taskEnds, 0, newEnds, 0, taskCount);
+			taskEmitters = newEmitters;
+			taskTargets = newTargets;
+			taskStarts = newStarts;
+			taskEnds = newEnds;
+			taskCounts = new int[size];
+		}
+		
+		taskEmitters[taskCount] = emitter;
+		taskTargets[taskCount] = target;
+		taskStarts[taskCount] = start;
+		taskEnds[taskCount] = end;
+		taskCount++;
+	}
+	
+	/**
+	 * Run one of the tasks of the current update. Called from the update threads.
+	 * 
+	 * @param task The index of the task to run
+	 */
+	void runUpdateTask(int task) {
+		if (taskTargets[task] instanceof ParticleBuffer) {
+			ParticleBuffer buffer = (ParticleBuffer) taskTargets[task];
+			BufferedParticleEmitter emitter = (BufferedParticleEmitter) taskEmitters[task];
+			emitter.updateParticles(buffer, taskStarts[task], taskEnds[task], taskDelta);
+			buffer.age(taskStarts[task], taskEnds[task], taskDelta);
+		} else {
+			taskCounts[task] = updatePool((ParticlePool) taskTargets[task], taskDelta);
+		}
+	}
+	
+	/**
+	 * Update the particles held in a pool
+	 * 
+	 * @param pool The pool holding the particles
+	 * @param delta The amount of time thats passed since last update in milliseconds
+	 * @return The number of particles that were in use
+	 */
+	private int updatePool(ParticlePool pool, int delta) {
+		int count = 0;
+		for (int i=0;i<pool.particles.length;i++) {
+			if (pool.particles[i].life > 0) {
+				pool.particles[i].update(delta);
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Update the particles held in a buffer
+	 * 
+	 * @param emitter The emitter that produced the particles
+	 * @param buffer The buffer holding the particles
+	 * @param delta The amount of time thats passed since last update in milliseconds
+	 */
+	private void updateBuffer(ParticleEmitter emitter, ParticleBuffer buffer, int delta) {
+		if (emitter instanceof BufferedParticleEmitter) {
+			((BufferedParticleEmitter) emitter).updateParticles(buffer, 0, buffer.getCount(), delta);
+		} else {
+			for (int i=0;i<buffer.getCount();i++) {
+				buffer.load(i, scratch);
+				emitter.updateParticle(scratch, delta);
+				buffer.store(i, scratch);
+			}
+		}
+		buffer.update(delta);
+	}
+	
+	/**
+	 * Store the particle last handed out to an emitter in its buffer
+	 */
+	private void commitPending() {
+		if (pendingBuffer != null) {
+			int index = pendingBuffer.add(scratch.originalLife);
+			pendingBuffer.store(index, scratch);
+			pendingBuffer = null;
+		}
 	}
 	
 	/**
@@ -545,15 +1000,29 @@ public class ParticleSystem {
 	 */
 	public Particle getNewParticle(ParticleEmitter emitter, float life)
 	{
-		ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
-		ArrayList available = pool.available;
-		if (available.size() > 0)
-		{
-			Particle p = (Particle) available.remove(available.size()-1);
-			p.init(emitter, life);
-			p.setImage(sprite);
+		if (useBuffers) {
+			commitPending();
 			
-			return p;
+			ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+			if (buffer.getCount() < buffer.getCapacity()) {
+				scratch.init(emitter, life);
+				scratch.setImage(sprite);
+				scratch.setColor(1, 1, 1, 1);
+				scratch.setUsePoint(Particle.INHERIT_POINTS);
+				pendingBuffer = buffer;
+				
+				return scratch;
+			}
+		} else {
+			ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
+			if (pool.availableCount > 0)
+			{
+				Particle p = pool.available[--pool.availableCount];
+				p.init(emitter, life);
+				p.setImage(sprite);
+				
+				return p;
+			}
 		}
 		
 		Log.warn("Ran out of particles (increase the limit)!");
@@ -566,10 +1035,10 @@ public class ParticleSystem {
 	 * @param particle The particle to be released
 	 */
 	public void release(Particle particle) {
-		if (particle != dummy)
+		if ((particle != dummy) && (!useBuffers))
 		{
 			ParticlePool pool = (ParticlePool)particlesByEmitter.get( particle.getEmitter() );
-			pool.available.add(particle);
+			pool.available[pool.availableCount++] = particle;
 		}
 	}
 	
@@ -579,6 +1048,15 @@ public class ParticleSystem {
 	 * @param emitter The emitter owning the particles that should be released
 	 */
 	public void releaseAll(ParticleEmitter emitter) {
+		if (useBuffers) {
+			commitPending();
+			ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+			if (buffer != null) {
+				buffer.clear();
+			}
+			return;
+		}
+		
 		if( !particlesByEmitter.isEmpty() )
 		{
 			Iterator it= particlesByEmitter.values().iterator();
@@ -605,6 +1083,13 @@ public class ParticleSystem {
 	 * @param y The amount on the y axis to move the particles
 	 */
 	public void moveAll(ParticleEmitter emitter, float x, float y) {
+		if (useBuffers) {
+			commitPending();
+			ParticleBuffer buffer = (ParticleBuffer) buffersByEmitter.get(emitter);
+			buffer.move(x, y);
+			return;
+		}
+		
 		ParticlePool pool = (ParticlePool) particlesByEmitter.get(emitter);
 		for (int i=0;i<pool.particles.length;i++) {
 			if (pool.particles[i].inUse()) {
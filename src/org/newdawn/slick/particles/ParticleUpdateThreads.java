@@ -0,0 +1,149 @@
+package org.newdawn.slick.particles;
+
+/**
+ * A set of worker threads that share out the tasks of a particle system update. The
+ * thread requesting the update works on the tasks too and doesn't return until they're
+ * all complete.
+ *
+ * @author kevin
+ */
+class ParticleUpdateThreads implements Runnable {
+	/** The system whose tasks are being run */
+	private ParticleSystem system;
+	/** The worker threads */
+	private Thread[] threads;
+	/** The number of tasks in the current update */
+	private int taskCount;
+	/** The next task to be started */
+	private int nextTask;
+	/** The number of tasks not yet complete */
+	private int running;
+	/** Incremented each time an update is started so the workers know there's work */
+	private int generation;
+	/** True if the workers should stop */
+	private boolean stopped;
+	/** The first failure of a task in the current update */
+	private RuntimeException failure;
+
+	/**
+	 * Create a new set of workers
+	 *
+	 * @param system The system whose tasks will be run
+	 * @param count The number of threads to use including the one requesting updates
+	 */
+	ParticleUpdateThreads(ParticleSystem system, int count) {
+		this.system = system;
+
+		threads = new Thread[count - 1];
+		for (int i=0;i<threads.length;i++) {
+			threads[i] = new Thread(this, "Particle Update "+i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	/**
+	 * Get the number of threads used including the one requesting updates
+	 *
+	 * @return The number of threads used
+	 */
+	int getThreadCount() {
+		return threads.length + 1;
+	}
+
+	/**
+	 * Run a set of tasks, returning once they're all complete
+	 *
+	 * @param tasks The number of tasks to run
+	 */
+	void run(int tasks) {
+		synchronized (this) {
+			taskCount = tasks;
+			nextTask = 0;
+			running = tasks;
+			failure = null;
+			generation++;
+			notifyAll();
+		}
+
+		work();
+
+		synchronized (this) {
+			while (running > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// keep waiting, the tasks are using data we're about to touch
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * Stop the worker threads
+	 */
+	synchronized void stop() {
+		stopped = true;
+		notifyAll();
+	}
+
+	/**
+	 * Take tasks and run them until there are none left
+	 */
+	private void work() {
+		while (true) {
+			int task;
+			synchronized (this) {
+				if (nextTask >= taskCount) {
+					return;
+				}
+				task = nextTask++;
+			}
+
+			try {
+				system.runUpdateTask(task);
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			} finally {
+				synchronized (this) {
+					running--;
+					if (running == 0) {
+						notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		int seen = 0;
+
+		while (true) {
+			synchronized (this) {
+				while ((!stopped) && (generation == seen)) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// carry on waiting for work
+					}
+				}
+				if (stopped) {
+					return;
+				}
+				seen = generation;
+			}
+
+			work();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.newdawn.slick.tests;
+
+import java.io.ByteArrayInputStream;
+
+import org.newdawn.slick.openal.Audio;
+import org.newdawn.slick.openal.DeferredSound;
+import org.newdawn.slick.openal.SoundStore;
+
+/**
+ * A test that the priority and instance limit given to sounds loaded with deferred
+ * loading are kept for each sound until it's loaded. Runs without a display or
+ * sound device since the sounds are never loaded.
+ *
+ * @author kevin
+ */
+public class DeferredSoundSettingsTest {
+	/** The number of checks that failed */
+	private static int failures;
+
+	/**
+	 * Check a setting has the value expected
+	 *
+	 * @param name The name of the setting checked
+	 * @param expected The value expected
+	 * @param value The value found
+	 */
+	private static void check(String name, int expected, int value) {
+		if (expected != value) {
+			System.out.println(name+" was "+value+", expected "+expected);
+			failures++;
+		}
+	}
+
+	/**
+	 * Entry point to our test
+	 *
+	 * @param argv The arguments passed to the test
+	 */
+	public static void main(String[] argv) {
+		SoundStore store = SoundStore.get();
+		Audio first = new DeferredSound("first.ogg", new ByteArrayInputStream(new byte[0]), DeferredSound.OGG);
+		Audio second = new DeferredSound("second.ogg", new ByteArrayInputStream(new byte[0]), DeferredSound.OGG);
+		Audio third = new DeferredSound("third.wav", new ByteArrayInputStream(new byte[0]), DeferredSound.WAV);
+
+		store.setPriority(first, 3);
+		store.setMaxInstances(first, 2);
+		store.setPriority(second, 5);
+		store.setMaxInstances(second, 4);
+
+		check("first priority", 3, store.getPriority(first));
+		check("first max instances", 2, store.getMaxInstances(first));
+		check("second priority", 5, store.getPriority(second));
+		check("second max instances", 4, store.getMaxInstances(second));
+		check("third priority", 0, store.getPriority(third));
+		check("third max instances", 0, store.getMaxInstances(third));
+
+		System.out.println(failures == 0 ? "All settings kept" : failures+" settings weren't kept");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package org.newdawn.slick.tests;
 
-import org.lwjgl.opengl.GL11;
 import org.newdawn.slick.AngelCodeFont;
 import org.newdawn.slick.AppGameContainer;
 import org.newdawn.slick.BasicGame;
@@ -18,6 +17,8 @@ import org.newdawn.slick.SlickException;
 public class DistanceFieldTest extends BasicGame {
 	/** The font */
 	private AngelCodeFont font;
+	/** The same font drawn as a distance field */
+	private AngelCodeFont distanceFont;
 	
 	/**
 	 * Create a new tester for the clip plane based clipping
@@ -31,6 +32,8 @@ public class DistanceFieldTest extends BasicGame {
 	 */
 	public void init(GameContainer container) throws SlickException {
 		font = new AngelCodeFont("testdata/distance.fnt", "testdata/distance-dis.png");
+		distanceFont = new AngelCodeFont("testdata/distance.fnt", "testdata/distance-dis.png");
+		distanceFont.setDistanceField(true);
 		container.getGraphics().setBackground(Color.black);
 	}
 
@@ -48,24 +51,12 @@ public class DistanceFieldTest extends BasicGame {
 			throws SlickException {
 		String text = "abc";
 		font.drawString(610,100,text);
-		
-		GL11.glDisable(GL11.GL_BLEND);
-		GL11.glEnable(GL11.GL_ALPHA_TEST);
-		GL11.glAlphaFunc(GL11.GL_GEQUAL, 0.5f);
-		font.drawString(610,150,text);
-		GL11.glDisable(GL11.GL_ALPHA_TEST);
-		GL11.glEnable(GL11.GL_BLEND);
+		distanceFont.drawString(610,150,text);
 		
 		g.translate(-50,-130);
 		g.scale(10,10);
 		font.drawString(0,0,text);
-
-		GL11.glDisable(GL11.GL_BLEND);
-		GL11.glEnable(GL11.GL_ALPHA_TEST);
-		GL11.glAlphaFunc(GL11.GL_GEQUAL, 0.5f);
-		font.drawString(0,26,text);
-		GL11.glDisable(GL11.GL_ALPHA_TEST);
-		GL11.glEnable(GL11.GL_BLEND);
+		distanceFont.drawString(0,26,text);
 		
 		g.resetTransform();
 		g.setColor(Color.lightGray);
@@ -0,0 +1,90 @@
+package org.newdawn.slick.tests;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.opengl.renderer.RecordingSGL;
+import org.newdawn.slick.opengl.renderer.Renderer;
+import org.newdawn.slick.opengl.renderer.SpriteBatchRenderer;
+import org.newdawn.slick.opengl.renderer.StateCachingSGL;
+
+/**
+ * A test for the recording renderer. Renders a frame without a display and 
+ * reports the statistics gathered. Pass "batch" as an argument to render through
+ * the sprite batching renderer, or "cache" to render through the state cache, for
+ * comparison.
+ *
+ * @author kevin
+ */
+public class HeadlessRenderTest {
+	/** The number of sprites drawn each frame */
+	private static final int COUNT = 1000;
+	
+	/**
+	 * Render a frame
+	 * 
+	 * @param g The graphics context to render to
+	 * @param image The image to draw
+	 */
+	private static void render(Graphics g, Image image) {
+		for (int i=0;i<COUNT;i++) {
+			image.setRotation(i);
+			image.draw((i * 37) % 800, (i * 91) % 600);
+		}
+		g.setColor(Color.red);
+		g.fillRect(10, 10, 100, 100);
+		g.setColor(Color.white);
+		g.drawLine(0, 0, 800, 600);
+	}
+	
+	/**
+	 * Print the statistics of the last frame
+	 * 
+	 * @param name The name of the run
+	 * @param recorder The recorder gathering statistics
+	 */
+	private static void report(String name, RecordingSGL recorder) {
+		System.out.println(name+": "+
+						   recorder.getLastFrameCount(RecordingSGL.DRAW_BATCHES)+" batches, "+
+						   recorder.getLastFrameCount(RecordingSGL.VERTICES)+" vertices, "+
+						   recorder.getLastFrameCount(RecordingSGL.TEXTURE_BINDS)+" binds, "+
+						   recorder.getLastFrameCount(RecordingSGL.STATE_CHANGES)+" state changes ("+
+						   recorder.getLastFrameCount(RecordingSGL.REDUNDANT_STATE_CHANGES)+" redundant), "+
+						   recorder.getLastFrameCount(RecordingSGL.MATRIX_OPERATIONS)+" matrix operations");
+	}
+	
+	/**
+	 * Entry point to our test
+	 * 
+	 * @param argv The arguments passed to the test
+	 * @throws SlickException Indicates a failure to load the test image
+	 */
+	public static void main(String[] argv) throws SlickException {
+		String mode = argv.length > 0 ? argv[0] : "direct";
+		
+		RecordingSGL recorder = new RecordingSGL();
+		recorder.setRecording(false);
+		StateCachingSGL cache = null;
+		if (mode.equals("batch")) {
+			Renderer.setRenderer(new SpriteBatchRenderer(recorder));
+		} else if (mode.equals("cache")) {
+			cache = new StateCachingSGL(recorder);
+			Renderer.setRenderer(cache);
+		} else {
+			Renderer.setRenderer(recorder);
+		}
+		
+		Graphics g = new Graphics(800, 600);
+		Image image = new Image("testdata/rocket.png").getScaledCopy(0.25f);
+		
+		Graphics.setCurrent(g);
+		Renderer.get().flush();
+		render(g, image);
+		Renderer.get().flush();
+		report(mode, recorder);
+		if (cache != null) {
+			System.out.println("Suppressed "+cache.getSuppressedTotal()+" redundant state changes");
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package org.newdawn.slick.tests;
+
+import java.util.Random;
+
+import org.newdawn.slick.util.pathfinding.AStarPathFinder;
+import org.newdawn.slick.util.pathfinding.HierarchicalPathFinder;
+import org.newdawn.slick.util.pathfinding.Path;
+import org.newdawn.slick.util.pathfinding.PathFindingContext;
+import org.newdawn.slick.util.pathfinding.TileBasedMap;
+
+/**
+ * A test that the hierarchical path finder reaches every target the A* path finder
+ * does, with and without diagonal movement. Runs without a display and reports any
+ * target that only one of them reaches.
+ *
+ * @author kevin
+ */
+public class PathFinderTest {
+	/**
+	 * A map of blocked and clear tiles
+	 *
+	 * @author kevin
+	 */
+	private static class GridMap implements TileBasedMap {
+		/** True for each blocked tile */
+		private boolean[][] blocked;
+
+		/**
+		 * Create a new map with every tile clear
+		 *
+		 * @param width The width of the map in tiles
+		 * @param height The height of the map in tiles
+		 */
+		public GridMap(int width, int height) {
+			blocked = new boolean[width][height];
+		}
+
+		/**
+		 * @see TileBasedMap#blocked(PathFindingContext, int, int)
+		 */
+		public boolean blocked(PathFindingContext context, int tx, int ty) {
+			return blocked[tx][ty];
+		}
+
+		/**
+		 * @see TileBasedMap#getCost(PathFindingContext, int, int)
+		 */
+		public float getCost(PathFindingContext context, int tx, int ty) {
+			return 1;
+		}
+
+		/**
+		 * @see TileBasedMap#getHeightInTiles()
+		 */
+		public int getHeightInTiles() {
+			return blocked[0].length;
+		}
+
+		/**
+		 * @see TileBasedMap#getWidthInTiles()
+		 */
+		public int getWidthInTiles() {
+			return blocked.length;
+		}
+
+		/**
+		 * @see TileBasedMap#pathFinderVisited(int, int)
+		 */
+		public void pathFinderVisited(int x, int y) {
+		}
+	}
+
+	/**
+	 * Compare the targets reached by both path finders
+	 *
+	 * @param name The name of the map being checked
+	 * @param map The map to search
+	 * @param clusterSize The size of the clusters used by the hierarchical path finder
+	 * @param diagonal True if diagonal movement is allowed
+	 * @param queries The number of random searches to make
+	 * @param random The source of the searches
+	 * @return The number of searches where only one of the path finders reached the target
+	 */
+	private static int check(String name, GridMap map, int clusterSize, boolean diagonal, int queries, Random random) {
+		int width = map.getWidthInTiles();
+		int height = map.getHeightInTiles();
+		AStarPathFinder astar = new AStarPathFinder(map, width * height, diagonal);
+		HierarchicalPathFinder hpa = new HierarchicalPathFinder(map, clusterSize, diagonal);
+
+		int failures = 0;
+		for (int i=0;i<queries;i++) {
+			int sx = i == 0 ? 0 : random.nextInt(width);
+			int sy = i == 0 ? 0 : random.nextInt(height);
+			int tx = i == 0 ? width - 1 : random.nextInt(width);
+			int ty = i == 0 ? height - 1 : random.nextInt(height);
+			if (map.blocked[sx][sy]) {
+				continue;
+			}
+
+			Path expected = astar.findPath(null, sx, sy, tx, ty);
+			Path found = hpa.findPath(null, sx, sy, tx, ty);
+			if ((expected == null) != (found == null)) {
+				failures++;
+				System.out.println(name+": ("+sx+","+sy+") to ("+tx+","+ty+") reached by "+
+								   (expected == null ? "hierarchical search only" : "A* only"));
+			}
+		}
+
+		return failures;
+	}
+
+	/**
+	 * Entry point to our test
+	 *
+	 * @param argv The arguments passed to the test
+	 */
+	public static void main(String[] argv) {
+		int failures = 0;
+
+		// the only way across the border between the clusters is a diagonal step
+		GridMap map = new GridMap(16, 8);
+		for (int y=0;y<8;y++) {
+			map.blocked[7][y] = y != 3;
+			map.blocked[8][y] = y != 4;
+		}
+		failures += check("diagonal border", map, 8, true, 1, null);
+
+		// the only way between the clusters is a diagonal step through a corner
+		map = new GridMap(16, 16);
+		for (int i=0;i<16;i++) {
+			map.blocked[7][i] = i != 7;
+			map.blocked[8][i] = i != 8;
+			map.blocked[i][7] = i != 7;
+			map.blocked[i][8] = i != 8;
+		}
+		map.blocked[8][7] = true;
+		map.blocked[7][8] = true;
+		failures += check("diagonal corner", map, 8, true, 1, null);
+
+		Random random = new Random(1);
+		for (int i=0;i<20;i++) {
+			map = new GridMap(64, 64);
+			for (int x=0;x<64;x++) {
+				for (int y=0;y<64;y++) {
+					map.blocked[x][y] = random.nextInt(100) < 35;
+				}
+			}
+			failures += check("random "+i, map, 8, true, 200, random);
+			failures += check("random "+i+" straight", map, 8, false, 200, random);
+		}
+
+		System.out.println(failures == 0 ? "All searches matched" : failures+" searches didn't match");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+}
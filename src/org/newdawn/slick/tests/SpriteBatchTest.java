@@ -0,0 +1,106 @@
+package org.newdawn.slick.tests;
+
+import org.newdawn.slick.Animation;
+import org.newdawn.slick.AppGameContainer;
+import org.newdawn.slick.BasicGame;
+import org.newdawn.slick.Color;
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.Input;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.SpriteSheet;
+import org.newdawn.slick.opengl.renderer.Renderer;
+
+/**
+ * A test for the sprite batching renderer, draws lots of rotated sprites and
+ * animations which should end up in a handful of batches.
+ *
+ * @author kevin
+ */
+public class SpriteBatchTest extends BasicGame {
+	/** The number of sprites drawn each frame */
+	private static final int COUNT = 5000;
+
+	/** The image drawn */
+	private Image image;
+	/** The animation drawn */
+	private Animation animation;
+	/** The x positions of the sprites */
+	private float[] xs = new float[COUNT];
+	/** The y positions of the sprites */
+	private float[] ys = new float[COUNT];
+	/** The current rotation */
+	private float ang;
+
+	/**
+	 * Create a new sprite batching test
+	 */
+	public SpriteBatchTest() {
+		super("Sprite Batch Test");
+	}
+
+	/**
+	 * @see org.newdawn.slick.BasicGame#init(org.newdawn.slick.GameContainer)
+	 */
+	public void init(GameContainer container) throws SlickException {
+		image = new Image("testdata/rocket.png").getScaledCopy(0.25f);
+
+		SpriteSheet sheet = new SpriteSheet("testdata/homeranim.png", 36, 65);
+		animation = new Animation(sheet, 150);
+
+		for (int i=0;i<COUNT;i++) {
+			xs[i] = (float) (Math.random() * 800);
+			ys[i] = (float) (Math.random() * 600);
+		}
+	}
+
+	/**
+	 * @see org.newdawn.slick.BasicGame#render(org.newdawn.slick.GameContainer, org.newdawn.slick.Graphics)
+	 */
+	public void render(GameContainer container, Graphics g) {
+		image.setRotation(ang);
+		for (int i=0;i<COUNT;i++) {
+			image.draw(xs[i], ys[i]);
+		}
+		for (int i=0;i<100;i++) {
+			animation.draw(xs[i], ys[i], Color.white);
+		}
+
+		g.setColor(Color.white);
+		g.drawString(COUNT+" sprites", 10, 30);
+	}
+
+	/**
+	 * @see org.newdawn.slick.BasicGame#update(org.newdawn.slick.GameContainer, int)
+	 */
+	public void update(GameContainer container, int delta) {
+		ang += delta * 0.1f;
+	}
+
+	/**
+	 * @see org.newdawn.slick.BasicGame#keyPressed(int, char)
+	 */
+	public void keyPressed(int key, char c) {
+		if (key == Input.KEY_ESCAPE) {
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Entry point to our test
+	 *
+	 * @param argv The arguments passed to the test
+	 */
+	public static void main(String[] argv) {
+		try {
+			Renderer.setRenderer(Renderer.SPRITE_BATCH_RENDERER);
+
+			AppGameContainer container = new AppGameContainer(new SpriteBatchTest());
+			container.setDisplayMode(800,600,false);
+			container.start();
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+	}
+}
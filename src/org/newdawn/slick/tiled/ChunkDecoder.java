@@ -0,0 +1,105 @@
+package org.newdawn.slick.tiled;
+
+import java.util.ArrayList;
+import java.util.zip.Inflater;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * A background thread that decodes chunks of streamed layers ahead of them being
+ * needed. A single thread is shared by all maps, it waits for work when there's
+ * nothing to decode.
+ *
+ * @author kevin
+ */
+class ChunkDecoder implements Runnable {
+	/** The single instance of the decoder */
+	private static ChunkDecoder instance;
+
+	/**
+	 * Get the single instance of the decoder, starting its thread if needed
+	 *
+	 * @return The single instance of the decoder
+	 */
+	static synchronized ChunkDecoder get() {
+		if (instance == null) {
+			instance = new ChunkDecoder();
+
+			Thread thread = new Thread(instance, "Tile Chunk Decoder");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		return instance;
+	}
+
+	/** The layers with chunks waiting to be decoded, in the order they were requested */
+	private ArrayList layers = new ArrayList();
+	/** The index of the chunks waiting to be decoded */
+	private ArrayList chunks = new ArrayList();
+	/** The inflater used to decode chunks */
+	private Inflater inflater = new Inflater();
+
+	/**
+	 * Create the decoder
+	 */
+	private ChunkDecoder() {
+	}
+
+	/**
+	 * Request that a set of chunks in a layer are decoded, replacing any chunks of the
+	 * layer still waiting from a previous request
+	 *
+	 * @param layer The chunks of the layer
+	 * @param indices The index of each chunk to decode, in the order they should be decoded
+	 * @param count The number of chunks to decode
+	 */
+	synchronized void request(TileChunks layer, int[] indices, int count) {
+		for (int i=layers.size()-1;i>=0;i--) {
+			if (layers.get(i) == layer) {
+				layers.remove(i);
+				chunks.remove(i);
+			}
+		}
+		for (int i=0;i<count;i++) {
+			layers.add(layer);
+			chunks.add(new Integer(indices[i]));
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		while (true) {
+			TileChunks layer;
+			int chunk;
+
+			synchronized (this) {
+				while (layers.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// carry on waiting for work
+					}
+				}
+				layer = (TileChunks) layers.remove(0);
+				chunk = ((Integer) chunks.remove(0)).intValue();
+			}
+
+			byte[] data = layer.getPacked(chunk);
+			if (data == null) {
+				continue;
+			}
+
+			try {
+				layer.install(chunk, data, TileChunks.unpack(data, inflater));
+			} catch (RuntimeException e) {
+				// the chunk will be decoded again, and the failure reported, when it's used
+				Log.error(e);
+			}
+		}
+	}
+}
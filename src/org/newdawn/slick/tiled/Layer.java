@@ -2,10 +2,15 @@ package org.newdawn.slick.tiled;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.zip.GZIPInputStream;
 
 import org.newdawn.slick.SlickException;
+import org.newdawn.slick.opengl.TextureImpl;
+import org.newdawn.slick.opengl.renderer.Renderer;
+import org.newdawn.slick.opengl.renderer.SGL;
 import org.newdawn.slick.util.Log;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -17,6 +22,16 @@ import org.w3c.dom.NodeList;
  * @author kevin
  */
 public class Layer {
+	/** The renderer to use for all GL operations */
+	protected static SGL GL = Renderer.get();
+	
+	/** The number of tiles across and down each cached chunk of the layer */
+	public static final int CHUNK_SIZE = 32;
+	/** Indicates a chunk that hasn't been built into a display list */
+	private static final int NOT_BUILT = 0;
+	/** Indicates a chunk that has no tiles to render */
+	private static final int EMPTY = -1;
+	
 	/** The code used to decode Base64 encoding */
 	private static byte[] baseCodes = new byte[256];
 
@@ -42,8 +57,12 @@ public class Layer {
 	public int index;
 	/** The name of this layer - read from the XML */
 	public String name;
-	/** The tile data representing this data, index 0 = tileset, index 1 = tile id */
-	public int[][][] data;
+	/** The global tile ids when they all fit in a short, indexed by x + (y * width) */
+	private short[] shortIds;
+	/** The global tile ids when they don't all fit in a short, indexed by x + (y * width) */
+	private int[] intIds;
+	/** The compressed chunks of the layer if it's being streamed */
+	private TileChunks chunks;
 	/** The width of this layer */
 	public int width;
 	/** The height of this layer */
@@ -52,6 +71,13 @@ public class Layer {
 	/** the properties of this layer */
 	public Properties props;
 	
+	/** The display lists holding the chunks of the layer, indexed by cx + (cy * chunksAcross) */
+	private int[] chunkLists;
+	/** The number of chunks across the layer */
+	private int chunksAcross;
+	/** The tile ids of the row being rendered */
+	private int[] row = new int[0];
+	
 	/**
 	 * Create a new layer based on the XML definition
 	 * 
@@ -64,7 +90,11 @@ public class Layer {
 		name = element.getAttribute("name");
 		width = Integer.parseInt(element.getAttribute("width"));
 		height = Integer.parseInt(element.getAttribute("height"));
-		data = new int[width][height][3];
+		if (map.getResidentChunks() > 0) {
+			chunks = new TileChunks(width, height, map.getResidentChunks());
+		} else {
+			shortIds = new short[width * height];
+		}
 
 		// now read the layer properties
 		Element propsElement = (Element) element.getElementsByTagName("properties").item(0);
@@ -93,28 +123,19 @@ public class Layer {
                 byte[] dec = decodeBase64(enc);
                 GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(dec));
                 
-                for (int y = 0; y < height; y++) {
-                    for (int x = 0; x < width; x++) {
-                        int tileId = 0;
-                        tileId |= is.read();
-                        tileId |= is.read() <<  8;
-                        tileId |= is.read() << 16;
-                        tileId |= is.read() << 24;
-
-                        if (tileId == 0) {
-	                        data[x][y][0] = -1;
-	                        data[x][y][1] = 0;
-	                        data[x][y][2] = 0;
-                        } else {
-	                        TileSet set = map.findTileSet(tileId);
-
-	                        if (set != null) {
-		                        data[x][y][0] = set.index;
-		                        data[x][y][1] = tileId - set.firstGID;
-	                        }
-	                        data[x][y][2] = tileId;
-                        }
-                    }
+                if (chunks != null) {
+                	loadChunks(is);
+                } else {
+	                byte[] bytes = new byte[width * height * 4];
+	                readFully(is, bytes, bytes.length);
+	                
+	                for (int i = 0; i < width * height; i++) {
+	                    int tileId = (bytes[i*4] & 0xff) | 
+	                    			 ((bytes[(i*4)+1] & 0xff) << 8) | 
+	                    			 ((bytes[(i*4)+2] & 0xff) << 16) | 
+	                    			 ((bytes[(i*4)+3] & 0xff) << 24);
+	                    store(i, tileId);
+	                }
                 }
 			} catch (IOException e) {
 				Log.error(e);
@@ -125,6 +146,127 @@ public class Layer {
 		}
 	}
 	
+	/**
+	 * Read the tiles of a streamed layer a band of chunks at a time, compressing
+	 * each chunk as it's completed
+	 * 
+	 * @param in The stream of tile data to read from
+	 * @throws IOException Indicates a failure to read the tile data
+	 */
+	private void loadChunks(InputStream in) throws IOException {
+		byte[] bytes = new byte[width * CHUNK_SIZE * 4];
+		int[][] band = new int[chunks.getChunksAcross()][CHUNK_SIZE * CHUNK_SIZE];
+		
+		for (int cy=0;cy<chunks.getChunksDown();cy++) {
+			int rows = Math.min(CHUNK_SIZE, height - (cy * CHUNK_SIZE));
+			readFully(in, bytes, width * rows * 4);
+			if (rows < CHUNK_SIZE) {
+				for (int cx=0;cx<band.length;cx++) {
+					Arrays.fill(band[cx], 0);
+				}
+			}
+			
+			for (int y=0;y<rows;y++) {
+				for (int x=0;x<width;x++) {
+					int i = (x + (y * width)) * 4;
+					band[x / CHUNK_SIZE][(x % CHUNK_SIZE) + (y * CHUNK_SIZE)] = 
+						(bytes[i] & 0xff) | 
+						((bytes[i+1] & 0xff) << 8) | 
+						((bytes[i+2] & 0xff) << 16) | 
+						((bytes[i+3] & 0xff) << 24);
+				}
+			}
+			for (int cx=0;cx<band.length;cx++) {
+				chunks.load(cx + (cy * band.length), band[cx]);
+			}
+		}
+	}
+	
+	/**
+	 * Read a given number of bytes from a stream
+	 * 
+	 * @param in The stream to read from
+	 * @param bytes The buffer to read into
+	 * @param length The number of bytes to read
+	 * @throws IOException Indicates the stream ended early or couldn't be read
+	 */
+	private void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(bytes, read, length - read);
+			if (count < 0) {
+				throw new IOException("Layer data ended unexpectedly");
+			}
+			read += count;
+		}
+	}
+	
+	/**
+	 * Ask for the chunks of a streamed layer around a given tile to be decoded in the 
+	 * background, nearest first. This does nothing if the layer isn't streamed.
+	 * 
+	 * @param x The x coordinate of the tile at the centre
+	 * @param y The y coordinate of the tile at the centre
+	 * @param radius The number of chunks either side of the centre to decode
+	 */
+	void prefetch(int x, int y, int radius) {
+		if (chunks == null) {
+			return;
+		}
+		
+		int across = chunks.getChunksAcross();
+		int down = chunks.getChunksDown();
+		chunks.fit(Math.min(across, (radius * 2) + 1) * Math.min(down, (radius * 2) + 1));
+		int fx = Math.max(0, Math.min(x, width - 1)) / CHUNK_SIZE;
+		int fy = Math.max(0, Math.min(y, height - 1)) / CHUNK_SIZE;
+		
+		int[] indices = new int[((radius * 2) + 1) * ((radius * 2) + 1)];
+		int count = 0;
+		for (int r=0;r<=radius;r++) {
+			for (int cy=fy-r;cy<=fy+r;cy++) {
+				for (int cx=fx-r;cx<=fx+r;cx++) {
+					if ((Math.abs(cx - fx) != r) && (Math.abs(cy - fy) != r)) {
+						// in an inner ring
+						continue;
+					}
+					if ((cx < 0) || (cy < 0) || (cx >= across) || (cy >= down)) {
+						continue;
+					}
+					indices[count++] = cx + (cy * across);
+				}
+			}
+		}
+		
+		ChunkDecoder.get().request(chunks, indices, count);
+	}
+	
+	/**
+	 * Make sure a streamed layer keeps all the chunks covering a section decoded at
+	 * once, so rendering it every frame doesn't decode them again. This does nothing if
+	 * the layer isn't streamed.
+	 * 
+	 * @param sx The x tile location of the section
+	 * @param sy The y tile location of the section
+	 * @param width The number of tiles across the section
+	 * @param height The number of tiles down the section
+	 */
+	void fitResident(int sx, int sy, int width, int height) {
+		if (chunks == null) {
+			return;
+		}
+		
+		int startX = Math.max(sx, 0);
+		int startY = Math.max(sy, 0);
+		int endX = Math.min(sx + width, this.width);
+		int endY = Math.min(sy + height, this.height);
+		if ((startX >= endX) || (startY >= endY)) {
+			return;
+		}
+		
+		chunks.fit((((endX - 1) / CHUNK_SIZE) - (startX / CHUNK_SIZE) + 1) * 
+				   (((endY - 1) / CHUNK_SIZE) - (startY / CHUNK_SIZE) + 1));
+	}
+	
 	/**
 	 * Get the gloal ID of the tile at the specified location in
 	 * this layer
@@ -134,7 +276,27 @@ public class Layer {
 	 * @return The global ID of the tile
 	 */
 	public int getTileID(int x, int y) {
-		return data[x][y][2];
+		if (chunks != null) {
+			return chunks.getTileID(x, y);
+		}
+		
+		int i = x + (y * width);
+		if (shortIds != null) {
+			return shortIds[i] & 0xffff;
+		}
+		return intIds[i];
+	}
+	
+	/**
+	 * Get the index of the tileset holding the tile at the specified location
+	 * in this layer
+	 * 
+	 * @param x The x coorindate of the tile
+	 * @param y The y coorindate of the tile
+	 * @return The index of the tileset or -1 if there is no tile or its tileset isn't known
+	 */
+	public int getTileSetIndex(int x, int y) {
+		return map.getTileSetIndex(getTileID(x, y));
 	}
 	
 	/**
@@ -145,17 +307,42 @@ public class Layer {
 	 * @param tile The tile value to set
 	 */
 	public void setTileID(int x, int y, int tile) {
-        if (tile == 0) {
-            data[x][y][0] = -1;
-            data[x][y][1] = 0;
-            data[x][y][2] = 0;
-        } else {
-            TileSet set = map.findTileSet(tile);
-            
-            data[x][y][0] = set.index;
-            data[x][y][1] = tile - set.firstGID;
-            data[x][y][2] = tile;
-        }
+		if (chunks != null) {
+			chunks.setTileID(x, y, tile);
+		} else {
+			store(x + (y * width), tile);
+		}
+		
+		if (chunkLists != null) {
+			int chunk = (x / CHUNK_SIZE) + ((y / CHUNK_SIZE) * chunksAcross);
+			if (chunkLists[chunk] > 0) {
+				GL.glDeleteLists(chunkLists[chunk], 1);
+			}
+			chunkLists[chunk] = NOT_BUILT;
+		}
+	}
+	
+	/**
+	 * Store a global tile ID, switching to int storage if it won't fit in a short
+	 * 
+	 * @param i The index of the location to store at
+	 * @param tile The tile value to store
+	 */
+	private void store(int i, int tile) {
+		if (shortIds != null) {
+			if ((tile & 0xffff) == tile) {
+				shortIds[i] = (short) tile;
+				return;
+			}
+			
+			intIds = new int[shortIds.length];
+			for (int j=0;j<shortIds.length;j++) {
+				intIds[j] = shortIds[j] & 0xffff;
+			}
+			shortIds = null;
+		}
+		
+		intIds[i] = tile;
 	}
 	
 	/**
@@ -178,25 +365,38 @@ public class Layer {
 	 * @param mapTileHeight the tile height specified in the map file
 	 */
 	public void render(int x,int y,int sx,int sy,int width, int ty,boolean lineByLine, int mapTileWidth, int mapTileHeight) {
+		// read the row once rather than once per tileset, a streamed layer only
+		// locks its chunks once for the row
+		int startX = Math.max(sx, 0);
+		int endX = Math.min(sx + width, this.width);
+		if ((sy+ty < 0) || (sy+ty >= this.height) || (startX >= endX)) {
+			startX = endX;
+		} else {
+			if (row.length < endX - startX) {
+				row = new int[endX - startX];
+			}
+			if (chunks != null) {
+				chunks.getRow(startX, sy+ty, endX - startX, row, 0);
+			} else {
+				for (int i=startX;i<endX;i++) {
+					row[i - startX] = getTileID(i, sy+ty);
+				}
+			}
+		}
+		
 		for (int tileset=0;tileset<map.getTileSetCount();tileset++) {
 			TileSet set = null;
 			
-			for (int tx=0;tx<width;tx++) {
-				if ((sx+tx < 0) || (sy+ty < 0)) {
-					continue;
-				}
-				if ((sx+tx >= this.width) || (sy+ty >= this.height)) {
-					continue;
-				}
-				
-				if (data[sx+tx][sy+ty][0] == tileset) {
+			for (int tx=startX-sx;tx<endX-sx;tx++) {
+				int tileId = row[sx+tx-startX];
+				if ((tileId != 0) && (map.getTileSetIndex(tileId) == tileset)) {
 					if (set == null) {
 						set = map.getTileSet(tileset);
 						set.tiles.startUse();
 					}
 					
-					int sheetX = set.getTileX(data[sx+tx][sy+ty][1]);
-					int sheetY = set.getTileY(data[sx+tx][sy+ty][1]);
+					int sheetX = set.getTileX(tileId - set.firstGID);
+					int sheetY = set.getTileY(tileId - set.firstGID);
 					
 					int tileOffsetY = set.tileHeight - mapTileHeight;
 					
@@ -219,6 +419,135 @@ public class Layer {
 		}
 	}
 	
+	/**
+	 * Render a section of this layer using display lists cached for each chunk of
+	 * CHUNK_SIZE by CHUNK_SIZE tiles. Chunks are only built the first time they're
+	 * needed and are rebuilt after a tile in them has been changed. Every chunk that
+	 * overlaps the section is rendered whole, so tiles just outside the section may 
+	 * be drawn too. 
+	 * 
+	 * @param x The x location to render at
+	 * @param y The y location to render at
+	 * @param sx The x tile location to start rendering
+	 * @param sy The y tile location to start rendering
+	 * @param width The number of tiles across to render
+	 * @param height The number of tiles down to render
+	 * @param mapTileWidth the tile width specified in the map file
+	 * @param mapTileHeight the tile height specified in the map file
+	 */
+	public void renderChunks(int x, int y, int sx, int sy, int width, int height, int mapTileWidth, int mapTileHeight) {
+		int startX = Math.max(sx, 0);
+		int startY = Math.max(sy, 0);
+		int endX = Math.min(sx + width, this.width);
+		int endY = Math.min(sy + height, this.height);
+		if ((startX >= endX) || (startY >= endY)) {
+			return;
+		}
+		
+		if (chunkLists == null) {
+			chunksAcross = (this.width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			chunkLists = new int[chunksAcross * ((this.height + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+		}
+		
+		for (int cy=startY / CHUNK_SIZE;cy<=(endY - 1) / CHUNK_SIZE;cy++) {
+			for (int cx=startX / CHUNK_SIZE;cx<=(endX - 1) / CHUNK_SIZE;cx++) {
+				int chunk = cx + (cy * chunksAcross);
+				if (chunkLists[chunk] == NOT_BUILT) {
+					chunkLists[chunk] = buildChunk(cx, cy, mapTileWidth, mapTileHeight);
+				}
+				if (chunkLists[chunk] == EMPTY) {
+					continue;
+				}
+				
+				GL.glPushMatrix();
+				GL.glTranslatef(x + (((cx * CHUNK_SIZE) - sx) * mapTileWidth), 
+								y + (((cy * CHUNK_SIZE) - sy) * mapTileHeight), 0);
+				GL.glCallList(chunkLists[chunk]);
+				GL.glPopMatrix();
+				
+				// the list leaves a tileset texture bound
+				TextureImpl.unbind();
+			}
+		}
+	}
+	
+	/**
+	 * Build the display list for a single chunk of the layer
+	 * 
+	 * @param cx The x index of the chunk
+	 * @param cy The y index of the chunk
+	 * @param mapTileWidth the tile width specified in the map file
+	 * @param mapTileHeight the tile height specified in the map file
+	 * @return The display list built or EMPTY if there are no tiles in the chunk
+	 */
+	private int buildChunk(int cx, int cy, int mapTileWidth, int mapTileHeight) {
+		int startX = cx * CHUNK_SIZE;
+		int startY = cy * CHUNK_SIZE;
+		int endX = Math.min(startX + CHUNK_SIZE, width);
+		int endY = Math.min(startY + CHUNK_SIZE, height);
+		boolean empty = true;
+		
+		int list = GL.glGenLists(1);
+		GL.glNewList(list, SGL.GL_COMPILE);
+		for (int tileset=0;tileset<map.getTileSetCount();tileset++) {
+			TileSet set = null;
+			
+			for (int ty=startY;ty<endY;ty++) {
+				for (int tx=startX;tx<endX;tx++) {
+					int tileId = getTileID(tx, ty);
+					if ((tileId == 0) || (map.getTileSetIndex(tileId) != tileset)) {
+						continue;
+					}
+					
+					if (set == null) {
+						set = map.getTileSet(tileset);
+						// make sure the bind is compiled into the list
+						TextureImpl.unbind();
+						set.tiles.startUse();
+					}
+					
+					int sheetX = set.getTileX(tileId - set.firstGID);
+					int sheetY = set.getTileY(tileId - set.firstGID);
+					int tileOffsetY = set.tileHeight - mapTileHeight;
+					
+					set.tiles.renderInUse((tx - startX) * mapTileWidth, ((ty - startY) * mapTileHeight) - tileOffsetY, sheetX, sheetY);
+				}
+			}
+			
+			if (set != null) {
+				set.tiles.endUse();
+				empty = false;
+			}
+		}
+		GL.glEndList();
+		
+		// the binds were only compiled, not made
+		TextureImpl.unbind();
+		
+		if (empty) {
+			GL.glDeleteLists(list, 1);
+			return EMPTY;
+		}
+		return list;
+	}
+	
+	/**
+	 * Release the display lists cached for the chunks of this layer. They'll
+	 * be built again if the layer is rendered using chunks.
+	 */
+	public void releaseChunks() {
+		if (chunkLists == null) {
+			return;
+		}
+		
+		for (int i=0;i<chunkLists.length;i++) {
+			if (chunkLists[i] > 0) {
+				GL.glDeleteLists(chunkLists[i], 1);
+			}
+		}
+		chunkLists = null;
+	}
+	
 	/**
 	 * Decode a Base64 string as encoded by TilED
 	 * 
@@ -267,4 +596,4 @@ public class Layer {
 
 		return out;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
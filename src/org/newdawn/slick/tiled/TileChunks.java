@@ -0,0 +1,344 @@
+package org.newdawn.slick.tiled;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * The tiles of a streamed layer. Each chunk of Layer.CHUNK_SIZE by Layer.CHUNK_SIZE tiles
+ * is held compressed and only decoded when one of its tiles is used or when it's asked for
+ * ahead of time. A limited number of chunks are kept decoded, the one used least recently
+ * being dropped (and compressed again if it's been changed) to make room for another.
+ *
+ * The limit must cover every chunk a frame uses, or chunks will be dropped and decoded
+ * again each frame. It's raised, with a warning, when a render or prefetch needs more.
+ *
+ * Chunks may be decoded on the ChunkDecoder thread so access is synchronized. Rendering
+ * copies a row of tiles at a time so the lock is taken once per row rather than per tile.
+ *
+ * @author kevin
+ */
+class TileChunks {
+	/** The number of tiles across and down each chunk */
+	private static final int SIZE = Layer.CHUNK_SIZE;
+	/** The number of tiles in each chunk */
+	private static final int TILES = SIZE * SIZE;
+
+	/** The number of chunks across the layer */
+	private int chunksAcross;
+	/** The compressed tiles of each chunk, null if the chunk has no tiles */
+	private byte[][] packed;
+	/** The decoded tiles of each chunk, null if the chunk isn't resident */
+	private int[][] decoded;
+	/** True for chunks that have been changed since they were compressed */
+	private boolean[] dirty;
+	/** The time each chunk was last used */
+	private long[] used;
+	/** The chunks currently decoded */
+	private int[] resident;
+	/** The number of chunks currently decoded */
+	private int residentCount;
+	/** The counter used to order uses of the chunks */
+	private long clock;
+	/** The deflater used to compress chunks */
+	private Deflater deflater = new Deflater();
+	/** The inflater used to decode chunks needed immediately */
+	private Inflater inflater = new Inflater();
+
+	/**
+	 * Create a new set of empty chunks
+	 *
+	 * @param width The width of the layer in tiles
+	 * @param height The height of the layer in tiles
+	 * @param limit The maximum number of chunks to keep decoded
+	 */
+	TileChunks(int width, int height, int limit) {
+		chunksAcross = (width + SIZE - 1) / SIZE;
+		int count = chunksAcross * ((height + SIZE - 1) / SIZE);
+		packed = new byte[count][];
+		decoded = new int[count][];
+		dirty = new boolean[count];
+		used = new long[count];
+		resident = new int[Math.max(1, limit)];
+	}
+
+	/**
+	 * Get the number of chunks across the layer
+	 *
+	 * @return The number of chunks across the layer
+	 */
+	int getChunksAcross() {
+		return chunksAcross;
+	}
+
+	/**
+	 * Get the number of chunks down the layer
+	 *
+	 * @return The number of chunks down the layer
+	 */
+	int getChunksDown() {
+		return packed.length / chunksAcross;
+	}
+
+	/**
+	 * Get the number of chunks currently decoded
+	 *
+	 * @return The number of chunks currently decoded
+	 */
+	synchronized int getResidentCount() {
+		return residentCount;
+	}
+
+	/**
+	 * Make sure a number of chunks can be kept decoded at once, raising the limit if
+	 * it's too low
+	 *
+	 * @param count The number of chunks that need to be decoded at once
+	 */
+	synchronized void fit(int count) {
+		if (count <= resident.length) {
+			return;
+		}
+
+		Log.warn("Streamed layer needs "+count+" chunks decoded at once but only "+resident.length+
+				 " are kept, raising the limit to avoid decoding chunks every frame");
+		int[] newResident = new int[count];
+		System.arraycopy(resident, 0, newResident, 0, residentCount);
+		resident = newResident;
+	}
+
+	/**
+	 * Set the tiles of a chunk while the layer is being loaded. The chunk is compressed
+	 * straight away.
+	 *
+	 * @param chunk The index of the chunk
+	 * @param tiles The global tile ids of the chunk, indexed by x + (y * CHUNK_SIZE)
+	 */
+	synchronized void load(int chunk, int[] tiles) {
+		packed[chunk] = pack(tiles, deflater);
+	}
+
+	/**
+	 * Get the global tile id at a given location, decoding its chunk if needed
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @return The global tile id at the location
+	 */
+	synchronized int getTileID(int x, int y) {
+		int[] tiles = getTiles((x / SIZE) + ((y / SIZE) * chunksAcross));
+		if (tiles == null) {
+			return 0;
+		}
+
+		return tiles[(x % SIZE) + ((y % SIZE) * SIZE)];
+	}
+
+	/**
+	 * Copy the global tile ids along part of a row, decoding each chunk crossed once
+	 *
+	 * @param x The x coordinate of the first tile
+	 * @param y The y coordinate of the row
+	 * @param count The number of tiles to copy, all inside the layer
+	 * @param out The array to copy the tile ids into
+	 * @param offset The index in the array of the first tile
+	 */
+	synchronized void getRow(int x, int y, int count, int[] out, int offset) {
+		int rowStart = (y % SIZE) * SIZE;
+		int end = x + count;
+		while (x < end) {
+			int span = Math.min(SIZE - (x % SIZE), end - x);
+			int[] tiles = getTiles((x / SIZE) + ((y / SIZE) * chunksAcross));
+			if (tiles == null) {
+				for (int i=0;i<span;i++) {
+					out[offset + i] = 0;
+				}
+			} else {
+				System.arraycopy(tiles, rowStart + (x % SIZE), out, offset, span);
+			}
+
+			x += span;
+			offset += span;
+		}
+	}
+
+	/**
+	 * Get the decoded tiles of a chunk, decoding them if needed
+	 *
+	 * @param chunk The index of the chunk
+	 * @return The decoded tiles or null if the chunk has no tiles
+	 */
+	private int[] getTiles(int chunk) {
+		int[] tiles = decoded[chunk];
+		if (tiles == null) {
+			if (packed[chunk] == null) {
+				return null;
+			}
+			tiles = unpack(packed[chunk], inflater);
+			makeResident(chunk, tiles);
+		}
+		used[chunk] = ++clock;
+
+		return tiles;
+	}
+
+	/**
+	 * Set the global tile id at a given location, decoding its chunk if needed
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @param tile The global tile id to set
+	 */
+	synchronized void setTileID(int x, int y, int tile) {
+		int chunk = (x / SIZE) + ((y / SIZE) * chunksAcross);
+		int[] tiles = decoded[chunk];
+		if (tiles == null) {
+			if ((packed[chunk] == null) && (tile == 0)) {
+				return;
+			}
+			tiles = packed[chunk] == null ? new int[TILES] : unpack(packed[chunk], inflater);
+			makeResident(chunk, tiles);
+		}
+		used[chunk] = ++clock;
+
+		tiles[(x % SIZE) + ((y % SIZE) * SIZE)] = tile;
+		dirty[chunk] = true;
+	}
+
+	/**
+	 * Get the compressed tiles of a chunk that needs decoding
+	 *
+	 * @param chunk The index of the chunk
+	 * @return The compressed tiles or null if the chunk is already decoded or has no tiles
+	 */
+	synchronized byte[] getPacked(int chunk) {
+		if (decoded[chunk] != null) {
+			return null;
+		}
+		return packed[chunk];
+	}
+
+	/**
+	 * Keep the tiles of a chunk decoded on another thread.
+	 *
+	 * @param chunk The index of the chunk
+	 * @param source The compressed tiles that were decoded
+	 * @param tiles The decoded tiles
+	 */
+	synchronized void install(int chunk, byte[] source, int[] tiles) {
+		if ((decoded[chunk] != null) || (packed[chunk] != source)) {
+			// decoded or changed while we were working
+			return;
+		}
+
+		makeResident(chunk, tiles);
+		used[chunk] = ++clock;
+	}
+
+	/**
+	 * Keep the tiles of a chunk decoded, dropping the chunk used least recently
+	 * if there are already too many decoded
+	 *
+	 * @param chunk The index of the chunk
+	 * @param tiles The decoded tiles of the chunk
+	 */
+	private void makeResident(int chunk, int[] tiles) {
+		if (residentCount < resident.length) {
+			resident[residentCount++] = chunk;
+		} else {
+			int oldest = 0;
+			for (int i=1;i<residentCount;i++) {
+				if (used[resident[i]] < used[resident[oldest]]) {
+					oldest = i;
+				}
+			}
+
+			int evicted = resident[oldest];
+			if (dirty[evicted]) {
+				packed[evicted] = pack(decoded[evicted], deflater);
+				dirty[evicted] = false;
+			}
+			decoded[evicted] = null;
+			resident[oldest] = chunk;
+		}
+
+		decoded[chunk] = tiles;
+	}
+
+	/**
+	 * Compress the tiles of a chunk
+	 *
+	 * @param tiles The tiles to compress
+	 * @param deflater The deflater to compress with
+	 * @return The compressed tiles or null if there are no tiles in the chunk
+	 */
+	static byte[] pack(int[] tiles, Deflater deflater) {
+		boolean empty = true;
+		byte[] bytes = new byte[TILES * 4];
+		for (int i=0;i<TILES;i++) {
+			int tile = tiles[i];
+			if (tile != 0) {
+				empty = false;
+			}
+			bytes[i*4] = (byte) tile;
+			bytes[(i*4)+1] = (byte) (tile >> 8);
+			bytes[(i*4)+2] = (byte) (tile >> 16);
+			bytes[(i*4)+3] = (byte) (tile >> 24);
+		}
+		if (empty) {
+			return null;
+		}
+
+		deflater.reset();
+		deflater.setInput(bytes);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+		byte[] buffer = new byte[1024];
+		while (!deflater.finished()) {
+			int count = deflater.deflate(buffer);
+			out.write(buffer, 0, count);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode the tiles of a chunk
+	 *
+	 * @param data The compressed tiles
+	 * @param inflater The inflater to decode with
+	 * @return The decoded tiles
+	 */
+	static int[] unpack(byte[] data, Inflater inflater) {
+		byte[] bytes = new byte[TILES * 4];
+
+		inflater.reset();
+		inflater.setInput(data);
+		try {
+			int read = 0;
+			while (read < bytes.length) {
+				int count = inflater.inflate(bytes, read, bytes.length - read);
+				if ((count == 0) && (inflater.finished() || inflater.needsInput())) {
+					throw new RuntimeException("Tile chunk data is truncated");
+				}
+				read += count;
+			}
+		} catch (DataFormatException e) {
+			throw new RuntimeException("Tile chunk data is corrupt: "+e.getMessage());
+		}
+
+		int[] tiles = new int[TILES];
+		for (int i=0;i<TILES;i++) {
+			tiles[i] = (bytes[i*4] & 0xff) |
+					   ((bytes[(i*4)+1] & 0xff) << 8) |
+					   ((bytes[(i*4)+2] & 0xff) << 16) |
+					   ((bytes[(i*4)+3] & 0xff) << 24);
+		}
+
+		return tiles;
+	}
+}
@@ -77,6 +77,15 @@ public class TiledMap {
 	/** True if we want to load tilesets - including their image data */
 	private boolean loadTileSets = true;
 	
+	/** The largest number of global tile ids we'll build a lookup table for */
+	private static final int MAX_LOOKUP_SIZE = 1 << 20;
+	/** The index of the tileset holding each global tile id, -1 if there isn't one */
+	private int[] tileSetLookup = new int[0];
+	/** True if orthogonal layers should be rendered from cached chunks */
+	private boolean chunkCaching;
+	/** The number of chunks of each layer kept decoded when streaming, 0 if the layers aren't streamed */
+	private int residentChunks;
+	
 	/**
 	 * Create a new tile map based on a given TMX file
 	 * 
@@ -111,6 +120,30 @@ public class TiledMap {
 		load(ResourceLoader.getResourceAsStream(ref), tileSetsLocation);
 	}
 	
+	/**
+	 * Create a new tile map based on a given TMX file, streaming the layers. The
+	 * tiles of each layer are held compressed in chunks of Layer.CHUNK_SIZE by 
+	 * Layer.CHUNK_SIZE tiles. A chunk is decoded when one of its tiles is used, or
+	 * in the background when it's near the point given to setFocus(). Only a limited 
+	 * number of chunks of each layer are kept decoded, those used least recently are
+	 * dropped to make room.
+	 * 
+	 * The limit should cover every chunk used in a frame: the chunks a render overlaps,
+	 * i.e. (tiles across / CHUNK_SIZE + 1) * (tiles down / CHUNK_SIZE + 1) for the 
+	 * section rendered, or (radius * 2 + 1) squared for setFocus(), whichever is larger.
+	 * Otherwise chunks would be dropped and decoded again every frame, so the limit is 
+	 * raised to fit, with a warning, the first time a render or setFocus() needs more.
+	 * 
+	 * @param ref The location of the tile map to load
+	 * @param tileSetsLocation The location where we can find the tileset images and other resources
+	 * @param residentChunks The number of chunks of each layer to keep decoded
+	 * @throws SlickException Indicates a failure to load the tilemap
+	 */
+	public TiledMap(String ref, String tileSetsLocation, int residentChunks) throws SlickException {
+		this.residentChunks = residentChunks;
+		load(ResourceLoader.getResourceAsStream(ref), tileSetsLocation);
+	}
+	
 	/**
 	 * Load a tile map from an arbitary input stream
 	 * 
@@ -132,6 +165,33 @@ public class TiledMap {
 		load(in, tileSetsLocation);
 	}
 	
+	/**
+	 * Get the number of chunks of each layer kept decoded when the layers
+	 * are streamed
+	 * 
+	 * @return The number of chunks kept decoded, or 0 if the layers aren't streamed
+	 */
+	public int getResidentChunks() {
+		return residentChunks;
+	}
+	
+	/**
+	 * Indicate the area of a streamed map that's about to be used, e.g. the tile
+	 * at the centre of the screen. The chunks around it are decoded in the background 
+	 * so they're ready when needed. The number of chunks kept decoded must be at least 
+	 * (radius * 2 + 1) squared or the chunks will be dropped again before they're used.
+	 * This does nothing if the layers aren't streamed.
+	 * 
+	 * @param x The x coordinate of the tile at the centre of the area
+	 * @param y The y coordinate of the tile at the centre of the area
+	 * @param radius The number of chunks either side of the centre to decode
+	 */
+	public void setFocus(int x, int y, int radius) {
+		for (int i=0;i<layers.size();i++) {
+			((Layer) layers.get(i)).prefetch(x, y, radius);
+		}
+	}
+	
 	/**
 	 * Get the location of the tile images specified
 	 * 
@@ -173,12 +233,13 @@ public class TiledMap {
    public Image getTileImage(int x, int y, int layerIndex) {
       Layer layer = (Layer) layers.get(layerIndex);
       
-      int tileSetIndex = layer.data[x][y][0];
+      int tileId = layer.getTileID(x, y);
+      int tileSetIndex = getTileSetIndex(tileId);
       if ((tileSetIndex >= 0) && (tileSetIndex < tileSets.size())) {
     	  TileSet tileSet = (TileSet) tileSets.get(tileSetIndex);
     	  
-          int sheetX = tileSet.getTileX(layer.data[x][y][1]);
-          int sheetY = tileSet.getTileY(layer.data[x][y][1]);
+          int sheetX = tileSet.getTileX(tileId - tileSet.firstGID);
+          int sheetY = tileSet.getTileY(tileId - tileSet.firstGID);
           
           return tileSet.tiles.getSprite(sheetX, sheetY);
       }
@@ -364,6 +425,11 @@ public class TiledMap {
 		
 		switch(orientation){
 		case ORTHOGONAL:
+			if (chunkCaching && !lineByLine) {
+				layer.renderChunks(x,y,sx,sy,width,height,tileWidth,tileHeight);
+				break;
+			}
+			layer.fitResident(sx,sy,width,height);
 			for (int ty=0;ty<height;ty++) {
 				layer.render(x,y,sx,sy,width,ty,lineByLine, tileWidth, tileHeight);
 			}
@@ -391,6 +457,16 @@ public class TiledMap {
 	public void render(int x,int y,int sx,int sy,int width,int height, boolean lineByLine) {
 		switch(orientation){
 		case ORTHOGONAL:
+			if (chunkCaching && !lineByLine) {
+				for (int i=0;i<layers.size();i++) {
+					Layer layer = (Layer) layers.get(i);
+					layer.renderChunks(x,y,sx,sy,width,height,tileWidth,tileHeight);
+				}
+				break;
+			}
+			for (int i=0;i<layers.size();i++) {
+				((Layer) layers.get(i)).fitResident(sx,sy,width,height);
+			}
 			for (int ty=0;ty<height;ty++) {
 				for (int i=0;i<layers.size();i++) {
 					Layer layer = (Layer) layers.get(i);
@@ -427,6 +503,9 @@ public class TiledMap {
 			drawLayers = new ArrayList();
 			drawLayers.add(layer);
 		}
+		for (int i=0;i<drawLayers.size();i++) {
+			((Layer) drawLayers.get(i)).fitResident(0,0,width,height);
+		}
 		
 		int maxCount = width * height;
 		int allCount = 0;
@@ -575,6 +654,7 @@ public class TiledMap {
 					tileSets.add(tileSet);
 				}
 			}
+			buildTileSetLookup();
 			
 			NodeList layerNodes = docElement.getElementsByTagName("layer");
 			for (int i=0;i<layerNodes.getLength();i++) {
@@ -645,6 +725,11 @@ public class TiledMap {
 	 * @return The tileset in which that tile lives or null if the gid is not defined
 	 */
 	public TileSet findTileSet(int gid) {
+		if ((gid > 0) && (gid < tileSetLookup.length)) {
+			int index = tileSetLookup[gid];
+			return index < 0 ? null : (TileSet) tileSets.get(index);
+		}
+		
 		for (int i=0;i<tileSets.size();i++) {
 			TileSet set = (TileSet) tileSets.get(i);
 			
@@ -656,6 +741,87 @@ public class TiledMap {
 		return null;
 	}
 	
+	/**
+	 * Indicate whether orthogonal maps should be rendered from display lists cached
+	 * for each chunk of Layer.CHUNK_SIZE by Layer.CHUNK_SIZE tiles, rather than 
+	 * drawing every tile each frame. Chunks are rebuilt when setTileId() changes 
+	 * one of their tiles. Rendering line by line always draws each tile.
+	 * 
+	 * Chunks overlapping the section being rendered are drawn whole so tiles
+	 * outside the section may also be drawn. Layers are drawn one after another 
+	 * rather than line by line.
+	 * 
+	 * @param chunkCaching True if chunks should be cached 
+	 */
+	public void setChunkCaching(boolean chunkCaching) {
+		this.chunkCaching = chunkCaching;
+		
+		if (!chunkCaching) {
+			for (int i=0;i<layers.size();i++) {
+				((Layer) layers.get(i)).releaseChunks();
+			}
+		}
+	}
+	
+	/**
+	 * Check if the map is being rendered from cached chunks
+	 * 
+	 * @return True if the map is being rendered from cached chunks
+	 */
+	public boolean isChunkCaching() {
+		return chunkCaching;
+	}
+	
+	/**
+	 * Get the index of the tileset holding a given global tile id
+	 * 
+	 * @param gid The global tile id we're looking for
+	 * @return The index of the tileset in which that tile lives or -1 if the gid is not defined
+	 */
+	public int getTileSetIndex(int gid) {
+		if (gid <= 0) {
+			return -1;
+		}
+		if (gid < tileSetLookup.length) {
+			return tileSetLookup[gid];
+		}
+		
+		TileSet set = findTileSet(gid);
+		return set == null ? -1 : set.index;
+	}
+	
+	/**
+	 * Build the table used to find the tileset holding a global tile id. This
+	 * must be called again if the tilesets are changed. Ids past the end of the 
+	 * table, e.g. in a tileset whose size isn't known, are found by searching
+	 * the tilesets.
+	 */
+	protected void buildTileSetLookup() {
+		int end = 0;
+		for (int i=0;i<tileSets.size();i++) {
+			TileSet set = (TileSet) tileSets.get(i);
+			if (set.lastGID != Integer.MAX_VALUE) {
+				end = Math.max(end, set.lastGID + 1);
+			}
+			end = Math.max(end, set.firstGID);
+		}
+		end = Math.min(end, MAX_LOOKUP_SIZE);
+		
+		tileSetLookup = new int[end];
+		for (int gid=0;gid<end;gid++) {
+			tileSetLookup[gid] = -1;
+		}
+		for (int i=0;i<tileSets.size();i++) {
+			TileSet set = (TileSet) tileSets.get(i);
+			int last = Math.min(set.lastGID, end - 1);
+			for (int gid=Math.max(set.firstGID, 1);gid<=last;gid++) {
+				if (tileSetLookup[gid] < 0) {
+					tileSetLookup[gid] = i;
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Overrideable to allow other sprites to be rendered between lines of the
 	 * map
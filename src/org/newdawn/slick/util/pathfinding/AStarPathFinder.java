@@ -1,9 +1,5 @@
 package org.newdawn.slick.util.pathfinding;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
 import org.newdawn.slick.util.pathfinding.heuristics.ClosestHeuristic;
 
 /**
@@ -13,10 +9,12 @@ import org.newdawn.slick.util.pathfinding.heuristics.ClosestHeuristic;
  * @author Kevin Glass
  */
 public class AStarPathFinder implements PathFinder, PathFindingContext {
-	/** The set of nodes that have been searched through */
-	private ArrayList closed = new ArrayList();
 	/** The set of nodes that we do not yet consider fully searched */
 	private PriorityList open = new PriorityList();
+	/** The number of the current search, nodes with a different number haven't been touched by it */
+	private int search;
+	/** The number of nodes added to the open list in the current search */
+	private int added;
 	
 	/** The map being searched */
 	private TileBasedMap map;
@@ -91,21 +89,20 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 			return null;
 		}
 
-		for (int x=0;x<map.getWidthInTiles();x++) {
-			for (int y=0;y<map.getHeightInTiles();y++) {
-				nodes[x][y].reset();
-			}
-		}
+		// rather than resetting every node, start a new search. Nodes are reset
+		// the first time this search touches them
+		search++;
+		added = 0;
 		
 		// initial state for A*. The closed group is empty. Only the starting
 		// tile is in the open list and it's cost is zero, i.e. we're already there
-		nodes[sx][sy].cost = 0;
-		nodes[sx][sy].depth = 0;
-		closed.clear();
+		Node start = getNode(sx, sy);
+		start.cost = 0;
+		start.depth = 0;
 		open.clear();
-		addToOpen(nodes[sx][sy]);
+		addToOpen(start);
 		
-		nodes[tx][ty].parent = null;
+		Node end = getNode(tx, ty);
 		
 		// while we haven't found the goal and haven't exceeded our max search depth
 		int maxDepth = 0;
@@ -122,7 +119,7 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 			current = getFirstInOpen();
 			distance = current.depth;
 			
-			if (current == nodes[tx][ty]) {
+			if (current == end) {
 				if (isValidLocation(mover,lx,ly,tx,ty)) {
 					break;
 				}
@@ -157,7 +154,7 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 						// cost to reach this node. Note that the heursitic value is only used
 						// in the sorted open list
 						float nextStepCost = current.cost + getMovementCost(mover, current.x, current.y, xp, yp);
-						Node neighbour = nodes[xp][yp];
+						Node neighbour = getNode(xp, yp);
 						map.pathFinderVisited(xp, yp);
 						
 						// if the new cost we've determined for this node is lower than 
@@ -166,7 +163,12 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 						// this node so it needs to be re-evaluated
 						if (nextStepCost < neighbour.cost) {
 							if (inOpenList(neighbour)) {
-								removeFromOpen(neighbour);
+								// already waiting to be searched, just move it up the list 
+								neighbour.cost = nextStepCost;
+								maxDepth = Math.max(maxDepth, neighbour.setParent(current));
+								neighbour.order = added++;
+								open.decreased(neighbour);
+								continue;
 							}
 							if (inClosedList(neighbour)) {
 								removeFromClosed(neighbour);
@@ -189,7 +191,7 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 
 		// since we've got an empty open list or we've run out of search 
 		// there was no path. Just return null
-		if (nodes[tx][ty].parent == null) {
+		if (end.parent == null) {
 			return null;
 		}
 		
@@ -197,8 +199,8 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		// references of the nodes to find out way from the target location back
 		// to the start recording the nodes on the way.
 		Path path = new Path();
-		Node target = nodes[tx][ty];
-		while (target != nodes[sx][sy]) {
+		Node target = end;
+		while (target != start) {
 			path.prependStep(target.x, target.y);
 			target = target.parent;
 		}
@@ -234,6 +236,24 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		return current.y;
 	}
 	
+	/**
+	 * Get the node at a given location, resetting it if it hasn't been
+	 * touched by the current search
+	 * 
+	 * @param x The x coordinate of the node
+	 * @param y The y coordinate of the node
+	 * @return The node at the given location
+	 */
+	private Node getNode(int x, int y) {
+		Node node = nodes[x][y];
+		if (node.search != search) {
+			node.reset();
+			node.search = search;
+		}
+		
+		return node;
+	}
+	
 	/**
 	 * Get the first element from the open list. This is the next
 	 * one to be searched.
@@ -251,6 +271,7 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 	 */
 	protected void addToOpen(Node node) {
 		node.setOpen(true);
+		node.order = added++;
 		open.add(node);
 	}
 	
@@ -281,7 +302,6 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 	 */
 	protected void addToClosed(Node node) {
 		node.setClosed(true);
-		closed.add(node);
 	}
 	
 	/**
@@ -301,7 +321,6 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 	 */
 	protected void removeFromClosed(Node node) {
 		node.setClosed(false);
-		closed.remove(node);
 	}
 	
 	/**
@@ -361,13 +380,17 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 	}
 	
 	/**
-	 * A list that sorts any element provided into the list
+	 * A binary heap of nodes, the node with the lowest total cost at the top. 
+	 * Each node records its position in the heap so it can be removed or moved 
+	 * up when its cost falls without searching for it.
 	 *
 	 * @author kevin
 	 */
 	private class PriorityList {
-		/** The list of elements */
-		private List list = new LinkedList();
+		/** The nodes in the heap */
+		private Node[] heap = new Node[64];
+		/** The number of nodes in the heap */
+		private int size;
 		
 		/**
 		 * Retrieve the first element from the list
@@ -375,14 +398,17 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		 * @return The first element from the list
 		 */
 		public Object first() {
-			return list.get(0);
+			return heap[0];
 		}
 		
 		/**
 		 * Empty the list
 		 */
 		public void clear() {
-			list.clear();
+			for (int i=0;i<size;i++) {
+				heap[i] = null;
+			}
+			size = 0;
 		}
 		
 		/**
@@ -391,17 +417,17 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		 * @param o The element to add
 		 */
 		public void add(Object o) {
-			// float the new entry 
-			for (int i=0;i<list.size();i++) {
-				if (((Comparable) list.get(i)).compareTo(o) > 0) {
-					list.add(i, o);
-					break;
-				}
+			if (size == heap.length) {
+				Node[] newHeap = new Node[size * 2];
+				System.arraycopy(heap, 0, newHeap, 0, size);
+				heap = newHeap;
 			}
-			if (!list.contains(o)) {
-				list.add(o);
-			}
-			//Collections.sort(list);
+			
+			Node node = (Node) o;
+			heap[size] = node;
+			node.heapIndex = size;
+			size++;
+			up(node.heapIndex);
 		}
 		
 		/**
@@ -410,7 +436,32 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		 * @param o The element to remove
 		 */
 		public void remove(Object o) {
-			list.remove(o);
+			Node node = (Node) o;
+			int index = node.heapIndex;
+			if ((index < 0) || (index >= size) || (heap[index] != node)) {
+				return;
+			}
+			
+			size--;
+			node.heapIndex = -1;
+			if (index != size) {
+				heap[index] = heap[size];
+				heap[index].heapIndex = index;
+				heap[size] = null;
+				up(index);
+				down(heap[index].heapIndex);
+			} else {
+				heap[size] = null;
+			}
+		}
+		
+		/**
+		 * Notify the list that the cost of an element has fallen
+		 * 
+		 * @param o The element whose cost has fallen
+		 */
+		public void decreased(Object o) {
+			up(((Node) o).heapIndex);
 		}
 	
 		/**
@@ -419,7 +470,7 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		 * @return The number of element in the list
  		 */
 		public int size() {
-			return list.size();
+			return size;
 		}
 		
 		/**
@@ -429,13 +480,62 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		 * @return True if the element is in the list
 		 */
 		public boolean contains(Object o) {
-			return list.contains(o);
+			Node node = (Node) o;
+			return (node.heapIndex >= 0) && (node.heapIndex < size) && (heap[node.heapIndex] == node);
+		}
+		
+		/**
+		 * Move the node at a given position up the heap until it's below 
+		 * a node that should come before it
+		 * 
+		 * @param index The position of the node to move
+		 */
+		private void up(int index) {
+			Node node = heap[index];
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (heap[parent].compareTo(node) <= 0) {
+					break;
+				}
+				heap[index] = heap[parent];
+				heap[index].heapIndex = index;
+				index = parent;
+			}
+			heap[index] = node;
+			node.heapIndex = index;
+		}
+		
+		/**
+		 * Move the node at a given position down the heap until it's above
+		 * the nodes that should come after it
+		 * 
+		 * @param index The position of the node to move
+		 */
+		private void down(int index) {
+			Node node = heap[index];
+			while (true) {
+				int child = (index * 2) + 1;
+				if (child >= size) {
+					break;
+				}
+				if ((child + 1 < size) && (heap[child + 1].compareTo(heap[child]) < 0)) {
+					child++;
+				}
+				if (node.compareTo(heap[child]) <= 0) {
+					break;
+				}
+				heap[index] = heap[child];
+				heap[index].heapIndex = index;
+				index = child;
+			}
+			heap[index] = node;
+			node.heapIndex = index;
 		}
 		
 		public String toString() {
 			String temp = "{";
 			for (int i=0;i<size();i++) {
-				temp += list.get(i).toString()+",";
+				temp += heap[i].toString()+",";
 			}
 			temp += "}";
 			
@@ -463,6 +563,12 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 		private boolean open;
 		/** In the closed list */
 		private boolean closed;
+		/** The search that last touched this node */
+		private int search;
+		/** The position of this node in the open list's heap */
+		private int heapIndex = -1;
+		/** The order in which this node was added to the open list, used to break ties */
+		private int order;
 		
 		/**
 		 * Create a new node
@@ -502,7 +608,8 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 			} else if (f > of) {
 				return 1;
 			} else {
-				return 0;
+				// nodes of equal cost are searched in the order they were added
+				return order - o.order;
 			}
 		}
 		
@@ -550,6 +657,8 @@ public class AStarPathFinder implements PathFinder, PathFindingContext {
 			open = false;
 			cost = 0;
 			depth = 0;
+			parent = null;
+			heapIndex = -1;
 		}
 		
 		/**
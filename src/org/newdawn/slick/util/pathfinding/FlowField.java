@@ -0,0 +1,560 @@
+package org.newdawn.slick.util.pathfinding;
+
+import org.newdawn.slick.util.pathfinding.heuristics.ClosestHeuristic;
+
+/**
+ * A field giving the direction to move from every tile on a map to reach a single
+ * goal. The cost of reaching the goal from every tile is worked out once, searching
+ * outwards from the goal, and the step to take from each tile is recorded so any
+ * number of movers heading for the same goal can find their next step without
+ * searching.
+ *
+ * Moves are costed and checked against the map in the same way as AStarPathFinder
+ * so the paths followed are as short as those it would find. Where there's more than
+ * one best step from a tile the heuristic picks the one closest to the goal, giving
+ * straighter looking movement.
+ *
+ * When tiles on the map change only the tiles whose best route went through them are
+ * worked out again.
+ *
+ * @author kevin
+ */
+public class FlowField implements PathFindingContext {
+	/** The cost given to tiles from which the goal can't be reached */
+	public static final float UNREACHABLE = Float.MAX_VALUE;
+
+	/** The map the field covers */
+	private TileBasedMap map;
+	/** The width of the map in tiles */
+	private int width;
+	/** The height of the map in tiles */
+	private int height;
+	/** True if we allow diaganol movement */
+	private boolean allowDiagMovement;
+	/** The heuristic used to choose between equally good steps */
+	private AStarHeuristic heuristic;
+
+	/** The x coordinate of the goal */
+	private int goalX = -1;
+	/** The y coordinate of the goal */
+	private int goalY = -1;
+	/** The cost of reaching the goal from each tile, indexed by x + (y * width) */
+	private float[] cost;
+	/** The index of the tile to step to from each tile, -1 if there isn't one */
+	private int[] next;
+	/** The number of steps to the goal from each tile */
+	private int[] depth;
+	/** The tiles waiting to be searched from, a binary heap ordered by cost */
+	private int[] open;
+	/** The number of tiles waiting to be searched from */
+	private int openSize;
+	/** The position of each tile in the open heap, -1 if it's not there */
+	private int[] openIndex;
+	/** True for each tile that's being worked out again after a change */
+	private boolean[] invalid;
+	/** The tiles being worked out again after a change */
+	private int[] invalidList;
+
+	/** The mover the field is being worked out for */
+	private Mover mover;
+	/** The x coordinate of the source tile we're moving from */
+	private int sourceX;
+	/** The y coordinate of the source tile we're moving from */
+	private int sourceY;
+	/** The number of steps from the goal of the tile being considered */
+	private int distance;
+
+	/**
+	 * Create a flow field with the default heuristic - closest to target.
+	 *
+	 * @param map The map the field covers
+	 * @param allowDiagMovement True if movers should be able to move diaganolly
+	 */
+	public FlowField(TileBasedMap map, boolean allowDiagMovement) {
+		this(map, allowDiagMovement, new ClosestHeuristic());
+	}
+
+	/**
+	 * Create a flow field
+	 *
+	 * @param map The map the field covers
+	 * @param allowDiagMovement True if movers should be able to move diaganolly
+	 * @param heuristic The heuristic used to choose between equally good steps
+	 */
+	public FlowField(TileBasedMap map, boolean allowDiagMovement, AStarHeuristic heuristic) {
+		this.map = map;
+		this.allowDiagMovement = allowDiagMovement;
+		this.heuristic = heuristic;
+
+		width = map.getWidthInTiles();
+		height = map.getHeightInTiles();
+		cost = new float[width * height];
+		next = new int[width * height];
+		depth = new int[width * height];
+		open = new int[width * height];
+		openIndex = new int[width * height];
+		invalid = new boolean[width * height];
+		invalidList = new int[width * height];
+
+		clear();
+		for (int i=0;i<openIndex.length;i++) {
+			openIndex[i] = -1;
+		}
+	}
+
+	/**
+	 * Work out the field for a new goal
+	 *
+	 * @param mover The mover the field is worked out for, the map is told about it
+	 * through the PathFindingContext
+	 * @param tx The x coordinate of the goal
+	 * @param ty The y coordinate of the goal
+	 */
+	public void setGoal(Mover mover, int tx, int ty) {
+		this.mover = mover;
+		this.goalX = tx;
+		this.goalY = ty;
+
+		clear();
+
+		// just like A*, if the goal is blocked we can't get there from anywhere
+		this.sourceX = tx;
+		this.sourceY = ty;
+		this.distance = 0;
+		if (map.blocked(this, tx, ty)) {
+			return;
+		}
+
+		int goal = tx + (ty * width);
+		cost[goal] = 0;
+		depth[goal] = 0;
+		push(goal);
+		search();
+	}
+
+	/**
+	 * Notify the field that a tile on the map has changed, e.g. become blocked or
+	 * changed cost.
+	 *
+	 * @param x The x coordinate of the tile that changed
+	 * @param y The y coordinate of the tile that changed
+	 */
+	public void tileChanged(int x, int y) {
+		tilesChanged(x, y, 1, 1);
+	}
+
+	/**
+	 * Notify the field that an area of the map has changed. The tiles whose best
+	 * route to the goal went through the area are worked out again.
+	 *
+	 * @param x The x coordinate of the top left of the area
+	 * @param y The y coordinate of the top left of the area
+	 * @param w The width of the area in tiles
+	 * @param h The height of the area in tiles
+	 */
+	public void tilesChanged(int x, int y, int w, int h) {
+		if ((goalX < 0) || (goalY < 0)) {
+			return;
+		}
+		if ((goalX >= x) && (goalY >= y) && (goalX < x + w) && (goalY < y + h)) {
+			setGoal(mover, goalX, goalY);
+			return;
+		}
+
+		int xs = Math.max(0, x);
+		int ys = Math.max(0, y);
+		int xe = Math.min(width, x + w);
+		int ye = Math.min(height, y + h);
+
+		// every tile that stepped through a changed tile, directly or further along
+		// its route, no longer knows its way to the goal
+		int count = 0;
+		for (int cx=xs;cx<xe;cx++) {
+			for (int cy=ys;cy<ye;cy++) {
+				int index = cx + (cy * width);
+				if (!invalid[index]) {
+					invalid[index] = true;
+					invalidList[count++] = index;
+				}
+			}
+		}
+		for (int i=0;i<count;i++) {
+			int index = invalidList[i];
+			int ix = index % width;
+			int iy = index / width;
+
+			for (int dx=-1;dx<2;dx++) {
+				for (int dy=-1;dy<2;dy++) {
+					if (!isNeighbour(ix, iy, dx, dy)) {
+						continue;
+					}
+
+					int neighbour = (ix + dx) + ((iy + dy) * width);
+					if ((next[neighbour] == index) && (!invalid[neighbour])) {
+						invalid[neighbour] = true;
+						invalidList[count++] = neighbour;
+					}
+				}
+			}
+		}
+		for (int i=0;i<count;i++) {
+			int index = invalidList[i];
+			cost[index] = UNREACHABLE;
+			next[index] = -1;
+		}
+
+		// start them off from the best of their neighbours that are still valid and
+		// let the search sort the rest out
+		for (int i=0;i<count;i++) {
+			int index = invalidList[i];
+			int ix = index % width;
+			int iy = index / width;
+
+			for (int dx=-1;dx<2;dx++) {
+				for (int dy=-1;dy<2;dy++) {
+					if (!isNeighbour(ix, iy, dx, dy)) {
+						continue;
+					}
+
+					int neighbour = (ix + dx) + ((iy + dy) * width);
+					if ((!invalid[neighbour]) && (cost[neighbour] != UNREACHABLE)) {
+						relax(neighbour, index);
+					}
+				}
+			}
+		}
+		for (int i=0;i<count;i++) {
+			invalid[invalidList[i]] = false;
+		}
+
+		search();
+	}
+
+	/**
+	 * Get the x coordinate of the goal
+	 *
+	 * @return The x coordinate of the goal, -1 if no goal has been set
+	 */
+	public int getGoalX() {
+		return goalX;
+	}
+
+	/**
+	 * Get the y coordinate of the goal
+	 *
+	 * @return The y coordinate of the goal, -1 if no goal has been set
+	 */
+	public int getGoalY() {
+		return goalY;
+	}
+
+	/**
+	 * Get the cost of reaching the goal from a given tile
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @return The cost of reaching the goal or UNREACHABLE if it can't be reached
+	 */
+	public float getCost(int x, int y) {
+		return cost[x + (y * width)];
+	}
+
+	/**
+	 * Check if the goal can be reached from a given tile
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @return True if the goal can be reached
+	 */
+	public boolean isReachable(int x, int y) {
+		return cost[x + (y * width)] != UNREACHABLE;
+	}
+
+	/**
+	 * Get the horizontal direction of the step to take from a given tile
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @return -1, 0 or 1. 0 if the tile is the goal or the goal can't be reached
+	 */
+	public int getDirectionX(int x, int y) {
+		int step = next[x + (y * width)];
+		if (step < 0) {
+			return 0;
+		}
+		return (step % width) - x;
+	}
+
+	/**
+	 * Get the vertical direction of the step to take from a given tile
+	 *
+	 * @param x The x coordinate of the tile
+	 * @param y The y coordinate of the tile
+	 * @return -1, 0 or 1. 0 if the tile is the goal or the goal can't be reached
+	 */
+	public int getDirectionY(int x, int y) {
+		int step = next[x + (y * width)];
+		if (step < 0) {
+			return 0;
+		}
+		return (step / width) - y;
+	}
+
+	/**
+	 * Get the path to the goal from a given tile by following the field
+	 *
+	 * @param sx The x coordinate of the start of the path
+	 * @param sy The y coordinate of the start of the path
+	 * @return The path to the goal or null if the goal can't be reached or
+	 * the start is the goal
+	 */
+	public Path getPath(int sx, int sy) {
+		int index = sx + (sy * width);
+		if (next[index] < 0) {
+			return null;
+		}
+
+		Path path = new Path();
+		path.appendStep(sx, sy);
+		while (next[index] >= 0) {
+			index = next[index];
+			path.appendStep(index % width, index / width);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Get the cost to move through a given location
+	 *
+	 * @param mover The entity that is being moved
+	 * @param sx The x coordinate of the tile whose cost is being determined
+	 * @param sy The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The cost of movement through the given tile
+	 */
+	public float getMovementCost(Mover mover, int sx, int sy, int tx, int ty) {
+		this.mover = mover;
+		this.sourceX = sx;
+		this.sourceY = sy;
+
+		return map.getCost(this, tx, ty);
+	}
+
+	/**
+	 * Get the heuristic cost for the given location. This is used to choose between
+	 * steps that are equally good.
+	 *
+	 * @param mover The entity that is being moved
+	 * @param x The x coordinate of the tile whose cost is being determined
+	 * @param y The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The heuristic cost assigned to the tile
+	 */
+	public float getHeuristicCost(Mover mover, int x, int y, int tx, int ty) {
+		return heuristic.getCost(map, mover, x, y, tx, ty);
+	}
+
+	/**
+	 * Mark every tile as unable to reach the goal
+	 */
+	private void clear() {
+		for (int i=0;i<cost.length;i++) {
+			cost[i] = UNREACHABLE;
+			next[i] = -1;
+			depth[i] = 0;
+		}
+	}
+
+	/**
+	 * Check if a step leads to a neighbouring tile on the map
+	 *
+	 * @param x The x coordinate of the tile stepped from
+	 * @param y The y coordinate of the tile stepped from
+	 * @param dx The horizontal direction of the step
+	 * @param dy The vertical direction of the step
+	 * @return True if the step leads to a neighbour
+	 */
+	private boolean isNeighbour(int x, int y, int dx, int dy) {
+		if ((dx == 0) && (dy == 0)) {
+			return false;
+		}
+		if ((!allowDiagMovement) && (dx != 0) && (dy != 0)) {
+			return false;
+		}
+
+		int xp = x + dx;
+		int yp = y + dy;
+		return (xp >= 0) && (yp >= 0) && (xp < width) && (yp < height);
+	}
+
+	/**
+	 * Search outwards from the tiles waiting in the open heap until every tile
+	 * that can reach the goal has its best step
+	 */
+	private void search() {
+		while (openSize > 0) {
+			int current = pop();
+			int cx = current % width;
+			int cy = current / width;
+
+			for (int dx=-1;dx<2;dx++) {
+				for (int dy=-1;dy<2;dy++) {
+					if (isNeighbour(cx, cy, dx, dy)) {
+						relax(current, (cx + dx) + ((cy + dy) * width));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Consider stepping from one tile to another that's already been given its
+	 * cost of reaching the goal
+	 *
+	 * @param to The index of the tile stepped to
+	 * @param from The index of the tile stepped from
+	 */
+	private void relax(int to, int from) {
+		int fx = from % width;
+		int fy = from / width;
+		int tx = to % width;
+		int ty = to / width;
+
+		this.sourceX = fx;
+		this.sourceY = fy;
+		this.distance = depth[to] + 1;
+		if (map.blocked(this, tx, ty)) {
+			return;
+		}
+
+		float stepCost = cost[to] + getMovementCost(mover, fx, fy, tx, ty);
+		map.pathFinderVisited(fx, fy);
+
+		if (stepCost < cost[from]) {
+			cost[from] = stepCost;
+			next[from] = to;
+			depth[from] = depth[to] + 1;
+			if (openIndex[from] < 0) {
+				push(from);
+			} else {
+				up(openIndex[from]);
+			}
+		} else if ((stepCost == cost[from]) && (next[from] >= 0) && (depth[to] < depth[from])) {
+			// only steps that don't lead further from the goal are taken so the
+			// field can't loop when moves cost nothing
+			int current = next[from];
+			if (getHeuristicCost(mover, tx, ty, goalX, goalY) <
+				getHeuristicCost(mover, current % width, current / width, goalX, goalY)) {
+				next[from] = to;
+				depth[from] = depth[to] + 1;
+			}
+		}
+	}
+
+	/**
+	 * Add a tile to the open heap
+	 *
+	 * @param index The index of the tile to add
+	 */
+	private void push(int index) {
+		open[openSize] = index;
+		openIndex[index] = openSize;
+		openSize++;
+		up(openSize - 1);
+	}
+
+	/**
+	 * Remove the tile with the lowest cost from the open heap
+	 *
+	 * @return The index of the tile removed
+	 */
+	private int pop() {
+		int first = open[0];
+		openIndex[first] = -1;
+		openSize--;
+		if (openSize > 0) {
+			open[0] = open[openSize];
+			openIndex[open[0]] = 0;
+			down(0);
+		}
+
+		return first;
+	}
+
+	/**
+	 * Move a tile up the open heap until it's below one with a lower cost
+	 *
+	 * @param pos The position of the tile in the heap
+	 */
+	private void up(int pos) {
+		int index = open[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (cost[open[parent]] <= cost[index]) {
+				break;
+			}
+			open[pos] = open[parent];
+			openIndex[open[pos]] = pos;
+			pos = parent;
+		}
+		open[pos] = index;
+		openIndex[index] = pos;
+	}
+
+	/**
+	 * Move a tile down the open heap until it's above those with a higher cost
+	 *
+	 * @param pos The position of the tile in the heap
+	 */
+	private void down(int pos) {
+		int index = open[pos];
+		while (true) {
+			int child = (pos * 2) + 1;
+			if (child >= openSize) {
+				break;
+			}
+			if ((child + 1 < openSize) && (cost[open[child + 1]] < cost[open[child]])) {
+				child++;
+			}
+			if (cost[open[child]] >= cost[index]) {
+				break;
+			}
+			open[pos] = open[child];
+			openIndex[open[pos]] = pos;
+			pos = child;
+		}
+		open[pos] = index;
+		openIndex[index] = pos;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getMover()
+	 */
+	public Mover getMover() {
+		return mover;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSearchDistance()
+	 */
+	public int getSearchDistance() {
+		return distance;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceX()
+	 */
+	public int getSourceX() {
+		return sourceX;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceY()
+	 */
+	public int getSourceY() {
+		return sourceY;
+	}
+}
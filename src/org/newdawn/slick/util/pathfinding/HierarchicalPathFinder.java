@@ -0,0 +1,1143 @@
+package org.newdawn.slick.util.pathfinding;
+
+import java.util.ArrayList;
+
+import org.newdawn.slick.util.pathfinding.heuristics.ClosestHeuristic;
+
+/**
+ * A path finder that searches a simplified version of the map first (HPA*). The map is
+ * cut into square clusters of tiles. Where the tiles either side of the border between
+ * two clusters are clear, portals are placed. When diagonal movement is allowed portals
+ * are also placed on diagonal steps across a border or through the corner where four
+ * clusters meet, wherever there's no straight step next to them. The cost of moving between each pair of
+ * portals in a cluster is worked out up front. A search first finds the cheapest route
+ * through the portals and then fills in the steps between them, each a short search
+ * inside a single cluster. This makes searches across large maps far cheaper, at the
+ * price of paths that are sometimes a little longer than the best possible.
+ *
+ * The portals and the costs between them are worked out without a mover, i.e. getMover()
+ * returns null while they're being built, and are only worked out again when the clusters
+ * are rebuilt. When tiles are changed tileChanged() should be called, the clusters affected
+ * are rebuilt before the next search.
+ *
+ * @author kevin
+ */
+public class HierarchicalPathFinder implements PathFinder, PathFindingContext {
+	/** The length of a run of clear tiles on a border at which we place two portals instead of one */
+	private static final int WIDE_ENTRANCE = 6;
+
+	/** The map being searched */
+	private TileBasedMap map;
+	/** The number of tiles across and down each cluster */
+	private int clusterSize;
+	/** True if we allow diaganol movement */
+	private boolean allowDiagMovement;
+	/** The heuristic we're applying to determine which locations to search first */
+	private AStarHeuristic heuristic;
+	/** The width of the map in tiles */
+	private int width;
+	/** The height of the map in tiles */
+	private int height;
+	/** The number of clusters across the map */
+	private int clustersAcross;
+	/** The number of clusters down the map */
+	private int clustersDown;
+
+	/** The portals in each cluster */
+	private ArrayList[] portals;
+	/** True for each cluster whose portal costs need working out again */
+	private boolean[] dirtyClusters;
+	/** True for each border whose portals need placing again, two per cluster - right then bottom */
+	private boolean[] dirtyBorders;
+	/** True for each corner whose diagonal portals need placing again, one per cluster - bottom right */
+	private boolean[] dirtyCorners;
+	/** True if any cluster needs rebuilding */
+	private boolean dirty = true;
+
+	/** The search used inside a single cluster */
+	private ClusterSearch local;
+	/** The heap of portals in the open list */
+	private Portal[] heap = new Portal[64];
+	/** The number of portals in the open list */
+	private int heapSize;
+	/** The number of the current search */
+	private int search;
+
+	/** The mover going through the path */
+	private Mover mover;
+	/** The x coordinate of the source tile we're moving from */
+	private int sourceX;
+	/** The y coordinate of the source tile we're moving from */
+	private int sourceY;
+	/** The distance searched so far */
+	private int distance;
+
+	/**
+	 * Create a path finder with the default heuristic - closest to target.
+	 *
+	 * @param map The map to be searched
+	 * @param clusterSize The number of tiles across and down each cluster
+	 * @param allowDiagMovement True if the search should try diaganol movement
+	 */
+	public HierarchicalPathFinder(TileBasedMap map, int clusterSize, boolean allowDiagMovement) {
+		this(map, clusterSize, allowDiagMovement, new ClosestHeuristic());
+	}
+
+	/**
+	 * Create a path finder
+	 *
+	 * @param map The map to be searched
+	 * @param clusterSize The number of tiles across and down each cluster
+	 * @param allowDiagMovement True if the search should try diaganol movement
+	 * @param heuristic The heuristic used to determine the search order of the map
+	 */
+	public HierarchicalPathFinder(TileBasedMap map, int clusterSize, boolean allowDiagMovement, AStarHeuristic heuristic) {
+		this.map = map;
+		this.clusterSize = clusterSize;
+		this.allowDiagMovement = allowDiagMovement;
+		this.heuristic = heuristic;
+
+		width = map.getWidthInTiles();
+		height = map.getHeightInTiles();
+		clustersAcross = (width + clusterSize - 1) / clusterSize;
+		clustersDown = (height + clusterSize - 1) / clusterSize;
+
+		int count = clustersAcross * clustersDown;
+		portals = new ArrayList[count];
+		for (int i=0;i<count;i++) {
+			portals[i] = new ArrayList();
+		}
+		dirtyClusters = new boolean[count];
+		dirtyBorders = new boolean[count * 2];
+		dirtyCorners = new boolean[count];
+		local = new ClusterSearch();
+
+		for (int i=0;i<count;i++) {
+			dirtyClusters[i] = true;
+			dirtyBorders[i*2] = (i % clustersAcross) < clustersAcross - 1;
+			dirtyBorders[(i*2)+1] = (i / clustersAcross) < clustersDown - 1;
+			dirtyCorners[i] = allowDiagMovement && dirtyBorders[i*2] && dirtyBorders[(i*2)+1];
+		}
+		rebuild();
+	}
+
+	/**
+	 * Notify the path finder that a tile has changed, e.g. become blocked
+	 *
+	 * @param x The x coordinate of the tile that changed
+	 * @param y The y coordinate of the tile that changed
+	 */
+	public void tileChanged(int x, int y) {
+		int cx = x / clusterSize;
+		int cy = y / clusterSize;
+		int cluster = cx + (cy * clustersAcross);
+
+		dirtyClusters[cluster] = true;
+		if ((x % clusterSize == clusterSize - 1) && (cx < clustersAcross - 1)) {
+			dirtyBorders[cluster*2] = true;
+		}
+		if ((x % clusterSize == 0) && (cx > 0)) {
+			dirtyBorders[(cluster-1)*2] = true;
+		}
+		if ((y % clusterSize == clusterSize - 1) && (cy < clustersDown - 1)) {
+			dirtyBorders[(cluster*2)+1] = true;
+		}
+		if ((y % clusterSize == 0) && (cy > 0)) {
+			dirtyBorders[((cluster-clustersAcross)*2)+1] = true;
+		}
+		if (allowDiagMovement) {
+			// the corners this tile touches diagonally
+			for (int ddx=-1;ddx<2;ddx+=2) {
+				for (int ddy=-1;ddy<2;ddy+=2) {
+					int ox = (x + ddx) / clusterSize;
+					int oy = (y + ddy) / clusterSize;
+					if ((x + ddx < 0) || (y + ddy < 0) || (x + ddx >= width) || (y + ddy >= height)) {
+						continue;
+					}
+					if ((ox != cx) && (oy != cy)) {
+						dirtyCorners[Math.min(cx, ox) + (Math.min(cy, oy) * clustersAcross)] = true;
+					}
+				}
+			}
+		}
+		dirty = true;
+	}
+
+	/**
+	 * Notify the path finder that an area of tiles has changed
+	 *
+	 * @param x The x coordinate of the top left tile of the area
+	 * @param y The y coordinate of the top left tile of the area
+	 * @param w The width of the area in tiles
+	 * @param h The height of the area in tiles
+	 */
+	public void tilesChanged(int x, int y, int w, int h) {
+		for (int xp=Math.max(0, x);xp<Math.min(width, x+w);xp++) {
+			for (int yp=Math.max(0, y);yp<Math.min(height, y+h);yp++) {
+				tileChanged(xp, yp);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of portals between clusters
+	 *
+	 * @return The number of portals between clusters
+	 */
+	public int getPortalCount() {
+		rebuild();
+
+		int count = 0;
+		for (int i=0;i<portals.length;i++) {
+			count += portals[i].size();
+		}
+		return count;
+	}
+
+	/**
+	 * Rebuild the clusters that have been affected by changed tiles
+	 */
+	private void rebuild() {
+		if (!dirty) {
+			return;
+		}
+
+		// a changed border changes the portals on both sides of it
+		for (int b=0;b<dirtyBorders.length;b++) {
+			if (dirtyBorders[b]) {
+				dirtyClusters[b / 2] = true;
+				dirtyClusters[getOtherCluster(b)] = true;
+			}
+		}
+		// and a changed corner changes the portals in the four clusters around it
+		for (int c=0;c<dirtyCorners.length;c++) {
+			if (dirtyCorners[c]) {
+				dirtyClusters[c] = true;
+				dirtyClusters[c + 1] = true;
+				dirtyClusters[c + clustersAcross] = true;
+				dirtyClusters[c + clustersAcross + 1] = true;
+			}
+		}
+
+		for (int c=0;c<dirtyClusters.length;c++) {
+			if (dirtyClusters[c]) {
+				for (int i=0;i<portals[c].size();i++) {
+					((Portal) portals[c].get(i)).linkCount = 0;
+				}
+			}
+		}
+		for (int b=0;b<dirtyBorders.length;b++) {
+			if (dirtyBorders[b]) {
+				removePortals(b / 2, b);
+				removePortals(getOtherCluster(b), b);
+				placePortals(b);
+				dirtyBorders[b] = false;
+			}
+		}
+		for (int c=0;c<dirtyCorners.length;c++) {
+			if (dirtyCorners[c]) {
+				int corner = dirtyBorders.length + c;
+				removePortals(c, corner);
+				removePortals(c + 1, corner);
+				removePortals(c + clustersAcross, corner);
+				removePortals(c + clustersAcross + 1, corner);
+				placeCornerPortals(c);
+				dirtyCorners[c] = false;
+			}
+		}
+		for (int c=0;c<dirtyClusters.length;c++) {
+			if (dirtyClusters[c]) {
+				linkPortals(c);
+				dirtyClusters[c] = false;
+			}
+		}
+
+		dirty = false;
+	}
+
+	/**
+	 * Get the cluster on the far side of a border
+	 *
+	 * @param border The index of the border
+	 * @return The cluster to the right of or below the border's cluster
+	 */
+	private int getOtherCluster(int border) {
+		int cluster = border / 2;
+		if (border % 2 == 0) {
+			return cluster + 1;
+		}
+		return cluster + clustersAcross;
+	}
+
+	/**
+	 * Remove the portals on a border from a cluster
+	 *
+	 * @param cluster The cluster to remove portals from
+	 * @param border The border whose portals should be removed, or the number of borders
+	 * plus the cluster for the portals through the corner at its bottom right
+	 */
+	private void removePortals(int cluster, int border) {
+		ArrayList list = portals[cluster];
+		for (int i=list.size()-1;i>=0;i--) {
+			if (((Portal) list.get(i)).border == border) {
+				list.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Place portals along a border wherever the tiles either side of it are clear
+	 *
+	 * @param border The border to place portals on
+	 */
+	private void placePortals(int border) {
+		int cluster = border / 2;
+		int other = getOtherCluster(border);
+		boolean vertical = border % 2 == 0;
+
+		// the tiles on this side of the border and the step across it
+		int x = (cluster % clustersAcross) * clusterSize;
+		int y = (cluster / clustersAcross) * clusterSize;
+		int dx = 0;
+		int dy = 0;
+		int length;
+		if (vertical) {
+			x += clusterSize - 1;
+			dx = 1;
+			length = Math.min(clusterSize, height - y);
+		} else {
+			y += clusterSize - 1;
+			dy = 1;
+			length = Math.min(clusterSize, width - x);
+		}
+
+		boolean[] straight = new boolean[length];
+		int runStart = -1;
+		for (int i=0;i<=length;i++) {
+			int xp = vertical ? x : x + i;
+			int yp = vertical ? y + i : y;
+			boolean open = (i < length) && canCross(xp, yp, xp + dx, yp + dy);
+			if (i < length) {
+				straight[i] = open;
+			}
+
+			if (open && (runStart < 0)) {
+				runStart = i;
+			}
+			if (!open && (runStart >= 0)) {
+				int run = i - runStart;
+				if (run < WIDE_ENTRANCE) {
+					addPortals(cluster, other, border, runStart + (run / 2), vertical, x, y, dx, dy);
+				} else {
+					addPortals(cluster, other, border, runStart, vertical, x, y, dx, dy);
+					addPortals(cluster, other, border, i - 1, vertical, x, y, dx, dy);
+				}
+				runStart = -1;
+			}
+		}
+
+		if (!allowDiagMovement) {
+			return;
+		}
+
+		// a diagonal step next to a straight one only joins tiles that are already joined
+		// through the straight step's portals, so only the others need portals of their own
+		int ax = vertical ? 0 : 1;
+		int ay = vertical ? 1 : 0;
+		for (int i=0;i<length-1;i++) {
+			if (straight[i] || straight[i+1]) {
+				continue;
+			}
+			int x1 = x + (ax * i);
+			int y1 = y + (ay * i);
+			int x2 = x1 + ax;
+			int y2 = y1 + ay;
+			if (canCross(x1, y1, x2 + dx, y2 + dy)) {
+				addPortals(cluster, other, border, x1, y1, x2 + dx, y2 + dy);
+			}
+			if (canCross(x2, y2, x1 + dx, y1 + dy)) {
+				addPortals(cluster, other, border, x2, y2, x1 + dx, y1 + dy);
+			}
+		}
+	}
+
+	/**
+	 * Place portals on the diagonal steps through the corner at the bottom right of a
+	 * cluster, where the step can't also be made as two straight steps
+	 *
+	 * @param cluster The cluster at the top left of the corner
+	 */
+	private void placeCornerPortals(int cluster) {
+		int corner = dirtyBorders.length + cluster;
+		int right = cluster + 1;
+		int below = cluster + clustersAcross;
+		int x = ((cluster % clustersAcross) * clusterSize) + clusterSize - 1;
+		int y = ((cluster / clustersAcross) * clusterSize) + clusterSize - 1;
+
+		if (canCross(x, y, x + 1, y + 1) &&
+			!(canCross(x, y, x + 1, y) && canCross(x + 1, y, x + 1, y + 1)) &&
+			!(canCross(x, y, x, y + 1) && canCross(x, y + 1, x + 1, y + 1))) {
+			addPortals(cluster, below + 1, corner, x, y, x + 1, y + 1);
+		}
+		if (canCross(x + 1, y, x, y + 1) &&
+			!(canCross(x + 1, y, x, y) && canCross(x, y, x, y + 1)) &&
+			!(canCross(x + 1, y, x + 1, y + 1) && canCross(x + 1, y + 1, x, y + 1))) {
+			addPortals(right, below, corner, x + 1, y, x, y + 1);
+		}
+	}
+
+	/**
+	 * Add a pair of portals, one either side of a border
+	 *
+	 * @param cluster The cluster on the top or left side of the border
+	 * @param other The cluster on the bottom or right side of the border
+	 * @param border The index of the border
+	 * @param offset The offset along the border of the portals
+	 * @param vertical True if the border runs vertically
+	 * @param x The x coordinate of the first tile on this side of the border
+	 * @param y The y coordinate of the first tile on this side of the border
+	 * @param dx The step on the x axis across the border
+	 * @param dy The step on the y axis across the border
+	 */
+	private void addPortals(int cluster, int other, int border, int offset, boolean vertical, int x, int y, int dx, int dy) {
+		int xp = vertical ? x : x + offset;
+		int yp = vertical ? y + offset : y;
+
+		addPortals(cluster, other, border, xp, yp, xp + dx, yp + dy);
+	}
+
+	/**
+	 * Add a pair of portals on the tiles either side of a step between clusters
+	 *
+	 * @param cluster The cluster the first tile is in
+	 * @param other The cluster the second tile is in
+	 * @param border The index the portals are placed for
+	 * @param x1 The x coordinate of the first tile
+	 * @param y1 The y coordinate of the first tile
+	 * @param x2 The x coordinate of the second tile
+	 * @param y2 The y coordinate of the second tile
+	 */
+	private void addPortals(int cluster, int other, int border, int x1, int y1, int x2, int y2) {
+		Portal first = new Portal(x1, y1, cluster, border);
+		Portal second = new Portal(x2, y2, other, border);
+		first.partner = second;
+		first.partnerCost = getMovementCost(null, x1, y1, x2, y2);
+		second.partner = first;
+		second.partnerCost = getMovementCost(null, x2, y2, x1, y1);
+
+		portals[cluster].add(first);
+		portals[other].add(second);
+	}
+
+	/**
+	 * Check if a border can be crossed in both directions between two tiles
+	 *
+	 * @param x1 The x coordinate of the first tile
+	 * @param y1 The y coordinate of the first tile
+	 * @param x2 The x coordinate of the second tile
+	 * @param y2 The y coordinate of the second tile
+	 * @return True if the border can be crossed
+	 */
+	private boolean canCross(int x1, int y1, int x2, int y2) {
+		return isValidLocation(null, x2, y2, x1, y1) && isValidLocation(null, x1, y1, x2, y2);
+	}
+
+	/**
+	 * Work out the cost of moving between each pair of portals in a cluster
+	 *
+	 * @param cluster The cluster whose portals should be linked
+	 */
+	private void linkPortals(int cluster) {
+		ArrayList list = portals[cluster];
+		for (int i=0;i<list.size();i++) {
+			Portal portal = (Portal) list.get(i);
+			portal.linkCount = 0;
+			local.search(null, portal.x, portal.y, -1, -1, cluster);
+
+			for (int j=0;j<list.size();j++) {
+				if (i == j) {
+					continue;
+				}
+				Portal other = (Portal) list.get(j);
+				float cost = local.getCost(other.x, other.y);
+				if (cost >= 0) {
+					portal.link(other, cost);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see PathFinder#findPath(Mover, int, int, int, int)
+	 */
+	public Path findPath(Mover mover, int sx, int sy, int tx, int ty) {
+		rebuild();
+
+		this.mover = mover;
+		this.sourceX = tx;
+		this.sourceY = ty;
+		this.distance = 0;
+
+		// easy first check, if the destination is blocked, we can't get there
+		if (map.blocked(this, tx, ty)) {
+			return null;
+		}
+		// as with the AStarPathFinder, there's no path to where we already are
+		if ((sx == tx) && (sy == ty)) {
+			return null;
+		}
+
+		search++;
+		heapSize = 0;
+		int startCluster = (sx / clusterSize) + ((sy / clusterSize) * clustersAcross);
+		int targetCluster = (tx / clusterSize) + ((ty / clusterSize) * clustersAcross);
+
+		// the best path so far, either staying in the cluster or through a portal
+		float best = Float.MAX_VALUE;
+		Portal bestLast = null;
+		if ((startCluster == targetCluster) && local.search(mover, sx, sy, tx, ty, startCluster)) {
+			best = local.getCost(tx, ty);
+		}
+
+		// the cost of reaching the target from each portal in its cluster
+		ArrayList targetPortals = portals[targetCluster];
+		for (int i=0;i<targetPortals.size();i++) {
+			Portal portal = (Portal) targetPortals.get(i);
+			portal.goalSearch = search;
+			portal.goalCost = -1;
+			if (local.search(mover, portal.x, portal.y, tx, ty, targetCluster)) {
+				portal.goalCost = local.getCost(tx, ty);
+			}
+		}
+
+		// the cost of reaching each portal in the start cluster
+		local.search(mover, sx, sy, -1, -1, startCluster);
+		ArrayList startPortals = portals[startCluster];
+		for (int i=0;i<startPortals.size();i++) {
+			Portal portal = (Portal) startPortals.get(i);
+			float cost = local.getCost(portal.x, portal.y);
+			if (cost >= 0) {
+				relax(portal, null, cost, tx, ty);
+			}
+		}
+
+		// search through the portals
+		while (heapSize > 0) {
+			Portal current = removeFirstInOpen();
+			if (current.total >= best) {
+				break;
+			}
+			current.closed = true;
+
+			if ((current.goalSearch == search) && (current.goalCost >= 0) && (current.cost + current.goalCost < best)) {
+				best = current.cost + current.goalCost;
+				bestLast = current;
+			}
+
+			relax(current.partner, current, current.cost + current.partnerCost, tx, ty);
+			for (int i=0;i<current.linkCount;i++) {
+				relax(current.links[i], current, current.cost + current.linkCosts[i], tx, ty);
+			}
+		}
+
+		if (best == Float.MAX_VALUE) {
+			return null;
+		}
+
+		Path path = new Path();
+		path.appendStep(sx, sy);
+		if (bestLast == null) {
+			return appendLocal(path, sx, sy, tx, ty, startCluster) ? path : null;
+		}
+
+		// fill in the steps between the portals used
+		int count = 0;
+		for (Portal portal=bestLast;portal!=null;portal=portal.parent) {
+			count++;
+		}
+		Portal[] route = new Portal[count];
+		for (Portal portal=bestLast;portal!=null;portal=portal.parent) {
+			route[--count] = portal;
+		}
+
+		if (!appendLocal(path, sx, sy, route[0].x, route[0].y, startCluster)) {
+			return null;
+		}
+		for (int i=1;i<route.length;i++) {
+			if (route[i-1].partner == route[i]) {
+				path.appendStep(route[i].x, route[i].y);
+			} else if (!appendLocal(path, route[i-1].x, route[i-1].y, route[i].x, route[i].y, route[i].cluster)) {
+				return null;
+			}
+		}
+		if (!appendLocal(path, bestLast.x, bestLast.y, tx, ty, targetCluster)) {
+			return null;
+		}
+
+		return path;
+	}
+
+	/**
+	 * Add the steps of a path inside a single cluster to a path
+	 *
+	 * @param path The path to add to
+	 * @param sx The x coordinate of the start of the steps, which isn't added
+	 * @param sy The y coordinate of the start of the steps, which isn't added
+	 * @param tx The x coordinate of the end of the steps
+	 * @param ty The y coordinate of the end of the steps
+	 * @param cluster The cluster to search in
+	 * @return True if the steps could be found
+	 */
+	private boolean appendLocal(Path path, int sx, int sy, int tx, int ty, int cluster) {
+		if ((sx == tx) && (sy == ty)) {
+			return true;
+		}
+		if (!local.search(mover, sx, sy, tx, ty, cluster)) {
+			return false;
+		}
+
+		local.appendPath(path, tx, ty);
+		return true;
+	}
+
+	/**
+	 * Consider reaching a portal at a given cost
+	 *
+	 * @param portal The portal being reached
+	 * @param parent The portal it's reached from, or null if it's reached from the start
+	 * @param cost The cost of reaching the portal
+	 * @param tx The x coordinate of the target
+	 * @param ty The y coordinate of the target
+	 */
+	private void relax(Portal portal, Portal parent, float cost, int tx, int ty) {
+		if (portal.search != search) {
+			portal.search = search;
+			portal.cost = Float.MAX_VALUE;
+			portal.parent = null;
+			portal.closed = false;
+			portal.heapIndex = -1;
+		}
+		if (portal.closed || (cost >= portal.cost)) {
+			return;
+		}
+
+		map.pathFinderVisited(portal.x, portal.y);
+		portal.cost = cost;
+		portal.parent = parent;
+		portal.total = cost + getHeuristicCost(mover, portal.x, portal.y, tx, ty);
+		if (portal.heapIndex < 0) {
+			addToOpen(portal);
+		} else {
+			up(portal.heapIndex);
+		}
+	}
+
+	/**
+	 * Add a portal to the open list
+	 *
+	 * @param portal The portal to add
+	 */
+	private void addToOpen(Portal portal) {
+		if (heapSize == heap.length) {
+			Portal[] newHeap = new Portal[heapSize * 2];
+			System.arraycopy(heap, 0, newHeap, 0, heapSize);
+			heap = newHeap;
+		}
+
+		heap[heapSize] = portal;
+		portal.heapIndex = heapSize;
+		up(heapSize++);
+	}
+
+	/**
+	 * Remove the portal with the lowest total cost from the open list
+	 *
+	 * @return The portal removed
+	 */
+	private Portal removeFirstInOpen() {
+		Portal first = heap[0];
+		first.heapIndex = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heap[0].heapIndex = 0;
+			down(0);
+		}
+		heap[heapSize] = null;
+
+		return first;
+	}
+
+	/**
+	 * Move the portal at a position in the heap up until it's below a portal
+	 * with a lower total cost
+	 *
+	 * @param index The position of the portal to move
+	 */
+	private void up(int index) {
+		Portal portal = heap[index];
+		while (index > 0) {
+			int above = (index - 1) / 2;
+			if (heap[above].total <= portal.total) {
+				break;
+			}
+			heap[index] = heap[above];
+			heap[index].heapIndex = index;
+			index = above;
+		}
+		heap[index] = portal;
+		portal.heapIndex = index;
+	}
+
+	/**
+	 * Move the portal at a position in the heap down until it's above the
+	 * portals with a higher total cost
+	 *
+	 * @param index The position of the portal to move
+	 */
+	private void down(int index) {
+		Portal portal = heap[index];
+		while (true) {
+			int child = (index * 2) + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if ((child + 1 < heapSize) && (heap[child + 1].total < heap[child].total)) {
+				child++;
+			}
+			if (portal.total <= heap[child].total) {
+				break;
+			}
+			heap[index] = heap[child];
+			heap[index].heapIndex = index;
+			index = child;
+		}
+		heap[index] = portal;
+		portal.heapIndex = index;
+	}
+
+	/**
+	 * Check if a given location is valid for the supplied mover
+	 *
+	 * @param mover The mover that would hold a given location
+	 * @param sx The starting x coordinate
+	 * @param sy The starting y coordinate
+	 * @param x The x coordinate of the location to check
+	 * @param y The y coordinate of the location to check
+	 * @return True if the location is valid for the given mover
+	 */
+	protected boolean isValidLocation(Mover mover, int sx, int sy, int x, int y) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return false;
+		}
+
+		this.mover = mover;
+		this.sourceX = sx;
+		this.sourceY = sy;
+		return !map.blocked(this, x, y);
+	}
+
+	/**
+	 * Get the cost to move through a given location
+	 *
+	 * @param mover The entity that is being moved
+	 * @param sx The x coordinate of the tile whose cost is being determined
+	 * @param sy The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The cost of movement through the given tile
+	 */
+	public float getMovementCost(Mover mover, int sx, int sy, int tx, int ty) {
+		this.mover = mover;
+		this.sourceX = sx;
+		this.sourceY = sy;
+
+		return map.getCost(this, tx, ty);
+	}
+
+	/**
+	 * Get the heuristic cost for the given location. This determines in which
+	 * order the locations are processed.
+	 *
+	 * @param mover The entity that is being moved
+	 * @param x The x coordinate of the tile whose cost is being determined
+	 * @param y The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The heuristic cost assigned to the tile
+	 */
+	public float getHeuristicCost(Mover mover, int x, int y, int tx, int ty) {
+		return heuristic.getCost(map, mover, x, y, tx, ty);
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getMover()
+	 */
+	public Mover getMover() {
+		return mover;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSearchDistance()
+	 */
+	public int getSearchDistance() {
+		return distance;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceX()
+	 */
+	public int getSourceX() {
+		return sourceX;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceY()
+	 */
+	public int getSourceY() {
+		return sourceY;
+	}
+
+	/**
+	 * A portal on the border of a cluster, the tile either side of the border has
+	 * a portal and the two are partners
+	 *
+	 * @author kevin
+	 */
+	private class Portal {
+		/** The x coordinate of the portal's tile */
+		private int x;
+		/** The y coordinate of the portal's tile */
+		private int y;
+		/** The cluster the portal is in */
+		private int cluster;
+		/** The border the portal was placed on, or the number of borders plus the cluster for a corner */
+		private int border;
+		/** The portal on the other side of the border */
+		private Portal partner;
+		/** The cost of moving to the partner */
+		private float partnerCost;
+		/** The portals in the same cluster that can be reached from this one */
+		private Portal[] links = new Portal[4];
+		/** The cost of reaching each of the linked portals */
+		private float[] linkCosts = new float[4];
+		/** The number of linked portals */
+		private int linkCount;
+
+		/** The search that last reached this portal */
+		private int search;
+		/** The cost of reaching this portal in the current search */
+		private float cost;
+		/** The cost of reaching this portal plus the heuristic cost of the target */
+		private float total;
+		/** The portal this one was reached from in the current search */
+		private Portal parent;
+		/** True if the current search has moved on from this portal */
+		private boolean closed;
+		/** The position of this portal in the open list's heap, -1 if it's not in the open list */
+		private int heapIndex = -1;
+		/** The search that the goal cost was worked out for */
+		private int goalSearch;
+		/** The cost of reaching the target from this portal, -1 if it can't */
+		private float goalCost;
+
+		/**
+		 * Create a new portal
+		 *
+		 * @param x The x coordinate of the portal's tile
+		 * @param y The y coordinate of the portal's tile
+		 * @param cluster The cluster the portal is in
+		 * @param border The border the portal was placed on
+		 */
+		public Portal(int x, int y, int cluster, int border) {
+			this.x = x;
+			this.y = y;
+			this.cluster = cluster;
+			this.border = border;
+		}
+
+		/**
+		 * Link this portal to another in the same cluster
+		 *
+		 * @param other The portal that can be reached
+		 * @param cost The cost of reaching it
+		 */
+		public void link(Portal other, float cost) {
+			if (linkCount == links.length) {
+				Portal[] newLinks = new Portal[linkCount * 2];
+				float[] newCosts = new float[linkCount * 2];
+				System.arraycopy(links, 0, newLinks, 0, linkCount);
+				System.arraycopy(linkCosts, 0, newCosts, 0, linkCount);
+				links = newLinks;
+				linkCosts = newCosts;
+			}
+			links[linkCount] = other;
+			linkCosts[linkCount] = cost;
+			linkCount++;
+		}
+	}
+
+	/**
+	 * A search over the tiles of a single cluster
+	 *
+	 * @author kevin
+	 */
+	private class ClusterSearch {
+		/** The search that last touched each tile */
+		private int[] searched;
+		/** The cost of reaching each tile */
+		private float[] cost;
+		/** The cost of reaching each tile plus the heuristic cost to the target */
+		private float[] total;
+		/** The tile each tile was reached from */
+		private int[] parent;
+		/** True if the search has moved on from each tile */
+		private boolean[] closed;
+		/** The position of each tile in the heap, -1 if it's not in the open list */
+		private int[] heapIndex;
+		/** The heap of tiles in the open list */
+		private int[] heap;
+		/** The number of tiles in the open list */
+		private int heapSize;
+		/** The number of the current search */
+		private int current;
+
+		/** The x coordinate of the cluster's top left tile */
+		private int minX;
+		/** The y coordinate of the cluster's top left tile */
+		private int minY;
+		/** The width of the cluster being searched */
+		private int w;
+		/** The height of the cluster being searched */
+		private int h;
+
+		/**
+		 * Create a new search big enough for any cluster
+		 */
+		public ClusterSearch() {
+			int size = clusterSize * clusterSize;
+			searched = new int[size];
+			cost = new float[size];
+			total = new float[size];
+			parent = new int[size];
+			closed = new boolean[size];
+			heapIndex = new int[size];
+			heap = new int[size];
+		}
+
+		/**
+		 * Search a cluster
+		 *
+		 * @param mover The mover to search for
+		 * @param sx The x coordinate of the start
+		 * @param sy The y coordinate of the start
+		 * @param tx The x coordinate of the target or -1 to find the cost of reaching every tile
+		 * @param ty The y coordinate of the target or -1 to find the cost of reaching every tile
+		 * @param cluster The cluster to search in
+		 * @return True if the target was reached
+		 */
+		public boolean search(Mover mover, int sx, int sy, int tx, int ty, int cluster) {
+			current++;
+			heapSize = 0;
+			minX = (cluster % clustersAcross) * clusterSize;
+			minY = (cluster / clustersAcross) * clusterSize;
+			w = Math.min(clusterSize, width - minX);
+			h = Math.min(clusterSize, height - minY);
+
+			int start = index(sx, sy);
+			touch(start);
+			cost[start] = 0;
+			parent[start] = -1;
+			push(start, 0);
+
+			int target = tx < 0 ? -1 : index(tx, ty);
+			while (heapSize > 0) {
+				int node = pop();
+				if (node == target) {
+					return true;
+				}
+				closed[node] = true;
+
+				int x = minX + (node % w);
+				int y = minY + (node / w);
+				for (int dx=-1;dx<2;dx++) {
+					for (int dy=-1;dy<2;dy++) {
+						if ((dx == 0) && (dy == 0)) {
+							continue;
+						}
+						if (!allowDiagMovement && (dx != 0) && (dy != 0)) {
+							continue;
+						}
+
+						int xp = x + dx;
+						int yp = y + dy;
+						if ((xp < minX) || (yp < minY) || (xp >= minX + w) || (yp >= minY + h)) {
+							continue;
+						}
+						int next = index(xp, yp);
+						touch(next);
+						if (closed[next] || !isValidLocation(mover, x, y, xp, yp)) {
+							continue;
+						}
+
+						float nextCost = cost[node] + getMovementCost(mover, x, y, xp, yp);
+						if (nextCost >= cost[next]) {
+							continue;
+						}
+						cost[next] = nextCost;
+						parent[next] = node;
+						float nextTotal = nextCost;
+						if (target >= 0) {
+							nextTotal += getHeuristicCost(mover, xp, yp, tx, ty);
+						}
+						if (heapIndex[next] < 0) {
+							push(next, nextTotal);
+						} else {
+							total[next] = nextTotal;
+							up(heapIndex[next]);
+						}
+					}
+				}
+			}
+
+			return target < 0;
+		}
+
+		/**
+		 * Get the cost of reaching a tile in the last search
+		 *
+		 * @param x The x coordinate of the tile
+		 * @param y The y coordinate of the tile
+		 * @return The cost of reaching the tile or -1 if it wasn't reached
+		 */
+		public float getCost(int x, int y) {
+			int node = index(x, y);
+			if ((searched[node] != current) || (cost[node] == Float.MAX_VALUE)) {
+				return -1;
+			}
+			return cost[node];
+		}
+
+		/**
+		 * Add the steps from the start of the last search to a tile onto a path
+		 *
+		 * @param path The path to add to
+		 * @param tx The x coordinate of the tile at the end of the steps
+		 * @param ty The y coordinate of the tile at the end of the steps
+		 */
+		public void appendPath(Path path, int tx, int ty) {
+			int count = 0;
+			for (int node=index(tx, ty);parent[node]>=0;node=parent[node]) {
+				count++;
+			}
+			int[] steps = new int[count];
+			for (int node=index(tx, ty);parent[node]>=0;node=parent[node]) {
+				steps[--count] = node;
+			}
+			for (int i=0;i<steps.length;i++) {
+				path.appendStep(minX + (steps[i] % w), minY + (steps[i] / w));
+			}
+		}
+
+		/**
+		 * Get the index of a tile in the cluster being searched
+		 *
+		 * @param x The x coordinate of the tile
+		 * @param y The y coordinate of the tile
+		 * @return The index of the tile
+		 */
+		private int index(int x, int y) {
+			return (x - minX) + ((y - minY) * w);
+		}
+
+		/**
+		 * Reset a tile if the current search hasn't touched it
+		 *
+		 * @param node The tile to touch
+		 */
+		private void touch(int node) {
+			if (searched[node] != current) {
+				searched[node] = current;
+				cost[node] = Float.MAX_VALUE;
+				closed[node] = false;
+				heapIndex[node] = -1;
+			}
+		}
+
+		/**
+		 * Add a tile to the open list
+		 *
+		 * @param node The tile to add
+		 * @param f The total cost of the tile
+		 */
+		private void push(int node, float f) {
+			total[node] = f;
+			heap[heapSize] = node;
+			heapIndex[node] = heapSize;
+			up(heapSize++);
+		}
+
+		/**
+		 * Remove the tile with the lowest total cost from the open list
+		 *
+		 * @return The tile removed
+		 */
+		private int pop() {
+			int first = heap[0];
+			heapIndex[first] = -1;
+			heapSize--;
+			if (heapSize > 0) {
+				heap[0] = heap[heapSize];
+				heapIndex[heap[0]] = 0;
+				down(0);
+			}
+			return first;
+		}
+
+		/**
+		 * Move a tile up the heap
+		 *
+		 * @param index The position of the tile to move
+		 */
+		private void up(int index) {
+			int node = heap[index];
+			while (index > 0) {
+				int above = (index - 1) / 2;
+				if (total[heap[above]] <= total[node]) {
+					break;
+				}
+				heap[index] = heap[above];
+				heapIndex[heap[index]] = index;
+				index = above;
+			}
+			heap[index] = node;
+			heapIndex[node] = index;
+		}
+
+		/**
+		 * Move a tile down the heap
+		 *
+		 * @param index The position of the tile to move
+		 */
+		private void down(int index) {
+			int node = heap[index];
+			while (true) {
+				int child = (index * 2) + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if ((child + 1 < heapSize) && (total[heap[child + 1]] < total[heap[child]])) {
+					child++;
+				}
+				if (total[node] <= total[heap[child]]) {
+					break;
+				}
+				heap[index] = heap[child];
+				heapIndex[heap[index]] = index;
+				index = child;
+			}
+			heap[index] = node;
+			heapIndex[node] = index;
+		}
+	}
+}
@@ -0,0 +1,577 @@
+package org.newdawn.slick.util.pathfinding;
+
+import org.newdawn.slick.util.pathfinding.heuristics.ClosestHeuristic;
+
+/**
+ * A path finder implementation that uses Jump Point Search. Rather than adding every
+ * neighbour of a location to the open list it follows straight and diagonal lines until
+ * it reaches a location where the path might have to turn, e.g. around the corner of
+ * a blocked tile, and only considers those locations.
+ *
+ * This only finds the cheapest path when every step costs the same, i.e. the map returns
+ * the same cost for every tile. On such maps the paths found cost the same as those found
+ * by the AStarPathFinder (given a heuristic that never overestimates) while considering
+ * far fewer locations. As with the AStarPathFinder diagonal steps cost the same as
+ * straight ones and may cut the corners of blocked tiles.
+ *
+ * @author kevin
+ */
+public class JumpPointPathFinder implements PathFinder, PathFindingContext {
+	/** The state of a location that hasn't been reached in this search */
+	private static final byte UNSEEN = 0;
+	/** The state of a location in the open list */
+	private static final byte OPEN = 1;
+	/** The state of a location that has been searched from */
+	private static final byte CLOSED = 2;
+
+	/** The map being searched */
+	private TileBasedMap map;
+	/** The maximum number of steps in a path we're willing to accept before giving up */
+	private int maxSearchDistance;
+	/** True if we allow diaganol movement */
+	private boolean allowDiagMovement;
+	/** The heuristic we're applying to determine which locations to search first */
+	private AStarHeuristic heuristic;
+	/** The width of the map in tiles */
+	private int width;
+	/** The height of the map in tiles */
+	private int height;
+
+	/** The search that last touched each location */
+	private int[] searched;
+	/** The state of each location in the current search */
+	private byte[] state;
+	/** The cost of the path to each location */
+	private float[] cost;
+	/** The cost of the path to each location plus the heuristic cost to the target */
+	private float[] total;
+	/** The number of steps in the path to each location */
+	private int[] depth;
+	/** The location each location was reached from */
+	private int[] parent;
+	/** The position of each location in the open list's heap */
+	private int[] heapIndex;
+	/** The heap of locations in the open list, lowest total cost first */
+	private int[] heap = new int[64];
+	/** The number of locations in the open list */
+	private int heapSize;
+	/** The number of the current search */
+	private int search;
+
+	/** The x coordinate of the target location */
+	private int targetX;
+	/** The y coordinate of the target location */
+	private int targetY;
+	/** The x coordinate of the last jump point found */
+	private int jumpX;
+	/** The y coordinate of the last jump point found */
+	private int jumpY;
+
+	/** The mover going through the path */
+	private Mover mover;
+	/** The x coordinate of the source tile we're moving from */
+	private int sourceX;
+	/** The y coordinate of the source tile we're moving from */
+	private int sourceY;
+	/** The distance searched so far */
+	private int distance;
+
+	/**
+	 * Create a path finder with the default heuristic - closest to target.
+	 *
+	 * @param map The map to be searched
+	 * @param maxSearchDistance The maximum number of steps in a path before we give up
+	 * @param allowDiagMovement True if the search should try diaganol movement
+	 */
+	public JumpPointPathFinder(TileBasedMap map, int maxSearchDistance, boolean allowDiagMovement) {
+		this(map, maxSearchDistance, allowDiagMovement, new ClosestHeuristic());
+	}
+
+	/**
+	 * Create a path finder
+	 *
+	 * @param heuristic The heuristic used to determine the search order of the map
+	 * @param map The map to be searched
+	 * @param maxSearchDistance The maximum number of steps in a path before we give up
+	 * @param allowDiagMovement True if the search should try diaganol movement
+	 */
+	public JumpPointPathFinder(TileBasedMap map, int maxSearchDistance,
+						   	   boolean allowDiagMovement, AStarHeuristic heuristic) {
+		this.heuristic = heuristic;
+		this.map = map;
+		this.maxSearchDistance = maxSearchDistance;
+		this.allowDiagMovement = allowDiagMovement;
+
+		width = map.getWidthInTiles();
+		height = map.getHeightInTiles();
+		int size = width * height;
+		searched = new int[size];
+		state = new byte[size];
+		cost = new float[size];
+		total = new float[size];
+		depth = new int[size];
+		parent = new int[size];
+		heapIndex = new int[size];
+	}
+
+	/**
+	 * @see PathFinder#findPath(Mover, int, int, int, int)
+	 */
+	public Path findPath(Mover mover, int sx, int sy, int tx, int ty) {
+		this.mover = mover;
+		this.sourceX = tx;
+		this.sourceY = ty;
+		this.distance = 0;
+
+		// easy first check, if the destination is blocked, we can't get there
+		if (map.blocked(this, tx, ty)) {
+			return null;
+		}
+		// as with the AStarPathFinder, there's no path to where we already are
+		if ((sx == tx) && (sy == ty)) {
+			return null;
+		}
+
+		search++;
+		heapSize = 0;
+		targetX = tx;
+		targetY = ty;
+
+		int start = sx + (sy * width);
+		int target = tx + (ty * width);
+		touch(start);
+		cost[start] = 0;
+		depth[start] = 0;
+		parent[start] = -1;
+		addToOpen(start, getHeuristicCost(mover, sx, sy, tx, ty));
+
+		while (heapSize > 0) {
+			int current = removeFirstInOpen();
+			if (current == target) {
+				return buildPath(start, target);
+			}
+
+			state[current] = CLOSED;
+			distance = depth[current];
+			expand(current);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Add the jump points reachable from a location to the open list
+	 *
+	 * @param current The location to search from
+	 */
+	private void expand(int current) {
+		int x = current % width;
+		int y = current / width;
+
+		if (parent[current] < 0) {
+			// the start, try every direction
+			for (int dx=-1;dx<2;dx++) {
+				for (int dy=-1;dy<2;dy++) {
+					if (((dx != 0) || (dy != 0)) && (allowDiagMovement || (dx == 0) || (dy == 0))) {
+						follow(current, x, y, dx, dy);
+					}
+				}
+			}
+			return;
+		}
+
+		int dx = sign(x - (parent[current] % width));
+		int dy = sign(y - (parent[current] / width));
+
+		if (allowDiagMovement) {
+			if ((dx != 0) && (dy != 0)) {
+				follow(current, x, y, dx, dy);
+				follow(current, x, y, dx, 0);
+				follow(current, x, y, 0, dy);
+				if (!isValidLocation(x, y, x - dx, y)) {
+					follow(current, x, y, -dx, dy);
+				}
+				if (!isValidLocation(x, y, x, y - dy)) {
+					follow(current, x, y, dx, -dy);
+				}
+			} else if (dx != 0) {
+				follow(current, x, y, dx, 0);
+				if (!isValidLocation(x, y, x, y + 1)) {
+					follow(current, x, y, dx, 1);
+				}
+				if (!isValidLocation(x, y, x, y - 1)) {
+					follow(current, x, y, dx, -1);
+				}
+			} else {
+				follow(current, x, y, 0, dy);
+				if (!isValidLocation(x, y, x + 1, y)) {
+					follow(current, x, y, 1, dy);
+				}
+				if (!isValidLocation(x, y, x - 1, y)) {
+					follow(current, x, y, -1, dy);
+				}
+			}
+		} else {
+			// without diagonals paths move vertically first, then turn horizontally
+			if (dx != 0) {
+				follow(current, x, y, dx, 0);
+				if (!isValidLocation(x - dx, y, x - dx, y + 1)) {
+					follow(current, x, y, 0, 1);
+				}
+				if (!isValidLocation(x - dx, y, x - dx, y - 1)) {
+					follow(current, x, y, 0, -1);
+				}
+			} else {
+				follow(current, x, y, 0, dy);
+				follow(current, x, y, 1, 0);
+				follow(current, x, y, -1, 0);
+			}
+		}
+	}
+
+	/**
+	 * Jump from a location in a given direction and add the jump point found,
+	 * if any, to the open list
+	 *
+	 * @param current The location being searched from
+	 * @param x The x coordinate of the location being searched from
+	 * @param y The y coordinate of the location being searched from
+	 * @param dx The step on the x axis
+	 * @param dy The step on the y axis
+	 */
+	private void follow(int current, int x, int y, int dx, int dy) {
+		if (!jump(x, y, dx, dy)) {
+			return;
+		}
+
+		int steps = Math.max(Math.abs(jumpX - x), Math.abs(jumpY - y));
+		int nextDepth = depth[current] + steps;
+		if (nextDepth > maxSearchDistance) {
+			return;
+		}
+
+		// add up the cost of each step along the line
+		float nextCost = cost[current];
+		int px = x;
+		int py = y;
+		for (int i=0;i<steps;i++) {
+			nextCost += getMovementCost(mover, px, py, px + dx, py + dy);
+			px += dx;
+			py += dy;
+		}
+
+		int next = jumpX + (jumpY * width);
+		touch(next);
+		if (state[next] == CLOSED) {
+			return;
+		}
+		if ((state[next] == OPEN) && (cost[next] <= nextCost)) {
+			return;
+		}
+
+		map.pathFinderVisited(jumpX, jumpY);
+		cost[next] = nextCost;
+		depth[next] = nextDepth;
+		parent[next] = current;
+		float nextTotal = nextCost + getHeuristicCost(mover, jumpX, jumpY, targetX, targetY);
+		if (state[next] == OPEN) {
+			total[next] = nextTotal;
+			up(heapIndex[next]);
+		} else {
+			addToOpen(next, nextTotal);
+		}
+	}
+
+	/**
+	 * Move from a location in a given direction until we reach a jump point - a location
+	 * at which the path may have to turn. The jump point found is stored in jumpX and jumpY.
+	 *
+	 * @param x The x coordinate of the location to move from
+	 * @param y The y coordinate of the location to move from
+	 * @param dx The step on the x axis
+	 * @param dy The step on the y axis
+	 * @return True if a jump point was found, false if we hit a blocked tile or the edge of the map
+	 */
+	private boolean jump(int x, int y, int dx, int dy) {
+		while (true) {
+			int nx = x + dx;
+			int ny = y + dy;
+			if (!isValidLocation(x, y, nx, ny)) {
+				return false;
+			}
+
+			if (isJumpPoint(nx, ny, dx, dy)) {
+				jumpX = nx;
+				jumpY = ny;
+				return true;
+			}
+			x = nx;
+			y = ny;
+		}
+	}
+
+	/**
+	 * Check if a location reached by moving in a given direction is a jump point
+	 *
+	 * @param x The x coordinate of the location
+	 * @param y The y coordinate of the location
+	 * @param dx The step on the x axis taken to reach the location
+	 * @param dy The step on the y axis taken to reach the location
+	 * @return True if the location is a jump point
+	 */
+	private boolean isJumpPoint(int x, int y, int dx, int dy) {
+		if ((x == targetX) && (y == targetY)) {
+			return true;
+		}
+
+		if (allowDiagMovement) {
+			if ((dx != 0) && (dy != 0)) {
+				if ((!isValidLocation(x, y, x - dx, y) && isValidLocation(x, y, x - dx, y + dy)) ||
+					(!isValidLocation(x, y, x, y - dy) && isValidLocation(x, y, x + dx, y - dy))) {
+					return true;
+				}
+
+				// a diagonal stops where it can reach a jump point moving straight
+				return jump(x, y, dx, 0) || jump(x, y, 0, dy);
+			}
+			if (dx != 0) {
+				return (!isValidLocation(x, y, x, y + 1) && isValidLocation(x, y, x + dx, y + 1)) ||
+					   (!isValidLocation(x, y, x, y - 1) && isValidLocation(x, y, x + dx, y - 1));
+			}
+			return (!isValidLocation(x, y, x + 1, y) && isValidLocation(x, y, x + 1, y + dy)) ||
+				   (!isValidLocation(x, y, x - 1, y) && isValidLocation(x, y, x - 1, y + dy));
+		}
+
+		if (dx != 0) {
+			return (isValidLocation(x, y, x, y + 1) && !isValidLocation(x - dx, y, x - dx, y + 1)) ||
+				   (isValidLocation(x, y, x, y - 1) && !isValidLocation(x - dx, y, x - dx, y - 1));
+		}
+
+		// a vertical line stops where it can reach a jump point moving horizontally
+		return jump(x, y, 1, 0) || jump(x, y, -1, 0);
+	}
+
+	/**
+	 * Build the path to the target by following the jump points back to the start
+	 *
+	 * @param start The location the path starts at
+	 * @param target The location the path ends at
+	 * @return The path from start to target
+	 */
+	private Path buildPath(int start, int target) {
+		int count = 1;
+		for (int node=target;node!=start;node=parent[node]) {
+			count++;
+		}
+		int[] points = new int[count];
+		for (int node=target;count>0;node=parent[node]) {
+			points[--count] = node;
+		}
+
+		Path path = new Path();
+		path.appendStep(start % width, start / width);
+		for (int i=1;i<points.length;i++) {
+			int x = points[i-1] % width;
+			int y = points[i-1] / width;
+			int ex = points[i] % width;
+			int ey = points[i] / width;
+			int dx = sign(ex - x);
+			int dy = sign(ey - y);
+
+			while ((x != ex) || (y != ey)) {
+				x += dx;
+				y += dy;
+				path.appendStep(x, y);
+			}
+		}
+
+		return path;
+	}
+
+	/**
+	 * Reset a location if it hasn't been touched by the current search
+	 *
+	 * @param node The location to touch
+	 */
+	private void touch(int node) {
+		if (searched[node] != search) {
+			searched[node] = search;
+			state[node] = UNSEEN;
+		}
+	}
+
+	/**
+	 * Add a location to the open list
+	 *
+	 * @param node The location to add
+	 * @param f The total cost of the location
+	 */
+	private void addToOpen(int node, float f) {
+		if (heapSize == heap.length) {
+			int[] newHeap = new int[heapSize * 2];
+			System.arraycopy(heap, 0, newHeap, 0, heapSize);
+			heap = newHeap;
+		}
+
+		state[node] = OPEN;
+		total[node] = f;
+		heap[heapSize] = node;
+		heapIndex[node] = heapSize;
+		up(heapSize++);
+	}
+
+	/**
+	 * Remove the location with the lowest total cost from the open list
+	 *
+	 * @return The location removed
+	 */
+	private int removeFirstInOpen() {
+		int first = heap[0];
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			down(0);
+		}
+
+		return first;
+	}
+
+	/**
+	 * Move the location at a position in the heap up until it's below a
+	 * location with a lower total cost
+	 *
+	 * @param index The position of the location to move
+	 */
+	private void up(int index) {
+		int node = heap[index];
+		while (index > 0) {
+			int above = (index - 1) / 2;
+			if (total[heap[above]] <= total[node]) {
+				break;
+			}
+			heap[index] = heap[above];
+			heapIndex[heap[index]] = index;
+			index = above;
+		}
+		heap[index] = node;
+		heapIndex[node] = index;
+	}
+
+	/**
+	 * Move the location at a position in the heap down until it's above
+	 * the locations with a higher total cost
+	 *
+	 * @param index The position of the location to move
+	 */
+	private void down(int index) {
+		int node = heap[index];
+		while (true) {
+			int child = (index * 2) + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if ((child + 1 < heapSize) && (total[heap[child + 1]] < total[heap[child]])) {
+				child++;
+			}
+			if (total[node] <= total[heap[child]]) {
+				break;
+			}
+			heap[index] = heap[child];
+			heapIndex[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = node;
+		heapIndex[node] = index;
+	}
+
+	/**
+	 * Get the sign of a value
+	 *
+	 * @param value The value to check
+	 * @return -1, 0 or 1 depending on the sign of the value
+	 */
+	private static int sign(int value) {
+		return value < 0 ? -1 : (value > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Check if a given location can be moved into from another
+	 *
+	 * @param sx The starting x coordinate
+	 * @param sy The starting y coordinate
+	 * @param x The x coordinate of the location to check
+	 * @param y The y coordinate of the location to check
+	 * @return True if the location is valid for the mover
+	 */
+	protected boolean isValidLocation(int sx, int sy, int x, int y) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return false;
+		}
+
+		this.sourceX = sx;
+		this.sourceY = sy;
+		return !map.blocked(this, x, y);
+	}
+
+	/**
+	 * Get the cost to move through a given location
+	 *
+	 * @param mover The entity that is being moved
+	 * @param sx The x coordinate of the tile whose cost is being determined
+	 * @param sy The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The cost of movement through the given tile
+	 */
+	public float getMovementCost(Mover mover, int sx, int sy, int tx, int ty) {
+		this.mover = mover;
+		this.sourceX = sx;
+		this.sourceY = sy;
+
+		return map.getCost(this, tx, ty);
+	}
+
+	/**
+	 * Get the heuristic cost for the given location. This determines in which
+	 * order the locations are processed.
+	 *
+	 * @param mover The entity that is being moved
+	 * @param x The x coordinate of the tile whose cost is being determined
+	 * @param y The y coordiante of the tile whose cost is being determined
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return The heuristic cost assigned to the tile
+	 */
+	public float getHeuristicCost(Mover mover, int x, int y, int tx, int ty) {
+		return heuristic.getCost(map, mover, x, y, tx, ty);
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getMover()
+	 */
+	public Mover getMover() {
+		return mover;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSearchDistance()
+	 */
+	public int getSearchDistance() {
+		return distance;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceX()
+	 */
+	public int getSourceX() {
+		return sourceX;
+	}
+
+	/**
+	 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceY()
+	 */
+	public int getSourceY() {
+		return sourceY;
+	}
+}
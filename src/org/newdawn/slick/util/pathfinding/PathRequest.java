@@ -0,0 +1,162 @@
+package org.newdawn.slick.util.pathfinding;
+
+/**
+ * A request for a path made to a PathRequestQueue. The request can be checked
+ * to see if the path has been found yet, or waited on until it has.
+ *
+ * @author kevin
+ */
+public class PathRequest {
+	/** The mover that will follow the path */
+	private Mover mover;
+	/** The x coordinate of the start of the path */
+	private int sx;
+	/** The y coordinate of the start of the path */
+	private int sy;
+	/** The x coordinate of the end of the path */
+	private int tx;
+	/** The y coordinate of the end of the path */
+	private int ty;
+	/** The listener to notify when the path has been found, or null */
+	private PathRequestListener listener;
+	/** The path found */
+	private Path path;
+	/** True if the search has completed */
+	private boolean complete;
+	/** True if the request has been cancelled */
+	private boolean cancelled;
+
+	/**
+	 * Create a new request
+	 *
+	 * @param mover The mover that will follow the path
+	 * @param sx The x coordinate of the start of the path
+	 * @param sy The y coordinate of the start of the path
+	 * @param tx The x coordinate of the end of the path
+	 * @param ty The y coordinate of the end of the path
+	 * @param listener The listener to notify when the path has been found, or null
+	 */
+	PathRequest(Mover mover, int sx, int sy, int tx, int ty, PathRequestListener listener) {
+		this.mover = mover;
+		this.sx = sx;
+		this.sy = sy;
+		this.tx = tx;
+		this.ty = ty;
+		this.listener = listener;
+	}
+
+	/**
+	 * Get the mover that will follow the path
+	 *
+	 * @return The mover that will follow the path
+	 */
+	public Mover getMover() {
+		return mover;
+	}
+
+	/**
+	 * Get the x coordinate of the start of the path
+	 *
+	 * @return The x coordinate of the start of the path
+	 */
+	public int getSourceX() {
+		return sx;
+	}
+
+	/**
+	 * Get the y coordinate of the start of the path
+	 *
+	 * @return The y coordinate of the start of the path
+	 */
+	public int getSourceY() {
+		return sy;
+	}
+
+	/**
+	 * Get the x coordinate of the end of the path
+	 *
+	 * @return The x coordinate of the end of the path
+	 */
+	public int getTargetX() {
+		return tx;
+	}
+
+	/**
+	 * Get the y coordinate of the end of the path
+	 *
+	 * @return The y coordinate of the end of the path
+	 */
+	public int getTargetY() {
+		return ty;
+	}
+
+	/**
+	 * Get the listener to be notified when the path has been found
+	 *
+	 * @return The listener or null if there isn't one
+	 */
+	PathRequestListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Check if the search for this path has completed
+	 *
+	 * @return True if the search has completed
+	 */
+	public synchronized boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Get the path found. Identical requests made while a search is pending
+	 * share the same path.
+	 *
+	 * @return The path found or null if there's no path or the search hasn't completed
+	 */
+	public synchronized Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Wait for the search for this path to complete
+	 *
+	 * @return The path found or null if there's no path or the request was cancelled
+	 * @throws InterruptedException Indicates the thread was interrupted while waiting
+	 */
+	public synchronized Path waitForPath() throws InterruptedException {
+		while (!complete && !cancelled) {
+			wait();
+		}
+		return path;
+	}
+
+	/**
+	 * Cancel the request. The listener won't be notified and, if no one else 
+	 * wants the same path, the search won't be made.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		notifyAll();
+	}
+
+	/**
+	 * Check if this request has been cancelled
+	 *
+	 * @return True if this request has been cancelled
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Record the result of the search
+	 *
+	 * @param path The path found or null if there's no path
+	 */
+	synchronized void complete(Path path) {
+		this.path = path;
+		complete = true;
+		notifyAll();
+	}
+}
@@ -0,0 +1,18 @@
+package org.newdawn.slick.util.pathfinding;
+
+/**
+ * A description of a class that wants to be told when a path requested
+ * from a PathRequestQueue has been found
+ *
+ * @author kevin
+ */
+public interface PathRequestListener {
+	/**
+	 * Notification that a search requested has completed. This is always called
+	 * from PathRequestQueue.update(), on the thread updating the queue.
+	 *
+	 * @param request The request that has completed
+	 * @param path The path found or null if there is no path
+	 */
+	public void pathFound(PathRequest request, Path path);
+}
@@ -0,0 +1,542 @@
+package org.newdawn.slick.util.pathfinding;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * A queue of requests for paths that are searched for on a set of worker threads, or on the
+ * thread updating the queue within a time budget. Requests are answered through a
+ * PathRequestListener, or by checking or waiting on the PathRequest returned.
+ *
+ * Searches are made against a snapshot of the map, taken without a mover, so the game can
+ * carry on changing the real map while searches run. The snapshot is updated from the map in
+ * update() after tileChanged() or mapChanged() have been called. Each thread has its own path
+ * finder so no search state is shared. Requests between the same locations made while an
+ * earlier one is still waiting or being searched share its search, whichever mover made them.
+ *
+ * Since the snapshot is taken without a mover, maps whose blocked tiles or costs depend on
+ * the mover aren't supported. Every mover is given the path the snapshot allows.
+ *
+ * @author kevin
+ */
+public class PathRequestQueue {
+	/** The map paths are found on */
+	private TileBasedMap map;
+	/** The maximum depth we'll search before giving up */
+	private int maxSearchDistance;
+	/** True if the search should try diaganol movement */
+	private boolean allowDiagMovement;
+	/** The width of the map in tiles */
+	private int width;
+	/** The height of the map in tiles */
+	private int height;
+
+	/** The snapshot of the map searches are made against */
+	private Snapshot snapshot;
+	/** The index of the tiles changed since the snapshot was taken */
+	private ArrayList changes = new ArrayList();
+	/** True if the whole map should be taken again */
+	private boolean mapChanged;
+	/** The context used when taking snapshots of the map */
+	private SnapshotContext context = new SnapshotContext();
+
+	/** The searches waiting to be started */
+	private LinkedList pending = new LinkedList();
+	/** The searches waiting or in progress, keyed by their locations */
+	private HashMap searches = new HashMap();
+	/** The searches completed whose listeners haven't been notified */
+	private ArrayList completed = new ArrayList();
+	/** The worker threads */
+	private Thread[] threads;
+	/** The search state used by the thread updating the queue */
+	private Searcher local = new Searcher();
+	/** True if the worker threads should stop */
+	private boolean stopped;
+
+	/**
+	 * Create a new queue
+	 *
+	 * @param map The map paths are found on
+	 * @param maxSearchDistance The maximum depth we'll search before giving up
+	 * @param allowDiagMovement True if the search should try diaganol movement
+	 * @param threads The number of worker threads, 0 if searches should only be made in update()
+	 */
+	public PathRequestQueue(TileBasedMap map, int maxSearchDistance, boolean allowDiagMovement, int threads) {
+		this.map = map;
+		this.maxSearchDistance = maxSearchDistance;
+		this.allowDiagMovement = allowDiagMovement;
+
+		width = map.getWidthInTiles();
+		height = map.getHeightInTiles();
+		snapshot = new Snapshot();
+		for (int i=0;i<width*height;i++) {
+			snapshot.take(i);
+		}
+
+		this.threads = new Thread[threads];
+		for (int i=0;i<threads;i++) {
+			final Searcher searcher = new Searcher();
+			this.threads[i] = new Thread(new Runnable() {
+				public void run() {
+					work(searcher);
+				}
+			}, "Path Finder "+i);
+			this.threads[i].setDaemon(true);
+			this.threads[i].start();
+		}
+	}
+
+	/**
+	 * Create the path finder used by one of the threads making searches. Override
+	 * this to use a different kind of path finder.
+	 *
+	 * @param map The snapshot of the map to search
+	 * @return The path finder to use
+	 */
+	protected PathFinder createPathFinder(TileBasedMap map) {
+		return new AStarPathFinder(map, maxSearchDistance, allowDiagMovement);
+	}
+
+	/**
+	 * Request a path
+	 *
+	 * @param mover The mover that will follow the path, it isn't seen by the map when searching
+	 * @param sx The x coordinate of the start of the path
+	 * @param sy The y coordinate of the start of the path
+	 * @param tx The x coordinate of the end of the path
+	 * @param ty The y coordinate of the end of the path
+	 * @param listener The listener to notify when the path has been found, or null
+	 * @return The request made
+	 */
+	public synchronized PathRequest request(Mover mover, int sx, int sy, int tx, int ty, PathRequestListener listener) {
+		PathRequest request = new PathRequest(mover, sx, sy, tx, ty, listener);
+
+		SearchKey key = new SearchKey(sx, sy, tx, ty);
+		Search search = (Search) searches.get(key);
+		if (search == null) {
+			search = new Search(key);
+			searches.put(key, search);
+			pending.add(search);
+			notify();
+		}
+		search.requests.add(request);
+
+		return request;
+	}
+
+	/**
+	 * Get the number of searches waiting to be started
+	 *
+	 * @return The number of searches waiting to be started
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Notify the queue that a tile on the map has changed. The snapshot
+	 * searched is updated in the next update().
+	 *
+	 * @param x The x coordinate of the tile that changed
+	 * @param y The y coordinate of the tile that changed
+	 */
+	public synchronized void tileChanged(int x, int y) {
+		changes.add(new Integer(x + (y * width)));
+	}
+
+	/**
+	 * Notify the queue that the whole map has changed. The snapshot
+	 * searched is taken again in the next update().
+	 */
+	public synchronized void mapChanged() {
+		mapChanged = true;
+	}
+
+	/**
+	 * Update the queue. Changes to the map are taken into the snapshot, searches
+	 * are made on this thread until the time budget runs out and the listeners of
+	 * the searches completed since the last update are notified.
+	 *
+	 * @param budget The time to spend searching (in milliseconds), 0 to leave searches to the worker threads
+	 */
+	public void update(int budget) {
+		updateSnapshot();
+
+		if (budget > 0) {
+			long end = System.currentTimeMillis() + budget;
+			do {
+				Search search = next(false);
+				if (search == null) {
+					break;
+				}
+				run(local, search);
+			} while (System.currentTimeMillis() < end);
+		}
+
+		Search[] done;
+		synchronized (this) {
+			done = (Search[]) completed.toArray(new Search[completed.size()]);
+			completed.clear();
+		}
+		for (int i=0;i<done.length;i++) {
+			for (int j=0;j<done[i].requests.size();j++) {
+				PathRequest request = (PathRequest) done[i].requests.get(j);
+				if ((request.getListener() != null) && (!request.isCancelled())) {
+					request.getListener().pathFound(request, request.getPath());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop the worker threads. Searches still waiting will only be made by update()
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		notifyAll();
+	}
+
+	/**
+	 * Take the changes made to the map into a new snapshot. Searches already
+	 * running carry on with the old one.
+	 */
+	private void updateSnapshot() {
+		Integer[] changed;
+		boolean all;
+		synchronized (this) {
+			if (!mapChanged && changes.isEmpty()) {
+				return;
+			}
+			changed = (Integer[]) changes.toArray(new Integer[changes.size()]);
+			all = mapChanged;
+			changes.clear();
+			mapChanged = false;
+		}
+
+		Snapshot next = new Snapshot(snapshot);
+		if (all) {
+			for (int i=0;i<width*height;i++) {
+				next.take(i);
+			}
+		} else {
+			for (int i=0;i<changed.length;i++) {
+				next.take(changed[i].intValue());
+			}
+		}
+
+		synchronized (this) {
+			snapshot = next;
+		}
+	}
+
+	/**
+	 * Get the next search to be made
+	 *
+	 * @param block True if we should wait for a search to be requested
+	 * @return The next search or null if there isn't one or the worker threads are stopping
+	 */
+	private synchronized Search next(boolean block) {
+		while (true) {
+			while (pending.isEmpty()) {
+				if (!block || stopped) {
+					return null;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// carry on waiting for work
+				}
+			}
+			if (block && stopped) {
+				return null;
+			}
+
+			Search search = (Search) pending.removeFirst();
+			if (search.isWanted()) {
+				search.snapshot = snapshot;
+				return search;
+			}
+			searches.remove(search.key);
+		}
+	}
+
+	/**
+	 * Make a search and record the result
+	 *
+	 * @param searcher The search state to use
+	 * @param search The search to make
+	 */
+	private void run(Searcher searcher, Search search) {
+		Path path = null;
+		try {
+			path = searcher.find(search);
+		} catch (RuntimeException e) {
+			Log.error(e);
+		}
+
+		synchronized (this) {
+			searches.remove(search.key);
+			for (int i=0;i<search.requests.size();i++) {
+				((PathRequest) search.requests.get(i)).complete(path);
+			}
+			completed.add(search);
+		}
+	}
+
+	/**
+	 * Make searches until the queue is stopped
+	 *
+	 * @param searcher The search state of this thread
+	 */
+	private void work(Searcher searcher) {
+		while (true) {
+			Search search = next(true);
+			if (search == null) {
+				return;
+			}
+			run(searcher, search);
+		}
+	}
+
+	/**
+	 * The key searches are held under, requests share a search if they're made
+	 * between the same locations
+	 *
+	 * @author kevin
+	 */
+	private static class SearchKey {
+		/** The x coordinate of the start of the path */
+		private int sx;
+		/** The y coordinate of the start of the path */
+		private int sy;
+		/** The x coordinate of the end of the path */
+		private int tx;
+		/** The y coordinate of the end of the path */
+		private int ty;
+
+		/**
+		 * Create a new key
+		 *
+		 * @param sx The x coordinate of the start of the path
+		 * @param sy The y coordinate of the start of the path
+		 * @param tx The x coordinate of the end of the path
+		 * @param ty The y coordinate of the end of the path
+		 */
+		public SearchKey(int sx, int sy, int tx, int ty) {
+			this.sx = sx;
+			this.sy = sy;
+			this.tx = tx;
+			this.ty = ty;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			int hash = sx;
+			hash = (hash * 31) + sy;
+			hash = (hash * 31) + tx;
+			hash = (hash * 31) + ty;
+			return hash;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object other) {
+			if (!(other instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey key = (SearchKey) other;
+			return (key.sx == sx) && (key.sy == sy) && (key.tx == tx) && (key.ty == ty);
+		}
+	}
+
+	/**
+	 * A search shared by all the requests for a path between the same locations
+	 *
+	 * @author kevin
+	 */
+	private class Search {
+		/** The key the search is held under */
+		private SearchKey key;
+		/** The requests waiting on this search */
+		private ArrayList requests = new ArrayList();
+		/** The snapshot of the map to search */
+		private Snapshot snapshot;
+
+		/**
+		 * Create a new search
+		 *
+		 * @param key The key the search is held under
+		 */
+		public Search(SearchKey key) {
+			this.key = key;
+		}
+
+		/**
+		 * Check if any of the requests waiting on this search haven't been cancelled
+		 *
+		 * @return True if the search still needs to be made
+		 */
+		public boolean isWanted() {
+			for (int i=0;i<requests.size();i++) {
+				if (!((PathRequest) requests.get(i)).isCancelled()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The state a single thread needs to make searches
+	 *
+	 * @author kevin
+	 */
+	private class Searcher implements TileBasedMap {
+		/** The path finder used, created when first needed */
+		private PathFinder finder;
+		/** The snapshot being searched */
+		private Snapshot current;
+
+		/**
+		 * Make a search
+		 *
+		 * @param search The search to make
+		 * @return The path found or null if there is no path
+		 */
+		public Path find(Search search) {
+			if (finder == null) {
+				finder = createPathFinder(this);
+			}
+			current = search.snapshot;
+
+			PathRequest request = (PathRequest) search.requests.get(0);
+			return finder.findPath(request.getMover(), request.getSourceX(), request.getSourceY(),
+								   request.getTargetX(), request.getTargetY());
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.TileBasedMap#blocked(org.newdawn.slick.util.pathfinding.PathFindingContext, int, int)
+		 */
+		public boolean blocked(PathFindingContext context, int tx, int ty) {
+			return current.blocked[tx + (ty * width)];
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.TileBasedMap#getCost(org.newdawn.slick.util.pathfinding.PathFindingContext, int, int)
+		 */
+		public float getCost(PathFindingContext context, int tx, int ty) {
+			return current.cost[tx + (ty * width)];
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.TileBasedMap#getHeightInTiles()
+		 */
+		public int getHeightInTiles() {
+			return height;
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.TileBasedMap#getWidthInTiles()
+		 */
+		public int getWidthInTiles() {
+			return width;
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.TileBasedMap#pathFinderVisited(int, int)
+		 */
+		public void pathFinderVisited(int x, int y) {
+			// the real map isn't told, it may not be safe to call from this thread
+		}
+	}
+
+	/**
+	 * A copy of the blocked state and cost of each tile of the map. A snapshot
+	 * isn't changed once searches can see it.
+	 *
+	 * @author kevin
+	 */
+	private class Snapshot {
+		/** True for each tile that's blocked */
+		private boolean[] blocked;
+		/** The cost of each tile */
+		private float[] cost;
+
+		/**
+		 * Create a new empty snapshot
+		 */
+		public Snapshot() {
+			blocked = new boolean[width * height];
+			cost = new float[width * height];
+		}
+
+		/**
+		 * Create a new snapshot starting as a copy of another
+		 *
+		 * @param other The snapshot to copy
+		 */
+		public Snapshot(Snapshot other) {
+			blocked = (boolean[]) other.blocked.clone();
+			cost = (float[]) other.cost.clone();
+		}
+
+		/**
+		 * Take the state of a tile from the map
+		 *
+		 * @param index The index of the tile, x + (y * width)
+		 */
+		public void take(int index) {
+			context.sourceX = index % width;
+			context.sourceY = index / width;
+			blocked[index] = map.blocked(context, context.sourceX, context.sourceY);
+			cost[index] = map.getCost(context, context.sourceX, context.sourceY);
+		}
+	}
+
+	/**
+	 * The context given to the map when taking a snapshot, there's no mover and the
+	 * tile is considered on its own
+	 *
+	 * @author kevin
+	 */
+	private class SnapshotContext implements PathFindingContext {
+		/** The x coordinate of the tile being taken */
+		private int sourceX;
+		/** The y coordinate of the tile being taken */
+		private int sourceY;
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getMover()
+		 */
+		public Mover getMover() {
+			return null;
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSearchDistance()
+		 */
+		public int getSearchDistance() {
+			return 0;
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceX()
+		 */
+		public int getSourceX() {
+			return sourceX;
+		}
+
+		/**
+		 * @see org.newdawn.slick.util.pathfinding.PathFindingContext#getSourceY()
+		 */
+		public int getSourceY() {
+			return sourceY;
+		}
+	}
+}
@@ -12,6 +12,14 @@ public class Link {
 	private float py;
 	/** The target space we'd be linking to */
 	private Space target;
+	/** The x coordinate of the start of the shared edge */
+	private float x1;
+	/** The y coordinate of the start of the shared edge */
+	private float y1;
+	/** The x coordinate of the end of the shared edge */
+	private float x2;
+	/** The y coordinate of the end of the shared edge */
+	private float y2;
 	
 	/**
 	 * Create a new link
@@ -21,9 +29,28 @@ public class Link {
 	 * @param target The target space we're linking to
 	 */
 	public Link(float px, float py, Space target) {
+		this(px, py, target, px, py, px, py);
+	}
+	
+	/**
+	 * Create a new link across an edge shared by two spaces
+	 * 
+	 * @param px The x coordinate of the linking point
+	 * @param py The y coordinate of the linking point
+	 * @param target The target space we're linking to
+	 * @param x1 The x coordinate of the start of the shared edge
+	 * @param y1 The y coordinate of the start of the shared edge
+	 * @param x2 The x coordinate of the end of the shared edge
+	 * @param y2 The y coordinate of the end of the shared edge
+	 */
+	public Link(float px, float py, Space target, float x1, float y1, float x2, float y2) {
 		this.px = px;
 		this.py = py;
 		this.target = target;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.x2 = x2;
+		this.y2 = y2;
 	}
 	
 	/**
@@ -58,6 +85,42 @@ public class Link {
 		return py;
 	}
 	
+	/**
+	 * Get the x coordinate of the start of the edge crossed by the link
+	 * 
+	 * @return The x coordinate of the start of the edge
+	 */
+	public float getStartX() {
+		return x1;
+	}
+	
+	/**
+	 * Get the y coordinate of the start of the edge crossed by the link
+	 * 
+	 * @return The y coordinate of the start of the edge
+	 */
+	public float getStartY() {
+		return y1;
+	}
+	
+	/**
+	 * Get the x coordinate of the end of the edge crossed by the link
+	 * 
+	 * @return The x coordinate of the end of the edge
+	 */
+	public float getEndX() {
+		return x2;
+	}
+	
+	/**
+	 * Get the y coordinate of the end of the edge crossed by the link
+	 * 
+	 * @return The y coordinate of the end of the edge
+	 */
+	public float getEndY() {
+		return y2;
+	}
+	
 	/**
 	 * Get the space this object links to
 	 * 
@@ -14,6 +14,14 @@ import java.util.ArrayList;
 public class NavMesh {
 	/** The list of spaces that build up this navigation mesh */
 	private ArrayList spaces = new ArrayList();
+	/** The index used to find the space at a location, built when it's first needed */
+	private SpaceGrid grid;
+	/** The spaces waiting to be searched, a binary heap with the lowest estimated cost at the top */
+	private Space[] open = new Space[16];
+	/** The number of spaces waiting to be searched */
+	private int openSize;
+	/** The number of the current search, spaces with a different number haven't been touched by it */
+	private int search;
 	
 	/**
 	 * Create a new empty mesh
@@ -57,6 +65,7 @@ public class NavMesh {
 	 */
 	public void addSpace(Space space) {
 		spaces.add(space);
+		grid = null;
 	}
 	
 	/**
@@ -67,14 +76,11 @@ public class NavMesh {
 	 * @return The space at the given location
 	 */
 	public Space findSpace(float x, float y) {
-		for (int i=0;i<spaces.size();i++) {
-			Space space = getSpace(i);
-			if (space.contains(x,y)) {
-				return space;
-			}
+		if (grid == null) {
+			grid = new SpaceGrid(spaces);
 		}
 		
-		return null;
+		return grid.find(x, y);
 	}
 	
 	/**
@@ -94,83 +100,359 @@ public class NavMesh {
 		if ((source == null) || (target == null)) {
 			return null;
 		}
-		
-		for (int i=0;i<spaces.size();i++) {
-			((Space) spaces.get(i)).clearCost();
-		}
-		target.fill(source,tx, ty, 0);
-		if (target.getCost() == Float.MAX_VALUE) {
+		if (!search(source, sx, sy, target, tx, ty)) {
 			return null;
 		}
-		if (source.getCost() == Float.MAX_VALUE) {
-			return null;
+		
+		// walk back from the target to find the links crossed on the way
+		ArrayList route = new ArrayList();
+		for (Space space = target;space != source;space = space.previous) {
+			route.add(0, space.entry);
 		}
 		
 		NavPath path = new NavPath();
 		path.push(new Link(sx, sy, null));
-		if (source.pickLowestCost(target, path)) {
-			path.push(new Link(tx, ty, null));
-			if (optimize) {
-				optimize(path);
+		if (optimize) {
+			pullString(path, source, sx, sy, route, tx, ty);
+		} else {
+			for (int i=0;i<route.size();i++) {
+				path.push((Link) route.get(i));
 			}
-			return path;
 		}
+		path.push(new Link(tx, ty, null));
 		
-		return null;
+		return path;
 	}
 	
 	/**
-	 * Check if a particular path is clear
+	 * Search for the best route between two spaces using A*. Routes are costed
+	 * by the distance between the points at which they cross from one space to
+	 * another.
 	 * 
-	 * @param x1 The x coordinate of the starting point
-	 * @param y1 The y coordinate of the starting point
-	 * @param x2 The x coordinate of the ending point
-	 * @param y2 The y coordinate of the ending point
-	 * @param step The size of the step between points
-	 * @return True if there are no blockages along the path
+	 * @param source The space the route starts in
+	 * @param sx The x coordinate of the source location
+	 * @param sy The y coordinate of the source location
+	 * @param target The space the route ends in
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
+	 * @return True if a route was found, the route can be followed back from
+	 * the target through Space.previous
 	 */
-	private boolean isClear(float x1, float y1, float x2, float y2, float step) {
-		float dx = (x2 - x1);
-		float dy = (y2 - y1);
-		float len = (float) Math.sqrt((dx*dx)+(dy*dy));
-		dx *= step;
-		dx /= len;
-		dy *= step;
-		dy /= len;
-		int steps = (int) (len / step);
+	private boolean search(Space source, float sx, float sy, Space target, float tx, float ty) {
+		// rather than resetting every space, start a new search. Spaces are reset
+		// the first time this search touches them
+		search++;
+		openSize = 0;
 		
-		for (int i=0;i<steps;i++) {
-			float x = x1 + (dx*i);
-			float y = y1 + (dy*i);
+		reset(source);
+		source.cost = 0;
+		source.entryX = sx;
+		source.entryY = sy;
+		source.estimate = distance(sx, sy, tx, ty);
+		add(source);
+		
+		while (openSize > 0) {
+			Space current = removeFirst();
+			current.closed = true;
+			if (current == target) {
+				return true;
+			}
 			
-			if (findSpace(x,y) == null) {
-				return false;
+			for (int i=0;i<current.getLinkCount();i++) {
+				Link link = current.getLink(i);
+				Space next = link.getTarget();
+				if (next.search != search) {
+					reset(next);
+				}
+				if (next.closed) {
+					continue;
+				}
+				
+				float cost = current.cost + distance(current.entryX, current.entryY, link.getX(), link.getY());
+				if (cost < next.cost) {
+					next.cost = cost;
+					next.estimate = cost + distance(link.getX(), link.getY(), tx, ty);
+					next.entry = link;
+					next.previous = current;
+					next.entryX = link.getX();
+					next.entryY = link.getY();
+					if (next.openIndex < 0) {
+						add(next);
+					} else {
+						up(next.openIndex);
+					}
+				}
 			}
 		}
 		
-		return true;
+		return false;
+	}
+	
+	/**
+	 * Reset a space the first time the current search reaches it
+	 * 
+	 * @param space The space to reset
+	 */
+	private void reset(Space space) {
+		space.search = search;
+		space.cost = Float.MAX_VALUE;
+		space.openIndex = -1;
+		space.closed = false;
+		space.entry = null;
+		space.previous = null;
+	}
+	
+	/**
+	 * Get the distance between two points
+	 * 
+	 * @param x1 The x coordinate of the first point
+	 * @param y1 The y coordinate of the first point
+	 * @param x2 The x coordinate of the second point
+	 * @param y2 The y coordinate of the second point
+	 * @return The distance between the points
+	 */
+	private float distance(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		
+		return (float) Math.sqrt((dx*dx)+(dy*dy));
+	}
+	
+	/**
+	 * Add a space to the open list
+	 * 
+	 * @param space The space to add
+	 */
+	private void add(Space space) {
+		if (openSize == open.length) {
+			Space[] grown = new Space[open.length * 2];
+			System.arraycopy(open, 0, grown, 0, openSize);
+			open = grown;
+		}
+		open[openSize] = space;
+		space.openIndex = openSize;
+		openSize++;
+		up(openSize - 1);
+	}
+	
+	/**
+	 * Remove the space with the lowest estimated cost from the open list
+	 * 
+	 * @return The space removed
+	 */
+	private Space removeFirst() {
+		Space first = open[0];
+		first.openIndex = -1;
+		openSize--;
+		open[0] = open[openSize];
+		open[openSize] = null;
+		if (openSize > 0) {
+			open[0].openIndex = 0;
+			down(0);
+		}
+		
+		return first;
+	}
+	
+	/**
+	 * Move a space up the open list until it's below one with a lower estimate
+	 * 
+	 * @param pos The position of the space in the list
+	 */
+	private void up(int pos) {
+		Space space = open[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (open[parent].estimate <= space.estimate) {
+				break;
+			}
+			open[pos] = open[parent];
+			open[pos].openIndex = pos;
+			pos = parent;
+		}
+		open[pos] = space;
+		space.openIndex = pos;
+	}
+	
+	/**
+	 * Move a space down the open list until it's above those with a higher estimate
+	 * 
+	 * @param pos The position of the space in the list
+	 */
+	private void down(int pos) {
+		Space space = open[pos];
+		while (true) {
+			int child = (pos * 2) + 1;
+			if (child >= openSize) {
+				break;
+			}
+			if ((child + 1 < openSize) && (open[child + 1].estimate < open[child].estimate)) {
+				child++;
+			}
+			if (open[child].estimate >= space.estimate) {
+				break;
+			}
+			open[pos] = open[child];
+			open[pos].openIndex = pos;
+			pos = child;
+		}
+		open[pos] = space;
+		space.openIndex = pos;
+	}
+	
+	/**
+	 * Get twice the signed area of a triangle, used to tell which side of a line
+	 * a point is on
+	 * 
+	 * @param ax The x coordinate of the first point
+	 * @param ay The y coordinate of the first point
+	 * @param bx The x coordinate of the second point
+	 * @param by The y coordinate of the second point
+	 * @param cx The x coordinate of the third point
+	 * @param cy The y coordinate of the third point
+	 * @return Twice the signed area of the triangle
+	 */
+	private float area2(float ax, float ay, float bx, float by, float cx, float cy) {
+		return ((cx - ax) * (by - ay)) - ((bx - ax) * (cy - ay));
 	}
 	
 	/**
-	 * Optimize a path by removing segments that arn't required
-	 * to reach the end point
+	 * Build the shortest path through the edges crossed by a route, pulling the 
+	 * path tight like a string around the corners of the edges (the funnel
+	 * algorithm). Only the corners the path turns at are added.
 	 * 
-	 * @param path The path to optimize. Redundant segments will be removed
+	 * @param path The path to add the steps to
+	 * @param source The space the route starts in
+	 * @param sx The x coordinate of the source location
+	 * @param sy The y coordinate of the source location
+	 * @param route The links crossed by the route in order
+	 * @param tx The x coordinate of the target location
+	 * @param ty The y coordinate of the target location
 	 */
-	private void optimize(NavPath path) {
-		int pt = 0;
+	private void pullString(NavPath path, Space source, float sx, float sy, ArrayList route, float tx, float ty) {
+		// the portals the path has to pass through, the start and end are portals
+		// with no width. Each portal is sorted into its left and right side as 
+		// seen when crossing it
+		int count = route.size() + 2;
+		float[] left = new float[count * 2];
+		float[] right = new float[count * 2];
+		Space[] spaces = new Space[count];
 		
-		while (pt < path.length()-2) {
-			float sx = path.getX(pt);
-			float sy = path.getY(pt);
-			float nx = path.getX(pt+2);
-			float ny = path.getY(pt+2);
+		left[0] = right[0] = sx;
+		left[1] = right[1] = sy;
+		Space from = source;
+		for (int i=0;i<route.size();i++) {
+			Link link = (Link) route.get(i);
+			float cx = from.getX() + (from.getWidth() / 2);
+			float cy = from.getY() + (from.getHeight() / 2);
 			
-			if (isClear(sx,sy,nx,ny,0.1f)) {
-				path.remove(pt+1);
+			int p = (i + 1) * 2;
+			if (area2(cx, cy, link.getStartX(), link.getStartY(), link.getEndX(), link.getEndY()) > 0) {
+				left[p] = link.getStartX();
+				left[p+1] = link.getStartY();
+				right[p] = link.getEndX();
+				right[p+1] = link.getEndY();
 			} else {
-				pt++;
+				left[p] = link.getEndX();
+				left[p+1] = link.getEndY();
+				right[p] = link.getStartX();
+				right[p+1] = link.getStartY();
 			}
+			spaces[i + 1] = link.getTarget();
+			from = link.getTarget();
 		}
+		left[(count - 1) * 2] = right[(count - 1) * 2] = tx;
+		left[((count - 1) * 2) + 1] = right[((count - 1) * 2) + 1] = ty;
+		
+		float apexX = sx;
+		float apexY = sy;
+		float leftX = sx;
+		float leftY = sy;
+		float rightX = sx;
+		float rightY = sy;
+		int leftIndex = 0;
+		int rightIndex = 0;
+		
+		for (int i=1;i<count;i++) {
+			float lx = left[i*2];
+			float ly = left[(i*2)+1];
+			float rx = right[i*2];
+			float ry = right[(i*2)+1];
+			
+			// try to narrow the funnel from the right
+			if (area2(apexX, apexY, rightX, rightY, rx, ry) <= 0) {
+				if (same(apexX, apexY, rightX, rightY) || (area2(apexX, apexY, leftX, leftY, rx, ry) > 0)) {
+					rightX = rx;
+					rightY = ry;
+					rightIndex = i;
+				} else {
+					// the right side crossed over the left, the left corner is on
+					// the path. Start again from there
+					apexX = leftX;
+					apexY = leftY;
+					addCorner(path, apexX, apexY, spaces[leftIndex]);
+					
+					rightX = leftX;
+					rightY = leftY;
+					rightIndex = leftIndex;
+					i = leftIndex;
+					continue;
+				}
+			}
+			
+			// try to narrow the funnel from the left
+			if (area2(apexX, apexY, leftX, leftY, lx, ly) >= 0) {
+				if (same(apexX, apexY, leftX, leftY) || (area2(apexX, apexY, rightX, rightY, lx, ly) < 0)) {
+					leftX = lx;
+					leftY = ly;
+					leftIndex = i;
+				} else {
+					// the left side crossed over the right, the right corner is on
+					// the path. Start again from there
+					apexX = rightX;
+					apexY = rightY;
+					addCorner(path, apexX, apexY, spaces[rightIndex]);
+					
+					leftX = rightX;
+					leftY = rightY;
+					leftIndex = rightIndex;
+					i = rightIndex;
+					continue;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add a corner to a path, unless it's where the path already is
+	 * 
+	 * @param path The path to add the corner to
+	 * @param x The x coordinate of the corner
+	 * @param y The y coordinate of the corner
+	 * @param space The space entered at the corner
+	 */
+	private void addCorner(NavPath path, float x, float y, Space space) {
+		int last = path.length() - 1;
+		if (same(path.getX(last), path.getY(last), x, y)) {
+			return;
+		}
+		
+		path.push(new Link(x, y, space));
+	}
+	
+	/**
+	 * Check if two points are close enough to be considered the same
+	 * 
+	 * @param x1 The x coordinate of the first point
+	 * @param y1 The y coordinate of the first point
+	 * @param x2 The x coordinate of the second point
+	 * @param y2 The y coordinate of the second point
+	 * @return True if the points are the same
+	 */
+	private boolean same(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		
+		return ((dx*dx) + (dy*dy)) < 0.000001f;
 	}
 }
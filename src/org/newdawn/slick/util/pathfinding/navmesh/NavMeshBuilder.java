@@ -1,6 +1,11 @@
 package org.newdawn.slick.util.pathfinding.navmesh;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 
 import org.newdawn.slick.util.pathfinding.Mover;
 import org.newdawn.slick.util.pathfinding.PathFindingContext;
@@ -13,6 +18,15 @@ import org.newdawn.slick.util.pathfinding.TileBasedMap;
  * @author kevin
  */
 public class NavMeshBuilder implements PathFindingContext {
+	/** Orders spaces into columns of the same x and width, top to bottom */
+	private static final Comparator COLUMNS = new SpaceOrder(true, true);
+	/** Orders spaces into rows of the same y and height, left to right */
+	private static final Comparator ROWS = new SpaceOrder(false, true);
+	/** Orders spaces top to bottom */
+	private static final Comparator BY_Y = new SpaceOrder(true, false);
+	/** Orders spaces left to right */
+	private static final Comparator BY_X = new SpaceOrder(false, false);
+	
 	/** The current x position we're searching */
 	private int sx;
 	/** The current y position we've searching */
@@ -21,6 +35,41 @@ public class NavMeshBuilder implements PathFindingContext {
 	private float smallestSpace = 0.2f;
 	/** True if we're working tile based */
 	private boolean tileBased;
+	/** The number of threads used to subsection the map */
+	private int threads = 1;
+	
+	/** The width of the map being built in tiles */
+	private int width;
+	/** The height of the map being built in tiles */
+	private int height;
+	/** The number of blocked tiles above and to the left of each tile corner, (width+1) by (height+1) */
+	private int[] blockedCount;
+	
+	/** The spaces waiting to be subsectioned on the worker threads */
+	private Space[] tasks;
+	/** The spaces created from each task */
+	private ArrayList[] results;
+	/** The next task to be started */
+	private int nextTask;
+	
+	/**
+	 * Set the number of threads used to subsection the map when not building
+	 * tile based. The map is only read on the thread calling build().
+	 * 
+	 * @param threads The number of threads to use including the one calling build()
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Get the number of threads used to subsection the map
+	 * 
+	 * @return The number of threads used including the one calling build()
+	 */
+	public int getThreads() {
+		return threads;
+	}
 	
 	/**
 	 * Build a navigation mesh based on a tile map
@@ -55,62 +104,221 @@ public class NavMeshBuilder implements PathFindingContext {
 				}
 			}
 		} else {
+			countBlocked(map);
+			
 			Space space = new Space(0,0,map.getWidthInTiles(),map.getHeightInTiles());
-		
-			subsection(map, space, spaces);
+			if (threads > 1) {
+				subsectionInParallel(space, spaces);
+			} else {
+				subsection(space, spaces);
+			}
+			blockedCount = null;
 		}
 		
-		while (mergeSpaces(spaces)) {}
+		spaces = mergeSpaces(spaces);
 		linkSpaces(spaces);
 		
 		return new NavMesh(spaces);
 	}
 	
+	/**
+	 * Read the blocked state of the map into a table of the number of blocked tiles
+	 * above and to the left of each tile corner. This lets the subsectioning check
+	 * any space without going back to the map, from any thread.
+	 * 
+	 * @param map The map being built
+	 */
+	private void countBlocked(TileBasedMap map) {
+		width = map.getWidthInTiles();
+		height = map.getHeightInTiles();
+		blockedCount = new int[(width+1)*(height+1)];
+		
+		for (int y=0;y<height;y++) {
+			int row = 0;
+			for (int x=0;x<width;x++) {
+				sx = x;
+				sy = y;
+				if (map.blocked(this, x, y)) {
+					row++;
+				}
+				blockedCount[(x+1)+((y+1)*(width+1))] = blockedCount[(x+1)+(y*(width+1))] + row;
+			}
+		}
+	}
+	
 	/**
 	 * Merge the spaces that have been created to optimize out anywhere
-	 * we can.
+	 * we can. Spaces are sorted so that those that could merge sit next to each
+	 * other, first in columns and then in rows, and merged in a single sweep of 
+	 * each. This is repeated until nothing else merges.
 	 * 
 	 * @param spaces The list of spaces to be merged
-	 * @return True if a merge occured and we'll have to start the merge
-	 * process again
+	 * @return The list of spaces after merging
 	 */
-	private boolean mergeSpaces(ArrayList spaces) {
-		for (int source=0;source<spaces.size();source++) {
-			Space a = (Space) spaces.get(source);
+	private ArrayList mergeSpaces(ArrayList spaces) {
+		boolean merged = true;
+		
+		while (merged) {
+			merged = false;
 			
-			for (int target=source+1;target<spaces.size();target++) {
-				Space b = (Space) spaces.get(target);
-				
-				if (a.canMerge(b)) {
-					spaces.remove(a);
-					spaces.remove(b);
-					spaces.add(a.merge(b));
-					return true;
+			Collections.sort(spaces, COLUMNS);
+			ArrayList result = new ArrayList(spaces.size());
+			Space current = null;
+			for (int i=0;i<spaces.size();i++) {
+				Space next = (Space) spaces.get(i);
+				if ((current != null) && (current.getX() == next.getX()) && (current.getWidth() == next.getWidth()) 
+					&& (current.getY()+current.getHeight() == next.getY())) {
+					current = current.merge(next);
+					merged = true;
+				} else {
+					if (current != null) {
+						result.add(current);
+					}
+					current = next;
+				}
+			}
+			if (current != null) {
+				result.add(current);
+			}
+			spaces = result;
+			
+			Collections.sort(spaces, ROWS);
+			result = new ArrayList(spaces.size());
+			current = null;
+			for (int i=0;i<spaces.size();i++) {
+				Space next = (Space) spaces.get(i);
+				if ((current != null) && (current.getY() == next.getY()) && (current.getHeight() == next.getHeight()) 
+					&& (current.getX()+current.getWidth() == next.getX())) {
+					current = current.merge(next);
+					merged = true;
+				} else {
+					if (current != null) {
+						result.add(current);
+					}
+					current = next;
 				}
 			}
+			if (current != null) {
+				result.add(current);
+			}
+			spaces = result;
 		}
 		
-		return false;
+		return spaces;
 	}
 	
 	/**
-	 * Determine the links between spaces
+	 * Determine the links between spaces. Spaces are recorded against the 
+	 * coordinates of their left and top edges so each space can look up the 
+	 * spaces that might join its right and bottom edges directly.
 	 * 
 	 * @param spaces The spaces to link up
 	 */
 	private void linkSpaces(ArrayList spaces) {
-		for (int source=0;source<spaces.size();source++) {
-			Space a = (Space) spaces.get(source);
+		HashMap lefts = new HashMap();
+		HashMap tops = new HashMap();
+		for (int i=0;i<spaces.size();i++) {
+			Space space = (Space) spaces.get(i);
+			edgeList(lefts, space.getX()).add(space);
+			edgeList(tops, space.getY()).add(space);
+		}
+		sortEdgeLists(lefts, BY_Y);
+		sortEdgeLists(tops, BY_X);
+		
+		for (int i=0;i<spaces.size();i++) {
+			Space a = (Space) spaces.get(i);
 			
-			for (int target=source+1;target<spaces.size();target++) {
-				Space b = (Space) spaces.get(target);
-				
-				if (a.hasJoinedEdge(b)) {
+			// spaces to the right, these include spaces that only touch at a corner
+			ArrayList right = (ArrayList) lefts.get(new Float(a.getX()+a.getWidth()));
+			if (right != null) {
+				int first = firstEdge(right, a.getY(), true);
+				for (int j=first;j<right.size();j++) {
+					Space b = (Space) right.get(j);
+					if (b.getY() > a.getY()+a.getHeight()) {
+						break;
+					}
 					a.link(b);
 					b.link(a);
 				}
 			}
+			
+			// spaces below, skipping those only touching at a corner that were linked as
+			// being to the right or left
+			ArrayList below = (ArrayList) tops.get(new Float(a.getY()+a.getHeight()));
+			if (below != null) {
+				int first = firstEdge(below, a.getX(), false);
+				for (int j=first;j<below.size();j++) {
+					Space b = (Space) below.get(j);
+					if (b.getX() > a.getX()+a.getWidth()) {
+						break;
+					}
+					if ((b.getX() == a.getX()+a.getWidth()) || (b.getX()+b.getWidth() == a.getX())) {
+						continue;
+					}
+					a.link(b);
+					b.link(a);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the list of spaces with an edge at a given coordinate, creating it if
+	 * required
+	 * 
+	 * @param edges The map from coordinate to list of spaces
+	 * @param position The coordinate of the edge
+	 * @return The list of spaces with an edge at the coordinate
+	 */
+	private ArrayList edgeList(HashMap edges, float position) {
+		Float key = new Float(position);
+		ArrayList list = (ArrayList) edges.get(key);
+		if (list == null) {
+			list = new ArrayList();
+			edges.put(key, list);
+		}
+		
+		return list;
+	}
+	
+	/**
+	 * Sort each list of spaces sharing an edge
+	 * 
+	 * @param edges The map from coordinate to list of spaces
+	 * @param order The order to sort the lists in
+	 */
+	private void sortEdgeLists(HashMap edges, Comparator order) {
+		Iterator lists = edges.values().iterator();
+		while (lists.hasNext()) {
+			Collections.sort((List) lists.next(), order);
+		}
+	}
+	
+	/**
+	 * Find the first space in a sorted list sharing an edge that reaches a given 
+	 * coordinate. Spaces sharing an edge don't overlap, so they're sorted by 
+	 * their far side too.
+	 * 
+	 * @param list The sorted list of spaces sharing an edge
+	 * @param position The coordinate to be reached
+	 * @param vertical True if the spaces share a vertical edge and are sorted by y
+	 * @return The index of the first space reaching the coordinate
+	 */
+	private int firstEdge(ArrayList list, float position, boolean vertical) {
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int mid = (low + high) / 2;
+			Space space = (Space) list.get(mid);
+			float end = vertical ? space.getY()+space.getHeight() : space.getX()+space.getWidth();
+			if (end < position) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
 		}
+		
+		return low;
 	}
 	
 	/**
@@ -125,49 +333,57 @@ public class NavMeshBuilder implements PathFindingContext {
 			return true;
 		}
 		
-		float x = 0;
-		boolean donex = false;
+		int xs = (int) Math.floor(space.getX());
+		int ys = (int) Math.floor(space.getY());
+		int xe = (int) Math.ceil(space.getX()+space.getWidth());
+		int ye = (int) Math.ceil(space.getY()+space.getHeight());
 		
-		while (x < space.getWidth()) {
-			float y = 0;
-			boolean doney = false;
-			
-			while (y < space.getHeight()) {
-				sx = (int) (space.getX()+x);
-				sy = (int) (space.getY()+y);
+		for (int x=xs;x<xe;x++) {
+			for (int y=ys;y<ye;y++) {
+				sx = x;
+				sy = y;
 				
 				if (map.blocked(this, sx, sy)) {
 					return false;
 				}
-				
-				y += 0.1f;
-				if ((y > space.getHeight()) && (!doney)) {
-					y = space.getHeight();
-					doney = true;
-				}
-			}
-			
-			
-			x += 0.1f;
-			if ((x > space.getWidth()) && (!donex)) {
-				x = space.getWidth();
-				donex = true;
 			}
 		}
 		
 		return true;
 	}
 	
+	/**
+	 * Check if a particular space is clear of blockages using the counts taken
+	 * from the map
+	 * 
+	 * @param space The space to check
+	 * @return True if there are no blockages in the space
+	 */
+	private boolean clear(Space space) {
+		int xs = Math.max(0, (int) Math.floor(space.getX()));
+		int ys = Math.max(0, (int) Math.floor(space.getY()));
+		int xe = Math.min(width, (int) Math.ceil(space.getX()+space.getWidth()));
+		int ye = Math.min(height, (int) Math.ceil(space.getY()+space.getHeight()));
+		if ((xe <= xs) || (ye <= ys)) {
+			return true;
+		}
+		
+		int stride = width+1;
+		int count = blockedCount[xe+(ye*stride)] - blockedCount[xs+(ye*stride)]
+		          - blockedCount[xe+(ys*stride)] + blockedCount[xs+(ys*stride)];
+		
+		return count == 0;
+	}
+	
 	/**
 	 * Subsection a space into smaller spaces if required to find a non-blocked
 	 * area.
 	 * 
-	 * @param map The map being processed
 	 * @param space The space being sections
 	 * @param spaces The list of spaces that have been created
 	 */
-	private void subsection(TileBasedMap map, Space space, ArrayList spaces) {
-		if (!clear(map, space)) {
+	private void subsection(Space space, ArrayList spaces) {
+		if (!clear(space)) {
 			float width2 = space.getWidth()/2;
 			float height2 = space.getHeight()/2;
 			
@@ -175,14 +391,115 @@ public class NavMeshBuilder implements PathFindingContext {
 				return;
 			}
 			
-			subsection(map, new Space(space.getX(), space.getY(), width2, height2), spaces);
-			subsection(map, new Space(space.getX(), space.getY()+height2, width2, height2), spaces);
-			subsection(map, new Space(space.getX()+width2, space.getY(), width2, height2), spaces);
-			subsection(map, new Space(space.getX()+width2, space.getY()+height2, width2, height2), spaces);
+			subsection(new Space(space.getX(), space.getY(), width2, height2), spaces);
+			subsection(new Space(space.getX(), space.getY()+height2, width2, height2), spaces);
+			subsection(new Space(space.getX()+width2, space.getY(), width2, height2), spaces);
+			subsection(new Space(space.getX()+width2, space.getY()+height2, width2, height2), spaces);
 		} else {
 			spaces.add(space);
 		}
 	}
+	
+	/**
+	 * Subsection a space using the worker threads. The space is split into 
+	 * quadrants until there are a few for each thread, then each quadrant is 
+	 * subsectioned as a separate task. The spaces are collected in the same order 
+	 * as subsectioning on a single thread would give.
+	 * 
+	 * @param space The space being sectioned
+	 * @param spaces The list of spaces that have been created
+	 */
+	private void subsectionInParallel(Space space, ArrayList spaces) {
+		ArrayList quadrants = new ArrayList();
+		quadrants.add(space);
+		
+		boolean split = true;
+		while (split && (quadrants.size() < threads * 4)) {
+			split = false;
+			ArrayList next = new ArrayList();
+			for (int i=0;i<quadrants.size();i++) {
+				Space quadrant = (Space) quadrants.get(i);
+				float width2 = quadrant.getWidth()/2;
+				float height2 = quadrant.getHeight()/2;
+				
+				if (clear(quadrant) || ((width2 < smallestSpace) && (height2 < smallestSpace))) {
+					next.add(quadrant);
+				} else {
+					next.add(new Space(quadrant.getX(), quadrant.getY(), width2, height2));
+					next.add(new Space(quadrant.getX(), quadrant.getY()+height2, width2, height2));
+					next.add(new Space(quadrant.getX()+width2, quadrant.getY(), width2, height2));
+					next.add(new Space(quadrant.getX()+width2, quadrant.getY()+height2, width2, height2));
+					split = true;
+				}
+			}
+			quadrants = next;
+		}
+		
+		tasks = (Space[]) quadrants.toArray(new Space[quadrants.size()]);
+		results = new ArrayList[tasks.length];
+		nextTask = 0;
+		
+		Thread[] workers = new Thread[Math.min(threads, tasks.length) - 1];
+		final RuntimeException[] failure = new RuntimeException[1];
+		for (int i=0;i<workers.length;i++) {
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						runTasks();
+					} catch (RuntimeException e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			}, "NavMesh Builder "+i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		
+		runTasks();
+		for (int i=0;i<workers.length;i++) {
+			while (workers[i].isAlive()) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+					// keep waiting, the workers are filling in the results
+				}
+			}
+		}
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+		}
+		
+		for (int i=0;i<results.length;i++) {
+			spaces.addAll(results[i]);
+		}
+		tasks = null;
+		results = null;
+	}
+	
+	/**
+	 * Take subsectioning tasks and run them until there are none left
+	 */
+	private void runTasks() {
+		while (true) {
+			int task;
+			synchronized (this) {
+				if (nextTask >= tasks.length) {
+					return;
+				}
+				task = nextTask++;
+			}
+			
+			ArrayList spaces = new ArrayList();
+			subsection(tasks[task], spaces);
+			synchronized (this) {
+				results[task] = spaces;
+			}
+		}
+	}
 
 	/**
 	 * Path finding context implementation
@@ -219,4 +536,66 @@ public class NavMeshBuilder implements PathFindingContext {
 	public int getSourceY() {
 		return sy;
 	}
+	
+	/**
+	 * An order of spaces used to bring together those that could merge or link
+	 * 
+	 * @author kevin
+	 */
+	private static class SpaceOrder implements Comparator {
+		/** True if spaces are ordered by x then y, false if by y then x */
+		private boolean columns;
+		/** True if spaces are grouped by their position and size across first */
+		private boolean grouped;
+		
+		/**
+		 * Create a new order
+		 * 
+		 * @param columns True if spaces are ordered by x then y, false if by y then x
+		 * @param grouped True if spaces are grouped by their position and size across first
+		 */
+		public SpaceOrder(boolean columns, boolean grouped) {
+			this.columns = columns;
+			this.grouped = grouped;
+		}
+		
+		/**
+		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+		 */
+		public int compare(Object o1, Object o2) {
+			Space a = (Space) o1;
+			Space b = (Space) o2;
+			
+			if (grouped) {
+				int result = columns ? compare(a.getX(), b.getX()) : compare(a.getY(), b.getY());
+				if (result != 0) {
+					return result;
+				}
+				result = columns ? compare(a.getWidth(), b.getWidth()) : compare(a.getHeight(), b.getHeight());
+				if (result != 0) {
+					return result;
+				}
+			}
+			
+			return columns ? compare(a.getY(), b.getY()) : compare(a.getX(), b.getX());
+		}
+		
+		/**
+		 * Compare two values
+		 * 
+		 * @param a The first value
+		 * @param b The second value
+		 * @return Negative if a is lower, positive if higher and 0 if they're equal
+		 */
+		private int compare(float a, float b) {
+			if (a < b) {
+				return -1;
+			}
+			if (a > b) {
+				return 1;
+			}
+			
+			return 0;
+		}
+	}
 }
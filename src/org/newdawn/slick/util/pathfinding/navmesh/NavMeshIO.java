@@ -0,0 +1,157 @@
+package org.newdawn.slick.util.pathfinding.navmesh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+import org.newdawn.slick.util.ResourceLoader;
+
+/**
+ * Utility methods to save a built navigation mesh to a compact binary form and
+ * load it back, so a mesh can be built once rather than every time a map is 
+ * loaded.
+ * 
+ * The format is a header, the number of spaces, each space's position and size,
+ * then for each space its links as the index of the target space, the linking
+ * point and the shared edge.
+ * 
+ * @author kevin
+ */
+public class NavMeshIO {
+	/** The value identifying a navigation mesh file */
+	private static final int MAGIC = 0x4e41564d;
+	/** The version of the format written */
+	private static final int VERSION = 1;
+	
+	/**
+	 * Load a navigation mesh
+	 * 
+	 * @param ref The reference to the mesh file (file or classpath)
+	 * @return The navigation mesh loaded
+	 * @throws IOException Indicates a failure to read or decode the mesh
+	 */
+	public static NavMesh loadMesh(String ref) throws IOException {
+		return loadMesh(ResourceLoader.getResourceAsStream(ref));
+	}
+	
+	/**
+	 * Load a navigation mesh
+	 * 
+	 * @param ref The file to load the mesh from
+	 * @return The navigation mesh loaded
+	 * @throws IOException Indicates a failure to read or decode the mesh
+	 */
+	public static NavMesh loadMesh(File ref) throws IOException {
+		return loadMesh(new FileInputStream(ref));
+	}
+	
+	/**
+	 * Load a navigation mesh. The stream is closed once the mesh has been read.
+	 * 
+	 * @param ref The stream to read the mesh from
+	 * @return The navigation mesh loaded
+	 * @throws IOException Indicates a failure to read or decode the mesh
+	 */
+	public static NavMesh loadMesh(InputStream ref) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(ref));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a navigation mesh");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported navigation mesh version: "+version);
+			}
+			
+			Space[] spaces = new Space[in.readInt()];
+			for (int i=0;i<spaces.length;i++) {
+				spaces[i] = new Space(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+			}
+			
+			NavMesh mesh = new NavMesh();
+			for (int i=0;i<spaces.length;i++) {
+				int links = in.readInt();
+				for (int j=0;j<links;j++) {
+					int target = in.readInt();
+					if ((target < 0) || (target >= spaces.length)) {
+						throw new IOException("Invalid link target: "+target);
+					}
+					spaces[i].addLink(new Link(in.readFloat(), in.readFloat(), spaces[target], 
+							in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()));
+				}
+				mesh.addSpace(spaces[i]);
+			}
+			
+			return mesh;
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Save a navigation mesh
+	 * 
+	 * @param file The file to which we'll save
+	 * @param mesh The mesh to store
+	 * @throws IOException Indicates a failure to write the mesh
+	 */
+	public static void saveMesh(File file, NavMesh mesh) throws IOException {
+		saveMesh(new FileOutputStream(file), mesh);
+	}
+	
+	/**
+	 * Save a navigation mesh. The stream is closed once the mesh has been written.
+	 * 
+	 * @param out The location to which we'll save
+	 * @param mesh The mesh to store
+	 * @throws IOException Indicates a failure to write the mesh
+	 */
+	public static void saveMesh(OutputStream out, NavMesh mesh) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		try {
+			HashMap indices = new HashMap();
+			for (int i=0;i<mesh.getSpaceCount();i++) {
+				indices.put(mesh.getSpace(i), new Integer(i));
+			}
+			
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeInt(mesh.getSpaceCount());
+			for (int i=0;i<mesh.getSpaceCount();i++) {
+				Space space = mesh.getSpace(i);
+				data.writeFloat(space.getX());
+				data.writeFloat(space.getY());
+				data.writeFloat(space.getWidth());
+				data.writeFloat(space.getHeight());
+			}
+			for (int i=0;i<mesh.getSpaceCount();i++) {
+				Space space = mesh.getSpace(i);
+				data.writeInt(space.getLinkCount());
+				for (int j=0;j<space.getLinkCount();j++) {
+					Link link = space.getLink(j);
+					Integer target = (Integer) indices.get(link.getTarget());
+					if (target == null) {
+						throw new IOException("Link to a space outside the mesh: "+link.getTarget());
+					}
+					data.writeInt(target.intValue());
+					data.writeFloat(link.getX());
+					data.writeFloat(link.getY());
+					data.writeFloat(link.getStartX());
+					data.writeFloat(link.getStartY());
+					data.writeFloat(link.getEndX());
+					data.writeFloat(link.getEndY());
+				}
+			}
+		} finally {
+			data.close();
+		}
+	}
+}
@@ -23,7 +23,24 @@ public class Space {
 	/** A list of the links from this space to others */
 	private ArrayList linksList = new ArrayList();
 	/** The cost to get to this node */
-	private float cost;
+	float cost;
+	
+	/** The number of the last search of the mesh to reach this space */
+	int search;
+	/** The position of this space in the open list of the search, -1 if it's not there */
+	int openIndex = -1;
+	/** True if the search has found the best route to this space */
+	boolean closed;
+	/** The estimated cost of a route to the target through this space */
+	float estimate;
+	/** The link the best route found so far enters this space through */
+	Link entry;
+	/** The space the best route found so far enters this space from */
+	Space previous;
+	/** The x coordinate of the point the best route found so far enters this space */
+	float entryX;
+	/** The y coordinate of the point the best route found so far enters this space */
+	float entryY;
 	
 	/**
 	 * Create a new space 
@@ -94,7 +111,7 @@ public class Space {
 			float bottom = Math.min(y+height, other.y+other.height);
 			float linky = top + ((bottom-top)/2);
 			
-			Link link = new Link(linkx, linky, other);
+			Link link = new Link(linkx, linky, other, linkx, top, linkx, bottom);
 			links.put(other,link);
 			linksList.add(link);
 		}
@@ -109,12 +126,22 @@ public class Space {
 			float right = Math.min(x+width, other.x+other.width);
 			float linkx = left + ((right-left)/2);
 			
-			Link link = new Link(linkx, linky, other);
+			Link link = new Link(linkx, linky, other, left, linky, right, linky);
 			links.put(other, link);
 			linksList.add(link);
 		}		
 	}
 	
+	/**
+	 * Add a link that has already been worked out from this space to another
+	 * 
+	 * @param link The link to add
+	 */
+	void addLink(Link link) {
+		links.put(link.getTarget(), link);
+		linksList.add(link);
+	}
+	
 	/**
 	 * Check whether two locations are within tolerance distance. This is
 	 * used when finding aligned edges to remove float rounding errors
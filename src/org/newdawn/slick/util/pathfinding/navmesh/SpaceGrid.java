@@ -0,0 +1,125 @@
+package org.newdawn.slick.util.pathfinding.navmesh;
+
+import java.util.ArrayList;
+
+/**
+ * A uniform grid over the spaces of a mesh used to find the space at a location
+ * without checking every space. Each cell of the grid lists the spaces that
+ * overlap it, in the order they appear in the mesh.
+ *
+ * @author kevin
+ */
+class SpaceGrid {
+	/** The x coordinate of the top corner of the grid */
+	private float x;
+	/** The y coordinate of the top corner of the grid */
+	private float y;
+	/** The width and height of each cell */
+	private float cellSize;
+	/** The number of cells across the grid */
+	private int across;
+	/** The number of cells down the grid */
+	private int down;
+	/** The spaces overlapping each cell, indexed by x + (y * across) */
+	private Space[][] cells;
+
+	/**
+	 * Create a new grid over a set of spaces
+	 *
+	 * @param spaces The spaces to index
+	 */
+	SpaceGrid(ArrayList spaces) {
+		float minx = Float.MAX_VALUE;
+		float miny = Float.MAX_VALUE;
+		float maxx = -Float.MAX_VALUE;
+		float maxy = -Float.MAX_VALUE;
+		for (int i=0;i<spaces.size();i++) {
+			Space space = (Space) spaces.get(i);
+			minx = Math.min(minx, space.getX());
+			miny = Math.min(miny, space.getY());
+			maxx = Math.max(maxx, space.getX() + space.getWidth());
+			maxy = Math.max(maxy, space.getY() + space.getHeight());
+		}
+		if (spaces.size() == 0) {
+			minx = miny = maxx = maxy = 0;
+		}
+
+		// aim for around one cell per space
+		float width = Math.max(maxx - minx, 0.0001f);
+		float height = Math.max(maxy - miny, 0.0001f);
+		x = minx;
+		y = miny;
+		cellSize = (float) Math.sqrt((width * height) / Math.max(1, spaces.size()));
+		across = Math.max(1, Math.min(1024, (int) Math.ceil(width / cellSize)));
+		down = Math.max(1, Math.min(1024, (int) Math.ceil(height / cellSize)));
+		cellSize = Math.max(width / across, height / down);
+
+		int[] counts = new int[across * down];
+		for (int pass=0;pass<2;pass++) {
+			for (int i=0;i<spaces.size();i++) {
+				Space space = (Space) spaces.get(i);
+				int xs = cellX(space.getX());
+				int ys = cellY(space.getY());
+				int xe = cellX(space.getX() + space.getWidth());
+				int ye = cellY(space.getY() + space.getHeight());
+
+				for (int cx=xs;cx<=xe;cx++) {
+					for (int cy=ys;cy<=ye;cy++) {
+						int cell = cx + (cy * across);
+						if (pass == 0) {
+							counts[cell]++;
+						} else {
+							cells[cell][counts[cell]++] = space;
+						}
+					}
+				}
+			}
+
+			if (pass == 0) {
+				cells = new Space[across * down][];
+				for (int i=0;i<cells.length;i++) {
+					cells[i] = new Space[counts[i]];
+					counts[i] = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the column of the grid containing a given x coordinate, clamped to the grid
+	 *
+	 * @param px The x coordinate
+	 * @return The column containing the coordinate
+	 */
+	private int cellX(float px) {
+		return Math.max(0, Math.min(across - 1, (int) Math.floor((px - x) / cellSize)));
+	}
+
+	/**
+	 * Get the row of the grid containing a given y coordinate, clamped to the grid
+	 *
+	 * @param py The y coordinate
+	 * @return The row containing the coordinate
+	 */
+	private int cellY(float py) {
+		return Math.max(0, Math.min(down - 1, (int) Math.floor((py - y) / cellSize)));
+	}
+
+	/**
+	 * Find the space at a given location
+	 *
+	 * @param px The x coordinate at which to find the space
+	 * @param py The y coordinate at which to find the space
+	 * @return The space at the given location or null if there isn't one
+	 */
+	Space find(float px, float py) {
+		Space[] cell = cells[cellX(px) + (cellY(py) * across)];
+		for (int i=0;i<cell.length;i++) {
+			if (cell[i].contains(px, py)) {
+				return cell[i];
+			}
+		}
+
+		return null;
+	}
+}
@@ -81,6 +81,7 @@ import org.newdawn.slick.font.GlyphPage;
 import org.newdawn.slick.font.HieroSettings;
 import org.newdawn.slick.font.effects.ColorEffect;
 import org.newdawn.slick.font.effects.ConfigurableEffect;
+import org.newdawn.slick.font.effects.DistanceFieldEffect;
 import org.newdawn.slick.font.effects.EffectUtil;
 import org.newdawn.slick.font.effects.GradientEffect;
 import org.newdawn.slick.font.effects.OutlineEffect;
@@ -186,6 +187,7 @@ public class Hiero extends JFrame {
 		effectsListModel.addElement(new OutlineWobbleEffect());
 		effectsListModel.addElement(new OutlineZigzagEffect());
 		effectsListModel.addElement(new ShadowEffect());
+		effectsListModel.addElement(new DistanceFieldEffect());
 		new EffectPanel(colorEffect);
 
 		setVisible(true);